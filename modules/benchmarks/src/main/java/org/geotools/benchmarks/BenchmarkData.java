@@ -0,0 +1,195 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.TestData;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Fixtures shared by the benchmarks. The generated datasets are built out of a random generator
+ * with a fixed seed, so that the same data is used in every run and every version being compared.
+ */
+public class BenchmarkData {
+
+    /**
+     * The seed of all the random generators used to build the datasets
+     */
+    public static final long SEED = 20110701;
+
+    /**
+     * The generated features are spread over this area, in degrees
+     */
+    public static final double WIDTH = 360;
+
+    public static final double HEIGHT = 180;
+
+    static final String[] SHAPEFILE_EXTENSIONS = new String[] { "shp", "shx", "dbf", "prj" };
+
+    static final String[] CATEGORIES = new String[] { "road", "river", "park", "building", "lake" };
+
+    /**
+     * Returns a random generator initialized with {@link #SEED}
+     */
+    public static Random random() {
+        return new Random(SEED);
+    }
+
+    /**
+     * The feature type of the generated features: a polygon geometry, an integer id, a name, a
+     * double value, a category out of five possible values, and a date
+     */
+    public static SimpleFeatureType createFeatureType() {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("benchmark");
+        tb.setCRS(DefaultGeographicCRS.WGS84);
+        tb.add("geom", Polygon.class);
+        tb.add("id", Integer.class);
+        tb.add("name", String.class);
+        tb.add("value", Double.class);
+        tb.add("category", String.class);
+        tb.add("date", Date.class);
+        return tb.buildFeatureType();
+    }
+
+    /**
+     * Generates the specified number of features of the {@link #createFeatureType()} type
+     * 
+     * @param count the number of features
+     * @param vertices the number of vertices of each polygon
+     */
+    public static List<SimpleFeature> createFeatures(int count, int vertices) {
+        SimpleFeatureType type = createFeatureType();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        GeometryFactory gf = new GeometryFactory();
+        Random random = random();
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(count);
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * WIDTH - WIDTH / 2;
+            double y = random.nextDouble() * HEIGHT - HEIGHT / 2;
+            fb.add(createPolygon(random, gf, x, y, 0.1 + random.nextDouble(), vertices));
+            fb.add(i);
+            fb.add("feature" + i);
+            fb.add(random.nextDouble() * 1000);
+            fb.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            fb.add(new Date(random.nextInt(Integer.MAX_VALUE) * 1000L));
+            features.add(fb.buildFeature("benchmark." + i));
+        }
+        return features;
+    }
+
+    /**
+     * Builds a star shaped polygon centered in the specified point
+     */
+    public static Polygon createPolygon(Random random, GeometryFactory gf, double x, double y,
+            double radius, int vertices) {
+        Coordinate[] coords = new Coordinate[vertices + 1];
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double r = radius * (0.5 + random.nextDouble() / 2);
+            coords[i] = new Coordinate(x + r * Math.cos(angle), y + r * Math.sin(angle));
+        }
+        coords[vertices] = coords[0];
+        LinearRing shell = gf.createLinearRing(coords);
+        return gf.createPolygon(shell, null);
+    }
+
+    /**
+     * Builds a random walk line starting from the specified point
+     */
+    public static LineString createLine(Random random, GeometryFactory gf, double x, double y,
+            double step, int vertices) {
+        Coordinate[] coords = new Coordinate[vertices];
+        for (int i = 0; i < vertices; i++) {
+            coords[i] = new Coordinate(x, y);
+            x += (random.nextDouble() - 0.5) * step;
+            y += (random.nextDouble() - 0.5) * step;
+        }
+        return gf.createLineString(coords);
+    }
+
+    /**
+     * Copies a shapefile of the sample-data module in the specified directory. The sample data
+     * might be packed in a jar, so it's copied to have real files to work against.
+     * 
+     * @param name the shapefile name, without extension (e.g. "statepop")
+     * @param directory the target directory
+     * @return the .shp file
+     * @throws IOException
+     */
+    public static File copyShapefile(String name, File directory) throws IOException {
+        for (String extension : SHAPEFILE_EXTENSIONS) {
+            InputStream in = TestData.openStream("shapes/" + name + "." + extension);
+            OutputStream out = new FileOutputStream(new File(directory, name + "." + extension));
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+                out.close();
+            }
+        }
+        return new File(directory, name + ".shp");
+    }
+
+    /**
+     * Creates a new empty temporary directory
+     */
+    public static File createTempDirectory(String prefix) throws IOException {
+        File directory = File.createTempFile(prefix, "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Could not create temporary directory " + directory);
+        }
+        return directory;
+    }
+
+    /**
+     * Deletes a directory created with {@link #createTempDirectory(String)} along with its
+     * contents
+     */
+    public static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import org.geotools.factory.GeoTools;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, accepting the usual JMH command line options. Unless otherwise specified
+ * the results are saved in JSON format in a <code>gt-benchmarks-&lt;version&gt;.json</code> file,
+ * so that runs against different GeoTools versions can be compared.
+ * <p>
+ * Examples:
+ * <pre>
+ * java -jar benchmarks.jar                      # run all benchmarks
+ * java -jar benchmarks.jar Filter -p filter=bbox # a single benchmark and parameter value
+ * java -jar benchmarks.jar -rff base.json       # save the results in a specific file
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+        if (cmdOptions.getIncludes().isEmpty()) {
+            builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+        }
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            builder.result(getDefaultResultFile());
+        }
+        new Runner(builder.build()).run();
+    }
+
+    /**
+     * The name of the file the results are saved to when not specified on the command line
+     */
+    static String getDefaultResultFile() {
+        return "gt-benchmarks-" + GeoTools.getVersion() + ".json";
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.shapefile.ShpFiles;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scans the dbf file of the "statepop" sample shapefile (252 columns), decoding either all the
+ * columns or just a couple of them. Each benchmark returns the number of non null values read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DbaseFileReaderBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean memoryMapped;
+
+    @Param({ "ISO-8859-1", "UTF-8" })
+    public String charset;
+
+    File directory;
+
+    ShpFiles shpFiles;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = BenchmarkData.createTempDirectory("dbf");
+        File shp = BenchmarkData.copyShapefile("statepop", directory);
+        shpFiles = new ShpFiles(shp);
+    }
+
+    @TearDown
+    public void tearDown() {
+        shpFiles.dispose();
+        BenchmarkData.delete(directory);
+    }
+
+    DbaseFileReader open() throws Exception {
+        return new DbaseFileReader(shpFiles, memoryMapped, Charset.forName(charset));
+    }
+
+    @Benchmark
+    public int readEntries() throws Exception {
+        DbaseFileReader reader = open();
+        try {
+            int values = 0;
+            Object[] entry = new Object[reader.getHeader().getNumFields()];
+            while (reader.hasNext()) {
+                reader.readEntry(entry);
+                for (Object value : entry) {
+                    if (value != null) {
+                        values++;
+                    }
+                }
+            }
+            return values;
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Benchmark
+    public int readTwoColumns() throws Exception {
+        DbaseFileReader reader = open();
+        try {
+            return readTwoColumns(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Benchmark
+    public int readTwoColumnsProjected() throws Exception {
+        DbaseFileReader reader = open();
+        try {
+            reader.setProjection(new int[] { 0, 7 });
+            return readTwoColumns(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    int readTwoColumns(DbaseFileReader reader) throws Exception {
+        int values = 0;
+        while (reader.hasNext()) {
+            DbaseFileReader.Row row = reader.readRow();
+            if (row.read(0) != null) {
+                values++;
+            }
+            if (row.read(7) != null) {
+                values++;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Builds features with {@link SimpleFeatureBuilder} and reads their attributes back, the way
+ * data stores and the renderer do
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FeatureBuilderBenchmark {
+
+    SimpleFeatureType type;
+
+    SimpleFeatureBuilder builder;
+
+    Object[] values;
+
+    SimpleFeature feature;
+
+    int counter;
+
+    @Setup
+    public void setup() {
+        List<SimpleFeature> features = BenchmarkData.createFeatures(1, 8);
+        feature = features.get(0);
+        type = feature.getFeatureType();
+        builder = new SimpleFeatureBuilder(type);
+        values = feature.getAttributes().toArray();
+    }
+
+    @Benchmark
+    public SimpleFeature buildWithAdd() {
+        builder.add(values[0]);
+        builder.add(counter++);
+        builder.add("name");
+        builder.add(12.5);
+        builder.add("road");
+        builder.add(new Date(0));
+        return builder.buildFeature(null);
+    }
+
+    @Benchmark
+    public SimpleFeature buildFromArray() {
+        return SimpleFeatureBuilder.build(type, values, null);
+    }
+
+    @Benchmark
+    public SimpleFeature copy() {
+        return SimpleFeatureBuilder.copy(feature);
+    }
+
+    @Benchmark
+    public void readAttributesByName(Blackhole bh) {
+        bh.consume(feature.getAttribute("id"));
+        bh.consume(feature.getAttribute("name"));
+        bh.consume(feature.getAttribute("value"));
+        bh.consume(feature.getDefaultGeometry());
+    }
+
+    @Benchmark
+    public void readAttributesByIndex(Blackhole bh) {
+        bh.consume(feature.getAttribute(1));
+        bh.consume(feature.getAttribute(2));
+        bh.consume(feature.getAttribute(3));
+        bh.consume(feature.getAttribute(0));
+    }
+}
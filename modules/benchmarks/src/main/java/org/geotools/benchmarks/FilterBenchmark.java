@@ -0,0 +1,101 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluates the most common filters built by the default filter factory against a generated
+ * in memory dataset
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({ "equals", "between", "like", "bbox", "and", "or", "in" })
+    public String filter;
+
+    @Param({ "10000" })
+    public int features;
+
+    List<SimpleFeature> data;
+
+    Filter compiled;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.createFeatures(features, 8);
+        compiled = createFilter(filter);
+    }
+
+    static Filter createFilter(String name) {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        if ("equals".equals(name)) {
+            return ff.equals(ff.property("category"), ff.literal("park"));
+        } else if ("between".equals(name)) {
+            return ff.between(ff.property("value"), ff.literal(100), ff.literal(200));
+        } else if ("like".equals(name)) {
+            return ff.like(ff.property("name"), "feature1*");
+        } else if ("bbox".equals(name)) {
+            return ff.bbox(ff.property("geom"), -10, -10, 10, 10, null);
+        } else if ("and".equals(name)) {
+            return ff.and(ff.greater(ff.property("value"), ff.literal(500)), ff.equals(ff
+                    .property("category"), ff.literal("road")));
+        } else if ("or".equals(name)) {
+            return ff.or(ff.less(ff.property("id"), ff.literal(100)), ff.equals(ff
+                    .property("category"), ff.literal("lake")));
+        } else if ("in".equals(name)) {
+            // the typical output of a SLD rule matching a few values
+            return ff.or(ff.equals(ff.property("category"), ff.literal("road")), ff.or(ff
+                    .equals(ff.property("category"), ff.literal("river")), ff.equals(ff
+                    .property("category"), ff.literal("lake"))));
+        }
+        throw new IllegalArgumentException("Unknown filter " + name);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        int matches = 0;
+        for (SimpleFeature feature : data) {
+            if (compiled.evaluate(feature)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
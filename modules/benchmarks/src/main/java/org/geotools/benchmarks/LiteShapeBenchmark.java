@@ -0,0 +1,145 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.Decimator;
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.opengis.referencing.operation.MathTransform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Turns generated lines and polygons into {@link LiteShape2} objects and iterates over their path,
+ * which is what the renderer does for each painted geometry, and benchmarks the {@link Decimator}
+ * on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LiteShapeBenchmark {
+
+    /**
+     * The screen the geometries are painted onto
+     */
+    static final Rectangle PAINT_AREA = new Rectangle(0, 0, 1024, 512);
+
+    @Param({ "polygon", "line" })
+    public String geometry;
+
+    @Param({ "10", "1000" })
+    public int vertices;
+
+    List<Geometry> geometries;
+
+    MathTransform worldToScreen;
+
+    MathTransform screenToWorld;
+
+    double[] coords = new double[6];
+
+    @Setup
+    public void setup() throws Exception {
+        GeometryFactory gf = new GeometryFactory();
+        Random random = BenchmarkData.random();
+        geometries = new ArrayList<Geometry>();
+        for (int i = 0; i < 100; i++) {
+            double x = random.nextDouble() * BenchmarkData.WIDTH - BenchmarkData.WIDTH / 2;
+            double y = random.nextDouble() * BenchmarkData.HEIGHT - BenchmarkData.HEIGHT / 2;
+            if ("polygon".equals(geometry)) {
+                geometries.add(BenchmarkData.createPolygon(random, gf, x, y, 5, vertices));
+            } else {
+                geometries.add(BenchmarkData.createLine(random, gf, x, y, 0.5, vertices));
+            }
+        }
+
+        // the whole world on the paint area, y axis flipped
+        double scale = PAINT_AREA.width / BenchmarkData.WIDTH;
+        AffineTransform at = new AffineTransform(scale, 0, 0, -scale, PAINT_AREA.width / 2.0,
+                PAINT_AREA.height / 2.0);
+        worldToScreen = new AffineTransform2D(at);
+        screenToWorld = worldToScreen.inverse();
+    }
+
+    @Benchmark
+    public double iterateLiteShape() throws Exception {
+        Decimator decimator = new Decimator(screenToWorld, PAINT_AREA, 0.8);
+        double sum = 0;
+        for (Geometry g : geometries) {
+            LiteShape2 shape = new LiteShape2(g, worldToScreen, decimator, false, true);
+            sum += iterate(shape.getPathIterator(null));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double iterateLiteShapeNoDecimation() throws Exception {
+        double sum = 0;
+        for (Geometry g : geometries) {
+            LiteShape2 shape = new LiteShape2(g, worldToScreen, null, false, true);
+            sum += iterate(shape.getPathIterator(null));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int decimateTransformGeneralize() throws Exception {
+        Decimator decimator = new Decimator(screenToWorld, PAINT_AREA, 0.8);
+        int points = 0;
+        for (Geometry g : geometries) {
+            // the decimator works in place, work on a copy
+            Geometry copy = LiteCoordinateSequence.cloneGeometry(g);
+            decimator.decimateTransformGeneralize(copy, worldToScreen);
+            points += copy.getNumPoints();
+        }
+        return points;
+    }
+
+    double iterate(PathIterator pi) {
+        double sum = 0;
+        while (!pi.isDone()) {
+            pi.currentSegment(coords);
+            sum += coords[0] + coords[1];
+            pi.next();
+        }
+        return sum;
+    }
+}
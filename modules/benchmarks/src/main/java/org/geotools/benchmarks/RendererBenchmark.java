@@ -0,0 +1,143 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Paints the "statepop" sample shapefile and/or a generated in memory dataset with
+ * {@link StreamingRenderer}, optionally rendering the layers in parallel
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RendererBenchmark {
+
+    static final Rectangle PAINT_AREA = new Rectangle(0, 0, 768, 512);
+
+    /**
+     * Roughly the continental US, where the shapefile data is
+     */
+    static final ReferencedEnvelope MAP_AREA = new ReferencedEnvelope(-126, -66, 23, 51,
+            DefaultGeographicCRS.WGS84);
+
+    @Param({ "shapefile", "memory", "both" })
+    public String data;
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    File directory;
+
+    ShapefileDataStore store;
+
+    MapContent map;
+
+    StreamingRenderer renderer;
+
+    ExecutorService pool;
+
+    BufferedImage image;
+
+    @Setup
+    public void setup() throws Exception {
+        StyleBuilder sb = new StyleBuilder();
+        map = new MapContent();
+        if ("shapefile".equals(data) || "both".equals(data)) {
+            directory = BenchmarkData.createTempDirectory("render");
+            File shp = BenchmarkData.copyShapefile("statepop", directory);
+            store = new ShapefileDataStore(shp.toURI().toURL());
+            Style style = sb.createStyle(sb.createPolygonSymbolizer(Color.LIGHT_GRAY, Color.BLACK,
+                    1));
+            map.addLayer(new FeatureLayer(store.getFeatureSource(), style));
+        }
+        if ("memory".equals(data) || "both".equals(data)) {
+            Style style = sb.createStyle(sb.createPolygonSymbolizer(Color.ORANGE, Color.RED, 1));
+            map.addLayer(new FeatureLayer(DataUtilities.collection(BenchmarkData.createFeatures(
+                    10000, 16)), style));
+        }
+
+        renderer = new StreamingRenderer();
+        renderer.setMapContent(map);
+        renderer.setJava2DHints(new RenderingHints(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON));
+        if (parallel) {
+            pool = Executors.newFixedThreadPool(4);
+            renderer.setLayerThreadPool(pool);
+        }
+        image = new BufferedImage(PAINT_AREA.width, PAINT_AREA.height,
+                BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        map.dispose();
+        if (store != null) {
+            store.dispose();
+            BenchmarkData.delete(directory);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, PAINT_AREA.width, PAINT_AREA.height);
+            renderer.paint(graphics, PAINT_AREA, MAP_AREA);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
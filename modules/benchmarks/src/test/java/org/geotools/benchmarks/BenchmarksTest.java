@@ -0,0 +1,82 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Makes sure the fixtures are reproducible and that the benchmarks run, without measuring
+ * anything
+ */
+public class BenchmarksTest extends TestCase {
+
+    public void testReproducibleData() {
+        List<SimpleFeature> first = BenchmarkData.createFeatures(100, 8);
+        List<SimpleFeature> second = BenchmarkData.createFeatures(100, 8);
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getAttributes(), second.get(i).getAttributes());
+        }
+    }
+
+    public void testFilters() throws Exception {
+        FilterBenchmark benchmark = new FilterBenchmark();
+        benchmark.features = 1000;
+        for (String filter : new String[] { "equals", "between", "like", "bbox", "and", "or",
+                "in" }) {
+            benchmark.filter = filter;
+            benchmark.setup();
+            int matches = benchmark.evaluate();
+            assertTrue(filter, matches > 0 && matches < benchmark.features);
+        }
+    }
+
+    public void testFeatureBuilder() throws Exception {
+        FeatureBuilderBenchmark benchmark = new FeatureBuilderBenchmark();
+        benchmark.setup();
+        assertNotNull(benchmark.buildWithAdd());
+        assertNotNull(benchmark.buildFromArray());
+        assertNotNull(benchmark.copy());
+    }
+
+    public void testLiteShape() throws Exception {
+        LiteShapeBenchmark benchmark = new LiteShapeBenchmark();
+        benchmark.geometry = "line";
+        benchmark.vertices = 1000;
+        benchmark.setup();
+        benchmark.iterateLiteShape();
+        benchmark.iterateLiteShapeNoDecimation();
+        // the random walk lines are a few pixels wide, decimation must kick in
+        assertTrue(benchmark.decimateTransformGeneralize() < 100 * 1000);
+    }
+
+    public void testDbaseFileReader() throws Exception {
+        DbaseFileReaderBenchmark benchmark = new DbaseFileReaderBenchmark();
+        benchmark.charset = "ISO-8859-1";
+        benchmark.memoryMapped = true;
+        benchmark.setup();
+        try {
+            assertTrue(benchmark.readEntries() > 0);
+            assertEquals(benchmark.readTwoColumns(), benchmark.readTwoColumnsProjected());
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+}
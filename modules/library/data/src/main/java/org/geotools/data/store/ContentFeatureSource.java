@@ -20,8 +20,11 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.DataUtilities;
@@ -31,13 +34,15 @@ import org.geotools.data.FeatureReader;
 import org.geotools.data.FeatureSource;
 import org.geotools.data.FilteringFeatureReader;
 import org.geotools.data.MaxFeatureReader;
+import org.geotools.data.PartitionedFeatureSource;
+import org.geotools.data.PartitionedVisitExecutor;
 import org.geotools.data.Query;
 import org.geotools.data.QueryCapabilities;
 import org.geotools.data.ReTypeFeatureReader;
 import org.geotools.data.ResourceInfo;
 import org.geotools.data.Transaction;
 import org.geotools.data.crs.ReprojectFeatureReader;
-import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.sort.SortedFeatureReader;
 import org.geotools.factory.Hints;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
@@ -57,6 +62,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
 import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 
@@ -88,7 +94,7 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/data/src/main/java/org/geotools/data/store/ContentFeatureSource.java $
  */
-public abstract class ContentFeatureSource implements SimpleFeatureSource {
+public abstract class ContentFeatureSource implements PartitionedFeatureSource {
     /**
      * The entry for the feature source.
      */
@@ -481,7 +487,29 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
             query = dq;
         }
         
-        FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReaderInternal( query );
+        // sorting is emulated when the subclass cannot do it, in that case the subclass has to
+        // return all the matching features along with the sort attributes, the paging and the
+        // retyping get performed after the sort
+        final boolean sortFallback = !canSort() && requiresSorting(query.getSortBy());
+        Query internal = query;
+        boolean sortAttributesAdded = false;
+        if ( sortFallback ) {
+            if ( !SortedFeatureReader.canSort(getSchema(), query.getSortBy()) ) {
+                throw new UnsupportedOperationException( "sorting unsupported" );
+            }
+            internal = new Query(query);
+            internal.setSortBy(null);
+            internal.setStartIndex(null);
+            internal.setMaxFeatures(Query.DEFAULT_MAX);
+            String[] names = query.getPropertyNames();
+            String[] extended = addSortAttributes(names, query.getSortBy());
+            if ( extended != names ) {
+                internal.setPropertyNames(extended);
+                sortAttributesAdded = true;
+            }
+        }
+        
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReaderInternal( internal );
         
         //
         //apply wrappers based on subclass capabilities
@@ -507,30 +535,26 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
             }    
         }
         
+        //sorting
+        if ( sortFallback ) {
+            reader = new SortedFeatureReader(reader, query);
+        }
+        
         // offset
-        if( !canOffset() && offset > 0 ) {
-            // skip the first n records
-            for(int i = 0; i < offset && reader.hasNext(); i++) {
-                reader.next();
-            }
+        if( (sortFallback || !canOffset()) && offset > 0 ) {
+            // skip the first n records, without building them if the reader can do that
+            DataUtilities.skip(reader, offset);
         }
         
         // max feature limit
-        if ( !canLimit() ) {
+        if ( sortFallback || !canLimit() ) {
             if (query.getMaxFeatures() != -1 && query.getMaxFeatures() < Integer.MAX_VALUE ) {
                 reader = new MaxFeatureReader<SimpleFeatureType, SimpleFeature>(reader, query.getMaxFeatures());
             }    
         }
         
-        //sorting
-        if ( !canSort() ) {
-            if ( query.getSortBy() != null && query.getSortBy().length != 0 ) {
-                throw new UnsupportedOperationException( "sorting unsupported" );
-            }
-        }
-        
         //retyping
-        if ( !canRetype() ) {
+        if ( !canRetype() || sortAttributesAdded ) {
             if ( query.getPropertyNames() != Query.ALL_NAMES ) {
                 //rebuild the type and wrap the reader
                 SimpleFeatureType target = 
@@ -547,6 +571,46 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
         return reader;
     }
     
+    /**
+     * Returns true if the sort requires the features to be reordered, that is, if it's
+     * not just made of {@link SortBy#NATURAL_ORDER}, which is the order the features are
+     * returned in anyways
+     */
+    boolean requiresSorting(SortBy[] sortBy) {
+        if ( sortBy == null ) {
+            return false;
+        }
+        for ( SortBy sb : sortBy ) {
+            if ( sb.getPropertyName() != null || sb.getSortOrder() == SortOrder.DESCENDING ) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Returns the property names plus the sort attributes missing from them, or the same
+     * array if none is missing
+     */
+    String[] addSortAttributes(String[] names, SortBy[] sortBy) {
+        if ( names == Query.ALL_NAMES ) {
+            return names;
+        }
+        List<String> extended = new ArrayList<String>(Arrays.asList(names));
+        for ( SortBy sb : sortBy ) {
+            if ( sb.getPropertyName() != null ) {
+                String name = sb.getPropertyName().getPropertyName();
+                if ( !extended.contains(name) ) {
+                    extended.add(name);
+                }
+            }
+        }
+        if ( extended.size() == names.length ) {
+            return names;
+        }
+        return extended.toArray(new String[extended.size()]);
+    }
+    
     /**
      * Visit the features matching the provided query.
      * <p>
@@ -564,6 +628,8 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
      * </ul>
      * Often in the case of Filter.INCLUDES the information can be determined from a file header or metadata table.
      * <p>
+     * Visitors that cannot be handled natively but whose results can be merged are run in
+     * parallel over the partitions returned by {@link #getPartitions(Query, int)}, if any.
      * 
      * @param visitor Visitor called for each feature 
      * @param progress Used to report progress; and errors on a feature by feature basis
@@ -582,6 +648,11 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
             return;
         }
 
+        if ( PartitionedVisitExecutor.accepts(this, query, visitor, progress) ) {
+            //visited in parallel over the partitions provided by the subclass
+            return;
+        }
+
         //subclass could not handle, resort to manually walkign through
         FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReader(query);
         try{
@@ -620,6 +691,23 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
     protected boolean handleVisitor( Query query, FeatureVisitor visitor ) throws IOException {
         return false;
     }
+
+    /**
+     * Splits the query in partitions that can be read independently and in parallel, used to
+     * visit the features with the mergeable visitors on several threads.
+     * <p>
+     * Subclasses able to split a query, for example by ranges of records or keys, should
+     * override this method, the default implementation returns <code>null</code>, meaning
+     * the query cannot be split.
+     * </p>
+     * @param query The query being made.
+     * @param partitions The desired number of partitions
+     * 
+     * @return at most <code>partitions</code> queries, or <code>null</code>
+     */
+    public List<Query> getPartitions( Query query, int partitions ) throws IOException {
+        return null;
+    }
     
     /**
      * Subclass method for returning a native reader from the datastore.
@@ -695,7 +783,9 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
      * <p>
      * Not overriding this method or returning <code>false</code> will case the
      * feature reader created by the subclass to be be accesset offset times before
-     * being returned to the caller. 
+     * being returned to the caller. If the reader implements {@link org.geotools.data.SkippableReader}
+     * the features will be skipped without being built, subclasses that can seek
+     * but cannot handle the offset in the query should return such a reader.
      * </p>
      */
     protected boolean canOffset() {
@@ -750,8 +840,11 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
      * or throw an exception. 
      * </p>
      * <p>
-     * Not overriding this method or returning <code>false</code> will cause an 
-     * exception to be thrown when the query specifies sorting.
+     * Not overriding this method or returning <code>false</code> will cause the
+     * feature reader created by the subclass to be wrapped in a {@link SortedFeatureReader},
+     * which sorts in memory, or on disk for large amounts of features, when the query 
+     * specifies sorting on non geometric attributes. An exception is thrown when sorting
+     * on other attributes.
      */
     protected boolean canSort() {
         return false;
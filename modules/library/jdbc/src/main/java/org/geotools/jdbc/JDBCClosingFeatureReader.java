@@ -20,12 +20,14 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.util.NoSuchElementException;
 
+import org.geotools.data.DataUtilities;
 import org.geotools.data.DelegatingFeatureReader;
 import org.geotools.data.FeatureReader;
+import org.geotools.data.SkippableReader;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
-public class JDBCClosingFeatureReader implements DelegatingFeatureReader<SimpleFeatureType, SimpleFeature> {
+public class JDBCClosingFeatureReader implements DelegatingFeatureReader<SimpleFeatureType, SimpleFeature>, SkippableReader {
 
     FeatureReader reader;
     
@@ -50,6 +52,10 @@ public class JDBCClosingFeatureReader implements DelegatingFeatureReader<SimpleF
         return (SimpleFeature) reader.next();
     }
 
+    public int skip(int count) throws IOException {
+        return DataUtilities.skip(reader, count);
+    }
+
     public void close() throws IOException {
         
         FeatureReader r = reader;
@@ -70,6 +70,10 @@ import org.geotools.factory.Hints;
 import org.geotools.feature.NameImpl;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.MedianVisitor;
+import org.geotools.feature.visitor.QuantileListVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
 import org.geotools.filter.FilterCapabilities;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
@@ -248,6 +252,12 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected int fetchSize;
     
+    /**
+     * The number of insert statements sent to the database in a single batch, defaulting to 1
+     * (no batching)
+     */
+    protected int batchInsertSize = 1;
+    
     /**
      * flag controlling whether primary key columns of a table are exposed via the 
      * feature type.
@@ -343,6 +353,24 @@ public final class JDBCDataStore extends ContentDataStore
     public void setFetchSize(int fetchSize) {
         this.fetchSize = fetchSize;
     }
+    
+    /**
+     * The current batch insert size. When bigger than one, new features are sent to the
+     * database in batches of this size instead of one statement per feature, as long as
+     * the primary key values can be computed before the insert.
+     * @return
+     */
+    public int getBatchInsertSize() {
+        return batchInsertSize;
+    }
+
+    /**
+     * Changes the batch insert size. Set to 1 to disable batching.
+     * @param batchInsertSize
+     */
+    public void setBatchInsertSize(int batchInsertSize) {
+        this.batchInsertSize = batchInsertSize;
+    }
 
     /**
      * Determines if the datastore creates feature types which include those columns / attributes
@@ -1249,6 +1277,21 @@ public final class JDBCDataStore extends ContentDataStore
             att = (AttributeDescriptor) expression.evaluate( featureType );
         }
         
+        //visitors that need more than a single function call
+        if ( visitor instanceof QuantileListVisitor ) {
+            return getQuantiles((QuantileListVisitor) visitor, att, featureType, query, cx);
+        }
+        if ( visitor instanceof UniqueVisitor && ((UniqueVisitor) visitor).isApproximate()
+                && att != null && !(att instanceof GeometryDescriptor) 
+                && dialect.isLimitOffsetSupported() ) {
+            return getMostFrequentValues((UniqueVisitor) visitor, att, featureType, query, cx);
+        }
+        if ( (visitor instanceof MedianVisitor || visitor instanceof StandardDeviationVisitor) 
+                && !isNumeric(att) ) {
+            //the database functions work against numbers only
+            return null;
+        }
+        
         //result of the function
         try {
             Object result = null;
@@ -1289,6 +1332,164 @@ public final class JDBCDataStore extends ContentDataStore
             throw (IOException) new IOException().initCause(e);
         }
     }
+    
+    /**
+     * Computes the classes of a quantile classification in the database with the NTILE window
+     * function, fetching only the minimum and maximum value of each class.
+     */
+    Object getQuantiles(QuantileListVisitor visitor, AttributeDescriptor att, 
+            SimpleFeatureType featureType, Query query, Connection cx) throws IOException {
+        if ( !isNumeric(att) || visitor.getBins() <= 0 ) {
+            return null;
+        }
+        
+        StringBuffer column = new StringBuffer();
+        dialect.encodeColumnName(att.getLocalName(), column);
+        
+        //SELECT min(c), max(c) FROM (SELECT c, ntile(n) OVER (ORDER BY c) AS gt_bin_ FROM ... 
+        // WHERE c IS NOT NULL) gt_bins_ GROUP BY gt_bin_ ORDER BY gt_bin_
+        StringBuffer sql = new StringBuffer();
+        sql.append("SELECT min(").append(column).append("), max(").append(column).append(")");
+        sql.append(" FROM (SELECT ").append(column);
+        sql.append(", ntile(").append(visitor.getBins()).append(") OVER (ORDER BY ");
+        sql.append(column).append(") AS gt_bin_ FROM ");
+        try {
+            FilterToSQL toSQL = encodeAggregateSource(featureType, query, sql);
+            sql.append(" WHERE ").append(column).append(" IS NOT NULL) gt_bins_");
+            sql.append(" GROUP BY gt_bin_ ORDER BY gt_bin_");
+            
+            List<Object[]> rows = selectAggregateRows(sql.toString(), toSQL, 2, cx);
+            List[] bins = new List[rows.size()];
+            for ( int i = 0; i < bins.length; i++ ) {
+                bins[i] = new ArrayList(Arrays.asList(rows.get(i)));
+            }
+            visitor.setValue(bins);
+            return bins;
+        }
+        catch( SQLException e ) {
+            throw (IOException) new IOException().initCause(e);
+        }
+    }
+    
+    /**
+     * Fetches the most frequent values of an attribute, up to the maximum number of values 
+     * tracked by the visitor, and counts the distinct values in the database when they 
+     * do not all fit.
+     */
+    Object getMostFrequentValues(UniqueVisitor visitor, AttributeDescriptor att, 
+            SimpleFeatureType featureType, Query query, Connection cx) throws IOException {
+        StringBuffer column = new StringBuffer();
+        dialect.encodeColumnName(att.getLocalName(), column);
+        
+        try {
+            //SELECT c FROM ... WHERE c IS NOT NULL GROUP BY c ORDER BY count(*) DESC LIMIT n
+            StringBuffer sql = new StringBuffer("SELECT ").append(column).append(" FROM ");
+            FilterToSQL toSQL = encodeAggregateSource(featureType, query, sql);
+            sql.append(" WHERE ").append(column).append(" IS NOT NULL");
+            sql.append(" GROUP BY ").append(column).append(" ORDER BY count(*) DESC");
+            dialect.applyLimitOffset(sql, visitor.getMaxUniqueValues(), 0);
+            
+            List values = new ArrayList();
+            for ( Object[] row : selectAggregateRows(sql.toString(), toSQL, 1, cx) ) {
+                values.add(row[0]);
+            }
+            
+            long distinctCount = values.size();
+            if ( values.size() >= visitor.getMaxUniqueValues() ) {
+                //the values got truncated, count them all
+                sql = new StringBuffer("SELECT count(DISTINCT ").append(column).append(") FROM ");
+                toSQL = encodeAggregateSource(featureType, query, sql);
+                List<Object[]> rows = selectAggregateRows(sql.toString(), toSQL, 1, cx);
+                distinctCount = ((Number) rows.get(0)[0]).longValue();
+            }
+            
+            visitor.setValue(values, distinctCount);
+            return values;
+        }
+        catch( SQLException e ) {
+            throw (IOException) new IOException().initCause(e);
+        }
+    }
+    
+    /**
+     * Encodes the features of the query as a "(SELECT * FROM table WHERE filter) gt_source_"
+     * sub-select, with limit and offset applied, for the aggregates that need to further 
+     * filter or group them.
+     * 
+     * @return the filter encoder used, if any, to set the values of the prepared statement 
+     */
+    FilterToSQL encodeAggregateSource(SimpleFeatureType featureType, Query query, 
+            StringBuffer sql) throws SQLException {
+        //built apart, as some dialects apply limit and offset wrapping the whole statement
+        StringBuffer source = new StringBuffer("SELECT * FROM ");
+        encodeTableName(featureType.getTypeName(), source, query.getHints());
+        
+        FilterToSQL toSQL = null;
+        Filter filter = query.getFilter();
+        if (filter != null && !Filter.INCLUDE.equals(filter)) {
+            //encode filter
+            try {
+                toSQL = dialect instanceof PreparedStatementSQLDialect ? 
+                    createPreparedFilterToSQL(featureType) : createFilterToSQL(featureType);
+                source.append(" ").append(toSQL.encodeToString(filter));
+            } catch (FilterToSQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        applyLimitOffset(source, query);
+        sql.append("(").append(source).append(") gt_source_");
+        
+        return toSQL;
+    }
+    
+    /**
+     * Runs an aggregate query, returning the first <tt>columns</tt> values of each row.
+     */
+    List<Object[]> selectAggregateRows(String sql, FilterToSQL toSQL, int columns, Connection cx) 
+        throws SQLException {
+        LOGGER.fine( sql );
+        
+        List<Object[]> rows = new ArrayList<Object[]>();
+        Statement st = null;
+        ResultSet rs = null;
+        try {
+            if ( dialect instanceof PreparedStatementSQLDialect ) {
+                PreparedStatement ps = cx.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, 
+                        ResultSet.CONCUR_READ_ONLY);
+                st = ps;
+                ps.setFetchSize(fetchSize);
+                if ( toSQL != null ) {
+                    setPreparedFilterValues(ps, (PreparedFilterToSQL) toSQL, 0, cx);
+                }
+                rs = ps.executeQuery();
+            }
+            else {
+                st = cx.createStatement();
+                st.setFetchSize(fetchSize);
+                rs = st.executeQuery( sql );
+            }
+            
+            while(rs.next()) {
+                Object[] row = new Object[columns];
+                for ( int i = 0; i < columns; i++ ) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                rows.add(row);
+            }
+        } finally {
+            closeSafe( rs );
+            closeSafe( st );
+        }
+        return rows;
+    }
+    
+    /**
+     * Returns true if the attribute is a non geometric numeric one
+     */
+    boolean isNumeric(AttributeDescriptor att) {
+        return att != null && !(att instanceof GeometryDescriptor) 
+            && Number.class.isAssignableFrom(att.getType().getBinding());
+    }
 
     /**
      * Helper method for getting the expression from a visitor
@@ -1326,10 +1527,12 @@ public final class JDBCDataStore extends ContentDataStore
             catch( Exception e ) {}
             
             if ( s == null ) {
+                //look for a single argument setter, preferring one accepting the result as is
                 for ( Method m : visitor.getClass().getMethods()) {
-                    if ( "setValue".equals( m.getName() ) ) {
-                        s = m;
-                        break;
+                    if ( "setValue".equals( m.getName() ) && m.getParameterTypes().length == 1 ) {
+                        if ( s == null || m.getParameterTypes()[0].isInstance( result ) ) {
+                            s = m;
+                        }
                     }
                 }
             }
@@ -1371,71 +1574,180 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected void insert(Collection features, SimpleFeatureType featureType, Connection cx)
         throws IOException {
-        PrimaryKey key = getPrimaryKey(featureType);
-
         // we do this in a synchronized block because we need to do two queries,
         // first to figure out what the id will be, then the insert statement
         synchronized (this) {
-            Statement st = null;
-
+            InsertBatch batch = null;
             try {
-                if ( !(dialect instanceof PreparedStatementSQLDialect) ) {
-                    st = cx.createStatement();    
-                }
-                
-                // figure out if we should determine what the fid is pre or post insert
-                boolean postInsert = dialect.lookupGeneratedValuesPostInsert() && isGenerated(key);
-                
+                batch = new InsertBatch(featureType, cx);
                 for (Iterator f = features.iterator(); f.hasNext();) {
-                    SimpleFeature feature = (SimpleFeature) f.next();
-                    
-                    List<Object> keyValues = null;
-                    boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
-                    if(useExisting) {
-                        keyValues = decodeFID(key, feature.getID(), true);
-                    } else if (!postInsert) {
-                        keyValues = getNextValues( key, cx );
-                    }
-                    
-
-                    if ( dialect instanceof PreparedStatementSQLDialect ) {
-                        PreparedStatement ps = insertSQLPS( featureType, feature, keyValues, cx );
-                        try {
-                            ((PreparedStatementSQLDialect)dialect).onInsert(ps, cx, featureType);
-                            ps.execute();
-                        } finally {
-                            closeSafe( ps );
-                        }
-                    } else {
-                        String sql = insertSQL(featureType, feature, keyValues, cx);
-                        
-                        //TODO: execute in batch to improve performance?
-                        ((BasicSQLDialect)dialect).onInsert(st, cx, featureType);
-                        
-                        LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
-                        st.execute(sql);
-                    }
-                    
-                    if ( keyValues == null ) {
-                        //grab the key values post insert
-                        keyValues = getLastValues(key,cx);
-                    }
-                    
-                    //report the feature id as user data since we cant set the fid
-                    String fid = featureType.getTypeName() + "." + encodeFID(keyValues);
-                    feature.getUserData().put("fid", fid);
+                    batch.add((SimpleFeature) f.next());
                 }
-
-                //st.executeBatch();
+                batch.flush();
             } catch (SQLException e) {
                 String msg = "Error inserting features";
                 throw (IOException) new IOException(msg).initCause(e);
             } finally {
-                closeSafe(st);
+                if (batch != null) {
+                    batch.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts features into a table, sending the insert statements to the database in batches
+     * of {@link JDBCDataStore#getBatchInsertSize()} statements when possible.
+     * <p>
+     * Batching is used only if the primary key values are reserved before the insert, that is,
+     * taken from a sequence or generated as random strings on the client side, otherwise each
+     * feature is inserted right away. Auto generated keys are not batched, the dialects can only
+     * guess the next value, which stays the same until a row is actually inserted. In both cases
+     * the feature id is stored in the "fid" user data as soon as the feature is added to the
+     * batch, while errors in batched statements are reported only when the batch is flushed.
+     */
+    class InsertBatch {
+        SimpleFeatureType featureType;
+
+        Connection cx;
+
+        PrimaryKey key;
+
+        /** figure out if we should determine what the fid is pre or post insert */
+        boolean postInsert;
+
+        boolean batchable;
+
+        Statement st;
+
+        PreparedStatement ps;
+
+        String psSql;
+
+        int pending;
+
+        InsertBatch(SimpleFeatureType featureType, Connection cx) throws IOException {
+            this.featureType = featureType;
+            this.cx = cx;
+            this.key = getPrimaryKey(featureType);
+            this.postInsert = dialect.lookupGeneratedValuesPostInsert() && isGenerated(key);
+            this.batchable = batchInsertSize > 1 && !postInsert && isPrecomputable(key);
+        }
+
+        /**
+         * Inserts the feature, or adds it to the current batch, and reports the feature id
+         * in the "fid" user data
+         */
+        void add(SimpleFeature feature) throws IOException, SQLException {
+            List<Object> keyValues = null;
+            boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
+            if(useExisting) {
+                keyValues = decodeFID(key, feature.getID(), true);
+            } else if (!postInsert) {
+                keyValues = getNextValues( key, cx );
+            }
+
+            if ( dialect instanceof PreparedStatementSQLDialect ) {
+                PreparedStatementSQLDialect psDialect = (PreparedStatementSQLDialect) dialect;
+                if (!batchable) {
+                    PreparedStatement ps = insertSQLPS( featureType, feature, keyValues, cx );
+                    try {
+                        psDialect.onInsert(ps, cx, featureType);
+                        ps.execute();
+                    } finally {
+                        closeSafe( ps );
+                    }
+                } else {
+                    // null geometries might change the sql, in that case start a new batch
+                    String sql = buildInsertSQLPS(featureType, feature, key);
+                    if (ps != null && !sql.equals(psSql)) {
+                        flush();
+                        closeSafe(ps);
+                        ps = null;
+                    }
+                    if (ps == null) {
+                        LOGGER.log(Level.FINE, "Inserting new features with ps: {0}", sql);
+                        ps = cx.prepareStatement(sql);
+                        psSql = sql;
+                    }
+                    setInsertSQLPSValues(ps, featureType, feature, keyValues, key, cx);
+                    psDialect.onInsert(ps, cx, featureType);
+                    ps.addBatch();
+                    pending++;
+                }
+            } else {
+                if (st == null) {
+                    st = cx.createStatement();
+                }
+                String sql = insertSQL(featureType, feature, keyValues, cx);
+                ((BasicSQLDialect)dialect).onInsert(st, cx, featureType);
+                
+                LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
+                if (batchable) {
+                    st.addBatch(sql);
+                    pending++;
+                } else {
+                    st.execute(sql);
+                }
+            }
+            
+            if (pending >= batchInsertSize) {
+                flush();
+            }
+
+            if ( keyValues == null ) {
+                //grab the key values post insert
+                keyValues = getLastValues(key,cx);
             }
+            
+            //report the feature id as user data since we cant set the fid
+            String fid = featureType.getTypeName() + "." + encodeFID(keyValues);
+            feature.getUserData().put("fid", fid);
+        }
+
+        /**
+         * Sends the pending insert statements to the database
+         */
+        void flush() throws SQLException {
+            if (pending > 0) {
+                LOGGER.log(Level.FINE, "Executing batch of {0} inserts", pending);
+                if (ps != null) {
+                    ps.executeBatch();
+                } else {
+                    st.executeBatch();
+                }
+                pending = 0;
+            }
+        }
+
+        /**
+         * Releases the statements, without flushing the pending inserts
+         */
+        void close() {
+            closeSafe(st);
+            closeSafe(ps);
+            st = null;
+            ps = null;
         }
     }
 
+    /**
+     * Returns true if the primary key values are reserved before the insert, so that each
+     * feature of a batch gets its own: sequence values, or random strings generated on the
+     * client side. Auto generated values are only predicted by the dialect, and numeric
+     * values are computed as max(col) + 1, both would be the same for the whole batch
+     */
+    boolean isPrecomputable(PrimaryKey pkey) {
+        for (PrimaryKeyColumn col : pkey.getColumns()) {
+            if (!(col instanceof SequencedPrimaryKeyColumn)
+                    && !(col instanceof NonIncrementingPrimaryKeyColumn
+                            && CharSequence.class.isAssignableFrom(col.getType()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Updates an existing feature(s) in the database for a particular feature type / table.
      */
@@ -3303,20 +3615,20 @@ public final class JDBCDataStore extends ContentDataStore
     }
     
     protected void encodeFunction( String function, AttributeDescriptor att, Query query, StringBuffer sql ) {
-        sql.append(function).append("(");
+        StringBuffer column = new StringBuffer();
         if ( att == null ) {
-            sql.append( "*" );
+            column.append( "*" );
         }
         else {
             if ( att instanceof GeometryDescriptor ) {
-                encodeGeometryColumn((GeometryDescriptor)att, sql,query.getHints());
+                encodeGeometryColumn((GeometryDescriptor)att, column,query.getHints());
             }
             else {
-                dialect.encodeColumnName( att.getLocalName(), sql);
+                dialect.encodeColumnName( att.getLocalName(), column);
             }
         }
         
-        sql.append(")");
+        dialect.encodeAggregateFunction(function, column.toString(), sql);
     }
     
     /**
@@ -3497,15 +3809,31 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected PreparedStatement insertSQLPS(SimpleFeatureType featureType, SimpleFeature feature, List keyValues, Connection cx) 
         throws IOException, SQLException {
-        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
-        
-        // grab the primary key and collect the pk column names 
+        // grab the primary key 
         PrimaryKey key = null; 
         try {
             key = getPrimaryKey(featureType);
         } catch (IOException e) {
             throw new RuntimeException( e );
         }
+        
+        String sql = buildInsertSQLPS(featureType, feature, key);
+        LOGGER.log(Level.FINE, "Inserting new feature with ps: {0}", sql);
+        
+        //create the prepared statement
+        PreparedStatement ps = cx.prepareStatement(sql);
+        
+        setInsertSQLPSValues(ps, featureType, feature, keyValues, key, cx);
+        
+        return ps;
+    }
+
+    /**
+     * Generates the sql of a 'INSERT INTO' prepared statement for the specified feature
+     */
+    String buildInsertSQLPS(SimpleFeatureType featureType, SimpleFeature feature, PrimaryKey key)
+            throws SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
         Set<String> pkColumnNames = getColumnNames(key);
         
         StringBuffer sql = new StringBuffer();
@@ -3565,10 +3893,19 @@ public final class JDBCDataStore extends ContentDataStore
         
         sql.setLength(sql.length()-1);
         sql.append(")");
-        LOGGER.log(Level.FINE, "Inserting new feature with ps: {0}", sql);
         
-        //create the prepared statement
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        return sql.toString();
+    }
+
+    /**
+     * Sets the feature attributes and primary key values in a 'INSERT INTO' prepared statement
+     */
+    void setInsertSQLPSValues(PreparedStatement ps, SimpleFeatureType featureType,
+            SimpleFeature feature, List keyValues, PrimaryKey key, Connection cx)
+            throws IOException, SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
+        Set<String> pkColumnNames = getColumnNames(key);
+        boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
         
         //set the attribute values
         int i = 1;
@@ -3618,8 +3955,6 @@ public final class JDBCDataStore extends ContentDataStore
                 }
             }
         }
-        
-        return ps;
     }
     
     /**
@@ -36,6 +36,7 @@ import java.util.logging.Logger;
 
 import org.geotools.data.DefaultQuery;
 import org.geotools.data.FeatureReader;
+import org.geotools.data.SkippableReader;
 import org.geotools.data.Transaction;
 import org.geotools.data.store.ContentFeatureStore;
 import org.geotools.factory.Hints;
@@ -82,7 +83,7 @@ import com.vividsolutions.jts.geom.impl.CoordinateArraySequence;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/jdbc/src/main/java/org/geotools/jdbc/JDBCFeatureReader.java $
  */
-public class JDBCFeatureReader implements  FeatureReader<SimpleFeatureType, SimpleFeature> {
+public class JDBCFeatureReader implements  FeatureReader<SimpleFeatureType, SimpleFeature>, SkippableReader {
     protected static final Logger LOGGER = Logging.getLogger(JDBCFeatureReader.class);
     
     /**
@@ -240,6 +241,19 @@ public class JDBCFeatureReader implements  FeatureReader<SimpleFeatureType, Simp
         return next.booleanValue();
     }
 
+    /**
+     * Moves the result set cursor forward without decoding the rows, used when the
+     * dialect cannot encode the offset in the sql
+     */
+    public int skip(int count) throws IOException {
+        int skipped = 0;
+        while (skipped < count && hasNext()) {
+            next = null;
+            skipped++;
+        }
+        return skipped;
+    }
+
     protected void ensureNext() {
         if (next == null) {
             throw new IllegalStateException("Must call hasNext before calling next");
@@ -32,9 +32,12 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.geotools.data.DataUtilities;
 import org.geotools.data.DefaultQuery;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.FilteringFeatureReader;
+import org.geotools.data.MaxFeatureReader;
+import org.geotools.data.PartitionedVisitExecutor;
 import org.geotools.data.Query;
 import org.geotools.data.QueryCapabilities;
 import org.geotools.data.ReTypeFeatureReader;
@@ -45,6 +48,8 @@ import org.geotools.factory.Hints;
 import org.geotools.factory.Hints.Key;
 import org.geotools.feature.AttributeTypeBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
 import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.filter.visitor.PostPreProcessFilterSplittingVisitor;
 import org.geotools.filter.visitor.SimplifyingFilterVisitor;
@@ -57,6 +62,8 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.vividsolutions.jts.geom.Geometry;
@@ -518,6 +525,15 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         DefaultQuery preQuery = new DefaultQuery(query);
         preQuery.setFilter(preFilter);
         
+        // the database can page the results only if it evaluates the whole filter, otherwise
+        // the paging has to happen after the post filter
+        final boolean postFilterPaging = postFilter != null && postFilter != Filter.INCLUDE
+                && getDataStore().checkLimitOffset(query);
+        if (postFilterPaging) {
+            preQuery.setStartIndex(null);
+            preQuery.setMaxFeatures(Query.DEFAULT_MAX);
+        }
+        
         // Build the feature type returned by this query. Also build an eventual extra feature type
         // containing the attributes we might need in order to evaluate the post filter
         SimpleFeatureType querySchema;
@@ -582,6 +598,23 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             reader = new FilteringFeatureReader<SimpleFeatureType, SimpleFeature>(reader,postFilter);
             if(!returnedSchema.equals(querySchema))
                 reader = new ReTypeFeatureReader(reader, returnedSchema);
+            if (postFilterPaging) {
+                if (query.getStartIndex() != null && query.getStartIndex() > 0) {
+                    try {
+                        DataUtilities.skip(reader, query.getStartIndex());
+                    } catch (IOException e) {
+                        reader.close();
+                        throw e;
+                    } catch (RuntimeException e) {
+                        reader.close();
+                        throw e;
+                    }
+                }
+                if (query.getMaxFeatures() != Query.DEFAULT_MAX) {
+                    reader = new MaxFeatureReader<SimpleFeatureType, SimpleFeature>(reader,
+                            query.getMaxFeatures());
+                }
+            }
         }
 
         return reader;
@@ -599,6 +632,99 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             getDataStore().closeSafe( cx );
         }
     }
+
+    /**
+     * Splits the query in ranges of primary key values, each one read with its own connection.
+     * The key must be made of a single numeric column exposed as an attribute, the range between
+     * its minimum and maximum value is split in equal parts, so the partitions are balanced only
+     * if the key values are evenly spread. Each partition is an indexed range scan on the key,
+     * the first and last ones are open ended so that they also pick up the rows inserted after
+     * the key range has been computed.
+     * <p>
+     * Only queries whose filter is fully encoded in SQL and that are not paged are split, and only
+     * when there is no transaction in progress, since the partitions have to be read
+     * concurrently. The partitions do not share a snapshot of the table, but they are disjoint,
+     * so a row is never visited twice unless its key gets updated in the meantime.
+     */
+    @Override
+    public List<Query> getPartitions(Query query, int partitions) throws IOException {
+        if (getTransaction() != Transaction.AUTO_COMMIT
+                || query.getMaxFeatures() != Query.DEFAULT_MAX
+                || (query.getStartIndex() != null && query.getStartIndex() > 0)
+                || getPrimaryKey() == null) {
+            return null;
+        }
+        List<PrimaryKeyColumn> columns = getPrimaryKey().getColumns();
+        if (columns.size() != 1 || !Number.class.isAssignableFrom(columns.get(0).getType())
+                || getSchema().getDescriptor(columns.get(0).getName()) == null) {
+            return null;
+        }
+        Filter postFilter = splitFilter(query.getFilter())[1];
+        if (postFilter != null && postFilter != Filter.INCLUDE) {
+            return null;
+        }
+
+        int count = getCount(query);
+        partitions = PartitionedVisitExecutor.getPartitionCount(query, partitions, count);
+        if (partitions < 2) {
+            return null;
+        }
+
+        // compute the key range
+        FilterFactory ff = getDataStore().getFilterFactory();
+        PropertyName key = ff.property(columns.get(0).getName());
+        Object min, max;
+        Connection cx = getDataStore().getConnection(getState());
+        try {
+            min = getDataStore().getAggregateValue(new MinVisitor(key), getSchema(), query, cx);
+            max = getDataStore().getAggregateValue(new MaxVisitor(key), getSchema(), query, cx);
+        } finally {
+            getDataStore().closeSafe(cx);
+        }
+        if (!(min instanceof Number) || !(max instanceof Number)) {
+            return null;
+        }
+
+        // split it in equal parts, integral keys get integral bounds, dropping the duplicate
+        // ones when the range is smaller than the number of partitions
+        Class type = columns.get(0).getType();
+        boolean integral = type == Long.class || type == Integer.class || type == Short.class
+                || type == Byte.class || type == java.math.BigInteger.class;
+        double lower = ((Number) min).doubleValue();
+        double step = (((Number) max).doubleValue() - lower) / partitions;
+        List<Object> bounds = new ArrayList<Object>();
+        for (int i = 1; i < partitions; i++) {
+            double bound = lower + step * i;
+            Object value = integral ? (Object) Long.valueOf((long) Math.ceil(bound)) : Double
+                    .valueOf(bound);
+            if (bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(value)) {
+                bounds.add(value);
+            }
+        }
+        if (bounds.isEmpty()) {
+            return null;
+        }
+
+        List<Query> result = new ArrayList<Query>(bounds.size() + 1);
+        for (int i = 0; i <= bounds.size(); i++) {
+            Filter range;
+            if (i == 0) {
+                range = ff.less(key, ff.literal(bounds.get(0)));
+            } else if (i == bounds.size()) {
+                range = ff.greaterOrEqual(key, ff.literal(bounds.get(i - 1)));
+            } else {
+                range = ff.and(ff.greaterOrEqual(key, ff.literal(bounds.get(i - 1))), ff.less(
+                        key, ff.literal(bounds.get(i))));
+            }
+            DefaultQuery partition = new DefaultQuery(query);
+            if (query.getFilter() != null && query.getFilter() != Filter.INCLUDE) {
+                range = ff.and(query.getFilter(), range);
+            }
+            partition.setFilter(range);
+            result.add(partition);
+        }
+        return result;
+    }
     
     /**
      * Computes the column metadata from a plain database table
@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.DefaultQuery;
@@ -214,6 +215,11 @@ public final class JDBCFeatureStore extends ContentFeatureStore {
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
         return delegate.handleVisitor(query, visitor);
     }
+
+    @Override
+    public List<Query> getPartitions(Query query, int partitions) throws IOException {
+        return delegate.getPartitions(query, partitions);
+    }
     
 //  /**
 //  * This method operates by delegating to the
@@ -33,6 +33,11 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
     
     ResultSetFeature last;
     
+    /**
+     * The batch the features are inserted into, created on the first write
+     */
+    JDBCDataStore.InsertBatch batch;
+    
     public JDBCInsertFeatureWriter(String sql, Connection cx,
             JDBCFeatureSource featureSource, Hints hints) throws SQLException, IOException {
         super(sql, cx, featureSource, featureSource.getSchema(), hints);
@@ -67,8 +72,14 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
 
     public void write() throws IOException {
         try {
-            //do the insert
-            dataStore.insert(last, featureType, st.getConnection());
+            //do the insert, or queue it if batching is enabled
+            if (batch == null) {
+                batch = dataStore.new InsertBatch(featureType, st.getConnection());
+            }
+            // synchronized as the key computation and the insert have to be atomic
+            synchronized (dataStore) {
+                batch.add(last);
+            }
             
             //the datastore sets as userData, grab it and update the fid
             String fid = (String) last.getUserData().get( "fid" );
@@ -82,12 +93,32 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
         }
     }
 
+    /**
+     * Sends the pending inserts to the database and releases the batch
+     */
+    void flush() throws IOException {
+        if (batch != null) {
+            try {
+                batch.flush();
+            } catch (SQLException e) {
+                throw (IOException) new IOException("Error inserting features").initCause(e);
+            } finally {
+                batch.close();
+                batch = null;
+            }
+        }
+    }
+
     public void close() throws IOException {
-        super.close();
-        
-        if ( last != null ) {
-            last.close();
-            last = null;
+        try {
+            flush();
+        } finally {
+            super.close();
+            
+            if ( last != null ) {
+                last.close();
+                last = null;
+            }
         }
     }
 }
@@ -362,7 +362,20 @@ public abstract class SQLDialect {
      * <li>{@link MinVisitor} -> "min" <li>
      * <li>{@link SumVisitor} -> "sum" <li>
      *  </ul>
-     *  Subclasses should extend (not override) to provide additional functions.
+     *  Subclasses should extend (not override) to provide additional functions, and remove
+     *  the ones the database does not support. Besides plain aggregate functions, which are
+     *  encoded by {@link #encodeAggregateFunction(String, String, StringBuffer)}, the following
+     *  mappings are recognized:
+     * <ul>
+     * <li>{@link org.geotools.feature.visitor.StandardDeviationVisitor} -> the population
+     * standard deviation function of the database, "stddev_pop" in most of them</li>
+     * <li>{@link org.geotools.feature.visitor.MedianVisitor} -> "median", the function will be
+     * called on numeric columns only</li>
+     * <li>{@link org.geotools.feature.visitor.QuantileListVisitor} -> "ntile", the classes are
+     * computed with the NTILE window function, which the database must support</li>
+     * </ul>
+     * In approximate mode {@link UniqueVisitor} only fetches its most frequent values, if the
+     * dialect supports limit and offset.
      * </p>
      */
     public void registerAggregateFunctions(Map<Class<? extends FeatureVisitor>,String> aggregates) {
@@ -373,6 +386,20 @@ public abstract class SQLDialect {
         aggregates.put( MaxVisitor.class, "max");
         aggregates.put( SumVisitor.class, "sum");
     }
+
+    /**
+     * Encodes an aggregate function call.
+     * <p>
+     * <tt>function</tt> is the name registered in
+     * {@link #registerAggregateFunctions(Map)}, <tt>column</tt> the already encoded argument.
+     * This base implementation encodes "function(column)", subclasses should override for the
+     * functions that have a different syntax in the database, like "median" being computed
+     * as an ordered set aggregate.
+     * </p>
+     */
+    public void encodeAggregateFunction(String function, String column, StringBuffer sql) {
+        sql.append(function).append("(").append(column).append(")");
+    }
     
     /**
      * Returns the java class mapping for a particular column.
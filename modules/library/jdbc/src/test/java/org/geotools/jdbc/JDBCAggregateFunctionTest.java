@@ -16,12 +16,16 @@
  */
 package org.geotools.jdbc;
 
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.DefaultQuery;
 import org.geotools.data.Query;
 import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MedianVisitor;
 import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.QuantileListVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.feature.visitor.SumVisitor;
 import org.geotools.feature.visitor.UniqueVisitor;
 import org.geotools.filter.IllegalFilterException;
@@ -281,4 +285,147 @@ public abstract class JDBCAggregateFunctionTest extends JDBCTestSupport {
         Set result = v.getResult().toSet();
         assertEquals(2, result.size());
     }
+    
+    public void testUniqueApproximate() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("stringProperty") );
+        
+        UniqueVisitor v = new MyUniqueVisitor(p);
+        v.setApproximate(true);
+        v.setMaxUniqueValues(2);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertEquals(!dataStore.getSQLDialect().isLimitOffsetSupported(), visited);
+        assertEquals(2, v.getUnique().size());
+        assertEquals(3, v.getDistinctCount());
+    }
+    
+    /**
+     * Checks the visitor went through the database only if the dialect supports the function
+     */
+    void assertPushedDown(Class visitorClass) {
+        assertEquals(!dataStore.getAggregateFunctions().containsKey(visitorClass), visited);
+    }
+    
+    class MyStandardDeviationVisitor extends StandardDeviationVisitor {
+
+        public MyStandardDeviationVisitor(Expression expr) throws IllegalFilterException {
+            super(expr);
+        }
+        
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        
+    }
+    
+    public void testStandardDeviation() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+        
+        StandardDeviationVisitor v = new MyStandardDeviationVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertPushedDown(StandardDeviationVisitor.class);
+        assertEquals( 0.898, v.getResult().toDouble(), 0.001 );
+    }
+    
+    class MyMedianVisitor extends MedianVisitor {
+
+        public MyMedianVisitor(Expression expr) throws IllegalFilterException {
+            super(expr);
+        }
+        
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        
+    }
+    
+    public void testMedian() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+        
+        MedianVisitor v = new MyMedianVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertPushedDown(MedianVisitor.class);
+        assertEquals( 1.1, v.getResult().toDouble(), 0.01 );
+    }
+    
+    public void testMedianWithFilter() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+        
+        MedianVisitor v = new MyMedianVisitor(p);
+        Filter f = ff.greater( ff.property( aname("doubleProperty") ), ff.literal(1) );
+        Query q = new Query( tname("ft1"), f);
+        dataStore.getFeatureSource(tname("ft1")).accepts(q, v, null);
+        assertPushedDown(MedianVisitor.class);
+        assertEquals( 1.65, v.getResult().toDouble(), 0.01 );
+    }
+    
+    class MyQuantileListVisitor extends QuantileListVisitor {
+
+        public MyQuantileListVisitor(Expression expr, int bins) {
+            super(expr, bins);
+        }
+        
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        
+    }
+    
+    public void testQuantileList() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("intProperty") );
+        
+        QuantileListVisitor v = new MyQuantileListVisitor(p, 2);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertPushedDown(QuantileListVisitor.class);
+        List[] bins = (List[]) v.getResult().getValue();
+        assertEquals(2, bins.length);
+        // the first and last value of each class are the same either way
+        assertEquals(0, ((Number) bins[0].get(0)).intValue());
+        assertEquals(1, ((Number) bins[0].get(bins[0].size() - 1)).intValue());
+        assertEquals(2, ((Number) bins[1].get(0)).intValue());
+        assertEquals(2, ((Number) bins[1].get(bins[1].size() - 1)).intValue());
+    }
+    
+    public void testQuantileListWithLimitOffset() throws Exception {
+        
+        if (!dataStore.getSQLDialect().isLimitOffsetSupported()) {
+            return;
+        }
+        
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("intProperty") );
+        
+        QuantileListVisitor v = new MyQuantileListVisitor(p, 2);
+        Query q = new Query( tname("ft1"));
+        q.setStartIndex(1);
+        q.setMaxFeatures(2);
+        dataStore.getFeatureSource(tname("ft1")).accepts(q, v, null);
+        assertPushedDown(QuantileListVisitor.class);
+        List[] bins = (List[]) v.getResult().getValue();
+        assertEquals(2, bins.length);
+        assertEquals(1, ((Number) bins[0].get(0)).intValue());
+        assertEquals(2, ((Number) bins[1].get(0)).intValue());
+    }
 }
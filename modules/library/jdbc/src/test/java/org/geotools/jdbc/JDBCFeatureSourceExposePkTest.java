@@ -16,8 +16,16 @@
  */
 package org.geotools.jdbc;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.Hints;
 import org.geotools.referencing.CRS;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
 
 /**
  * Tests data reading when we expose primary keys as attributes
@@ -46,4 +54,38 @@ public abstract class JDBCFeatureSourceExposePkTest extends JDBCFeatureSourceTes
         assertNotNull(schema.getDescriptor(aname("stringProperty")));
         assertNotNull(schema.getDescriptor(aname("doubleProperty")));
     }
+
+    public void testPartitions() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        Query query = new Query();
+        query.setHints(new Hints(Hints.VISITOR_PARTITIONS, 2));
+        checkPartitions(query, 3);
+
+        query.setFilter(ff.greater(ff.property(aname("intProperty")), ff.literal(0)));
+        checkPartitions(query, 2);
+
+        // paged queries are not split
+        query.setMaxFeatures(1);
+        assertNull(((JDBCFeatureStore) featureSource).getPartitions(query, 2));
+    }
+
+    void checkPartitions(Query query, int expected) throws Exception {
+        List<Query> partitions = ((JDBCFeatureStore) featureSource).getPartitions(query, 2);
+        assertNotNull(partitions);
+        assertEquals(2, partitions.size());
+
+        // each feature is returned by exactly one partition
+        Set<String> ids = new HashSet<String>();
+        for (Query partition : partitions) {
+            SimpleFeatureIterator it = featureSource.getFeatures(partition).features();
+            try {
+                while (it.hasNext()) {
+                    assertTrue(ids.add(it.next().getID()));
+                }
+            } finally {
+                it.close();
+            }
+        }
+        assertEquals(expected, ids.size());
+    }
 }
@@ -473,6 +473,13 @@ public abstract class JDBCFeatureSourceTest extends JDBCTestSupport {
         assertSame(gf2, ((Geometry) f2.getDefaultGeometry()).getFactory());
 
     }
+
+    public void testPartitions() throws Exception {
+        // the primary key is not exposed, so it cannot be used to split the query
+        Query query = new Query();
+        query.setHints(new Hints(Hints.VISITOR_PARTITIONS, 2));
+        assertNull(((JDBCFeatureStore) featureSource).getPartitions(query, 2));
+    }
     
     SimpleFeature getFirstFeature(SimpleFeatureCollection fc) {
         SimpleFeatureIterator fi = null;
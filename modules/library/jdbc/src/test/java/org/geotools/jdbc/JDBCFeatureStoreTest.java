@@ -103,6 +103,32 @@ public abstract class JDBCFeatureStoreTest extends JDBCTestSupport {
         }
     }
     
+    public void testAddFeaturesBatched() throws IOException {
+        dataStore.setBatchInsertSize(2);
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
+                featureStore.getSchema());
+        
+        for (int i = 3; i < 8; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            // a null geometry in the middle changes the insert statement
+            if (i != 5) {
+                b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            }
+            collection.add(b.buildFeature(null));
+        }
+        List<FeatureId> fids = featureStore.addFeatures(collection);
+        assertEquals(5, fids.size());
+        assertEquals(5, new HashSet<FeatureId>(fids).size());
+        assertEquals(8, featureStore.getFeatures().size());
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        for (FeatureId identifier : fids) {
+            Id filter = ff.id(Collections.singleton(identifier));
+            assertEquals(1, featureStore.getFeatures(filter).size());
+        }
+    }
+
     public void testAddFeaturesUseProvidedFid() throws IOException {
         // check we advertise the ability to reuse feature ids
         assertTrue(featureStore.getQueryCapabilities().isUseProvidedFIDSupported());
@@ -379,6 +379,16 @@ public abstract class AbstractDataStore implements DataStore {
             reader = new ReTypeFeatureReader(reader, featureType, false);
         }
 
+        // paging, the shapefile and property readers skip the records without decoding them
+        if (query.getStartIndex() != null && query.getStartIndex() > 0) {
+            try {
+                DataUtilities.skip(reader, query.getStartIndex());
+            } catch (IOException e) {
+                reader.close();
+                throw e;
+            }
+        }
+
         if (query.getMaxFeatures() != Query.DEFAULT_MAX) {
 			    reader = new MaxFeatureReader<SimpleFeatureType, SimpleFeature>(reader, query.getMaxFeatures());
         }
@@ -1159,6 +1159,36 @@ public class DataUtilities {
         return reader(collection.toArray(new SimpleFeature[collection.size()]));
     }
 
+    /**
+     * Skips the next features of a reader, used to honour {@link Query#getStartIndex()}.
+     * <p>
+     * If the reader is a {@link SkippableReader} the features are skipped without being built,
+     * otherwise they are read and thrown away one by one.
+     * 
+     * @param reader
+     *            the reader to be moved forward
+     * @param count
+     *            the number of features to skip
+     * @return the number of features actually skipped, lower than <code>count</code> if the
+     *         reader ran out of features
+     * @throws IOException
+     * @since 8.0
+     */
+    public static int skip(FeatureReader<?, ?> reader, int count) throws IOException {
+        if (count <= 0) {
+            return 0;
+        }
+        if (reader instanceof SkippableReader) {
+            return ((SkippableReader) reader).skip(count);
+        }
+        int skipped = 0;
+        while (skipped < count && reader.hasNext()) {
+            reader.next();
+            skipped++;
+        }
+        return skipped;
+    }
+
     /**
      * Copies the provided features into a FeatureCollection.
      * <p>
@@ -30,7 +30,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/data/DefaultFIDReader.java $
  * @version $Id: DefaultFIDReader.java 37292 2011-05-25 03:24:35Z mbedward $
  */
-public class DefaultFIDReader implements FIDReader {
+public class DefaultFIDReader implements FIDReader, SkippableReader {
     protected static final String CLOSE_MESG = "Close has already been called"
         + " on this FIDReader";
 
@@ -87,5 +87,17 @@ public class DefaultFIDReader implements FIDReader {
 
         return buffer.toString();
     }
+
+    /**
+     * Moves forward the fid counter, without building the fids
+     */
+    public int skip(int count) throws IOException {
+        if (index < 0) {
+            throw new IOException(CLOSE_MESG);
+        }
+        count = (int) Math.min(count, (long) Integer.MAX_VALUE - index);
+        index += count;
+        return count;
+    }
     
 }
@@ -35,7 +35,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/data/DefaultFeatureReader.java $
  * @version $Id: DefaultFeatureReader.java 37292 2011-05-25 03:24:35Z mbedward $
  */
-public class DefaultFeatureReader implements  FeatureReader<SimpleFeatureType, SimpleFeature> {
+public class DefaultFeatureReader implements  FeatureReader<SimpleFeatureType, SimpleFeature>, SkippableReader {
     private final AttributeReader attributeReader;
     private final SimpleFeatureType schema;
     protected final Object[] attributes;
@@ -108,4 +108,30 @@ public class DefaultFeatureReader implements  FeatureReader<SimpleFeatureType, S
     public boolean hasNext() throws IOException {
         return attributeReader.hasNext();
     }
+
+    /**
+     * Skips the features at the attribute reader level, without reading their attributes
+     */
+    public int skip(int count) throws IOException {
+        return skip(attributeReader, count);
+    }
+
+    /**
+     * Moves the attribute reader forward, using {@link SkippableReader#skip(int)} if available,
+     * or else advancing it without reading the attributes
+     */
+    static int skip(AttributeReader reader, int count) throws IOException {
+        if (count <= 0) {
+            return 0;
+        }
+        if (reader instanceof SkippableReader) {
+            return ((SkippableReader) reader).skip(count);
+        }
+        int skipped = 0;
+        while (skipped < count && reader.hasNext()) {
+            reader.next();
+            skipped++;
+        }
+        return skipped;
+    }
 }
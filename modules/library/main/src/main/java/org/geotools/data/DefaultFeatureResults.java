@@ -39,6 +39,7 @@ import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
+import org.opengis.util.ProgressListener;
 
 
 /**
@@ -265,12 +266,15 @@ public class DefaultFeatureResults extends DataFeatureCollection {
      * @see org.geotools.data.FeatureResults#getBounds()
      */
     public ReferencedEnvelope getBounds() {
-        ReferencedEnvelope bounds;
+        ReferencedEnvelope bounds = null;
 
-        try {
-            bounds = featureSource.getBounds(query);
-        } catch (IOException e1) {
-            bounds = new ReferencedEnvelope((CoordinateReferenceSystem)null);
+        // the optimized bounds do not account for paging
+        if (query.getStartIndex() == null || query.getStartIndex() <= 0) {
+            try {
+                bounds = featureSource.getBounds(query);
+            } catch (IOException e1) {
+                bounds = new ReferencedEnvelope((CoordinateReferenceSystem)null);
+            }
         }
 
         if (bounds == null) {
@@ -318,8 +322,11 @@ public class DefaultFeatureResults extends DataFeatureCollection {
         count = featureSource.getCount(query);
 
         if (count != -1) {
-            // optimization worked, return maxFeatures if count is
-            // greater.
+            // optimization worked, remove the skipped features and return
+            // maxFeatures if count is greater.
+            if (query.getStartIndex() != null && query.getStartIndex() > 0) {
+                count = Math.max(0, count - query.getStartIndex());
+            }
             int maxFeatures = query.getMaxFeatures();
             return (count < maxFeatures) ? count : maxFeatures;
         }
@@ -363,4 +370,25 @@ public class DefaultFeatureResults extends DataFeatureCollection {
         }
     }
 
+    /**
+     * Visits the features in parallel if the feature source can split the query in partitions
+     * and the visitor results can be merged, see {@link PartitionedVisitExecutor}, otherwise
+     * walks the features one by one
+     */
+    public void accepts(org.opengis.feature.FeatureVisitor visitor, ProgressListener progress) {
+        if (featureSource instanceof PartitionedFeatureSource) {
+            try {
+                if (PartitionedVisitExecutor.accepts((PartitionedFeatureSource) featureSource,
+                        query, visitor, progress)) {
+                    return;
+                }
+            } catch (IOException e) {
+                // the visitor is left untouched if a partition fails, visit sequentially
+                LOGGER.log(Level.WARNING, "Partitioned visit failed, falling back on a "
+                        + "sequential one", e);
+            }
+        }
+        super.accepts(visitor, progress);
+    }
+
 }
@@ -53,7 +53,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/data/FIDFeatureReader.java $
  * @version $Id: FIDFeatureReader.java 37292 2011-05-25 03:24:35Z mbedward $
  */
-public class FIDFeatureReader implements  FeatureReader<SimpleFeatureType, SimpleFeature> {
+public class FIDFeatureReader implements  FeatureReader<SimpleFeatureType, SimpleFeature>, SkippableReader {
     /** The logger for the data module. */
     private static final Logger LOGGER = org.geotools.util.logging.Logging.getLogger("org.geotools.data");
     private final AttributeReader attributeReader;
@@ -147,4 +147,21 @@ public class FIDFeatureReader implements  FeatureReader<SimpleFeatureType, Simpl
         }
         return hasNextFlag;
     }
+
+    /**
+     * Skips the features at the attribute reader level, without reading their attributes, and
+     * keeps the fid reader in synch
+     */
+    public int skip(int count) throws IOException {
+        hasNextFlag = null;
+        int skipped = DefaultFeatureReader.skip(attributeReader, count);
+        if (fidReader instanceof SkippableReader) {
+            ((SkippableReader) fidReader).skip(skipped);
+        } else {
+            for (int i = 0; i < skipped; i++) {
+                fidReader.next();
+            }
+        }
+        return skipped;
+    }
 }
@@ -20,7 +20,9 @@ import java.io.IOException;
 import java.util.NoSuchElementException;
 
 import org.geotools.feature.IllegalAttributeException;
+import org.geotools.filter.compiler.FilterCompiler;
 import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.filter.Filter;
 
@@ -56,13 +58,22 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
      * Please don't call this method with Filter.INCLUDE or Filter.EXCLUDE (consider
      * not filtering and EmptyFeatureReader instead)
      * </p>
+     * <p>
+     * When reading simple features the filter gets compiled against the reader feature type,
+     * see {@link FilterCompiler}
+     * </p>
      *
      * @param featureReader  FeatureReader<SimpleFeatureType, SimpleFeature> being filtered
      * @param filter Filter used to limit the results of featureReader
      */
     public FilteringFeatureReader(FeatureReader<T, F> featureReader, Filter filter) {
         this.featureReader = featureReader;
-        this.filter = filter;
+        T featureType = featureReader.getFeatureType();
+        if (featureType instanceof SimpleFeatureType) {
+            this.filter = FilterCompiler.compile(filter, (SimpleFeatureType) featureType);
+        } else {
+            this.filter = filter;
+        }
         next = null;
     }
 
@@ -33,7 +33,7 @@ import org.opengis.feature.type.FeatureType;
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/data/MaxFeatureReader.java $
  * @version $Id: MaxFeatureReader.java 37292 2011-05-25 03:24:35Z mbedward $
  */
-public class MaxFeatureReader<T extends FeatureType, F extends Feature> implements DelegatingFeatureReader<T,F>{
+public class MaxFeatureReader<T extends FeatureType, F extends Feature> implements DelegatingFeatureReader<T,F>, SkippableReader {
     
     protected final  FeatureReader<T, F> featureReader;
     protected final int maxFeatures;
@@ -84,4 +84,13 @@ public class MaxFeatureReader<T extends FeatureType, F extends Feature> implemen
     public boolean hasNext() throws IOException {
         return (featureReader.hasNext() && (counter < maxFeatures));
     }
+
+    /**
+     * Skips the features in the delegate reader, the skipped features count against the limit
+     */
+    public int skip(int count) throws IOException {
+        int skipped = DataUtilities.skip(featureReader, Math.min(count, maxFeatures - counter));
+        counter += skipped;
+        return skipped;
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.geotools.data.simple.SimpleFeatureSource;
+
+/**
+ * Implemented by the feature sources that can split a query in independent partitions, each one
+ * readable on its own and in parallel with the others, that together return the same features
+ * as the original query. Used to run the mergeable visitors on several threads, see
+ * {@link PartitionedVisitExecutor}.
+ * 
+ * @since 8.0
+ */
+public interface PartitionedFeatureSource extends SimpleFeatureSource {
+
+    /**
+     * Splits the query in partitions. Each feature returned by the query must be returned by
+     * exactly one partition, the order in which the features are returned is not preserved.
+     * 
+     * @param query the query to be split
+     * @param partitions the desired number of partitions, implementations should return less
+     *        if the partitions would end up being too small, see
+     *        {@link PartitionedVisitExecutor#getPartitionCount(Query, int, int)}
+     * @return at most <code>partitions</code> queries, or <code>null</code> if this source
+     *         cannot split the specified query
+     * @throws IOException
+     */
+    List<Query> getPartitions(Query query, int partitions) throws IOException;
+}
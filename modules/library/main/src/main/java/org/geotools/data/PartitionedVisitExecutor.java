@@ -0,0 +1,256 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.Hints;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.PartitionableFeatureCalc;
+import org.geotools.util.NullProgressListener;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Runs a {@link PartitionableFeatureCalc} over the partitions of a query provided by a
+ * {@link PartitionedFeatureSource}, visiting each partition with its own visitor on a shared
+ * thread pool, and then merging the partition results into the original visitor.
+ * <p>
+ * The number of partitions is controlled by the {@link Hints#VISITOR_PARTITIONS} hint, looked up
+ * in the query hints first and then in the system defaults. When not set, a partition per
+ * available processor is used, as long as each partition gets at least
+ * {@link #MIN_PARTITION_SIZE} features, see {@link #getPartitionCount(Query, int, int)}.
+ * 
+ * @since 8.0
+ */
+public class PartitionedVisitExecutor {
+
+    static final Logger LOGGER = Logging.getLogger(PartitionedVisitExecutor.class);
+
+    /**
+     * The minimum number of features per partition when the number of partitions is not
+     * explicitly set, below this the thread handoffs cost more than they save
+     */
+    public static final int MIN_PARTITION_SIZE = 10000;
+
+    static ExecutorService executor;
+
+    /**
+     * Returns the shared thread pool, made of daemon threads so that it does not prevent the
+     * JVM shutdown
+     */
+    static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger threads = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "GT-PartitionedVisit-"
+                                    + threads.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+        return executor;
+    }
+
+    /**
+     * Returns the number of partitions explicitly requested with the
+     * {@link Hints#VISITOR_PARTITIONS} hint, or null if not set
+     */
+    static Integer getRequestedPartitions(Query query) {
+        Object partitions = null;
+        if (query.getHints() != null) {
+            partitions = query.getHints().get(Hints.VISITOR_PARTITIONS);
+        }
+        if (partitions == null) {
+            partitions = Hints.getSystemDefault(Hints.VISITOR_PARTITIONS);
+        }
+        return partitions != null ? Math.max(1, ((Number) partitions).intValue()) : null;
+    }
+
+    /**
+     * Returns the number of partitions that should be used to visit the results of the query,
+     * before knowing how many features the query returns
+     * 
+     * @param query
+     * @return the partitions requested in the hints, or the number of available processors
+     */
+    public static int getPartitionCount(Query query) {
+        Integer requested = getRequestedPartitions(query);
+        if (requested != null) {
+            return requested;
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Limits the number of partitions so that each one gets at least {@link #MIN_PARTITION_SIZE}
+     * features, unless the number of partitions has been explicitly requested in the hints.
+     * Meant to be used by the {@link PartitionedFeatureSource} implementations once they know
+     * how many features, or records, the query is going to scan.
+     * 
+     * @param query
+     * @param partitions the desired number of partitions
+     * @param count the number of features to be split among the partitions
+     * @return the number of partitions, 1 if the query is not worth splitting
+     */
+    public static int getPartitionCount(Query query, int partitions, int count) {
+        if (getRequestedPartitions(query) == null) {
+            partitions = Math.min(partitions, count / MIN_PARTITION_SIZE);
+        }
+        return Math.max(1, Math.min(partitions, count));
+    }
+
+    /**
+     * Visits the results of the query in parallel, if the visitor is a
+     * {@link PartitionableFeatureCalc} and the source manages to split the query in partitions.
+     * Paged queries are never split.
+     * 
+     * @param source
+     * @param query
+     * @param visitor
+     * @param progress used to report progress, one step per completed partition, and the errors
+     *        occurred visiting the features. May be null
+     * @return true if the visit has been performed, false if the caller has to visit the features
+     *         by itself
+     * @throws IOException
+     */
+    public static boolean accepts(PartitionedFeatureSource source, Query query,
+            FeatureVisitor visitor, ProgressListener progress) throws IOException {
+        if (!(visitor instanceof PartitionableFeatureCalc) || query.getStartIndex() != null
+                || !query.isMaxFeaturesUnlimited()) {
+            return false;
+        }
+        int partitions = getPartitionCount(query);
+        if (partitions < 2) {
+            return false;
+        }
+        List<Query> queries = source.getPartitions(query, partitions);
+        if (queries == null || queries.size() < 2) {
+            return false;
+        }
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Visiting " + query.getTypeName() + " in " + queries.size()
+                    + " partitions");
+        }
+        if (progress == null) {
+            progress = new NullProgressListener();
+        }
+        PartitionableFeatureCalc calc = (PartitionableFeatureCalc) visitor;
+        List<PartitionVisit> visits = new ArrayList<PartitionVisit>(queries.size());
+        for (Query partition : queries) {
+            visits.add(new PartitionVisit(source, partition, calc.createPartition(), progress,
+                    queries.size()));
+        }
+
+        progress.started();
+        List<Future<CalcResult>> futures = new ArrayList<Future<CalcResult>>();
+        try {
+            // the calling thread visits the first partition, instead of just waiting
+            for (int i = 1; i < visits.size(); i++) {
+                futures.add(getExecutor().submit(visits.get(i)));
+            }
+            CalcResult result = visits.get(0).call();
+            for (Future<CalcResult> future : futures) {
+                result = result.merge(future.get());
+            }
+            calc.mergeResult(result);
+        } catch (InterruptedException e) {
+            throw (IOException) new IOException("Interrupted while visiting the partitions")
+                    .initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (IOException) new IOException("Failed to visit a partition").initCause(cause);
+        } finally {
+            // in case of failure don't leave the other partitions running
+            for (Future<CalcResult> future : futures) {
+                future.cancel(true);
+            }
+            progress.complete();
+        }
+        return true;
+    }
+
+    /**
+     * Visits a single partition with its own visitor
+     */
+    static class PartitionVisit implements Callable<CalcResult> {
+        SimpleFeatureSource source;
+
+        Query query;
+
+        FeatureCalc visitor;
+
+        ProgressListener progress;
+
+        int partitions;
+
+        PartitionVisit(SimpleFeatureSource source, Query query, FeatureCalc visitor,
+                ProgressListener progress, int partitions) {
+            this.source = source;
+            this.query = query;
+            this.visitor = visitor;
+            this.progress = progress;
+            this.partitions = partitions;
+        }
+
+        public CalcResult call() throws IOException {
+            SimpleFeatureIterator it = source.getFeatures(query).features();
+            try {
+                while (!progress.isCanceled() && it.hasNext()) {
+                    try {
+                        visitor.visit(it.next());
+                    } catch (Exception e) {
+                        synchronized (progress) {
+                            progress.exceptionOccurred(e);
+                        }
+                    }
+                }
+            } finally {
+                it.close();
+            }
+            synchronized (progress) {
+                progress.progress(Math.min(100f, progress.getProgress() + 100f / partitions));
+            }
+            return visitor.getResult();
+        }
+    }
+}
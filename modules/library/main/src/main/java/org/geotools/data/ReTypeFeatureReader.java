@@ -58,7 +58,7 @@ import org.opengis.feature.type.AttributeDescriptor;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/data/ReTypeFeatureReader.java $
  */
-public class ReTypeFeatureReader implements DelegatingFeatureReader<SimpleFeatureType,SimpleFeature> {
+public class ReTypeFeatureReader implements DelegatingFeatureReader<SimpleFeatureType,SimpleFeature>, SkippableReader {
     
     /** The original reader we are grabbing content from */
     FeatureReader<SimpleFeatureType, SimpleFeature> reader;
@@ -193,6 +193,16 @@ public class ReTypeFeatureReader implements DelegatingFeatureReader<SimpleFeatur
         return reader.hasNext();
     }
 
+    /**
+     * Skips the features in the delegate reader, without retyping them
+     */
+    public int skip(int count) throws IOException {
+        if (reader == null) {
+            throw new IOException("FeatureReader has been closed");
+        }
+        return DataUtilities.skip(reader, count);
+    }
+
     /**
      * @see org.geotools.data.FeatureReader#close()
      */
@@ -0,0 +1,44 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data;
+
+import java.io.IOException;
+
+/**
+ * Implemented by the readers that can move forward without decoding the records they pass over,
+ * for example by seeking in a file or by advancing a database cursor. Used to honour
+ * {@link Query#getStartIndex()} without building the features that are going to be thrown away,
+ * see {@link DataUtilities#skip(FeatureReader, int)}.
+ * <p>
+ * Feature, attribute and feature id readers can all implement this interface. The records
+ * skipped are the ones the reader would have returned, a reader that filters its contents has
+ * to skip only the matching ones.
+ * 
+ * @since 8.0
+ */
+public interface SkippableReader {
+
+    /**
+     * Skips the next records without decoding them
+     * 
+     * @param count the number of records to be skipped
+     * @return the number of records actually skipped, lower than <code>count</code> only if the
+     *         reader ran out of records
+     * @throws IOException
+     */
+    int skip(int count) throws IOException;
+}
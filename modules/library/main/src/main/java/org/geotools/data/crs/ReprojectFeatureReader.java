@@ -20,8 +20,10 @@ import java.io.IOException;
 import java.util.NoSuchElementException;
 
 import org.geotools.data.DataSourceException;
+import org.geotools.data.DataUtilities;
 import org.geotools.data.DelegatingFeatureReader;
 import org.geotools.data.FeatureReader;
+import org.geotools.data.SkippableReader;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.IllegalAttributeException;
 import org.geotools.feature.SchemaException;
@@ -74,7 +76,7 @@ import com.vividsolutions.jts.geom.Geometry;
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/data/crs/ReprojectFeatureReader.java $
  * @version $Id: ReprojectFeatureReader.java 37292 2011-05-25 03:24:35Z mbedward $
  */
-public class ReprojectFeatureReader implements DelegatingFeatureReader<SimpleFeatureType, SimpleFeature>{
+public class ReprojectFeatureReader implements DelegatingFeatureReader<SimpleFeatureType, SimpleFeature>, SkippableReader {
     
     FeatureReader<SimpleFeatureType, SimpleFeature> reader;
     SimpleFeatureType schema;
@@ -206,6 +208,17 @@ public class ReprojectFeatureReader implements DelegatingFeatureReader<SimpleFea
         return reader.hasNext();
     }
 
+    /**
+     * Skips the features in the delegate reader, without reprojecting them
+     */
+    public int skip(int count) throws IOException {
+        if (reader == null) {
+            throw new IllegalStateException("Reader has already been closed");
+        }
+
+        return DataUtilities.skip(reader, count);
+    }
+
     /**
      * Implement close.
      * 
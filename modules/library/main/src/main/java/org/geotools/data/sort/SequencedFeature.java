@@ -0,0 +1,36 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * A feature along with its position in the unsorted input, used to keep the sort stable and to
+ * honour {@link org.opengis.filter.sort.SortBy#NATURAL_ORDER} and
+ * {@link org.opengis.filter.sort.SortBy#REVERSE_ORDER}
+ */
+class SequencedFeature {
+
+    final long sequence;
+
+    final SimpleFeature feature;
+
+    SequencedFeature(long sequence, SimpleFeature feature) {
+        this.sequence = sequence;
+        this.feature = feature;
+    }
+}
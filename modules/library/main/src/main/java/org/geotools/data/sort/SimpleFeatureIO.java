@@ -0,0 +1,370 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Compact binary encoding of the features of a given type, used to spill the sorted runs to
+ * disk. Each feature is written as its sequence number, its id and, for each attribute, a type
+ * tag followed by the value. Geometries are stored as WKB, values of types not known here are
+ * Java serialized.
+ * <p>
+ * WKB loses part of the geometries, so the encoding also keeps whether the geometry is a
+ * {@link LinearRing} (read back as a line string otherwise) and its user data, which is just
+ * flagged when it is the CRS of the attribute descriptor. The geometries are read back with the
+ * factory of the first geometry written, which the stores build honoring
+ * {@link org.geotools.factory.Hints#JTS_GEOMETRY_FACTORY}, so that the features sorted on disk
+ * and the ones sorted in memory share the same factory.
+ */
+class SimpleFeatureIO {
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final byte NULL = 0;
+
+    static final byte STRING = 1;
+
+    static final byte INTEGER = 2;
+
+    static final byte LONG = 3;
+
+    static final byte DOUBLE = 4;
+
+    static final byte FLOAT = 5;
+
+    static final byte SHORT = 6;
+
+    static final byte BYTE = 7;
+
+    static final byte BOOLEAN = 8;
+
+    static final byte CHARACTER = 9;
+
+    static final byte DATE = 10;
+
+    static final byte SQL_DATE = 11;
+
+    static final byte SQL_TIME = 12;
+
+    static final byte SQL_TIMESTAMP = 13;
+
+    static final byte BIG_DECIMAL = 14;
+
+    static final byte BIG_INTEGER = 15;
+
+    static final byte GEOMETRY = 16;
+
+    static final byte SERIALIZED = 17;
+
+    /**
+     * Geometry flag, the geometry is a linear ring
+     */
+    static final byte RING = 1;
+
+    /**
+     * Geometry flag, the user data is the CRS of the attribute descriptor
+     */
+    static final byte DESCRIPTOR_CRS = 2;
+
+    /**
+     * Geometry flag, the user data follows, Java serialized
+     */
+    static final byte USER_DATA = 4;
+
+    final SimpleFeatureType schema;
+
+    final SimpleFeatureBuilder builder;
+
+    final Object[] values;
+
+    WKBWriter wkbWriter;
+
+    WKBReader wkbReader;
+
+    GeometryFactory geometryFactory;
+
+    final CoordinateReferenceSystem[] crs;
+
+    SimpleFeatureIO(SimpleFeatureType schema) {
+        this.schema = schema;
+        this.builder = new SimpleFeatureBuilder(schema);
+        this.values = new Object[schema.getAttributeCount()];
+        this.crs = new CoordinateReferenceSystem[values.length];
+        for (int i = 0; i < values.length; i++) {
+            AttributeDescriptor ad = schema.getDescriptor(i);
+            if (ad instanceof GeometryDescriptor) {
+                crs[i] = ((GeometryDescriptor) ad).getCoordinateReferenceSystem();
+            }
+        }
+    }
+
+    /**
+     * Writes the feature and its sequence number
+     */
+    void write(DataOutputStream out, SequencedFeature sf) throws IOException {
+        SimpleFeature feature = sf.feature;
+        out.writeLong(sf.sequence);
+        writeString(out, feature.getID());
+        for (int i = 0; i < values.length; i++) {
+            writeValue(out, i, feature.getAttribute(i));
+        }
+    }
+
+    /**
+     * Reads back a feature written by {@link #write(DataOutputStream, SequencedFeature)}
+     */
+    SequencedFeature read(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        String id = readString(in);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(in, i);
+        }
+        builder.addAll(values);
+        return new SequencedFeature(sequence, builder.buildFeature(id));
+    }
+
+    void writeValue(DataOutputStream out, int index, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(SQL_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(SQL_TIME);
+            out.writeLong(((Date) value).getTime());
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeString(out, value.toString());
+        } else if (value instanceof Geometry) {
+            if (wkbWriter == null) {
+                wkbWriter = new WKBWriter(3);
+            }
+            Geometry g = (Geometry) value;
+            if (geometryFactory == null) {
+                geometryFactory = g.getFactory();
+            }
+            Object userData = g.getUserData();
+            byte flags = g instanceof LinearRing ? RING : 0;
+            if (userData != null) {
+                flags |= userData.equals(crs[index]) ? DESCRIPTOR_CRS : USER_DATA;
+            }
+            out.writeByte(GEOMETRY);
+            out.writeByte(flags);
+            out.writeInt(g.getSRID());
+            if ((flags & USER_DATA) != 0) {
+                writeSerialized(out, userData);
+            }
+            writeBytes(out, wkbWriter.write(g));
+        } else if (value instanceof Serializable) {
+            out.writeByte(SERIALIZED);
+            writeSerialized(out, value);
+        } else {
+            throw cannotEncode(value);
+        }
+    }
+
+    IOException cannotEncode(Object value) {
+        return new IOException("Cannot sort on disk features of type " + schema.getTypeName()
+                + ", values of type " + value.getClass().getName() + " cannot be encoded");
+    }
+
+    void writeSerialized(DataOutputStream out, Object value) throws IOException {
+        if (!(value instanceof Serializable)) {
+            throw cannotEncode(value);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bytes);
+        oos.writeObject(value);
+        oos.close();
+        writeBytes(out, bytes.toByteArray());
+    }
+
+    static Object readSerialized(DataInputStream in) throws IOException {
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)));
+        try {
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw (IOException) new IOException("Could not decode a sorted value").initCause(e);
+        } finally {
+            ois.close();
+        }
+    }
+
+    Object readValue(DataInputStream in, int index) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case STRING:
+            return readString(in);
+        case INTEGER:
+            return in.readInt();
+        case LONG:
+            return in.readLong();
+        case DOUBLE:
+            return in.readDouble();
+        case FLOAT:
+            return in.readFloat();
+        case SHORT:
+            return in.readShort();
+        case BYTE:
+            return in.readByte();
+        case BOOLEAN:
+            return in.readBoolean();
+        case CHARACTER:
+            return in.readChar();
+        case SQL_TIMESTAMP:
+            Timestamp timestamp = new Timestamp(in.readLong());
+            timestamp.setNanos(in.readInt());
+            return timestamp;
+        case SQL_DATE:
+            return new java.sql.Date(in.readLong());
+        case SQL_TIME:
+            return new Time(in.readLong());
+        case DATE:
+            return new Date(in.readLong());
+        case BIG_DECIMAL:
+            return new BigDecimal(readString(in));
+        case BIG_INTEGER:
+            return new BigInteger(readString(in));
+        case GEOMETRY:
+            if (wkbReader == null) {
+                wkbReader = new WKBReader(geometryFactory != null ? geometryFactory
+                        : new GeometryFactory());
+            }
+            byte flags = in.readByte();
+            int srid = in.readInt();
+            Object userData = null;
+            if ((flags & USER_DATA) != 0) {
+                userData = readSerialized(in);
+            } else if ((flags & DESCRIPTOR_CRS) != 0) {
+                userData = crs[index];
+            }
+            try {
+                Geometry g = wkbReader.read(readBytes(in));
+                if ((flags & RING) != 0 && !(g instanceof LinearRing)) {
+                    // WKB has no linear rings, they come back as line strings
+                    g = g.getFactory().createLinearRing(((LineString) g).getCoordinateSequence());
+                }
+                g.setSRID(srid);
+                g.setUserData(userData);
+                return g;
+            } catch (ParseException e) {
+                throw (IOException) new IOException("Could not decode a sorted geometry")
+                        .initCause(e);
+            }
+        case SERIALIZED:
+            return readSerialized(in);
+        default:
+            throw new IOException("Unknown value tag " + tag + ", the sort file is corrupted");
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            writeBytes(out, value.getBytes(UTF8));
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, UTF8);
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.util.Comparator;
+
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+/**
+ * Compares features according to a list of {@link SortBy}, nulls first in ascending order.
+ * Features that compare equal are returned in the order they were read.
+ */
+class SortByComparator implements Comparator<SequencedFeature> {
+
+    /**
+     * The attribute index of each sort key, or -1 for the natural order
+     */
+    final int[] attributes;
+
+    final boolean[] ascending;
+
+    SortByComparator(SimpleFeatureType schema, SortBy[] sortBy) {
+        attributes = new int[sortBy.length];
+        ascending = new boolean[sortBy.length];
+        for (int i = 0; i < sortBy.length; i++) {
+            SortBy sb = sortBy[i];
+            ascending[i] = sb.getSortOrder() != SortOrder.DESCENDING;
+            if (sb.getPropertyName() == null) {
+                // NATURAL_ORDER or REVERSE_ORDER
+                attributes[i] = -1;
+            } else {
+                attributes[i] = schema.indexOf(sb.getPropertyName().getPropertyName());
+                if (attributes[i] == -1) {
+                    throw new IllegalArgumentException("Cannot sort on "
+                            + sb.getPropertyName().getPropertyName() + ", it's not part of "
+                            + schema.getTypeName());
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public int compare(SequencedFeature f1, SequencedFeature f2) {
+        for (int i = 0; i < attributes.length; i++) {
+            int result;
+            if (attributes[i] == -1) {
+                result = compare(f1.sequence, f2.sequence);
+            } else {
+                Object v1 = f1.feature.getAttribute(attributes[i]);
+                Object v2 = f2.feature.getAttribute(attributes[i]);
+                if (v1 == null) {
+                    result = v2 == null ? 0 : -1;
+                } else if (v2 == null) {
+                    result = 1;
+                } else {
+                    result = ((Comparable<Object>) v1).compareTo(v2);
+                }
+            }
+            if (result != 0) {
+                return ascending[i] ? result : -result;
+            }
+        }
+        return compare(f1.sequence, f2.sequence);
+    }
+
+    static int compare(long l1, long l2) {
+        return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+    }
+}
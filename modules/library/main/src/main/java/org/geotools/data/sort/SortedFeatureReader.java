@@ -0,0 +1,447 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureReader;
+import org.geotools.factory.Hints;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.sort.SortBy;
+
+/**
+ * Sorts the features returned by another reader according to a list of {@link SortBy}, for
+ * stores that cannot sort natively.
+ * <p>
+ * Up to {@link #getMaxFeatures(Query) maxFeatures} features are sorted in memory. Past that
+ * amount the features are sorted in blocks that get written to temporary files using a compact
+ * binary encoding, and then merged back: the blocks are merged {@link #MERGE_FAN_IN} at a time
+ * until few enough of them are left, and the last merge is streamed to the caller. This allows to
+ * sort any amount of features using a bounded amount of memory.
+ * <p>
+ * The sort is stable and happens on the first call to {@link #hasNext()} or {@link #next()},
+ * which will consume and close the delegate reader.
+ * 
+ * @since 8.0
+ */
+public class SortedFeatureReader implements SimpleFeatureReader {
+
+    static final Logger LOGGER = Logging.getLogger(SortedFeatureReader.class);
+
+    /**
+     * The default amount of features sorted in memory, see {@link Hints#MAX_MEMORY_SORT}
+     */
+    public static final int DEFAULT_MAX_FEATURES = 10000;
+
+    /**
+     * The maximum number of sorted blocks merged in one pass
+     */
+    static final int MERGE_FAN_IN = 64;
+
+    static final int BUFFER_SIZE = 32 * 1024;
+
+    FeatureReader<SimpleFeatureType, SimpleFeature> delegate;
+
+    final SimpleFeatureType schema;
+
+    final int maxFeatures;
+
+    final Comparator<SequencedFeature> comparator;
+
+    final SimpleFeatureIO io;
+
+    boolean sorted;
+
+    /**
+     * The sorted features, when they all fit in memory
+     */
+    Iterator<SequencedFeature> memory;
+
+    /**
+     * The blocks being merged, ordered by their current feature
+     */
+    PriorityQueue<Block> blocks;
+
+    /**
+     * The temporary files still around
+     */
+    List<File> files = new ArrayList<File>();
+
+    /**
+     * Returns true if the features of the specified type can be sorted by this class, that is, if
+     * all the sort keys are either {@link SortBy#NATURAL_ORDER}, {@link SortBy#REVERSE_ORDER}, or
+     * non geometric attributes with comparable values
+     */
+    public static boolean canSort(SimpleFeatureType schema, SortBy[] sortBy) {
+        if (sortBy == null) {
+            return true;
+        }
+        for (SortBy sb : sortBy) {
+            if (sb.getPropertyName() == null) {
+                continue;
+            }
+            AttributeDescriptor ad = schema.getDescriptor(sb.getPropertyName().getPropertyName());
+            if (ad == null || ad instanceof GeometryDescriptor
+                    || !Comparable.class.isAssignableFrom(ad.getType().getBinding())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the amount of features that can be sorted in memory for the specified query,
+     * looking up {@link Hints#MAX_MEMORY_SORT} in the query hints first, then in the system
+     * defaults, and falling back on {@link #DEFAULT_MAX_FEATURES}
+     */
+    public static int getMaxFeatures(Query query) {
+        Object max = null;
+        if (query != null && query.getHints() != null) {
+            max = query.getHints().get(Hints.MAX_MEMORY_SORT);
+        }
+        if (max == null) {
+            max = Hints.getSystemDefault(Hints.MAX_MEMORY_SORT);
+        }
+        if (max instanceof Number && ((Number) max).intValue() > 0) {
+            return ((Number) max).intValue();
+        }
+        return DEFAULT_MAX_FEATURES;
+    }
+
+    /**
+     * Sorts the features of the reader according to the query sort, using the query hints to
+     * determine how many features can be sorted in memory
+     */
+    public SortedFeatureReader(FeatureReader<SimpleFeatureType, SimpleFeature> reader,
+            Query query) {
+        this(reader, query.getSortBy(), getMaxFeatures(query));
+    }
+
+    /**
+     * Sorts the features of the reader
+     * 
+     * @param reader the features to be sorted
+     * @param sortBy the sort keys, see {@link #canSort(SimpleFeatureType, SortBy[])}
+     * @param maxFeatures the maximum amount of features sorted in memory
+     */
+    public SortedFeatureReader(FeatureReader<SimpleFeatureType, SimpleFeature> reader,
+            SortBy[] sortBy, int maxFeatures) {
+        if (maxFeatures <= 0) {
+            throw new IllegalArgumentException("The amount of features sorted in memory "
+                    + "must be positive, got " + maxFeatures);
+        }
+        this.delegate = reader;
+        this.schema = reader.getFeatureType();
+        this.maxFeatures = maxFeatures;
+        this.comparator = new SortByComparator(schema, sortBy == null ? new SortBy[0] : sortBy);
+        this.io = new SimpleFeatureIO(schema);
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return schema;
+    }
+
+    public boolean hasNext() throws IOException {
+        if (!sorted) {
+            sort();
+        }
+        if (memory != null) {
+            return memory.hasNext();
+        } else {
+            return blocks != null && !blocks.isEmpty();
+        }
+    }
+
+    public SimpleFeature next() throws IOException, IllegalArgumentException,
+            NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features");
+        }
+        if (memory != null) {
+            return memory.next().feature;
+        }
+        Block block = blocks.poll();
+        SequencedFeature result = block.current;
+        if (block.advance()) {
+            blocks.add(block);
+        } else {
+            block.close();
+        }
+        return result.feature;
+    }
+
+    public void close() throws IOException {
+        try {
+            if (delegate != null) {
+                delegate.close();
+                delegate = null;
+            }
+        } finally {
+            memory = null;
+            if (blocks != null) {
+                for (Block block : blocks) {
+                    block.close();
+                }
+                blocks = null;
+            }
+            for (File file : files) {
+                delete(file);
+            }
+            files.clear();
+        }
+    }
+
+    /**
+     * Reads all the features from the delegate, spilling the sorted blocks to disk as needed
+     */
+    void sort() throws IOException {
+        sorted = true;
+        if (delegate == null) {
+            // closed already
+            return;
+        }
+        List<SequencedFeature> buffer = new ArrayList<SequencedFeature>(Math.min(maxFeatures,
+                1024));
+        long sequence = 0;
+        try {
+            while (delegate.hasNext()) {
+                if (buffer.size() == maxFeatures) {
+                    Collections.sort(buffer, comparator);
+                    files.add(write(buffer));
+                    buffer.clear();
+                }
+                buffer.add(new SequencedFeature(sequence++, delegate.next()));
+            }
+        } finally {
+            delegate.close();
+            delegate = null;
+        }
+        Collections.sort(buffer, comparator);
+        if (files.isEmpty()) {
+            memory = buffer.iterator();
+            return;
+        }
+
+        // merge until the last pass can be streamed
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Sorting " + sequence + " " + schema.getTypeName() + " features on disk, "
+                    + files.size() + " blocks spilled");
+        }
+        while (files.size() + 1 > MERGE_FAN_IN) {
+            List<File> merged = new ArrayList<File>();
+            try {
+                for (int i = 0; i < files.size(); i += MERGE_FAN_IN) {
+                    List<File> group = files.subList(i, Math.min(files.size(), i + MERGE_FAN_IN));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                    } else {
+                        merged.add(merge(group));
+                    }
+                }
+            } catch (IOException e) {
+                for (File file : merged) {
+                    delete(file);
+                }
+                throw e;
+            }
+            files = merged;
+        }
+
+        blocks = new PriorityQueue<Block>(files.size() + 1, new Comparator<Block>() {
+            public int compare(Block b1, Block b2) {
+                return comparator.compare(b1.current, b2.current);
+            }
+        });
+        List<Block> opened = new ArrayList<Block>();
+        opened.add(new MemoryBlock(buffer.iterator()));
+        for (File file : files) {
+            opened.add(new FileBlock(file));
+        }
+        for (Block block : opened) {
+            if (block.advance()) {
+                blocks.add(block);
+            } else {
+                block.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the sorted features in a new temporary file
+     */
+    File write(List<SequencedFeature> features) throws IOException {
+        File file = File.createTempFile("sort", ".features");
+        DataOutputStream out = open(file);
+        try {
+            for (SequencedFeature sf : features) {
+                out.writeBoolean(true);
+                io.write(out, sf);
+            }
+            out.writeBoolean(false);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Merges the sorted files in a single new one, and removes them
+     */
+    File merge(List<File> sources) throws IOException {
+        PriorityQueue<Block> queue = new PriorityQueue<Block>(sources.size(),
+                new Comparator<Block>() {
+                    public int compare(Block b1, Block b2) {
+                        return comparator.compare(b1.current, b2.current);
+                    }
+                });
+        File file = File.createTempFile("sort", ".features");
+        DataOutputStream out = null;
+        try {
+            for (File source : sources) {
+                FileBlock block = new FileBlock(source);
+                if (block.advance()) {
+                    queue.add(block);
+                } else {
+                    block.close();
+                }
+            }
+            out = open(file);
+            while (!queue.isEmpty()) {
+                Block block = queue.poll();
+                out.writeBoolean(true);
+                io.write(out, block.current);
+                if (block.advance()) {
+                    queue.add(block);
+                } else {
+                    block.close();
+                }
+            }
+            out.writeBoolean(false);
+        } catch (IOException e) {
+            delete(file);
+            throw e;
+        } finally {
+            for (Block block : queue) {
+                block.close();
+            }
+            if (out != null) {
+                out.close();
+            }
+            for (File source : sources) {
+                delete(source);
+            }
+        }
+        return file;
+    }
+
+    static DataOutputStream open(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+                BUFFER_SIZE));
+    }
+
+    static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.warning("Could not delete the temporary sort file " + file);
+        }
+    }
+
+    /**
+     * A sorted sequence of features
+     */
+    static abstract class Block {
+        SequencedFeature current;
+
+        /**
+         * Moves to the next feature, returns false if there are no more
+         */
+        abstract boolean advance() throws IOException;
+
+        abstract void close() throws IOException;
+    }
+
+    static class MemoryBlock extends Block {
+        Iterator<SequencedFeature> iterator;
+
+        MemoryBlock(Iterator<SequencedFeature> iterator) {
+            this.iterator = iterator;
+        }
+
+        boolean advance() {
+            current = iterator.hasNext() ? iterator.next() : null;
+            return current != null;
+        }
+
+        void close() {
+            current = null;
+        }
+    }
+
+    class FileBlock extends Block {
+        DataInputStream in;
+
+        FileBlock(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+                    BUFFER_SIZE));
+        }
+
+        boolean advance() throws IOException {
+            current = null;
+            if (in == null) {
+                return false;
+            }
+            try {
+                if (in.readBoolean()) {
+                    current = io.read(in);
+                }
+            } catch (EOFException e) {
+                throw (IOException) new IOException("Truncated sort file").initCause(e);
+            }
+            return current != null;
+        }
+
+        void close() throws IOException {
+            current = null;
+            if (in != null) {
+                in.close();
+                in = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature;
+
+import org.geotools.feature.simple.PrimitiveSimpleFeatureImpl;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * A feature factory building simple features that store their numeric attributes without
+ * boxing, see {@link PrimitiveSimpleFeatureImpl}. Worth using when scanning large amounts of
+ * features with numeric attributes.
+ * <p>
+ * The factory is not registered as a service, so it is never returned by a plain
+ * {@link org.geotools.factory.CommonFactoryFinder#getFeatureFactory} lookup. It has to be
+ * requested explicitly, either globally with:
+ * <pre><code>
+ * Hints.putSystemDefault(Hints.FEATURE_FACTORY, PrimitiveFeatureFactoryImpl.class);
+ * </code></pre>
+ * or for a single query against a data store that honours the hint:
+ * <pre><code>
+ * query.getHints().put(Hints.FEATURE_FACTORY, new PrimitiveFeatureFactoryImpl());
+ * </code></pre>
+ */
+public class PrimitiveFeatureFactoryImpl extends AbstractFeatureFactoryImpl {
+
+    public PrimitiveFeatureFactoryImpl() {
+        validating = false;
+    }
+
+    @Override
+    public SimpleFeature createSimpleFeature(Object[] array, SimpleFeatureType type, String id) {
+        if (type.isAbstract()) {
+            throw new IllegalArgumentException(
+                    "Cannot create an feature of an abstract FeatureType " + type.getTypeName());
+        }
+        return new PrimitiveSimpleFeatureImpl(array, type, ff.featureId(id), validating);
+    }
+}
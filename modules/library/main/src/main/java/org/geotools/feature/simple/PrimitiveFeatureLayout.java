@@ -0,0 +1,146 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.simple;
+
+import java.util.Map;
+
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * The storage layout of a {@link PrimitiveSimpleFeatureImpl}, computed once per feature type.
+ * <p>
+ * Attributes bound to a primitive wrapper (Double, Float, Long, Integer, Short, Byte, Boolean)
+ * get a slot in a <code>long[]</code>, floating point values being stored as their raw bits,
+ * all the others get a slot in an <code>Object[]</code>. The primitive array is followed by a
+ * bitmask tracking which primitive attributes are null.
+ */
+final class PrimitiveFeatureLayout {
+
+    static final String USER_DATA_KEY = "primitiveLayout";
+
+    static final byte OBJECT = 0;
+
+    static final byte DOUBLE = 1;
+
+    static final byte FLOAT = 2;
+
+    static final byte LONG = 3;
+
+    static final byte INTEGER = 4;
+
+    static final byte SHORT = 5;
+
+    static final byte BYTE = 6;
+
+    static final byte BOOLEAN = 7;
+
+    /**
+     * The storage kind of each attribute
+     */
+    final byte[] kinds;
+
+    /**
+     * The position of each attribute in the primitive or object array
+     */
+    final int[] slots;
+
+    /**
+     * The binding of each attribute
+     */
+    final Class<?>[] bindings;
+
+    final int primitiveCount;
+
+    final int objectCount;
+
+    /**
+     * The length of the primitive array, values plus null bitmask
+     */
+    final int primitiveLength;
+
+    /**
+     * Attribute name to index, same as the one used by {@link SimpleFeatureImpl}
+     */
+    final Map<String, Integer> index;
+
+    PrimitiveFeatureLayout(SimpleFeatureType featureType) {
+        int count = featureType.getAttributeCount();
+        kinds = new byte[count];
+        slots = new int[count];
+        bindings = new Class<?>[count];
+        int primitives = 0;
+        int objects = 0;
+        for (int i = 0; i < count; i++) {
+            bindings[i] = featureType.getDescriptor(i).getType().getBinding();
+            kinds[i] = kind(bindings[i]);
+            slots[i] = kinds[i] == OBJECT ? objects++ : primitives++;
+        }
+        primitiveCount = primitives;
+        objectCount = objects;
+        primitiveLength = primitives + (primitives + 63) / 64;
+        if (featureType instanceof SimpleFeatureTypeImpl) {
+            index = ((SimpleFeatureTypeImpl) featureType).index;
+        } else {
+            index = SimpleFeatureTypeImpl.buildIndex(featureType);
+        }
+    }
+
+    static byte kind(Class<?> binding) {
+        if (binding == Double.class) {
+            return DOUBLE;
+        } else if (binding == Float.class) {
+            return FLOAT;
+        } else if (binding == Long.class) {
+            return LONG;
+        } else if (binding == Integer.class) {
+            return INTEGER;
+        } else if (binding == Short.class) {
+            return SHORT;
+        } else if (binding == Byte.class) {
+            return BYTE;
+        } else if (binding == Boolean.class) {
+            return BOOLEAN;
+        }
+        return OBJECT;
+    }
+
+    /**
+     * Returns the layout for the specified feature type, cached in the feature type
+     */
+    static PrimitiveFeatureLayout get(SimpleFeatureType featureType) {
+        if (featureType instanceof SimpleFeatureTypeImpl) {
+            SimpleFeatureTypeImpl impl = (SimpleFeatureTypeImpl) featureType;
+            PrimitiveFeatureLayout layout = impl.primitiveLayout;
+            if (layout == null) {
+                // the layout is immutable, computing it twice is harmless
+                layout = new PrimitiveFeatureLayout(featureType);
+                impl.primitiveLayout = layout;
+            }
+            return layout;
+        } else {
+            synchronized (featureType) {
+                Object cached = featureType.getUserData().get(USER_DATA_KEY);
+                if (cached instanceof PrimitiveFeatureLayout) {
+                    return (PrimitiveFeatureLayout) cached;
+                }
+                PrimitiveFeatureLayout layout = new PrimitiveFeatureLayout(featureType);
+                featureType.getUserData().put(USER_DATA_KEY, layout);
+                return layout;
+            }
+        }
+    }
+}
@@ -0,0 +1,666 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.simple;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.feature.GeometryAttributeImpl;
+import org.geotools.feature.IllegalAttributeException;
+import org.geotools.feature.type.Types;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Converters;
+import org.geotools.util.Utilities;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.AttributeType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.identity.Identifier;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * An implementation of {@link SimpleFeature} that stores the numeric and boolean attributes in
+ * a primitive array instead of boxing them, see {@link PrimitiveFeatureLayout} for the storage
+ * layout.
+ * <p>
+ * Behaves like {@link SimpleFeatureImpl}, the values are boxed again when read thru the
+ * {@link SimpleFeature} API, code that cares can use {@link #isPrimitive(int)},
+ * {@link #getDouble(int)} and {@link #getLong(int)} to read them without allocation. Values
+ * whose class does not match the attribute binding are kept as is, on the side.
+ * <p>
+ * Unlike {@link SimpleFeatureImpl} the value array passed to the constructor is copied, not
+ * retained. Use {@link org.geotools.feature.PrimitiveFeatureFactoryImpl} to have it built by
+ * {@link SimpleFeatureBuilder} and the data stores.
+ */
+public class PrimitiveSimpleFeatureImpl implements SimpleFeature {
+
+    protected FeatureId id;
+
+    protected SimpleFeatureType featureType;
+
+    final PrimitiveFeatureLayout layout;
+
+    /**
+     * The primitive values, followed by the null bitmask
+     */
+    final long[] primitives;
+
+    /**
+     * The non primitive values
+     */
+    final Object[] objects;
+
+    /**
+     * Values that do not match the attribute binding, indexed by attribute (lazily created)
+     */
+    Object[] escaped;
+
+    /**
+     * The set of user data attached to the feature (lazily created)
+     */
+    protected Map<Object, Object> userData;
+
+    /**
+     * The set of user data attached to each attribute (lazily created)
+     */
+    protected Map<Object, Object>[] attributeUserData;
+
+    /**
+     * Whether this feature is self validating or not
+     */
+    protected boolean validating;
+
+    /**
+     * Builds a new feature copying the provided values
+     * 
+     * @param values
+     * @param featureType
+     * @param id
+     * @param validating
+     */
+    public PrimitiveSimpleFeatureImpl(Object[] values, SimpleFeatureType featureType,
+            FeatureId id, boolean validating) {
+        this.id = id;
+        this.featureType = featureType;
+        this.validating = validating;
+        this.layout = PrimitiveFeatureLayout.get(featureType);
+        this.primitives = new long[layout.primitiveLength];
+        this.objects = new Object[layout.objectCount];
+        for (int i = 0; i < layout.kinds.length; i++) {
+            store(i, i < values.length ? values[i] : null);
+        }
+
+        if (validating)
+            validate();
+    }
+
+    /**
+     * Stores the value as is in its slot
+     */
+    void store(int index, Object value) {
+        final byte kind = layout.kinds[index];
+        final int slot = layout.slots[index];
+        if (kind == PrimitiveFeatureLayout.OBJECT) {
+            objects[slot] = value;
+            return;
+        }
+
+        if (escaped != null) {
+            escaped[index] = null;
+        }
+        if (value == null || value.getClass() != layout.bindings[index]) {
+            setNull(slot, true);
+            primitives[slot] = 0;
+            if (value != null) {
+                if (escaped == null) {
+                    escaped = new Object[layout.kinds.length];
+                }
+                escaped[index] = value;
+            }
+            return;
+        }
+
+        setNull(slot, false);
+        switch (kind) {
+        case PrimitiveFeatureLayout.DOUBLE:
+            primitives[slot] = Double.doubleToRawLongBits(((Double) value).doubleValue());
+            break;
+        case PrimitiveFeatureLayout.FLOAT:
+            primitives[slot] = Float.floatToRawIntBits(((Float) value).floatValue());
+            break;
+        case PrimitiveFeatureLayout.BOOLEAN:
+            primitives[slot] = ((Boolean) value).booleanValue() ? 1 : 0;
+            break;
+        default:
+            primitives[slot] = ((Number) value).longValue();
+        }
+    }
+
+    /**
+     * Loads the value from its slot, boxing primitives
+     */
+    Object load(int index) {
+        final byte kind = layout.kinds[index];
+        final int slot = layout.slots[index];
+        if (kind == PrimitiveFeatureLayout.OBJECT) {
+            return objects[slot];
+        }
+        if (isNull(slot)) {
+            return escaped != null ? escaped[index] : null;
+        }
+
+        final long value = primitives[slot];
+        switch (kind) {
+        case PrimitiveFeatureLayout.DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(value));
+        case PrimitiveFeatureLayout.FLOAT:
+            return Float.valueOf(Float.intBitsToFloat((int) value));
+        case PrimitiveFeatureLayout.LONG:
+            return Long.valueOf(value);
+        case PrimitiveFeatureLayout.INTEGER:
+            return Integer.valueOf((int) value);
+        case PrimitiveFeatureLayout.SHORT:
+            return Short.valueOf((short) value);
+        case PrimitiveFeatureLayout.BYTE:
+            return Byte.valueOf((byte) value);
+        default:
+            return Boolean.valueOf(value != 0);
+        }
+    }
+
+    boolean isNull(int slot) {
+        long word = primitives[layout.primitiveCount + (slot >> 6)];
+        return (word & (1L << slot)) != 0;
+    }
+
+    void setNull(int slot, boolean isNull) {
+        int word = layout.primitiveCount + (slot >> 6);
+        if (isNull) {
+            primitives[word] |= 1L << slot;
+        } else {
+            primitives[word] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Returns true if the attribute is stored as a primitive, that is, it's bound to a primitive
+     * wrapper, it's not null and its value is of the bound class.
+     * 
+     * @param index
+     */
+    public boolean isPrimitive(int index) {
+        return layout.kinds[index] != PrimitiveFeatureLayout.OBJECT
+                && !isNull(layout.slots[index]);
+    }
+
+    /**
+     * Returns the value of a primitive attribute as a double, same as
+     * {@link Number#doubleValue()} on the boxed value, booleans are returned as 0 and 1
+     * 
+     * @param index
+     * @throws IllegalArgumentException if the attribute is not stored as a primitive, see
+     *         {@link #isPrimitive(int)}
+     */
+    public double getDouble(int index) {
+        checkPrimitive(index);
+        long value = primitives[layout.slots[index]];
+        switch (layout.kinds[index]) {
+        case PrimitiveFeatureLayout.DOUBLE:
+            return Double.longBitsToDouble(value);
+        case PrimitiveFeatureLayout.FLOAT:
+            return Float.intBitsToFloat((int) value);
+        default:
+            return value;
+        }
+    }
+
+    /**
+     * Returns the value of a primitive attribute as a long, same as {@link Number#longValue()}
+     * on the boxed value, booleans are returned as 0 and 1
+     * 
+     * @param index
+     * @throws IllegalArgumentException if the attribute is not stored as a primitive, see
+     *         {@link #isPrimitive(int)}
+     */
+    public long getLong(int index) {
+        checkPrimitive(index);
+        long value = primitives[layout.slots[index]];
+        switch (layout.kinds[index]) {
+        case PrimitiveFeatureLayout.DOUBLE:
+            return (long) Double.longBitsToDouble(value);
+        case PrimitiveFeatureLayout.FLOAT:
+            return (long) Float.intBitsToFloat((int) value);
+        default:
+            return value;
+        }
+    }
+
+    void checkPrimitive(int index) {
+        if (!isPrimitive(index)) {
+            throw new IllegalArgumentException("Attribute " + index
+                    + " is not stored as a primitive");
+        }
+    }
+
+    public FeatureId getIdentifier() {
+        return id;
+    }
+
+    public String getID() {
+        return id.getID();
+    }
+
+    public int getNumberOfAttributes() {
+        return layout.kinds.length;
+    }
+
+    public Object getAttribute(int index) throws IndexOutOfBoundsException {
+        return load(index);
+    }
+
+    public Object getAttribute(String name) {
+        Integer idx = layout.index.get(name);
+        if (idx != null)
+            return getAttribute(idx);
+        else
+            return null;
+    }
+
+    public Object getAttribute(Name name) {
+        return getAttribute(name.getLocalPart());
+    }
+
+    public int getAttributeCount() {
+        return layout.kinds.length;
+    }
+
+    public List<Object> getAttributes() {
+        List<Object> result = new ArrayList<Object>(layout.kinds.length);
+        for (int i = 0; i < layout.kinds.length; i++) {
+            result.add(load(i));
+        }
+        return result;
+    }
+
+    public Object getDefaultGeometry() {
+        // should be specified in the index as the default key (null)
+        Integer idx = layout.index.get(null);
+        Object defaultGeometry = idx != null ? getAttribute(idx) : null;
+
+        // not found? do we have a default geometry at all?
+        if (defaultGeometry == null) {
+            GeometryDescriptor geometryDescriptor = featureType.getGeometryDescriptor();
+            if (geometryDescriptor != null) {
+                Integer defaultGeomIndex = layout.index.get(geometryDescriptor.getName()
+                        .getLocalPart());
+                defaultGeometry = getAttribute(defaultGeomIndex.intValue());
+            }
+        }
+
+        return defaultGeometry;
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    public SimpleFeatureType getType() {
+        return featureType;
+    }
+
+    public void setAttribute(int index, Object value) throws IndexOutOfBoundsException {
+        // first do conversion
+        Object converted = Converters.convert(value, layout.bindings[index]);
+        // if necessary, validation too
+        if (validating)
+            Types.validate(featureType.getDescriptor(index), converted);
+        // finally set the value into the feature
+        store(index, converted);
+    }
+
+    public void setAttribute(String name, Object value) {
+        final Integer idx = layout.index.get(name);
+        if (idx == null)
+            throw new IllegalAttributeException("Unknown attribute " + name);
+        setAttribute(idx.intValue(), value);
+    }
+
+    public void setAttribute(Name name, Object value) {
+        setAttribute(name.getLocalPart(), value);
+    }
+
+    public void setAttributes(List<Object> values) {
+        for (int i = 0; i < layout.kinds.length; i++) {
+            store(i, values.get(i));
+        }
+    }
+
+    public void setAttributes(Object[] values) {
+        for (int i = 0; i < layout.kinds.length; i++) {
+            store(i, values[i]);
+        }
+    }
+
+    public void setDefaultGeometry(Object geometry) {
+        Integer geometryIndex = layout.index.get(null);
+        if (geometryIndex != null) {
+            setAttribute(geometryIndex, geometry);
+        }
+    }
+
+    public BoundingBox getBounds() {
+        ReferencedEnvelope bounds = new ReferencedEnvelope(featureType
+                .getCoordinateReferenceSystem());
+        for (Object o : objects) {
+            if (o instanceof Geometry) {
+                Geometry g = (Geometry) o;
+                if (bounds.isNull()) {
+                    bounds.init(g.getEnvelopeInternal());
+                } else {
+                    bounds.expandToInclude(g.getEnvelopeInternal());
+                }
+            }
+        }
+
+        return bounds;
+    }
+
+    public GeometryAttribute getDefaultGeometryProperty() {
+        GeometryDescriptor geometryDescriptor = featureType.getGeometryDescriptor();
+        GeometryAttribute geometryAttribute = null;
+        if (geometryDescriptor != null) {
+            Object defaultGeometry = getDefaultGeometry();
+            geometryAttribute = new GeometryAttributeImpl(defaultGeometry, geometryDescriptor,
+                    null);
+        }
+        return geometryAttribute;
+    }
+
+    public void setDefaultGeometryProperty(GeometryAttribute geometryAttribute) {
+        if (geometryAttribute != null)
+            setDefaultGeometry(geometryAttribute.getValue());
+        else
+            setDefaultGeometry(null);
+    }
+
+    public Collection<Property> getProperties() {
+        return new AttributeList();
+    }
+
+    public Collection<Property> getProperties(Name name) {
+        return getProperties(name.getLocalPart());
+    }
+
+    public Collection<Property> getProperties(String name) {
+        final Integer idx = layout.index.get(name);
+        if (idx != null) {
+            // cast temporarily to a plain collection to avoid type problems with generics
+            Collection c = Collections.singleton(new Attribute(idx));
+            return c;
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    public Property getProperty(Name name) {
+        return getProperty(name.getLocalPart());
+    }
+
+    public Property getProperty(String name) {
+        final Integer idx = layout.index.get(name);
+        if (idx == null) {
+            return null;
+        } else {
+            int index = idx.intValue();
+            AttributeDescriptor descriptor = featureType.getDescriptor(index);
+            if (descriptor instanceof GeometryDescriptor) {
+                return new GeometryAttributeImpl(load(index), (GeometryDescriptor) descriptor,
+                        null);
+            } else {
+                return new Attribute(index);
+            }
+        }
+    }
+
+    public Collection<? extends Property> getValue() {
+        return getProperties();
+    }
+
+    public void setValue(Collection<Property> values) {
+        int i = 0;
+        for (Property p : values) {
+            store(i++, p.getValue());
+        }
+    }
+
+    public void setValue(Object newValue) {
+        setValue((Collection<Property>) newValue);
+    }
+
+    public AttributeDescriptor getDescriptor() {
+        return null;
+    }
+
+    public Name getName() {
+        return null;
+    }
+
+    public boolean isNillable() {
+        return true;
+    }
+
+    public Map<Object, Object> getUserData() {
+        if (userData == null)
+            userData = new HashMap<Object, Object>();
+        return userData;
+    }
+
+    /**
+     * returns a unique code for this feature, same as {@link SimpleFeatureImpl#hashCode()}
+     * 
+     * @return A unique int
+     */
+    public int hashCode() {
+        return id.hashCode() * featureType.hashCode();
+    }
+
+    /**
+     * Returns true if the object is a {@link SimpleFeatureImpl} or a
+     * {@link PrimitiveSimpleFeatureImpl} with the same id, type and values
+     * 
+     * @param obj the Object to test for equality.
+     */
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+
+        if (obj == this) {
+            return true;
+        }
+
+        if (!(obj instanceof PrimitiveSimpleFeatureImpl) && !(obj instanceof SimpleFeatureImpl)) {
+            return false;
+        }
+
+        SimpleFeature feat = (SimpleFeature) obj;
+
+        if (id == null) {
+            if (feat.getIdentifier() != null) {
+                return false;
+            }
+        } else if (!id.equals(feat.getIdentifier())) {
+            return false;
+        }
+
+        if (!feat.getFeatureType().equals(featureType)) {
+            return false;
+        }
+
+        for (int i = 0, ii = layout.kinds.length; i < ii; i++) {
+            Object value = load(i);
+            Object otherAtt = feat.getAttribute(i);
+
+            if (value == null) {
+                if (otherAtt != null) {
+                    return false;
+                }
+            } else {
+                if (!value.equals(otherAtt)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    public void validate() {
+        for (int i = 0; i < layout.kinds.length; i++) {
+            AttributeDescriptor descriptor = getType().getDescriptor(i);
+            Types.validate(descriptor, load(i));
+        }
+    }
+
+    /**
+     * Live collection backed directly on the feature storage
+     */
+    class AttributeList extends AbstractList<Property> {
+
+        public Attribute get(int index) {
+            return new Attribute(index);
+        }
+
+        public Attribute set(int index, Property element) {
+            store(index, element.getValue());
+            return null;
+        }
+
+        public int size() {
+            return layout.kinds.length;
+        }
+    }
+
+    public String toString() {
+        StringBuffer sb = new StringBuffer("PrimitiveSimpleFeatureImpl:");
+        sb.append(getType().getName().getLocalPart());
+        sb.append("=");
+        sb.append(getValue());
+        return sb.toString();
+    }
+
+    /**
+     * Attribute that delegates directly to the feature storage
+     */
+    class Attribute implements org.opengis.feature.Attribute {
+        int index;
+
+        Attribute(int index) {
+            this.index = index;
+        }
+
+        public Identifier getIdentifier() {
+            return null;
+        }
+
+        public AttributeDescriptor getDescriptor() {
+            return featureType.getDescriptor(index);
+        }
+
+        public AttributeType getType() {
+            return featureType.getType(index);
+        }
+
+        public Name getName() {
+            return getDescriptor().getName();
+        }
+
+        public Map<Object, Object> getUserData() {
+            // lazily create the user data holder
+            if (attributeUserData == null)
+                attributeUserData = new HashMap[layout.kinds.length];
+            // lazily create the attribute user data
+            if (attributeUserData[index] == null)
+                attributeUserData[index] = new HashMap<Object, Object>();
+            return attributeUserData[index];
+        }
+
+        public Object getValue() {
+            return load(index);
+        }
+
+        public boolean isNillable() {
+            return getDescriptor().isNillable();
+        }
+
+        public void setValue(Object newValue) {
+            store(index, newValue);
+        }
+
+        /**
+         * Override of hashCode; uses descriptor name to agree with AttributeImpl
+         * 
+         * @return hashCode for this object.
+         */
+        public int hashCode() {
+            Object value = getValue();
+            return 37 * getDescriptor().hashCode() + (37 * (value == null ? 0 : value.hashCode()));
+        }
+
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Attribute)) {
+                return false;
+            }
+            Attribute other = (Attribute) obj;
+            if (!Utilities.equals(getDescriptor(), other.getDescriptor())) {
+                return false;
+            }
+            if (!Utilities.deepEquals(getValue(), other.getValue())) {
+                return false;
+            }
+            return Utilities.equals(getIdentifier(), other.getIdentifier());
+        }
+
+        public void validate() {
+            Types.validate(getDescriptor(), load(index));
+        }
+
+        public String toString() {
+            StringBuffer sb = new StringBuffer("PrimitiveSimpleFeatureImpl.Attribute: ");
+            sb.append(getDescriptor().getName().getLocalPart());
+            sb.append("=");
+            sb.append(load(index));
+            return sb.toString();
+        }
+    }
+}
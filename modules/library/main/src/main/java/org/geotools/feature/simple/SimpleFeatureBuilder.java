@@ -25,6 +25,7 @@ import java.util.logging.Logger;
 
 import org.geotools.data.DataUtilities;
 import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.PrimitiveFeatureFactoryImpl;
 import org.geotools.feature.type.Types;
 import org.geotools.filter.identity.FeatureIdImpl;
 import org.geotools.util.Converters;
@@ -116,6 +117,12 @@ import com.vividsolutions.jts.geom.Geometry;
  * </code>
  * </p>
  * <p>
+ * The features are created by the {@link FeatureFactory} provided to the constructor, or the
+ * one returned by {@link CommonFactoryFinder#getFeatureFactory(org.geotools.factory.Hints)}.
+ * Using a {@link PrimitiveFeatureFactoryImpl} the numeric attributes are stored without
+ * boxing and the builder recycles its value array between features.
+ * </p>
+ * <p>
  * This class is not thread safe nor should instances be shared across multiple 
  * threads.
  * </p>
@@ -137,6 +144,9 @@ public class SimpleFeatureBuilder {
     
     /** the feature factory */
     FeatureFactory factory;
+
+    /** whether the factory copies the values, allowing to reuse the value array */
+    boolean copyingFactory;
     
     /** the attribute name to index index */
     Map<String, Integer> index;
@@ -161,6 +171,7 @@ public class SimpleFeatureBuilder {
     public SimpleFeatureBuilder(SimpleFeatureType featureType, FeatureFactory factory) {
         this.featureType = featureType;
         this.factory = factory;
+        this.copyingFactory = factory instanceof PrimitiveFeatureFactoryImpl;
 
         if(featureType instanceof SimpleFeatureTypeImpl) {
             index = ((SimpleFeatureTypeImpl) featureType).index;
@@ -171,7 +182,11 @@ public class SimpleFeatureBuilder {
     }
     
     public void reset() {
-        values = new Object[featureType.getAttributeCount()];
+        if (copyingFactory && values != null) {
+            Arrays.fill(values, null);
+        } else {
+            values = new Object[featureType.getAttributeCount()];
+        }
         next = 0;
         userData = null;
         featureUserData = null;
@@ -343,8 +358,18 @@ public class SimpleFeatureBuilder {
         Object[] values = this.values;
         Map<Object,Object>[] userData = this.userData;
         Map<Object,Object> featureUserData = this.featureUserData;
-        reset();
-        SimpleFeature sf = factory.createSimpleFeature(values, featureType, id);
+        SimpleFeature sf;
+        if (copyingFactory) {
+            // the feature copies the values, the array is cleared and reused
+            try {
+                sf = factory.createSimpleFeature(values, featureType, id);
+            } finally {
+                reset();
+            }
+        } else {
+            reset();
+            sf = factory.createSimpleFeature(values, featureType, id);
+        }
         
         // handle the per attribute user data
         if(userData != null) {
@@ -399,11 +399,11 @@ public class SimpleFeatureImpl implements SimpleFeature {
             return true;
         }
 
-        if (!(obj instanceof SimpleFeatureImpl)) {
+        if (!(obj instanceof SimpleFeatureImpl) && !(obj instanceof PrimitiveSimpleFeatureImpl)) {
             return false;
         }
 
-        SimpleFeatureImpl feat = (SimpleFeatureImpl) obj;
+        SimpleFeature feat = (SimpleFeature) obj;
         
         // this check shouldn't exist, by contract, 
         //all features should have an ID.
@@ -48,6 +48,11 @@ public class SimpleFeatureTypeImpl extends FeatureTypeImpl implements
 
     Map<String, Integer> index;
 
+    /**
+     * The storage layout used by {@link PrimitiveSimpleFeatureImpl}, lazily computed
+     */
+    volatile PrimitiveFeatureLayout primitiveLayout;
+
     @SuppressWarnings("unchecked")
     public SimpleFeatureTypeImpl(Name name, List<AttributeDescriptor> schema,
             GeometryDescriptor defaultGeometry, boolean isAbstract,
@@ -34,7 +34,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/feature/visitor/AverageVisitor.java $
  */
-public class AverageVisitor implements FeatureCalc {
+public class AverageVisitor implements PartitionableFeatureCalc {
     private Expression expr;
 
     /**
@@ -161,6 +161,22 @@ public class AverageVisitor implements FeatureCalc {
         return new AverageResult(strategy, isOptimized);
     }
 
+    public FeatureCalc createPartition() {
+        return new AverageVisitor(expr);
+    }
+
+    /**
+     * Merges the result of another average calculation, both results must carry their count
+     * and sum, that is, none of them can be an optimized result
+     */
+    public void mergeResult(CalcResult result) {
+        CalcResult merged = getResult().merge(result);
+        if (merged != CalcResult.NULL_RESULT) {
+            AverageResult average = (AverageResult) merged;
+            setValue(average.getCount(), average.getSum());
+        }
+    }
+
     public void setValue(Object newAverage) {
         reset();
 
@@ -30,7 +30,7 @@ import com.vividsolutions.jts.geom.Envelope;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/feature/visitor/BoundsVisitor.java $
  */
-public class BoundsVisitor implements FeatureCalc {
+public class BoundsVisitor implements PartitionableFeatureCalc {
     ReferencedEnvelope bounds = new ReferencedEnvelope();    
         
     public void visit(org.opengis.feature.Feature feature) {
@@ -45,6 +45,17 @@ public class BoundsVisitor implements FeatureCalc {
         this.bounds = new ReferencedEnvelope();
     }
 
+    public FeatureCalc createPartition() {
+        return new BoundsVisitor();
+    }
+
+    public void mergeResult(CalcResult result) {
+        CalcResult merged = getResult().merge(result);
+        if (merged != CalcResult.NULL_RESULT) {
+            bounds = ((BoundsResult) merged).getValue();
+        }
+    }
+
     public CalcResult getResult() {
     	if(bounds == null || bounds.isEmpty()) {
     		return CalcResult.NULL_RESULT;
@@ -16,6 +16,8 @@
  */
 package org.geotools.feature.visitor;
 
+import org.geotools.factory.Hints;
+
 
 /**
  *
@@ -292,4 +294,14 @@ public class CalcUtil {
         //now do the comparison
         return val1.compareTo(val2);
     }
+
+    /**
+     * Returns true if the unique, median and quantile calculations should use approximate
+     * sketches unless told otherwise, see {@link Hints#APPROXIMATE_AGGREGATES}
+     * 
+     * @since 8.0
+     */
+    public static boolean isApproximateByDefault() {
+        return Boolean.TRUE.equals(Hints.getSystemDefault(Hints.APPROXIMATE_AGGREGATES));
+    }
 }
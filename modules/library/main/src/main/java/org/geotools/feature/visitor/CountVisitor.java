@@ -30,7 +30,7 @@ import org.opengis.feature.simple.SimpleFeature;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/feature/visitor/CountVisitor.java $
  */
-public class CountVisitor implements FeatureCalc {
+public class CountVisitor implements PartitionableFeatureCalc {
     Integer count = null;
 
     public void init(SimpleFeatureCollection collection) {
@@ -62,6 +62,17 @@ public class CountVisitor implements FeatureCalc {
         this.count = null;
     }
 
+    public FeatureCalc createPartition() {
+        return new CountVisitor();
+    }
+
+    public void mergeResult(CalcResult result) {
+        CalcResult merged = getResult().merge(result);
+        if (merged != CalcResult.NULL_RESULT) {
+            count = merged.toInt();
+        }
+    }
+
     public CalcResult getResult() {
     	if(count == null) {
     		return CalcResult.NULL_RESULT;
@@ -0,0 +1,149 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values in a stream in constant
+ * memory. With the default precision the sketch uses 16KB and the standard error of the
+ * estimate is below 1%. Two sketches with the same precision can be merged.
+ *
+ * @since 8.0
+ */
+public class DistinctCountSketch {
+
+    /**
+     * The default precision, results in 2^14 registers
+     */
+    public static final int DEFAULT_PRECISION = 14;
+
+    final int precision;
+
+    final byte[] registers;
+
+    public DistinctCountSketch() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a sketch with 2^precision registers
+     *
+     * @param precision between 4 and 18
+     */
+    public DistinctCountSketch(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18, was "
+                    + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a value to the sketch, null values are ignored
+     *
+     * @param value
+     */
+    public void add(Object value) {
+        if (value == null) {
+            return;
+        }
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        // the guard bit bounds the rank when the remaining bits are all zero
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Merges the contents of another sketch into this one
+     *
+     * @param other
+     */
+    public void merge(DistinctCountSketch other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches with different precisions");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this sketch
+     */
+    public DistinctCountSketch copy() {
+        DistinctCountSketch copy = new DistinctCountSketch(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    /**
+     * Returns the estimated number of distinct values added to the sketch
+     */
+    public long estimate() {
+        final int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            sum += 1.0 / (1L << registers[i]);
+            if (registers[i] == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // small range correction, linear counting is more accurate here
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Returns a well mixed 64 bits hash of the value. Numbers and strings get a hash computed on
+     * their full contents, as 32 bits hash codes would collide too often on large data sets
+     */
+    static long hash(Object value) {
+        long h;
+        if (value instanceof Double || value instanceof Float) {
+            h = Double.doubleToLongBits(((Number) value).doubleValue());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            h = ((Number) value).longValue();
+        } else if (value instanceof CharSequence) {
+            CharSequence cs = (CharSequence) value;
+            h = 1125899906842597L;
+            for (int i = 0; i < cs.length(); i++) {
+                h = 31 * h + cs.charAt(i);
+            }
+        } else {
+            h = value.hashCode();
+        }
+        // MurmurHash3 finalizer
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
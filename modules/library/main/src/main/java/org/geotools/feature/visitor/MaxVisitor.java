@@ -33,7 +33,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/feature/visitor/MaxVisitor.java $
  */
-public class MaxVisitor implements FeatureCalc {
+public class MaxVisitor implements PartitionableFeatureCalc {
     private Expression expr;
     Comparable maxvalue;
     Comparable curvalue;
@@ -144,6 +144,17 @@ public class MaxVisitor implements FeatureCalc {
         return expr;
     }
 
+    public FeatureCalc createPartition() {
+        return new MaxVisitor(expr);
+    }
+
+    public void mergeResult(CalcResult result) {
+        CalcResult merged = getResult().merge(result);
+        if (merged != CalcResult.NULL_RESULT) {
+            setValue(merged.getValue());
+        }
+    }
+
     public CalcResult getResult() {
         if (!visited) {
             return CalcResult.NULL_RESULT;
@@ -30,6 +30,11 @@ import org.opengis.filter.expression.Expression;
 
 /**
  * Calculates the median of an attribute in all features of a collection
+ * <p>
+ * In approximate mode (see {@link #setApproximate(boolean)} and
+ * {@link org.geotools.factory.Hints#APPROXIMATE_AGGREGATES}) numeric values are summarized in
+ * a {@link QuantileSketch} instead of being collected in a list, so that memory usage stays
+ * bounded, and the median is returned as a Double.
  *
  * @author Cory Horner, Refractions
  *
@@ -49,6 +54,10 @@ public class MedianVisitor implements FeatureCalc {
 	 */
     private Object median = null;
 
+    boolean approximate = CalcUtil.isApproximateByDefault();
+
+    QuantileSketch sketch;
+
     public MedianVisitor(String attributeTypeName) {
         FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
         expr = factory.property(attributeTypeName);
@@ -82,7 +91,12 @@ public class MedianVisitor implements FeatureCalc {
          * Visitor function
          */
         Object result = expr.evaluate(feature);
-        if (result instanceof Comparable) {
+        if (approximate && result instanceof Number) {
+            if (sketch == null) {
+                sketch = new QuantileSketch();
+            }
+            sketch.add(((Number) result).doubleValue());
+        } else if (result instanceof Comparable) {
             Comparable value = (Comparable) result;
             list.add(value);
         } else {
@@ -101,6 +115,8 @@ public class MedianVisitor implements FeatureCalc {
 		if (median != null) {
 			//median was overwritten by an optimization
 			return median;
+		} else if (sketch != null) {
+		    return getResult().getValue();
 		} else {
 			//we're got a list of items, determine the median...
 			Object newMedian = findMedian(list);
@@ -118,12 +134,37 @@ public class MedianVisitor implements FeatureCalc {
     public void reset() {
         this.list.clear();
         this.median = null;
+        this.sketch = null;
+    }
+
+    /**
+     * Returns true if the visitor summarizes numeric values in a sketch rather than keeping
+     * them all
+     */
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    /**
+     * Switches between the exact and approximate computation, resets the visitor
+     * 
+     * @param approximate
+     */
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+        reset();
     }
 
     public CalcResult getResult() {
 		if (median != null) {
 			// median was overwritten by an optimization
 			return new MedianResult(median);
+		} else if (sketch != null) {
+		    if (list.size() > 0) {
+		        throw new IllegalStateException(
+		                "Cannot compute the median of numbers mixed with other values");
+		    }
+		    return new MedianResult(sketch);
 		} else if (list.size() < 1) {
 			// no items in the list
             return CalcResult.NULL_RESULT;
@@ -151,6 +192,8 @@ public class MedianVisitor implements FeatureCalc {
 		 */
         private Object median;
 
+        private QuantileSketch sketch;
+
         public MedianResult(List newList) {
             this.list = newList;
             this.median = null;
@@ -160,6 +203,15 @@ public class MedianVisitor implements FeatureCalc {
             this.list = null;
             this.median = median;
         }
+
+        /**
+         * Builds an approximate result out of a sketch of the values
+         */
+        public MedianResult(QuantileSketch sketch) {
+            this.list = null;
+            this.median = null;
+            this.sketch = sketch;
+        }
         
         public List getList() {
         	return list;
@@ -168,6 +220,8 @@ public class MedianVisitor implements FeatureCalc {
         public Object getValue() {
         	if (median != null) {
         		return median;
+        	} else if (sketch != null) {
+        	    return new Double(sketch.quantile(0.5));
         	} else {
         		return findMedian(list);
         	}
@@ -183,6 +237,13 @@ public class MedianVisitor implements FeatureCalc {
         	if (median != null) return true;
         	else return false;
         }
+
+        /**
+         * Returns true if the result was computed using a sketch
+         */
+        public boolean isApproximate() {
+            return sketch != null;
+        }
         
         public CalcResult merge(CalcResult resultsToAdd) {
             if (!isCompatible(resultsToAdd)) {
@@ -200,6 +261,24 @@ public class MedianVisitor implements FeatureCalc {
             	if (isOptimized() || moreResults.isOptimized()) {
                 	throw new IllegalArgumentException("Optimized median results cannot be merged.");
             	}
+            	if (isApproximate() || moreResults.isApproximate()) {
+            	    // merge the sketches, exact values are added to the approximate side
+            	    MedianResult approximateResult = isApproximate() ? this : moreResults;
+            	    MedianResult other = approximateResult == this ? moreResults : this;
+            	    QuantileSketch merged = approximateResult.sketch.copy();
+            	    if (other.isApproximate()) {
+            	        merged.merge(other.sketch);
+            	    } else {
+            	        for (Object value : other.list) {
+            	            if (!(value instanceof Number)) {
+            	                throw new IllegalArgumentException(
+            	                        "Approximate median results can only be merged with numeric ones");
+            	            }
+            	            merged.add(((Number) value).doubleValue());
+            	        }
+            	    }
+            	    return new MedianResult(merged);
+            	}
             	//merge away...
             	List toAdd = (ArrayList) moreResults.getList();
                 List newList = new ArrayList();
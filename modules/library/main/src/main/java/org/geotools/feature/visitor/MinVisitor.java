@@ -33,7 +33,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/feature/visitor/MinVisitor.java $
  */
-public class MinVisitor implements FeatureCalc {
+public class MinVisitor implements PartitionableFeatureCalc {
     private Expression expr;
     Comparable minvalue;
     Comparable curvalue;
@@ -124,6 +124,17 @@ public class MinVisitor implements FeatureCalc {
         return expr;
     }
 
+    public FeatureCalc createPartition() {
+        return new MinVisitor(expr);
+    }
+
+    public void mergeResult(CalcResult result) {
+        CalcResult merged = getResult().merge(result);
+        if (merged != CalcResult.NULL_RESULT) {
+            setValue(merged.getValue());
+        }
+    }
+
     /**
      * Overwrites the result stored by the visitor. This should only be used by
      * optimizations which will tell the visitor the answer rather than
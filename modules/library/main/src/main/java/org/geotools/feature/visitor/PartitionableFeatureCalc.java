@@ -0,0 +1,42 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+/**
+ * A {@link FeatureCalc} whose calculation can be split: independent visitors are run against
+ * disjoint partitions of the features, possibly in parallel, and their results are then merged
+ * back into this visitor using {@link CalcResult#merge(CalcResult)}.
+ *
+ * @since 8.0
+ */
+public interface PartitionableFeatureCalc extends FeatureCalc {
+
+    /**
+     * Returns a new visitor performing the same calculation, that has not visited any feature
+     * yet, and will be used to visit a single partition.
+     */
+    FeatureCalc createPartition();
+
+    /**
+     * Merges the provided result, usually the merge of the partition visitors results, with
+     * the one of this visitor, making the calculation reflect both.
+     *
+     * @param result a result compatible with the one of this visitor
+     * @throws IllegalArgumentException if the result cannot be merged
+     */
+    void mergeResult(CalcResult result);
+}
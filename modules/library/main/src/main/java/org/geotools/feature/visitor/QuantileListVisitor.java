@@ -28,6 +28,11 @@ import org.opengis.filter.expression.Expression;
  * Obtains the data needed for a Quantile operation (classification of features into classes of equal size). 
  * 
  * The result contains an array of lists with the expression values in each.
+ * <p>
+ * In approximate mode (see {@link #setApproximate(boolean)} and
+ * {@link org.geotools.factory.Hints#APPROXIMATE_AGGREGATES}) numeric values are summarized in
+ * a {@link QuantileSketch} instead, and each list of the result only contains the estimated
+ * lower and upper bound of its class, as Doubles.
  * 
  * @author Cory Horner, Refractions Research Inc.
  *
@@ -44,6 +49,16 @@ public class QuantileListVisitor implements FeatureCalc {
     boolean visited = false;
     int countNull = 0;
     int countNaN = 0;
+
+    boolean approximate = CalcUtil.isApproximateByDefault();
+
+    QuantileSketch sketch;
+
+    /**
+     * Only used to store the classes computed by optimized functions, where we don't get the
+     * values but just the bounds of each class. If not null, it takes priority over the items.
+     */
+    List[] optimizedBins;
 	
 	public QuantileListVisitor(Expression expr, int bins) {
 		this.expr = expr;
@@ -56,9 +71,27 @@ public class QuantileListVisitor implements FeatureCalc {
 	}
 	
 	public CalcResult getResult() {
+	    if (optimizedBins != null) {
+	        if (optimizedBins.length == 0) {
+	            return CalcResult.NULL_RESULT;
+	        }
+	        final List[] result = optimizedBins;
+	        return new AbstractCalcResult() {
+	            public Object getValue() {
+	                return result;
+	            }
+	        };
+	    }
 	    if (bins == 0 || count == 0) {
 	    	return CalcResult.NULL_RESULT;
 	    }
+	    if (sketch != null) {
+	        if (!items.isEmpty()) {
+	            throw new IllegalStateException(
+	                    "Cannot compute the quantiles of numbers mixed with other values");
+	        }
+	        return new QuantileSketchResult(sketch, bins);
+	    }
         
         // sort the list
 		Collections.sort(items);
@@ -112,7 +145,14 @@ public class QuantileListVisitor implements FeatureCalc {
 		}
 		
 		count++;
-		items.add(value);
+		if (approximate && value instanceof Number) {
+		    if (sketch == null) {
+		        sketch = new QuantileSketch();
+		    }
+		    sketch.add(((Number) value).doubleValue());
+		} else {
+		    items.add(value);
+		}
 	}
 	
 	public void reset(int bins) {
@@ -122,8 +162,50 @@ public class QuantileListVisitor implements FeatureCalc {
 		this.bin = new ArrayList[bins];
 	    this.countNull = 0;
 	    this.countNaN = 0;
+	    this.sketch = null;
+	    this.optimizedBins = null;
 	}
 
+    public Expression getExpression() {
+        return expr;
+    }
+
+    /**
+     * The number of classes the values are split into
+     */
+    public int getBins() {
+        return bins;
+    }
+
+    /**
+     * Sets the classes computed by an optimized function, e.g. by the database, each list
+     * containing at least the minimum and maximum value of its class, in ascending order
+     * 
+     * @param bins
+     */
+    public void setValue(List[] bins) {
+        reset(bins.length);
+        this.optimizedBins = bins;
+    }
+
+    /**
+     * Returns true if the visitor summarizes numeric values in a sketch rather than keeping
+     * them all
+     */
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    /**
+     * Switches between the exact and approximate computation, resets the visitor
+     * 
+     * @param approximate
+     */
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+        reset(bins);
+    }
+
     /**
      * @return the number of features which returned a NaN
      */
@@ -137,4 +219,58 @@ public class QuantileListVisitor implements FeatureCalc {
     public int getNullCount() {
     	return countNull;
     }
+
+    /**
+     * The approximate quantiles result, mergeable with other approximate results
+     */
+    public static class QuantileSketchResult extends AbstractCalcResult {
+        private QuantileSketch sketch;
+
+        private int bins;
+
+        public QuantileSketchResult(QuantileSketch sketch, int bins) {
+            this.sketch = sketch;
+            this.bins = bins;
+        }
+
+        public QuantileSketch getSketch() {
+            return sketch;
+        }
+
+        /**
+         * Returns an array of lists, one per class, each containing the estimated lower and
+         * upper bound of the class
+         */
+        public Object getValue() {
+            int classes = (int) Math.min(bins, sketch.getCount());
+            List[] bin = new ArrayList[classes];
+            double lower = sketch.getMin();
+            for (int i = 0; i < classes; i++) {
+                double upper = i == classes - 1 ? sketch.getMax() : sketch
+                        .quantile((double) (i + 1) / classes);
+                bin[i] = new ArrayList();
+                bin[i].add(new Double(lower));
+                bin[i].add(new Double(upper));
+                lower = upper;
+            }
+            return bin;
+        }
+
+        public boolean isCompatible(CalcResult targetResults) {
+            return targetResults instanceof QuantileSketchResult
+                    || targetResults == CalcResult.NULL_RESULT;
+        }
+
+        public CalcResult merge(CalcResult resultsToAdd) {
+            if (!isCompatible(resultsToAdd)) {
+                throw new IllegalArgumentException("Parameter is not a compatible type");
+            }
+            if (resultsToAdd == CalcResult.NULL_RESULT) {
+                return this;
+            }
+            QuantileSketch merged = sketch.copy();
+            merged.merge(((QuantileSketchResult) resultsToAdd).sketch);
+            return new QuantileSketchResult(merged, bins);
+        }
+    }
 }
@@ -0,0 +1,324 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.Arrays;
+
+/**
+ * A t-digest like sketch estimating the quantiles of a stream of numbers in bounded memory.
+ * <p>
+ * The values are summarized as a sorted list of centroids (mean and weight), kept small in the
+ * middle of the distribution and small in the tails, so that the extreme quantiles stay
+ * accurate. Incoming values are buffered and folded in the centroids in batches. Two sketches
+ * can be merged, which allows to compute them on separate partitions of the data and combine
+ * the results.
+ * <p>
+ * Inputs smaller than the buffer (five times the compression) are kept as is, so the results
+ * are exact for them, and the minimum and maximum are always exact.
+ *
+ * @since 8.0
+ */
+public class QuantileSketch {
+
+    /**
+     * The default compression, results in at most around a hundred centroids
+     */
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    final double compression;
+
+    double[] means;
+
+    double[] weights;
+
+    int centroids;
+
+    double[] buffer;
+
+    int buffered;
+
+    long count;
+
+    double min = Double.NaN;
+
+    double max = Double.NaN;
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a sketch with the specified compression, the higher the more centroids are kept
+     * and the more accurate the results
+     *
+     * @param compression
+     */
+    public QuantileSketch(double compression) {
+        if (compression < 1) {
+            throw new IllegalArgumentException("Compression must be at least 1, was "
+                    + compression);
+        }
+        this.compression = compression;
+        this.means = new double[0];
+        this.weights = new double[0];
+        this.buffer = new double[(int) (compression * 5)];
+    }
+
+    /**
+     * Adds a value to the sketch. NaN values are ignored.
+     *
+     * @param value
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (buffered == buffer.length) {
+            compress();
+        }
+        buffer[buffered++] = value;
+        if (count == 0) {
+            min = max = value;
+        } else if (value < min) {
+            min = value;
+        } else if (value > max) {
+            max = value;
+        }
+        count++;
+    }
+
+    /**
+     * Merges the contents of another sketch into this one
+     *
+     * @param other
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        other.compress();
+        compress();
+        fold(other.means, other.weights, other.centroids);
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+    }
+
+    /**
+     * Returns a copy of this sketch
+     */
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(compression);
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * The number of values added to the sketch
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The smallest value added to the sketch, or NaN if the sketch is empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * The largest value added to the sketch, or NaN if the sketch is empty
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the means of the centroids summarizing the values, in ascending order
+     */
+    public double[] getCentroidMeans() {
+        if (centroids == 0) {
+            Arrays.sort(buffer, 0, buffered);
+            double[] result = new double[buffered];
+            System.arraycopy(buffer, 0, result, 0, buffered);
+            return result;
+        }
+        compress();
+        double[] result = new double[centroids];
+        System.arraycopy(means, 0, result, 0, centroids);
+        return result;
+    }
+
+    /**
+     * Returns the number of values summarized by each centroid, in the same order as
+     * {@link #getCentroidMeans()}
+     */
+    public double[] getCentroidWeights() {
+        if (centroids == 0) {
+            double[] result = new double[buffered];
+            Arrays.fill(result, 1);
+            return result;
+        }
+        compress();
+        double[] result = new double[centroids];
+        System.arraycopy(weights, 0, result, 0, centroids);
+        return result;
+    }
+
+    /**
+     * Estimates the value below which the specified fraction of the values falls. For a set of
+     * values represented exactly this is the same as the usual median definition, that is, the
+     * average of the two middle values when their number is even.
+     *
+     * @param q the quantile, between 0 and 1
+     * @return the estimated value, or NaN if the sketch is empty
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1, was " + q);
+        }
+        if (centroids == 0) {
+            // never compressed, answer straight from the values
+            Arrays.sort(buffer, 0, buffered);
+            return quantile(q, buffer, null, buffered);
+        }
+        compress();
+        return quantile(q, means, weights, centroids);
+    }
+
+    /**
+     * Interpolates the quantile between the centroids, whose values are assumed to be evenly
+     * spread around their mean, so that the mean sits at the middle of their weight
+     */
+    double quantile(double q, double[] values, double[] counts, int n) {
+        if (n == 0) {
+            return Double.NaN;
+        } else if (n == 1) {
+            return values[0];
+        }
+
+        final double index = q * count;
+        double first = counts == null ? 1 : counts[0];
+        if (index < first / 2) {
+            if (first == 1) {
+                return values[0];
+            }
+            return min + (values[0] - min) * index / (first / 2);
+        }
+        double weightSoFar = first / 2;
+        for (int i = 0; i < n - 1; i++) {
+            double w1 = counts == null ? 1 : counts[i];
+            double w2 = counts == null ? 1 : counts[i + 1];
+            double delta = (w1 + w2) / 2;
+            if (weightSoFar + delta > index) {
+                double z = (index - weightSoFar) / delta;
+                return values[i] + (values[i + 1] - values[i]) * z;
+            }
+            weightSoFar += delta;
+        }
+        int last = n - 1;
+        double lastWeight = counts == null ? 1 : counts[last];
+        if (lastWeight == 1) {
+            return values[last];
+        }
+        double z = Math.min(1, (index - weightSoFar) / (lastWeight / 2));
+        return values[last] + (max - values[last]) * z;
+    }
+
+    /**
+     * Folds the buffered values into the centroids
+     */
+    void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        int n = buffered;
+        buffered = 0;
+        fold(buffer, null, n);
+    }
+
+    /**
+     * Merges the specified sorted centroids (or values, if weights is null) with the current
+     * ones, and then joins the neighbours whose combined weight is small enough for their
+     * position in the distribution
+     */
+    void fold(double[] otherMeans, double[] otherWeights, int n) {
+        double total = 0;
+        for (int i = 0; i < centroids; i++) {
+            total += weights[i];
+        }
+        if (otherWeights == null) {
+            total += n;
+        } else {
+            for (int i = 0; i < n; i++) {
+                total += otherWeights[i];
+            }
+        }
+
+        double[] newMeans = new double[centroids + n];
+        double[] newWeights = new double[centroids + n];
+        int size = 0;
+        double weightSoFar = 0;
+        double kLower = scale(0);
+        int i = 0, j = 0;
+        while (i < centroids || j < n) {
+            double mean, weight;
+            if (j >= n || (i < centroids && means[i] <= otherMeans[j])) {
+                mean = means[i];
+                weight = weights[i];
+                i++;
+            } else {
+                mean = otherMeans[j];
+                weight = otherWeights == null ? 1 : otherWeights[j];
+                j++;
+            }
+
+            if (size > 0) {
+                int current = size - 1;
+                double proposed = newWeights[current] + weight;
+                if (scale((weightSoFar + proposed) / total) - kLower <= 1) {
+                    newMeans[current] += (mean - newMeans[current]) * weight / proposed;
+                    newWeights[current] = proposed;
+                    continue;
+                }
+                weightSoFar += newWeights[current];
+                kLower = scale(weightSoFar / total);
+            }
+            newMeans[size] = mean;
+            newWeights[size] = weight;
+            size++;
+        }
+        means = newMeans;
+        weights = newWeights;
+        centroids = size;
+    }
+
+    /**
+     * The t-digest k1 scale function, the quantile span of a centroid shrinks near the tails
+     */
+    double scale(double q) {
+        q = Math.max(0, Math.min(1, q));
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+}
@@ -51,6 +51,12 @@ public class StandardDeviationVisitor implements FeatureCalc {
     double mean = 0;
     double m2 = 0;
 
+    /**
+     * Only used to store the result of optimized functions, where we don't get the values but
+     * just the standard deviation. If not null, it takes priority over the rolling variance.
+     */
+    Double optimizedResult;
+
     /**
      * Constructor left for backwards compatibility. The current algorithm uses
      * a on line computation that does not require the average to be calculated
@@ -78,6 +84,14 @@ public class StandardDeviationVisitor implements FeatureCalc {
 	}
 	
 	public CalcResult getResult() {
+		if (optimizedResult != null) {
+		    final Double result = optimizedResult;
+		    return new AbstractCalcResult() {
+		        public Object getValue() {
+		            return result;
+		        }
+		    };
+		}
 		if(count == 0) {
     		return CalcResult.NULL_RESULT;
     	}
@@ -121,8 +135,24 @@ public class StandardDeviationVisitor implements FeatureCalc {
 	    this.countNaN = 0;
 	    this.m2 = 0;
 	    this.mean = 0;
+	    this.optimizedResult = null;
 	}
 
+    public Expression getExpression() {
+        return expr;
+    }
+
+    /**
+     * Sets the (population) standard deviation computed by an optimized function, e.g. by the
+     * database
+     * 
+     * @param stddev
+     */
+    public void setValue(Object stddev) {
+        reset();
+        this.optimizedResult = new Double(((Number) stddev).doubleValue());
+    }
+
     /**
      * @return the number of features which returned a NaN
      */
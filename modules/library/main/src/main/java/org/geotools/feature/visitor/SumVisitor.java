@@ -38,7 +38,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/feature/visitor/SumVisitor.java $
  */
-public class SumVisitor implements FeatureCalc {
+public class SumVisitor implements PartitionableFeatureCalc {
     private Expression expr;
     SumStrategy strategy;
 
@@ -117,6 +117,17 @@ public class SumVisitor implements FeatureCalc {
         strategy = null;
     }
 
+    public FeatureCalc createPartition() {
+        return new SumVisitor(expr);
+    }
+
+    public void mergeResult(CalcResult result) {
+        CalcResult merged = getResult().merge(result);
+        if (merged != CalcResult.NULL_RESULT) {
+            setValue(merged.getValue());
+        }
+    }
+
     public CalcResult getResult() {
     	if(strategy == null) {
     		return CalcResult.NULL_RESULT;
@@ -0,0 +1,185 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks the most frequent values of a stream keeping a bounded number of counters (a
+ * Misra-Gries "frequent items" summary). When the counters are full they are all decreased by
+ * their median, and those reaching zero are dropped, so any value occurring more than
+ * {@code 2 * count / capacity} times is guaranteed to be retained.
+ * <p>
+ * As long as the stream contains no more distinct values than the capacity nothing is ever
+ * dropped and the results are exact. Two sketches can be merged.
+ *
+ * @since 8.0
+ */
+public class TopKSketch {
+
+    final int capacity;
+
+    Map<Object, long[]> counters;
+
+    /**
+     * The total amount subtracted from the counters, bounds the error of each count
+     */
+    long offset;
+
+    /**
+     * Creates a sketch keeping track of at most the specified number of distinct values
+     *
+     * @param capacity
+     */
+    public TopKSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<Object, long[]>();
+    }
+
+    /**
+     * Adds a value to the sketch, null values are ignored
+     *
+     * @param value
+     */
+    public void add(Object value) {
+        add(value, 1);
+    }
+
+    void add(Object value, long count) {
+        if (value == null) {
+            return;
+        }
+        long[] counter = counters.get(value);
+        if (counter != null) {
+            counter[0] += count;
+        } else {
+            counters.put(value, new long[] { count });
+            if (counters.size() > capacity) {
+                purge();
+            }
+        }
+    }
+
+    /**
+     * Merges the contents of another sketch into this one
+     *
+     * @param other
+     */
+    public void merge(TopKSketch other) {
+        for (Map.Entry<Object, long[]> entry : other.counters.entrySet()) {
+            long[] counter = counters.get(entry.getKey());
+            if (counter != null) {
+                counter[0] += entry.getValue()[0];
+            } else {
+                counters.put(entry.getKey(), new long[] { entry.getValue()[0] });
+            }
+        }
+        offset += other.offset;
+        while (counters.size() > capacity) {
+            purge();
+        }
+    }
+
+    /**
+     * Returns a copy of this sketch
+     */
+    public TopKSketch copy() {
+        TopKSketch copy = new TopKSketch(capacity);
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * Returns true if no value was ever dropped, that is, if the tracked values and their
+     * counts are exact
+     */
+    public boolean isExact() {
+        return offset == 0;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the value, which is never overestimated
+     * and is underestimated by at most {@link #getMaxError()}
+     *
+     * @param value
+     */
+    public long getCount(Object value) {
+        long[] counter = counters.get(value);
+        return counter == null ? 0 : counter[0];
+    }
+
+    /**
+     * The maximum amount by which the counts may be underestimated
+     */
+    public long getMaxError() {
+        return offset;
+    }
+
+    /**
+     * Returns the tracked values, most frequent first
+     */
+    public Set<Object> getValues() {
+        List<Map.Entry<Object, long[]>> entries = new ArrayList<Map.Entry<Object, long[]>>(
+                counters.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Object, long[]>>() {
+            public int compare(Map.Entry<Object, long[]> e1, Map.Entry<Object, long[]> e2) {
+                long c1 = e1.getValue()[0];
+                long c2 = e2.getValue()[0];
+                return c1 > c2 ? -1 : (c1 < c2 ? 1 : 0);
+            }
+        });
+        Set<Object> result = new LinkedHashSet<Object>();
+        for (Map.Entry<Object, long[]> entry : entries) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * Decreases all counters by their median, dropping the ones that reach zero. Halving the
+     * counters at once keeps the cost constant on average.
+     */
+    void purge() {
+        long[] counts = new long[counters.size()];
+        int i = 0;
+        for (long[] counter : counters.values()) {
+            counts[i++] = counter[0];
+        }
+        Arrays.sort(counts);
+        long median = counts[counts.length / 2];
+        for (Iterator<long[]> it = counters.values().iterator(); it.hasNext();) {
+            long[] counter = it.next();
+            counter[0] -= median;
+            if (counter[0] <= 0) {
+                it.remove();
+            }
+        }
+        offset += median;
+    }
+}
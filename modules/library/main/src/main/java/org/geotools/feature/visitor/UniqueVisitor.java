@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
@@ -37,6 +38,13 @@ import org.opengis.filter.expression.Expression;
 
 /**
  * Generates a list of unique values from a collection
+ * <p>
+ * In approximate mode (see {@link #setApproximate(boolean)} and
+ * {@link org.geotools.factory.Hints#APPROXIMATE_AGGREGATES}) only the
+ * {@link #getMaxUniqueValues()} most frequent values are tracked, and the number of distinct
+ * values is estimated, so that memory usage stays bounded regardless of the attribute
+ * cardinality. The results are still exact when there are no more distinct values than the
+ * maximum.
  *
  * @author Cory Horner, Refractions
  *
@@ -45,9 +53,28 @@ import org.opengis.filter.expression.Expression;
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/library/main/src/main/java/org/geotools/feature/visitor/UniqueVisitor.java $
  */
 public class UniqueVisitor implements FeatureCalc {
+    /**
+     * The default maximum number of values tracked in approximate mode
+     */
+    public static final int DEFAULT_MAX_UNIQUE_VALUES = 1000;
+
     private Expression expr;
     Set set = new HashSet();
 
+    boolean approximate = CalcUtil.isApproximateByDefault();
+
+    int maxUniqueValues = DEFAULT_MAX_UNIQUE_VALUES;
+
+    TopKSketch topK;
+
+    DistinctCountSketch distinct;
+
+    /**
+     * The number of distinct values provided along with a truncated set of values by an
+     * optimized function, or -1 if the set contains all the distinct values
+     */
+    long distinctCount = -1;
+
     public UniqueVisitor(String attributeTypeName) {
         FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
         expr = factory.property(attributeTypeName);
@@ -80,7 +107,16 @@ public class UniqueVisitor implements FeatureCalc {
         //we ignore null attributes
         Object value = expr.evaluate(feature);
         if (value != null) {
-        	set.add(value);
+            if (approximate) {
+                if (topK == null) {
+                    topK = new TopKSketch(maxUniqueValues);
+                    distinct = new DistinctCountSketch();
+                }
+                topK.add(value);
+                distinct.add(value);
+            } else {
+                set.add(value);
+            }
         }
     }
 
@@ -92,11 +128,63 @@ public class UniqueVisitor implements FeatureCalc {
         /**
          * Return a list of unique values from the collection
          */
+        if (topK != null) {
+            return topK.getValues();
+        }
         return set;
     }
 
+    /**
+     * Returns the number of distinct values, estimated in approximate mode
+     */
+    public long getDistinctCount() {
+        if (topK != null) {
+            return distinct.estimate();
+        }
+        if (distinctCount >= 0) {
+            return distinctCount;
+        }
+        return set.size();
+    }
+
+    /**
+     * Returns true if the visitor keeps sketches rather than all the values
+     */
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    /**
+     * Switches between the exact and approximate computation, resets the visitor
+     * 
+     * @param approximate
+     */
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+        reset();
+    }
+
+    /**
+     * The maximum number of values tracked in approximate mode
+     */
+    public int getMaxUniqueValues() {
+        return maxUniqueValues;
+    }
+
+    /**
+     * Sets the maximum number of values tracked in approximate mode, resets the visitor
+     * 
+     * @param maxUniqueValues
+     */
+    public void setMaxUniqueValues(int maxUniqueValues) {
+        this.maxUniqueValues = maxUniqueValues;
+        reset();
+    }
+
     public void setValue(Object newSet) {
-        
+        topK = null;
+        distinct = null;
+        distinctCount = -1;
     	if (newSet instanceof Collection) { //convert to set
     		this.set = new HashSet((Collection) newSet);
     	} else {
@@ -108,6 +196,18 @@ public class UniqueVisitor implements FeatureCalc {
     	    }
     	} 
     }
+
+    /**
+     * Sets the most frequent values computed by an optimized function, e.g. by the database, in
+     * approximate mode, along with the total number of distinct values
+     * 
+     * @param values
+     * @param distinctCount
+     */
+    public void setValue(Collection values, long distinctCount) {
+        setValue(values);
+        this.distinctCount = Math.max(distinctCount, set.size());
+    }
     
     public void reset() {
         /**
@@ -115,25 +215,81 @@ public class UniqueVisitor implements FeatureCalc {
          * collection
          */
         this.set = new HashSet();
+        this.topK = null;
+        this.distinct = null;
+        this.distinctCount = -1;
     }
 
     public CalcResult getResult() {
+        if (topK != null) {
+            return new UniqueResult(topK, distinct);
+        }
         if (set.size() < 1) {
             return CalcResult.NULL_RESULT;
         }
+        if (distinctCount >= 0) {
+            return new UniqueResult(set, distinctCount);
+        }
         return new UniqueResult(set);
     }
 
     public static class UniqueResult extends AbstractCalcResult {
         private Set unique;
 
+        private TopKSketch topK;
+
+        private DistinctCountSketch distinct;
+
+        private long distinctCount = -1;
+
         public UniqueResult(Set newSet) {
             unique = newSet;
         }
 
+        /**
+         * Builds a result out of a subset of the distinct values, along with the total number
+         * of distinct values
+         */
+        public UniqueResult(Set newSet, long distinctCount) {
+            unique = newSet;
+            this.distinctCount = distinctCount;
+        }
+
+        /**
+         * Builds an approximate result out of the most frequent values and the distinct values
+         * count sketches
+         */
+        public UniqueResult(TopKSketch topK, DistinctCountSketch distinct) {
+            this.topK = topK;
+            this.distinct = distinct;
+        }
+
         public Object getValue() {
+            if (topK != null) {
+                return topK.getValues();
+            }
         	return new HashSet(unique);
         }
+
+        /**
+         * Returns the number of distinct values, estimated for approximate results
+         */
+        public long getDistinctCount() {
+            if (topK != null) {
+                return distinct.estimate();
+            }
+            if (distinctCount >= 0) {
+                return distinctCount;
+            }
+            return unique.size();
+        }
+
+        /**
+         * Returns true if the result was computed using sketches
+         */
+        public boolean isApproximate() {
+            return topK != null;
+        }
         
         public boolean isCompatible(CalcResult targetResults) {
             //list each calculation result which can merge with this type of result
@@ -151,7 +307,27 @@ public class UniqueVisitor implements FeatureCalc {
         		return this;
         	}
 
-            if (resultsToAdd instanceof UniqueResult) {
+            if (resultsToAdd instanceof UniqueResult
+                    && (isApproximate() || ((UniqueResult) resultsToAdd).isApproximate())) {
+                // merge the sketches, exact values are added to the approximate side
+                UniqueResult approximateResult = isApproximate() ? this
+                        : (UniqueResult) resultsToAdd;
+                UniqueResult other = approximateResult == this ? (UniqueResult) resultsToAdd
+                        : this;
+                TopKSketch mergedTopK = approximateResult.topK.copy();
+                DistinctCountSketch mergedDistinct = approximateResult.distinct.copy();
+                if (other.isApproximate()) {
+                    mergedTopK.merge(other.topK);
+                    mergedDistinct.merge(other.distinct);
+                } else {
+                    for (Iterator it = other.unique.iterator(); it.hasNext();) {
+                        Object value = it.next();
+                        mergedTopK.add(value);
+                        mergedDistinct.add(value);
+                    }
+                }
+                return new UniqueResult(mergedTopK, mergedDistinct);
+            } else if (resultsToAdd instanceof UniqueResult) {
             	//add one set to the other (to create one big unique list)
             	Set newSet = new HashSet(unique);
                 newSet.addAll((Set) resultsToAdd.getValue());
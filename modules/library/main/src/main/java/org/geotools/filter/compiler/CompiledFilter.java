@@ -0,0 +1,106 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.compiler;
+
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterVisitor;
+
+/**
+ * A filter compiled by {@link FilterCompiler}.
+ * <p>
+ * Simple features are evaluated by the code compiled for their feature type, which gets
+ * (re)compiled whenever a feature of a different type shows up; any other object is evaluated
+ * by the original filter. Visitors are forwarded to the original filter, so the compiled filter
+ * is undistinguishable from it for encoders, splitters and the like.
+ * <p>
+ * Instances are thread safe.
+ */
+public final class CompiledFilter implements Filter {
+
+    /**
+     * A feature type and the evaluator compiled for it, kept together so that they can be
+     * swapped atomically
+     */
+    static final class Compiled {
+        final SimpleFeatureType featureType;
+
+        final FeatureEvaluator evaluator;
+
+        Compiled(SimpleFeatureType featureType, FeatureEvaluator evaluator) {
+            this.featureType = featureType;
+            this.evaluator = evaluator;
+        }
+    }
+
+    final Filter filter;
+
+    volatile Compiled compiled;
+
+    CompiledFilter(Filter filter, SimpleFeatureType featureType) {
+        this.filter = filter;
+        if (featureType != null) {
+            compiled = new Compiled(featureType, FilterCompiler.compileEvaluator(filter,
+                    featureType));
+        }
+    }
+
+    /**
+     * The filter this one has been compiled from
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    public boolean evaluate(Object object) {
+        if (!(object instanceof SimpleFeature)) {
+            return filter.evaluate(object);
+        }
+
+        SimpleFeature feature = (SimpleFeature) object;
+        SimpleFeatureType featureType = feature.getFeatureType();
+        Compiled c = compiled;
+        if (c == null || c.featureType != featureType) {
+            c = new Compiled(featureType, FilterCompiler.compileEvaluator(filter, featureType));
+            compiled = c;
+        }
+        return c.evaluator.evaluate(feature);
+    }
+
+    public Object accept(FilterVisitor visitor, Object extraData) {
+        return filter.accept(visitor, extraData);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof CompiledFilter) {
+            return filter.equals(((CompiledFilter) obj).filter);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return filter.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return filter.toString();
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.compiler;
+
+import org.geotools.feature.simple.PrimitiveSimpleFeatureImpl;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A node of a compiled filter, evaluates against a feature of the type it was compiled for,
+ * reading the attributes by index.
+ * <p>
+ * The leaf nodes check at runtime that the attribute value is of the class they have been
+ * specialized for, and fall back on the original filter when it's not, so that the results are
+ * always the same as the interpreted filter.
+ * <p>
+ * Numeric attributes of {@link PrimitiveSimpleFeatureImpl} are read without boxing.
+ */
+abstract class FeatureEvaluator {
+
+    static final int EQUAL = 0;
+
+    static final int LESS = 1;
+
+    static final int LESS_OR_EQUAL = 2;
+
+    static final int GREATER = 3;
+
+    static final int GREATER_OR_EQUAL = 4;
+
+    abstract boolean evaluate(SimpleFeature feature);
+
+    /**
+     * Same as the lax compare used by the comparison filters for two numbers
+     */
+    static int compare(double left, double right) {
+        return left > right ? 1 : (left == right ? 0 : -1);
+    }
+
+    static boolean test(int operator, int comparison) {
+        switch (operator) {
+        case LESS:
+            return comparison < 0;
+        case LESS_OR_EQUAL:
+            return comparison <= 0;
+        case GREATER:
+            return comparison > 0;
+        case GREATER_OR_EQUAL:
+            return comparison >= 0;
+        default:
+            return comparison == 0;
+        }
+    }
+
+    static final class Constant extends FeatureEvaluator {
+        final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            return value;
+        }
+    }
+
+    /**
+     * Evaluates a filter that could not be compiled
+     */
+    static final class Interpreted extends FeatureEvaluator {
+        final Filter filter;
+
+        Interpreted(Filter filter) {
+            this.filter = filter;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            return filter.evaluate(feature);
+        }
+    }
+
+    static final class And extends FeatureEvaluator {
+        final FeatureEvaluator[] children;
+
+        And(FeatureEvaluator[] children) {
+            this.children = children;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            for (int i = 0; i < children.length; i++) {
+                if (!children[i].evaluate(feature)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Or extends FeatureEvaluator {
+        final FeatureEvaluator[] children;
+
+        Or(FeatureEvaluator[] children) {
+            this.children = children;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i].evaluate(feature)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Not extends FeatureEvaluator {
+        final FeatureEvaluator child;
+
+        Not(FeatureEvaluator child) {
+            this.child = child;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            return !child.evaluate(feature);
+        }
+    }
+
+    static final class IsNull extends FeatureEvaluator {
+        final int index;
+
+        IsNull(int index) {
+            this.index = index;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            return feature.getAttribute(index) == null;
+        }
+    }
+
+    /**
+     * Orders a numeric attribute against a numeric literal, the literal has already been
+     * converted to the attribute binding the same way the comparison filters do it
+     */
+    static final class NumberCompare extends FeatureEvaluator {
+        final int index;
+
+        final Class<?> binding;
+
+        final double literal;
+
+        final boolean literalFirst;
+
+        final int operator;
+
+        final Filter fallback;
+
+        NumberCompare(int index, Class<?> binding, double literal, boolean literalFirst,
+                int operator, Filter fallback) {
+            this.index = index;
+            this.binding = binding;
+            this.literal = literal;
+            this.literalFirst = literalFirst;
+            this.operator = operator;
+            this.fallback = fallback;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            double v;
+            if (feature instanceof PrimitiveSimpleFeatureImpl
+                    && ((PrimitiveSimpleFeatureImpl) feature).isPrimitive(index)) {
+                v = ((PrimitiveSimpleFeatureImpl) feature).getDouble(index);
+            } else {
+                Object value = feature.getAttribute(index);
+                if (value == null) {
+                    return false;
+                }
+                if (value.getClass() != binding) {
+                    return fallback.evaluate(feature);
+                }
+                v = ((Number) value).doubleValue();
+            }
+            int comparison = literalFirst ? compare(literal, v) : compare(v, literal);
+            return test(operator, comparison);
+        }
+    }
+
+    /**
+     * Orders a non numeric attribute against a literal of the same class
+     */
+    static final class ComparableCompare extends FeatureEvaluator {
+        final int index;
+
+        final Comparable<Object> literal;
+
+        final boolean literalFirst;
+
+        final int operator;
+
+        final Filter fallback;
+
+        @SuppressWarnings("unchecked")
+        ComparableCompare(int index, Comparable<?> literal, boolean literalFirst,
+                int operator, Filter fallback) {
+            this.index = index;
+            this.literal = (Comparable<Object>) literal;
+            this.literalFirst = literalFirst;
+            this.operator = operator;
+            this.fallback = fallback;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean evaluate(SimpleFeature feature) {
+            Object value = feature.getAttribute(index);
+            if (value == null) {
+                return false;
+            }
+            if (value.getClass() != literal.getClass()) {
+                return fallback.evaluate(feature);
+            }
+            int comparison = literalFirst ? literal.compareTo(value)
+                    : ((Comparable<Object>) value).compareTo(literal);
+            return test(operator, comparison);
+        }
+    }
+
+    /**
+     * Equality between a numeric attribute and a number or string literal, following the
+     * PropertyIsEqualTo rules: plain equality, equality against the literal converted to the
+     * attribute type, then numeric comparison (as longs when no precision is lost)
+     */
+    static final class NumberEquals extends FeatureEvaluator {
+        final int index;
+
+        final Class<?> binding;
+
+        final Object literal;
+
+        final Object converted;
+
+        final boolean numeric;
+
+        final double fp2;
+
+        final long lg2;
+
+        final boolean integral2;
+
+        final boolean negate;
+
+        final Filter fallback;
+
+        NumberEquals(int index, Class<?> binding, Object literal, Object converted,
+                Number number, boolean negate, Filter fallback) {
+            this.index = index;
+            this.binding = binding;
+            this.literal = literal;
+            this.converted = converted;
+            this.numeric = number != null;
+            this.fp2 = numeric ? number.doubleValue() : Double.NaN;
+            this.lg2 = numeric ? number.longValue() : 0;
+            this.integral2 = numeric && fp2 == (double) lg2;
+            this.negate = negate;
+            this.fallback = fallback;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            Object value = feature.getAttribute(index);
+            if (value == null) {
+                return negate;
+            }
+            if (value.getClass() != binding) {
+                return fallback.evaluate(feature);
+            }
+            return equal((Number) value) != negate;
+        }
+
+        boolean equal(Number value) {
+            if (value.equals(literal) || (converted != null && value.equals(converted))) {
+                return true;
+            }
+            if (!numeric) {
+                // the literal is a string that does not parse as a number
+                return false;
+            }
+            final double fp1 = value.doubleValue();
+            final long lg1 = value.longValue();
+            if (fp1 == (double) lg1 && integral2) {
+                return lg1 == lg2;
+            } else {
+                return (fp1 == fp2) || (Double.isNaN(fp1) && Double.isNaN(fp2));
+            }
+        }
+    }
+
+    /**
+     * Equality between a string attribute and a string literal
+     */
+    static final class StringEquals extends FeatureEvaluator {
+        final int index;
+
+        final String literal;
+
+        final boolean matchCase;
+
+        final boolean negate;
+
+        final Filter fallback;
+
+        StringEquals(int index, String literal, boolean matchCase, boolean negate,
+                Filter fallback) {
+            this.index = index;
+            this.literal = literal;
+            this.matchCase = matchCase;
+            this.negate = negate;
+            this.fallback = fallback;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            Object value = feature.getAttribute(index);
+            if (value == null) {
+                return negate;
+            }
+            if (value.getClass() != String.class) {
+                return fallback.evaluate(feature);
+            }
+            String s = (String) value;
+            boolean equal = matchCase ? s.equals(literal) : s.equalsIgnoreCase(literal);
+            return equal != negate;
+        }
+    }
+
+    /**
+     * Between on a numeric attribute, the boundaries have already been converted to the
+     * attribute binding
+     */
+    static final class NumberBetween extends FeatureEvaluator {
+        final int index;
+
+        final Class<?> binding;
+
+        final boolean floating;
+
+        final double lowerDouble, upperDouble;
+
+        final long lowerLong, upperLong;
+
+        final Filter fallback;
+
+        NumberBetween(int index, Class<?> binding, Number lower, Number upper, Filter fallback) {
+            this.index = index;
+            this.binding = binding;
+            this.floating = binding == Double.class || binding == Float.class;
+            this.lowerDouble = lower.doubleValue();
+            this.upperDouble = upper.doubleValue();
+            this.lowerLong = lower.longValue();
+            this.upperLong = upper.longValue();
+            this.fallback = fallback;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            if (feature instanceof PrimitiveSimpleFeatureImpl
+                    && ((PrimitiveSimpleFeatureImpl) feature).isPrimitive(index)) {
+                PrimitiveSimpleFeatureImpl primitive = (PrimitiveSimpleFeatureImpl) feature;
+                return floating ? between(primitive.getDouble(index)) : between(primitive
+                        .getLong(index));
+            }
+
+            Object value = feature.getAttribute(index);
+            if (value == null || value.getClass() != binding) {
+                return fallback.evaluate(feature);
+            }
+            if (floating) {
+                return between(((Number) value).doubleValue());
+            } else {
+                return between(((Number) value).longValue());
+            }
+        }
+
+        /**
+         * Same ordering as the wrappers compareTo
+         */
+        boolean between(double v) {
+            return Double.compare(lowerDouble, v) <= 0 && Double.compare(upperDouble, v) >= 0;
+        }
+
+        boolean between(long v) {
+            return lowerLong <= v && upperLong >= v;
+        }
+    }
+
+    /**
+     * Between on a non numeric attribute, the boundaries have already been converted to the
+     * attribute binding
+     */
+    static final class ComparableBetween extends FeatureEvaluator {
+        final int index;
+
+        final Class<?> binding;
+
+        final Comparable<Object> lower, upper;
+
+        final Filter fallback;
+
+        @SuppressWarnings("unchecked")
+        ComparableBetween(int index, Class<?> binding, Comparable<?> lower,
+                Comparable<?> upper, Filter fallback) {
+            this.index = index;
+            this.binding = binding;
+            this.lower = (Comparable<Object>) lower;
+            this.upper = (Comparable<Object>) upper;
+            this.fallback = fallback;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            Object value = feature.getAttribute(index);
+            if (value == null || value.getClass() != binding) {
+                return fallback.evaluate(feature);
+            }
+            return lower.compareTo(value) <= 0 && upper.compareTo(value) >= 0;
+        }
+    }
+
+    /**
+     * Rejects the geometries whose envelope does not touch the bbox before running the actual
+     * intersection test
+     */
+    static final class BBox extends FeatureEvaluator {
+        final int index;
+
+        final Envelope envelope;
+
+        final Filter fallback;
+
+        BBox(int index, Envelope envelope, Filter fallback) {
+            this.index = index;
+            this.envelope = envelope;
+            this.fallback = fallback;
+        }
+
+        boolean evaluate(SimpleFeature feature) {
+            Object value = feature.getAttribute(index);
+            if (value instanceof Geometry
+                    && !envelope.intersects(((Geometry) value).getEnvelopeInternal())) {
+                return false;
+            }
+            return fallback.evaluate(feature);
+        }
+    }
+}
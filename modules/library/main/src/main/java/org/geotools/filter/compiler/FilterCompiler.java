@@ -0,0 +1,325 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.compiler;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.geotools.factory.Hints;
+import org.geotools.filter.AndImpl;
+import org.geotools.filter.AttributeExpressionImpl;
+import org.geotools.filter.IsBetweenImpl;
+import org.geotools.filter.IsEqualsToImpl;
+import org.geotools.filter.IsGreaterThanImpl;
+import org.geotools.filter.IsGreaterThanOrEqualToImpl;
+import org.geotools.filter.IsLessThenImpl;
+import org.geotools.filter.IsLessThenOrEqualToImpl;
+import org.geotools.filter.IsNotEqualToImpl;
+import org.geotools.filter.IsNullImpl;
+import org.geotools.filter.NotImpl;
+import org.geotools.filter.OrImpl;
+import org.geotools.filter.spatial.BBOXImpl;
+import org.geotools.util.Converters;
+import org.geotools.util.ConverterFactory;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Compiles filters against a {@link SimpleFeatureType} so that they can be evaluated many
+ * times without going thru the generic expression machinery.
+ * <p>
+ * The compiled filter resolves the attributes to their index in the feature type once, aligns
+ * the literals to the attribute bindings once, compares numbers as primitive doubles and longs
+ * and short circuits the logic operators. Comparisons, between, null checks, bbox and the logic
+ * operators built by the default filter factory are compiled, any other filter is evaluated as
+ * is. The result is always the same as the original filter, values that do not match the
+ * expectations of the compiled code (multi valued attributes, values of a class other than the
+ * attribute binding) are handed over to the original filter.
+ * <p>
+ * The returned filter can be used in place of the original, it evaluates any object other than
+ * a simple feature with the original filter, gets recompiled if fed features of a different
+ * type, and forwards visitors to the original filter, see {@link CompiledFilter}.
+ * <p>
+ * Example use:
+ * <pre><code>
+ * Filter compiled = FilterCompiler.compile(filter, reader.getFeatureType());
+ * while (reader.hasNext()) {
+ *     SimpleFeature f = reader.next();
+ *     if (compiled.evaluate(f)) {
+ *         ...
+ *     }
+ * }
+ * </code></pre>
+ */
+public final class FilterCompiler {
+
+    /**
+     * Same as the simple feature property accessor, names with prefixes and xpaths are left
+     * alone
+     */
+    static final Pattern SIMPLE_NAME = Pattern.compile("\\w+");
+
+    static final Hints SAFE_CONVERSION = new Hints(ConverterFactory.SAFE_CONVERSION, Boolean.TRUE);
+
+    private FilterCompiler() {
+    }
+
+    /**
+     * Returns a compiled version of the filter, that will be compiled against the type of the
+     * first feature it gets to evaluate.
+     * 
+     * @param filter the filter to compile, may be null
+     * @return the compiled filter, or the filter itself for null, {@link Filter#INCLUDE},
+     *         {@link Filter#EXCLUDE} and already compiled filters
+     */
+    public static Filter compile(Filter filter) {
+        return compile(filter, null);
+    }
+
+    /**
+     * Returns a version of the filter compiled against the specified feature type
+     * 
+     * @param filter the filter to compile, may be null
+     * @param featureType the type of the features that will be evaluated, or null if unknown
+     * @return the compiled filter, or the filter itself for null, {@link Filter#INCLUDE},
+     *         {@link Filter#EXCLUDE} and already compiled filters
+     */
+    public static Filter compile(Filter filter, SimpleFeatureType featureType) {
+        if (filter == null || filter == Filter.INCLUDE || filter == Filter.EXCLUDE
+                || filter instanceof CompiledFilter) {
+            return filter;
+        }
+        return new CompiledFilter(filter, featureType);
+    }
+
+    /**
+     * Builds the evaluator tree for the specified filter
+     */
+    static FeatureEvaluator compileEvaluator(Filter filter, SimpleFeatureType featureType) {
+        if (filter == Filter.INCLUDE) {
+            return new FeatureEvaluator.Constant(true);
+        } else if (filter == Filter.EXCLUDE) {
+            return new FeatureEvaluator.Constant(false);
+        }
+
+        Class<?> clazz = filter.getClass();
+        if (clazz == AndImpl.class) {
+            return new FeatureEvaluator.And(children(((AndImpl) filter).getChildren(),
+                    featureType));
+        } else if (clazz == OrImpl.class) {
+            return new FeatureEvaluator.Or(children(((OrImpl) filter).getChildren(),
+                    featureType));
+        } else if (clazz == NotImpl.class) {
+            return new FeatureEvaluator.Not(compileEvaluator(((NotImpl) filter).getFilter(),
+                    featureType));
+        }
+
+        FeatureEvaluator evaluator = null;
+        if (clazz == IsEqualsToImpl.class) {
+            evaluator = equality((BinaryComparisonOperator) filter, false, featureType);
+        } else if (clazz == IsNotEqualToImpl.class) {
+            evaluator = equality((BinaryComparisonOperator) filter, true, featureType);
+        } else if (clazz == IsLessThenImpl.class) {
+            evaluator = ordering((BinaryComparisonOperator) filter, FeatureEvaluator.LESS,
+                    featureType);
+        } else if (clazz == IsLessThenOrEqualToImpl.class) {
+            evaluator = ordering((BinaryComparisonOperator) filter,
+                    FeatureEvaluator.LESS_OR_EQUAL, featureType);
+        } else if (clazz == IsGreaterThanImpl.class) {
+            evaluator = ordering((BinaryComparisonOperator) filter, FeatureEvaluator.GREATER,
+                    featureType);
+        } else if (clazz == IsGreaterThanOrEqualToImpl.class) {
+            evaluator = ordering((BinaryComparisonOperator) filter,
+                    FeatureEvaluator.GREATER_OR_EQUAL, featureType);
+        } else if (clazz == IsBetweenImpl.class) {
+            evaluator = between((IsBetweenImpl) filter, featureType);
+        } else if (clazz == IsNullImpl.class) {
+            int index = attributeIndex(((IsNullImpl) filter).getExpression(), featureType);
+            if (index >= 0) {
+                evaluator = new FeatureEvaluator.IsNull(index);
+            }
+        } else if (clazz == BBOXImpl.class) {
+            evaluator = bbox((BBOXImpl) filter, featureType);
+        }
+
+        return evaluator != null ? evaluator : new FeatureEvaluator.Interpreted(filter);
+    }
+
+    static FeatureEvaluator[] children(List<Filter> children, SimpleFeatureType featureType) {
+        FeatureEvaluator[] result = new FeatureEvaluator[children.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = compileEvaluator(children.get(i), featureType);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the attribute the expression refers to, or -1 if the expression is
+     * not a simple property name of the feature type
+     */
+    static int attributeIndex(Expression expression, SimpleFeatureType featureType) {
+        if (expression == null || expression.getClass() != AttributeExpressionImpl.class) {
+            return -1;
+        }
+        String name = ((PropertyName) expression).getPropertyName();
+        if (name == null || !SIMPLE_NAME.matcher(name).matches()) {
+            return -1;
+        }
+        return featureType.indexOf(name);
+    }
+
+    static Object literalValue(Expression expression) {
+        if (expression instanceof Literal) {
+            return ((Literal) expression).getValue();
+        }
+        return null;
+    }
+
+    static boolean isNumeric(Class<?> binding) {
+        return binding == Integer.class || binding == Long.class || binding == Double.class
+                || binding == Float.class || binding == Short.class || binding == Byte.class;
+    }
+
+    static FeatureEvaluator equality(BinaryComparisonOperator filter, boolean negate,
+            SimpleFeatureType featureType) {
+        int index = attributeIndex(filter.getExpression1(), featureType);
+        Object literal = literalValue(filter.getExpression2());
+        if (index < 0) {
+            index = attributeIndex(filter.getExpression2(), featureType);
+            literal = literalValue(filter.getExpression1());
+        }
+        if (index < 0 || literal == null) {
+            return null;
+        }
+
+        Class<?> binding = featureType.getDescriptor(index).getType().getBinding();
+        if (isNumeric(binding)) {
+            Number number;
+            if (literal instanceof Number) {
+                number = (Number) literal;
+            } else if (literal instanceof CharSequence) {
+                number = parseToNumber(literal.toString());
+            } else {
+                return null;
+            }
+            Object converted = Converters.convert(literal, binding);
+            return new FeatureEvaluator.NumberEquals(index, binding, literal, converted, number,
+                    negate, (Filter) filter);
+        } else if (binding == String.class && literal instanceof String) {
+            return new FeatureEvaluator.StringEquals(index, (String) literal, filter
+                    .isMatchingCase(), negate, (Filter) filter);
+        }
+        return null;
+    }
+
+    /**
+     * Same as the string parsing done by PropertyIsEqualTo, returns null if the string is not a
+     * number
+     */
+    static Number parseToNumber(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            try {
+                return Double.valueOf(value);
+            } catch (NumberFormatException e2) {
+                return null;
+            }
+        }
+    }
+
+    static FeatureEvaluator ordering(BinaryComparisonOperator filter, int operator,
+            SimpleFeatureType featureType) {
+        boolean literalFirst = false;
+        int index = attributeIndex(filter.getExpression1(), featureType);
+        Object literal = literalValue(filter.getExpression2());
+        if (index < 0) {
+            literalFirst = true;
+            index = attributeIndex(filter.getExpression2(), featureType);
+            literal = literalValue(filter.getExpression1());
+        }
+        if (index < 0 || literal == null) {
+            return null;
+        }
+
+        Class<?> binding = featureType.getDescriptor(index).getType().getBinding();
+        if (isNumeric(binding) && literal instanceof Number) {
+            // the comparison filters align the second value to the class of the first one,
+            // when the literal comes first that can only be mirrored if no conversion is needed
+            Object aligned;
+            if (literal.getClass() == binding) {
+                aligned = literal;
+            } else if (!literalFirst) {
+                aligned = Converters.convert(literal, binding, SAFE_CONVERSION);
+            } else {
+                aligned = null;
+            }
+            if (aligned instanceof Number) {
+                return new FeatureEvaluator.NumberCompare(index, binding, ((Number) aligned)
+                        .doubleValue(), literalFirst, operator, (Filter) filter);
+            }
+        } else if (!(literal instanceof Number) && literal instanceof Comparable
+                && literal.getClass() == binding) {
+            return new FeatureEvaluator.ComparableCompare(index, (Comparable<?>) literal,
+                    literalFirst, operator, (Filter) filter);
+        }
+        return null;
+    }
+
+    static FeatureEvaluator between(IsBetweenImpl filter, SimpleFeatureType featureType) {
+        int index = attributeIndex(filter.getExpression(), featureType);
+        Object lower = literalValue(filter.getLowerBoundary());
+        Object upper = literalValue(filter.getUpperBoundary());
+        if (index < 0 || lower == null || upper == null) {
+            return null;
+        }
+
+        // the boundaries get converted to the class of the value first
+        Class<?> binding = featureType.getDescriptor(index).getType().getBinding();
+        Object l = Converters.convert(lower, binding);
+        Object u = Converters.convert(upper, binding);
+        if (l == null || u == null) {
+            return null;
+        }
+        if (isNumeric(binding)) {
+            return new FeatureEvaluator.NumberBetween(index, binding, (Number) l, (Number) u,
+                    filter);
+        } else if (l instanceof Comparable && u instanceof Comparable) {
+            return new FeatureEvaluator.ComparableBetween(index, binding, (Comparable<?>) l,
+                    (Comparable<?>) u, filter);
+        }
+        return null;
+    }
+
+    static FeatureEvaluator bbox(BBOXImpl filter, SimpleFeatureType featureType) {
+        int index = attributeIndex(filter.getExpression1(), featureType);
+        if (index < 0 || !(filter.getExpression2() instanceof Literal)) {
+            return null;
+        }
+        Geometry bbox = filter.getExpression2().evaluate(null, Geometry.class);
+        if (bbox == null) {
+            return null;
+        }
+        return new FeatureEvaluator.BBox(index, bbox.getEnvelopeInternal(), filter);
+    }
+}
@@ -17,19 +17,30 @@
 
 package org.geotools.filter.function;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.visitor.CalcUtil;
+import org.geotools.feature.visitor.QuantileSketch;
+import org.geotools.util.NullProgressListener;
 import org.geotools.util.logging.Logging;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeature;
 
 /**
  * Calculate the Jenks' Natural Breaks classification for a featurecollection
+ * <p>
+ * The exact algorithm needs memory quadratic in the number of values. When
+ * {@link org.geotools.factory.Hints#APPROXIMATE_AGGREGATES} is set the values are summarized in
+ * a {@link QuantileSketch} instead, and the breaks are computed on its weighted centroids.
  * 
  * @author Ian Turton
  *
@@ -77,6 +88,9 @@ public class JenksNaturalBreaksFunction extends ClassificationFunction {
      * @return a RangedClassifier
      */
     private Object calculate(SimpleFeatureCollection featureCollection) {
+        if (CalcUtil.isApproximateByDefault()) {
+            return calculateApproximate(featureCollection);
+        }
         SimpleFeatureIterator features = featureCollection.features();
         ArrayList<Double> data = new ArrayList<Double>();
         try {
@@ -94,6 +108,62 @@ public class JenksNaturalBreaksFunction extends ClassificationFunction {
             return null; // if it isn't a number what should we do?
         }
         Collections.sort(data);
+        return calculate(data, null);
+    }
+
+    /**
+     * Summarizes the values in a sketch, and classifies its centroids, each weighted by the
+     * number of values it stands for
+     */
+    private Object calculateApproximate(SimpleFeatureCollection featureCollection) {
+        final QuantileSketch sketch = new QuantileSketch();
+        try {
+            featureCollection.accepts(new FeatureVisitor() {
+                public void visit(Feature feature) {
+                    final Object result = getExpression().evaluate(feature);
+                    if (result != null) {
+                        sketch.add(Double.parseDouble(result.toString()));
+                    }
+                }
+            }, new NullProgressListener());
+        } catch (NumberFormatException e) {
+            return null; // if it isn't a number what should we do?
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "JenksNaturalBreaksFunction calculate failed", e);
+            return null;
+        }
+        if (sketch.getCount() == 0) {
+            return null;
+        }
+
+        double[] means = sketch.getCentroidMeans();
+        List<Double> data = new ArrayList<Double>(means.length);
+        for (double mean : means) {
+            data.add(mean);
+        }
+        RangedClassifier classifier = (RangedClassifier) calculate(data,
+                sketch.getCentroidWeights());
+
+        // the centroids at the ends are not the actual extremes
+        int size = classifier.getSize();
+        Comparable[] localMin = new Comparable[size];
+        Comparable[] localMax = new Comparable[size];
+        for (int i = 0; i < size; i++) {
+            localMin[i] = (Comparable) classifier.getMin(i);
+            localMax[i] = (Comparable) classifier.getMax(i);
+        }
+        localMin[0] = sketch.getMin();
+        localMax[size - 1] = sketch.getMax();
+        return new RangedClassifier(localMin, localMax);
+    }
+
+    /**
+     * Computes the breaks on the sorted data
+     * 
+     * @param data the sorted values
+     * @param weights the number of occurrences of each value, or null if each occurs once
+     */
+    private Object calculate(List<Double> data, double[] weights) {
         final int k = getClasses();
         final int m = data.size();
         if (k == m) {
@@ -132,6 +202,9 @@ public class JenksNaturalBreaksFunction extends ClassificationFunction {
             // sum of squares of data values
             double s2 = 0;
 
+            // sum of weights
+            double s0 = 0;
+
             double var = 0.0;
             // consider all the previous values
             for (int ii = 1; ii <= i; ii++) {
@@ -139,10 +212,11 @@ public class JenksNaturalBreaksFunction extends ClassificationFunction {
                 int i3 = i - ii + 1;
                 // remember to allow for 0 index
                 double val = data.get(i3 - 1);
+                double w = weights == null ? 1 : weights[i3 - 1];
                 // update running totals
-                s2 = s2 + (val * val);
-                s1 += val;
-                double s0 = (double) ii;
+                s2 = s2 + (w * val * val);
+                s1 += w * val;
+                s0 += w;
                 // calculate (square of) the variance
                 // (http://secure.wikimedia.org/wikipedia/en/wiki/Standard_deviation#Rapid_calculation_methods)
                 var = s2 - ((s1 * s1) / s0);
@@ -31,6 +31,9 @@ import org.geotools.util.NullProgressListener;
 
 /**
  * Breaks a SimpleFeatureCollection into classes with an equal number of items in each.
+ * <p>
+ * When {@link org.geotools.factory.Hints#APPROXIMATE_AGGREGATES} is set numeric class bounds
+ * are estimated from a sketch of the values, see {@link QuantileListVisitor}.
  * 
  * @author Cory Horner, Refractions Research Inc.
  *
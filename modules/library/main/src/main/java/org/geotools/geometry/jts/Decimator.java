@@ -193,26 +193,38 @@ public final class Decimator {
 	    this.spany = spany;
 	}
 
+	/**
+	 * Decimates and generalizes the geometry in place, then transforms all of its coordinates.
+	 * The coordinates of all the parts and rings of the geometry are transformed with a single
+	 * call to the math transform.
+	 */
 	public final void decimateTransformGeneralize(Geometry geometry,
 			MathTransform transform) throws TransformException {
+		TransformBatch batch = new TransformBatch();
+		decimateGeneralize(geometry, transform, batch);
+		batch.transform(transform);
+	}
+
+	private void decimateGeneralize(Geometry geometry,
+			MathTransform transform, TransformBatch batch) {
 		if (geometry instanceof GeometryCollection) {
 			GeometryCollection collection = (GeometryCollection) geometry;
 			final int length = collection.getNumGeometries();
 			for (int i = 0; i < length; i++) {
-				decimateTransformGeneralize(collection.getGeometryN(i),
-						transform);
+				decimateGeneralize(collection.getGeometryN(i),
+						transform, batch);
 			}
 		} else if (geometry instanceof Point) {
 			LiteCoordinateSequence seq = (LiteCoordinateSequence) ((Point) geometry)
 					.getCoordinateSequence();
-			decimateTransformGeneralize(seq, transform, false);
+			decimateGeneralize(seq, transform, false, batch);
 		} else if (geometry instanceof Polygon) {
 			Polygon polygon = (Polygon) geometry;
-			decimateTransformGeneralize(polygon.getExteriorRing(), transform);
+			decimateGeneralize(polygon.getExteriorRing(), transform, batch);
 			final int length = polygon.getNumInteriorRing();
 			for (int i = 0; i < length; i++) {
-				decimateTransformGeneralize(polygon.getInteriorRingN(i),
-						transform);
+				decimateGeneralize(polygon.getInteriorRingN(i),
+						transform, batch);
 			}
 		} else if (geometry instanceof LineString) {
 			LineString ls = (LineString) geometry;
@@ -226,7 +238,7 @@ public final class Decimator {
                 loop = Math.abs(x0 - x1) < EPS && 
                                Math.abs(y0 - y1) < EPS;
             }
-			decimateTransformGeneralize(seq, transform, loop);
+			decimateGeneralize(seq, transform, loop, batch);
 		}
 	}
 
@@ -320,14 +332,15 @@ public final class Decimator {
 
 	/**
 	 * 1. remove any points that are within the spanx,spany. We ALWAYS keep 1st
-	 * and last point 2. transform to screen coordinates 3. remove any points
-	 * that are close (span <1)
+	 * and last point 2. add the remaining points to the batch, that will 
+	 * transform them to screen coordinates
 	 * 
 	 * @param seq
 	 * @param tranform
+	 * @param batch
 	 */
-	private final void decimateTransformGeneralize(LiteCoordinateSequence seq,
-			MathTransform transform, boolean ring) throws TransformException {
+	private final void decimateGeneralize(LiteCoordinateSequence seq,
+			MathTransform transform, boolean ring, TransformBatch batch) {
 		// decimates before XFORM
 		int ncoords = seq.size();
 		double coords[] = seq.getXYArray(); // 2*#of points
@@ -335,10 +348,8 @@ public final class Decimator {
 		if (ncoords < 2) {
 			if (ncoords == 1) // 1 coordinate -- just xform it
 			{
-				// double[] newCoordsXformed2 = new double[2];
 			    if(transform != null) {
-			        transform.transform(coords, 0, coords, 0, 1);
-			        seq.setArray(coords, 2);
+			        batch.add(seq, coords, 1);
 			    }
 				return;
 			} else
@@ -350,8 +361,7 @@ public final class Decimator {
         if (spanx == -1 && spany == -1) {
             // do the xform if needed
             if ((transform != null) && (!transform.isIdentity())) {
-                transform.transform(coords, 0, coords, 0, ncoords);
-                seq.setArray(coords, 2);
+                batch.add(seq, coords, ncoords);
             }
             return;
         }
@@ -384,21 +394,8 @@ public final class Decimator {
 		coords[actualCoords * 2 + 1] = coords[(ncoords - 1) * 2 + 1];
 		actualCoords++;
 
-		// DO THE XFORM
-		if ((transform == null) || (transform.isIdentity())) {
-		    // no actual xform
-		} else {
-		    transform.transform(coords, 0, coords, 0, actualCoords);
-		}
-
-		// stick back into the coordinate sequence
-		if(actualCoords * 2 < coords.length) {
-		    double[] seqDouble = new double[2 * actualCoords];
-		    System.arraycopy(coords, 0, seqDouble, 0, actualCoords * 2);
-		    seq.setArray(seqDouble, 2);
-		} else {
-		    seq.setArray(coords, 2);
-		}
+		// the xform and the copy back into the coordinate sequence happen in the batch
+		batch.add(seq, coords, actualCoords);
 	}
 
     private int spanBasedGeneralize(int ncoords, double[] coords) {
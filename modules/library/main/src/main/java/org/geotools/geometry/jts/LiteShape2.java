@@ -171,30 +171,32 @@ public final class LiteShape2 implements Shape, Cloneable {
 		if (mathTransform == null || mathTransform.isIdentity())
 			return;
 
+		// transform all the coordinates of the geometry with a single call
+		TransformBatch batch = new TransformBatch();
+		collectSequences(geometry, batch);
+		batch.transform(mathTransform);
+	}
+
+	private void collectSequences(Geometry geometry, TransformBatch batch) {
 		if (geometry instanceof GeometryCollection) {
 			GeometryCollection collection = (GeometryCollection) geometry;
 			for (int i = 0; i < collection.getNumGeometries(); i++) {
-				transformGeometry(collection.getGeometryN(i));
+				collectSequences(collection.getGeometryN(i), batch);
 			}
 		} else if (geometry instanceof Point) {
 			LiteCoordinateSequence seq = (LiteCoordinateSequence) ((Point) geometry)
 					.getCoordinateSequence();
-			double[] coords = seq.getArray();
-			double[] newCoords = new double[coords.length];
-			mathTransform.transform(coords, 0, newCoords, 0, seq.size());
-			seq.setArray(newCoords);
+			batch.add(seq, seq.getXYArray(), seq.size());
 		} else if (geometry instanceof Polygon) {
 			Polygon polygon = (Polygon) geometry;
-			transformGeometry(polygon.getExteriorRing());
+			collectSequences(polygon.getExteriorRing(), batch);
 			for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
-				transformGeometry(polygon.getInteriorRingN(i));
+				collectSequences(polygon.getInteriorRingN(i), batch);
 			}
 		} else if (geometry instanceof LineString) {
 			LiteCoordinateSequence seq = (LiteCoordinateSequence) ((LineString) geometry)
 					.getCoordinateSequence();
-			double[] coords = seq.getArray();
-			mathTransform.transform(coords, 0, coords, 0, seq.size());
-			seq.setArray(coords);
+			batch.add(seq, seq.getXYArray(), seq.size());
 		}
 	}
 
@@ -0,0 +1,129 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Collects the coordinates of a number of {@link LiteCoordinateSequence} so that they can be
+ * transformed with a single {@link MathTransform#transform(double[], int, double[], int, int)}
+ * call, instead of one call per sequence. This matters when reprojecting geometries made of
+ * many small rings or parts, as each call pays a fixed overhead in every step of the
+ * transformation chain.
+ * <p>
+ * The transformed coordinates are set back into the sequences as two dimensional arrays trimmed
+ * to the number of points that were added.
+ */
+final class TransformBatch {
+
+    LiteCoordinateSequence[] sequences = new LiteCoordinateSequence[4];
+
+    double[][] coordinates = new double[4][];
+
+    int[] counts = new int[4];
+
+    int size;
+
+    int totalCount;
+
+    /**
+     * Adds a sequence to the batch
+     * 
+     * @param seq the sequence that will receive the transformed coordinates
+     * @param coords the packed xy coordinates of the sequence
+     * @param count the number of points at the beginning of coords that will be transformed
+     */
+    void add(LiteCoordinateSequence seq, double[] coords, int count) {
+        if (size == sequences.length) {
+            final int newLength = size * 2;
+            LiteCoordinateSequence[] newSequences = new LiteCoordinateSequence[newLength];
+            System.arraycopy(sequences, 0, newSequences, 0, size);
+            sequences = newSequences;
+            double[][] newCoordinates = new double[newLength][];
+            System.arraycopy(coordinates, 0, newCoordinates, 0, size);
+            coordinates = newCoordinates;
+            int[] newCounts = new int[newLength];
+            System.arraycopy(counts, 0, newCounts, 0, size);
+            counts = newCounts;
+        }
+        sequences[size] = seq;
+        coordinates[size] = coords;
+        counts[size] = count;
+        size++;
+        totalCount += count;
+    }
+
+    /**
+     * Transforms all the collected coordinates and sets them back into their sequences, then
+     * empties the batch
+     * 
+     * @param transform the transformation to apply, if null or the identity the coordinates are
+     *        only set back into their sequences
+     */
+    void transform(MathTransform transform) throws TransformException {
+        try {
+            final boolean identity = transform == null || transform.isIdentity();
+            if (identity || size == 1) {
+                // nothing to pack, transform the sequences in place
+                for (int i = 0; i < size; i++) {
+                    if (!identity) {
+                        transform.transform(coordinates[i], 0, coordinates[i], 0, counts[i]);
+                    }
+                    sequences[i].setArray(trim(coordinates[i], counts[i]), 2);
+                }
+            } else if (size > 1) {
+                final double[] buffer = new double[totalCount * 2];
+                int offset = 0;
+                for (int i = 0; i < size; i++) {
+                    System.arraycopy(coordinates[i], 0, buffer, offset, counts[i] * 2);
+                    offset += counts[i] * 2;
+                }
+                transform.transform(buffer, 0, buffer, 0, totalCount);
+                offset = 0;
+                for (int i = 0; i < size; i++) {
+                    final int length = counts[i] * 2;
+                    final double[] coords = coordinates[i].length == length ? coordinates[i]
+                            : new double[length];
+                    System.arraycopy(buffer, offset, coords, 0, length);
+                    offset += length;
+                    sequences[i].setArray(coords, 2);
+                }
+            }
+        } finally {
+            clear();
+        }
+    }
+
+    static double[] trim(double[] coords, int count) {
+        if (coords.length == count * 2) {
+            return coords;
+        }
+        double[] trimmed = new double[count * 2];
+        System.arraycopy(coords, 0, trimmed, 0, count * 2);
+        return trimmed;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            sequences[i] = null;
+            coordinates[i] = null;
+        }
+        size = 0;
+        totalCount = 0;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.factory.Hints;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+public class SortedFeatureReaderTest {
+
+    static final FilterFactory FF = CommonFactoryFinder.getFilterFactory(null);
+
+    SimpleFeatureType schema;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setUp() throws Exception {
+        schema = DataUtilities.createType("sorted",
+                "geom:Point,name:String,value:Double,group:Integer,date:java.util.Date");
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        GeometryFactory gf = new GeometryFactory();
+        Random random = new Random(0);
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 1000; i++) {
+            fb.add(gf.createPoint(new Coordinate(i, random.nextDouble())));
+            fb.add(i % 13 == 0 ? null : "name" + random.nextInt(100));
+            fb.add(random.nextDouble());
+            fb.add(random.nextInt(10));
+            fb.add(new Date(random.nextInt(1000000)));
+            features.add(fb.buildFeature("sorted." + i));
+        }
+    }
+
+    FeatureReader<SimpleFeatureType, SimpleFeature> reader() throws Exception {
+        return DataUtilities.reader(features);
+    }
+
+    /**
+     * The expected result, sorted with a stable sort
+     */
+    List<SimpleFeature> expected(final SortBy[] sortBy) {
+        List<SimpleFeature> result = new ArrayList<SimpleFeature>(features);
+        Collections.sort(result, new Comparator<SimpleFeature>() {
+            @SuppressWarnings("unchecked")
+            public int compare(SimpleFeature f1, SimpleFeature f2) {
+                for (SortBy sb : sortBy) {
+                    String name = sb.getPropertyName().getPropertyName();
+                    Comparable<Object> v1 = (Comparable<Object>) f1.getAttribute(name);
+                    Comparable<Object> v2 = (Comparable<Object>) f2.getAttribute(name);
+                    int result;
+                    if (v1 == null || v2 == null) {
+                        result = v1 == v2 ? 0 : (v1 == null ? -1 : 1);
+                    } else {
+                        result = v1.compareTo(v2);
+                    }
+                    if (result != 0) {
+                        return sb.getSortOrder() == SortOrder.ASCENDING ? result : -result;
+                    }
+                }
+                return 0;
+            }
+        });
+        return result;
+    }
+
+    void assertSorted(List<SimpleFeature> expected, SortedFeatureReader reader) throws Exception {
+        try {
+            for (SimpleFeature f : expected) {
+                assertTrue(reader.hasNext());
+                SimpleFeature actual = reader.next();
+                assertEquals(f.getID(), actual.getID());
+                assertEquals(f.getAttributes(), actual.getAttributes());
+            }
+            assertFalse(reader.hasNext());
+        } finally {
+            reader.close();
+        }
+        assertTrue(reader.files.isEmpty());
+    }
+
+    @Test
+    public void testCanSort() throws Exception {
+        assertTrue(SortedFeatureReader.canSort(schema, new SortBy[] {
+                FF.sort("name", SortOrder.ASCENDING), SortBy.REVERSE_ORDER }));
+        assertFalse(SortedFeatureReader.canSort(schema, new SortBy[] { FF.sort("geom",
+                SortOrder.ASCENDING) }));
+        assertFalse(SortedFeatureReader.canSort(schema, new SortBy[] { FF.sort("missing",
+                SortOrder.ASCENDING) }));
+    }
+
+    @Test
+    public void testMaxFeaturesHint() throws Exception {
+        Query query = new Query("sorted");
+        assertEquals(SortedFeatureReader.DEFAULT_MAX_FEATURES, SortedFeatureReader
+                .getMaxFeatures(query));
+        query.setHints(new Hints(Hints.MAX_MEMORY_SORT, 10));
+        assertEquals(10, SortedFeatureReader.getMaxFeatures(query));
+    }
+
+    @Test
+    public void testSortInMemory() throws Exception {
+        SortBy[] sortBy = new SortBy[] { FF.sort("group", SortOrder.ASCENDING),
+                FF.sort("value", SortOrder.DESCENDING) };
+        SortedFeatureReader reader = new SortedFeatureReader(reader(), sortBy, features.size());
+        assertSorted(expected(sortBy), reader);
+    }
+
+    @Test
+    public void testSortOnDisk() throws Exception {
+        // small enough to get well over MERGE_FAN_IN blocks and require several merge passes
+        SortBy[] sortBy = new SortBy[] { FF.sort("name", SortOrder.ASCENDING),
+                FF.sort("date", SortOrder.DESCENDING) };
+        SortedFeatureReader reader = new SortedFeatureReader(reader(), sortBy, 7);
+        assertSorted(expected(sortBy), reader);
+    }
+
+    @Test
+    public void testStableOnDisk() throws Exception {
+        // lots of duplicates, the original order must be preserved among them
+        SortBy[] sortBy = new SortBy[] { FF.sort("group", SortOrder.DESCENDING) };
+        SortedFeatureReader reader = new SortedFeatureReader(reader(), sortBy, 10);
+        assertSorted(expected(sortBy), reader);
+    }
+
+    @Test
+    public void testReverseOrder() throws Exception {
+        List<SimpleFeature> expected = new ArrayList<SimpleFeature>(features);
+        Collections.reverse(expected);
+        SortedFeatureReader reader = new SortedFeatureReader(reader(),
+                new SortBy[] { SortBy.REVERSE_ORDER }, 50);
+        assertSorted(expected, reader);
+    }
+
+    @Test
+    public void testGeometriesRoundTrip() throws Exception {
+        SortBy[] sortBy = new SortBy[] { FF.sort("value", SortOrder.ASCENDING) };
+        SortedFeatureReader reader = new SortedFeatureReader(reader(), sortBy, 3);
+        try {
+            SimpleFeature f = reader.next();
+            assertTrue(f.getDefaultGeometry() instanceof Point);
+            assertEquals(expected(sortBy).get(0).getDefaultGeometry(), f.getDefaultGeometry());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testGeometryClassCrsAndFactoryOnDisk() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("rings");
+        tb.setCRS(DefaultGeographicCRS.WGS84);
+        tb.add("geom", LinearRing.class);
+        tb.add("other", Geometry.class);
+        tb.add("value", Integer.class);
+        SimpleFeatureType ringType = tb.buildFeatureType();
+
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(ringType);
+        GeometryFactory gf = new GeometryFactory(new PrecisionModel(1000));
+        List<SimpleFeature> rings = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 20; i++) {
+            LinearRing ring = gf.createLinearRing(new Coordinate[] { new Coordinate(i, 0),
+                    new Coordinate(i + 1, 0), new Coordinate(i, 1), new Coordinate(i, 0) });
+            ring.setUserData(DefaultGeographicCRS.WGS84);
+            Point point = gf.createPoint(new Coordinate(i, i));
+            point.setUserData("point " + i);
+            fb.add(ring);
+            fb.add(point);
+            fb.add(20 - i);
+            rings.add(fb.buildFeature("rings." + i));
+        }
+
+        // spill to disk
+        Query query = new Query("rings");
+        query.setSortBy(new SortBy[] { FF.sort("value", SortOrder.ASCENDING) });
+        query.setHints(new Hints(Hints.MAX_MEMORY_SORT, 3));
+        SortedFeatureReader reader = new SortedFeatureReader(DataUtilities.reader(rings), query);
+        try {
+            for (int i = 19; i >= 0; i--) {
+                SimpleFeature f = reader.next();
+                assertEquals("rings." + i, f.getID());
+                Geometry ring = (Geometry) f.getAttribute("geom");
+                assertTrue(ring instanceof LinearRing);
+                assertSame(DefaultGeographicCRS.WGS84, ring.getUserData());
+                assertSame(gf, ring.getFactory());
+                assertTrue(ring.equalsExact((Geometry) rings.get(i).getAttribute("geom")));
+                Geometry point = (Geometry) f.getAttribute("other");
+                assertTrue(point instanceof Point);
+                assertEquals("point " + i, point.getUserData());
+                assertSame(gf, point.getFactory());
+            }
+            assertFalse(reader.hasNext());
+            assertFalse(reader.files.isEmpty());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testCloseRemovesFiles() throws Exception {
+        SortBy[] sortBy = new SortBy[] { FF.sort("value", SortOrder.ASCENDING) };
+        SortedFeatureReader reader = new SortedFeatureReader(reader(), sortBy, 100);
+        reader.hasNext();
+        List<File> files = new ArrayList<File>(reader.files);
+        assertEquals(9, files.size());
+        for (File file : files) {
+            assertTrue(file.exists());
+        }
+        reader.close();
+        for (File file : files) {
+            assertFalse(file.exists());
+        }
+        assertFalse(reader.hasNext());
+    }
+}
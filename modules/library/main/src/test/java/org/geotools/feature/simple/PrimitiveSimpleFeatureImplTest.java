@@ -0,0 +1,170 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.simple;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.factory.Hints;
+import org.geotools.feature.PrimitiveFeatureFactoryImpl;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.opengis.feature.FeatureFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class PrimitiveSimpleFeatureImplTest extends TestCase {
+
+    SimpleFeatureType schema;
+
+    SimpleFeatureBuilder builder;
+
+    Point point;
+
+    @Override
+    protected void setUp() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("test");
+        tb.add("geom", Point.class);
+        tb.add("d", Double.class);
+        tb.add("f", Float.class);
+        tb.add("l", Long.class);
+        tb.add("i", Integer.class);
+        tb.add("s", Short.class);
+        tb.add("b", Byte.class);
+        tb.add("flag", Boolean.class);
+        tb.add("name", String.class);
+        schema = tb.buildFeatureType();
+        builder = new SimpleFeatureBuilder(schema, new PrimitiveFeatureFactoryImpl());
+        point = new GeometryFactory().createPoint(new Coordinate(1, 2));
+    }
+
+    SimpleFeature build(String id, Object... values) {
+        builder.addAll(values);
+        return builder.buildFeature(id);
+    }
+
+    public void testRoundTrip() {
+        Object[] values = new Object[] { point, -0.0, Float.NaN, Long.MIN_VALUE,
+                Integer.MAX_VALUE, (short) -3, (byte) 7, Boolean.TRUE, "abc" };
+        SimpleFeature f = build("test.1", values);
+        assertTrue(f instanceof PrimitiveSimpleFeatureImpl);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], f.getAttribute(i));
+        }
+        assertEquals(point, f.getDefaultGeometry());
+        assertEquals("abc", f.getAttribute("name"));
+        assertEquals(Boolean.TRUE, f.getProperty("flag").getValue());
+        assertEquals(1.0, f.getBounds().getMinX());
+
+        SimpleFeature nulls = build("test.2", new Object[values.length]);
+        for (int i = 0; i < values.length; i++) {
+            assertNull(nulls.getAttribute(i));
+        }
+        // the builder recycles its array, the first feature is untouched
+        assertEquals(Integer.MAX_VALUE, f.getAttribute("i"));
+    }
+
+    public void testPrimitiveAccess() {
+        PrimitiveSimpleFeatureImpl f = (PrimitiveSimpleFeatureImpl) build("test.1", point, 2.5,
+                1.5f, 10L, null, (short) 3, (byte) 4, false, "abc");
+        assertEquals(2.5, f.getDouble(1));
+        assertEquals(2, f.getLong(1));
+        assertEquals(1.5, f.getDouble(2));
+        assertEquals(10, f.getLong(3));
+        assertEquals(4.0, f.getDouble(6));
+        assertEquals(0, f.getLong(7));
+        assertFalse(f.isPrimitive(0));
+        assertFalse(f.isPrimitive(4));
+        assertFalse(f.isPrimitive(8));
+        try {
+            f.getDouble(4);
+            fail("Null values are not primitive");
+        } catch (IllegalArgumentException e) {
+            // fine
+        }
+    }
+
+    public void testSetAttribute() {
+        SimpleFeature f = build("test.1", point, 1.0, 1f, 1L, 1, (short) 1, (byte) 1, true, "a");
+        f.setAttribute("i", "42");
+        assertEquals(42, f.getAttribute("i"));
+        f.setAttribute("d", null);
+        assertNull(f.getAttribute("d"));
+        f.setAttribute(1, 3);
+        assertEquals(3.0, f.getAttribute(1));
+        assertTrue(((PrimitiveSimpleFeatureImpl) f).isPrimitive(1));
+    }
+
+    public void testMismatchedValues() {
+        // the constructor does not convert, values of the wrong class are preserved as is
+        Object[] values = new Object[] { point, 5, 1f, 1L, 5L, null, null, null, null };
+        PrimitiveSimpleFeatureImpl f = new PrimitiveSimpleFeatureImpl(values, schema,
+                new FeatureIdImpl("test.1"), false);
+        assertEquals(5, f.getAttribute("d"));
+        assertEquals(5L, f.getAttribute("i"));
+        assertFalse(f.isPrimitive(1));
+        f.setAttribute("d", 5);
+        assertEquals(5.0, f.getAttribute("d"));
+    }
+
+    public void testEquality() {
+        Object[] values = new Object[] { point, 1.0, 2f, 3L, 4, (short) 5, (byte) 6, true, "a" };
+        SimpleFeature primitive = build("test.1", values);
+        SimpleFeature plain = SimpleFeatureBuilder.build(schema, values, "test.1");
+        assertTrue(plain instanceof SimpleFeatureImpl);
+        assertEquals(primitive, plain);
+        assertEquals(plain, primitive);
+        assertEquals(plain.hashCode(), primitive.hashCode());
+
+        primitive.setAttribute("l", 4L);
+        assertFalse(primitive.equals(plain));
+        assertFalse(plain.equals(primitive));
+    }
+
+    public void testManyAttributes() throws Exception {
+        // enough to need more than one word for the null bitmask
+        StringBuilder spec = new StringBuilder("geom:Point");
+        for (int i = 0; i < 150; i++) {
+            spec.append(",a" + i + ":Integer");
+        }
+        SimpleFeatureType type = DataUtilities.createType("many", spec.toString());
+        Object[] values = new Object[151];
+        for (int i = 1; i < values.length; i++) {
+            values[i] = i % 3 == 0 ? null : i;
+        }
+        SimpleFeature f = new PrimitiveFeatureFactoryImpl().createSimpleFeature(values, type,
+                "many.1");
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], f.getAttribute(i));
+        }
+    }
+
+    public void testFactoryLookup() {
+        // opt in only, never picked by default
+        assertFalse(CommonFactoryFinder.getFeatureFactory(null)
+                instanceof PrimitiveFeatureFactoryImpl);
+
+        FeatureFactory factory = CommonFactoryFinder.getFeatureFactory(new Hints(
+                Hints.FEATURE_FACTORY, PrimitiveFeatureFactoryImpl.class));
+        assertTrue(factory instanceof PrimitiveFeatureFactoryImpl);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SketchTest {
+
+    @Test
+    public void testQuantileSketchSmallIsExact() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 5; i >= 1; i--) {
+            sketch.add(i);
+        }
+        assertEquals(5, sketch.getCount());
+        assertEquals(3, sketch.quantile(0.5), 0);
+        assertEquals(1, sketch.quantile(0), 0);
+        assertEquals(5, sketch.quantile(1), 0);
+        assertEquals(1, sketch.getMin(), 0);
+        assertEquals(5, sketch.getMax(), 0);
+
+        // even number of values, the two middle ones get averaged
+        sketch.add(6);
+        assertEquals(3.5, sketch.quantile(0.5), 0);
+    }
+
+    @Test
+    public void testQuantileSketchLarge() {
+        Random random = new Random(0);
+        int count = 200000;
+        double[] values = new double[count];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextGaussian() * 100;
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        // memory stays bounded
+        assertTrue(sketch.getCentroidMeans().length <= QuantileSketch.DEFAULT_COMPRESSION + 1);
+        for (double q : new double[] { 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99 }) {
+            double expected = values[(int) (q * count)];
+            // the rank error is what a t-digest bounds
+            double rank = Math.abs(Arrays.binarySearch(values, sketch.quantile(q)) + 0.5);
+            assertEquals("Quantile " + q + " expected " + expected, q * count, rank, count * 0.01);
+        }
+        assertEquals(values[0], sketch.getMin(), 0);
+        assertEquals(values[count - 1], sketch.getMax(), 0);
+    }
+
+    @Test
+    public void testQuantileSketchMerge() {
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for (int i = 0; i < 10000; i++) {
+            all.add(i);
+            if (i % 2 == 0) {
+                first.add(i);
+            } else {
+                second.add(i);
+            }
+        }
+        first.merge(second);
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(0, first.getMin(), 0);
+        assertEquals(9999, first.getMax(), 0);
+        assertEquals(all.quantile(0.5), first.quantile(0.5), 50);
+        assertEquals(all.quantile(0.9), first.quantile(0.9), 50);
+    }
+
+    @Test
+    public void testDistinctCount() {
+        DistinctCountSketch sketch = new DistinctCountSketch();
+        DistinctCountSketch other = new DistinctCountSketch();
+        for (int i = 0; i < 100000; i++) {
+            sketch.add(i);
+            sketch.add("value" + (i % 10));
+            other.add(i + 50000);
+        }
+        assertEquals(100010, sketch.estimate(), 100010 * 0.03);
+
+        sketch.merge(other);
+        assertEquals(150010, sketch.estimate(), 150010 * 0.03);
+
+        DistinctCountSketch small = new DistinctCountSketch();
+        for (int i = 0; i < 10; i++) {
+            small.add("value" + i);
+            small.add("value" + i);
+        }
+        assertEquals(10, small.estimate());
+    }
+
+    @Test
+    public void testTopK() {
+        TopKSketch sketch = new TopKSketch(10);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++) {
+                sketch.add("value" + i);
+            }
+        }
+        assertTrue(sketch.isExact());
+        assertEquals(5, sketch.getValues().size());
+        assertEquals("value4", sketch.getValues().iterator().next());
+        assertEquals(3, sketch.getCount("value2"));
+
+        // a heavy hitter survives a flood of distinct values
+        TopKSketch other = new TopKSketch(10);
+        for (int i = 0; i < 1000; i++) {
+            other.add("noise" + i);
+            if (i % 3 == 0) {
+                other.add("frequent");
+            }
+        }
+        assertFalse(other.isExact());
+        Set<Object> values = other.getValues();
+        assertTrue(values.size() <= 10);
+        assertEquals("frequent", values.iterator().next());
+
+        sketch.merge(other);
+        assertTrue(sketch.getValues().contains("frequent"));
+        assertTrue(sketch.getValues().size() <= 10);
+    }
+}
@@ -17,7 +17,9 @@
 package org.geotools.feature.visitor;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -395,6 +397,46 @@ public class VisitorCalculationTest extends DataTestCase {
         assertSame(boundsResult2, boundsVisitor1.getResult().merge(boundsResult2));
         assertSame(boundsResult2, boundsResult2.merge(boundsVisitor1.getResult()));
     }
+
+    public void testPartitionMerge() throws Exception {
+        // split the 1..100 collection in two partitions, plus an empty one
+        SimpleFeature[] features = (SimpleFeature[]) fc3.toArray(new SimpleFeature[100]);
+        SimpleFeatureCollection first = DataUtilities.collection(Arrays.asList(features)
+                .subList(0, 30));
+        SimpleFeatureCollection second = DataUtilities.collection(Arrays.asList(features)
+                .subList(30, 100));
+
+        PartitionableFeatureCalc[] visitors = new PartitionableFeatureCalc[] {
+                new CountVisitor(), new SumVisitor(0, ft3), new MinVisitor(0, ft3),
+                new MaxVisitor(0, ft3), new AverageVisitor(0, ft3) };
+        Object[] expected = new Object[] { 100, 5050, 1, 100, 50.5 };
+        for (int i = 0; i < visitors.length; i++) {
+            PartitionableFeatureCalc visitor = visitors[i];
+            FeatureCalc p1 = visitor.createPartition();
+            FeatureCalc p2 = visitor.createPartition();
+            FeatureCalc p3 = visitor.createPartition();
+            first.accepts(p1, null);
+            second.accepts(p2, null);
+            empty.accepts(p3, null);
+            visitor.mergeResult(p1.getResult().merge(p2.getResult()).merge(p3.getResult()));
+            assertEquals(expected[i], visitor.getResult().getValue());
+
+            // merging in a visitor that already visited some features
+            visitor = (PartitionableFeatureCalc) visitor.createPartition();
+            first.accepts(visitor, null);
+            visitor.mergeResult(p2.getResult());
+            visitor.mergeResult(p3.getResult());
+            assertEquals(expected[i], visitor.getResult().getValue());
+        }
+
+        BoundsVisitor bounds = new BoundsVisitor();
+        FeatureCalc p1 = bounds.createPartition();
+        FeatureCalc p2 = bounds.createPartition();
+        fc.accepts(p1, null);
+        fc2.accepts(p2, null);
+        bounds.mergeResult(p1.getResult().merge(p2.getResult()));
+        assertEquals(new Envelope(1, 13, 0, 10), bounds.getBounds());
+    }
     
     public void testQuantileList() throws Exception {
         FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
@@ -415,6 +457,65 @@ public class VisitorCalculationTest extends DataTestCase {
         assertSame(result, result.merge(emptyVisitor.getResult()));
     }
 
+    public void testApproximateMedian() throws Exception {
+        MedianVisitor visitor = new MedianVisitor(0, ft3);
+        visitor.setApproximate(true);
+        fc3.accepts(visitor, null); //1..100
+        CalcResult result = visitor.getResult();
+        assertTrue(((MedianResult) result).isApproximate());
+        assertEquals(50.5, result.toDouble(), 0);
+        assertEquals(50.5, ((Number) visitor.getMedian()).doubleValue(), 0);
+        // merge with an exact result, 1..100 + 1,2,3
+        MedianVisitor exact = new MedianVisitor(0, ft);
+        fc.accepts(exact, null);
+        CalcResult merged = result.merge(exact.getResult());
+        assertTrue(((MedianResult) merged).isApproximate());
+        assertEquals(49, merged.toDouble(), 1);
+        // not destructive
+        assertEquals(50.5, result.toDouble(), 0);
+    }
+
+    public void testApproximateUnique() throws Exception {
+        UniqueVisitor visitor = new UniqueVisitor(0, ft3);
+        visitor.setApproximate(true);
+        visitor.setMaxUniqueValues(10);
+        fc3.accepts(visitor, null); //1..100
+        assertTrue(visitor.getUnique().size() <= 10);
+        assertEquals(100, visitor.getDistinctCount());
+        UniqueResult result = (UniqueResult) visitor.getResult();
+        assertTrue(result.isApproximate());
+        assertEquals(100, result.getDistinctCount());
+
+        // few values, exact even in approximate mode
+        UniqueVisitor small = new UniqueVisitor(0, ft);
+        small.setApproximate(true);
+        fc.accepts(small, null);
+        assertEquals(3, small.getResult().toSet().size());
+        UniqueResult merged = (UniqueResult) small.getResult().merge(
+                new UniqueResult(new HashSet(Arrays.asList(new Integer[] {3, 4}))));
+        assertEquals(4, merged.toSet().size());
+        assertEquals(4, merged.getDistinctCount());
+    }
+
+    public void testApproximateQuantileList() throws Exception {
+        FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
+        Expression expr = factory.property(ft3.getDescriptor(0).getLocalName());
+        QuantileListVisitor visitor = new QuantileListVisitor(expr, 4);
+        visitor.setApproximate(true);
+        fc3.accepts(visitor, null); //1..100
+        CalcResult result = visitor.getResult();
+        List[] bins = (List[]) result.getValue();
+        assertEquals(4, bins.length);
+        assertEquals(1, ((Number) bins[0].get(0)).doubleValue(), 0);
+        assertEquals(25.5, ((Number) bins[0].get(1)).doubleValue(), 0);
+        assertEquals(50.5, ((Number) bins[1].get(1)).doubleValue(), 0);
+        assertEquals(100, ((Number) bins[3].get(1)).doubleValue(), 0);
+        // merging keeps the number of classes
+        CalcResult merged = result.merge(result);
+        assertEquals(4, ((List[]) merged.getValue()).length);
+        assertSame(result, result.merge(CalcResult.NULL_RESULT));
+    }
+
     public void testStandardDeviation() throws Exception {
     	FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
     	Expression expr = factory.property(ft3.getDescriptor(0).getLocalName());
@@ -439,6 +540,37 @@ public class VisitorCalculationTest extends DataTestCase {
         assertSame(result, emptyVisitor.getResult().merge(result));
         assertSame(result, result.merge(emptyVisitor.getResult()));
     }
+
+    public void testOptimizedValues() throws Exception {
+        FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
+        Expression expr = factory.property(ft3.getDescriptor(0).getLocalName());
+
+        // values computed elsewhere, e.g. by a database, take priority over the visited ones
+        StandardDeviationVisitor stddev = new StandardDeviationVisitor(expr);
+        assertSame(expr, stddev.getExpression());
+        stddev.setValue(new BigDecimal("28.86"));
+        assertEquals(28.86, stddev.getResult().toDouble(), 0);
+        stddev.reset();
+        assertEquals(CalcResult.NULL_RESULT, stddev.getResult());
+
+        QuantileListVisitor quantiles = new QuantileListVisitor(expr, 2);
+        assertEquals(2, quantiles.getBins());
+        List[] bins = new List[] { Arrays.asList(new Integer[] { 1, 50 }),
+                Arrays.asList(new Integer[] { 51, 100 }) };
+        quantiles.setValue(bins);
+        assertSame(bins, quantiles.getResult().getValue());
+        quantiles.setValue(new List[0]);
+        assertEquals(CalcResult.NULL_RESULT, quantiles.getResult());
+
+        UniqueVisitor unique = new UniqueVisitor(expr);
+        unique.setApproximate(true);
+        unique.setValue(Arrays.asList(new Integer[] { 1, 2, 3 }), 100);
+        assertEquals(3, unique.getUnique().size());
+        assertEquals(100, unique.getDistinctCount());
+        assertEquals(100, ((UniqueResult) unique.getResult()).getDistinctCount());
+        unique.reset();
+        assertEquals(0, unique.getDistinctCount());
+    }
     
     //try merging a count and sum to get an average, both count+sum and sum+count 
     public void testCountSumMerge() throws IllegalFilterException, IOException {
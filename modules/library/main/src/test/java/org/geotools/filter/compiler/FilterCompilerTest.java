@@ -0,0 +1,270 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.compiler;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.PrimitiveFeatureFactoryImpl;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureImpl;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.filter.visitor.DefaultFilterVisitor;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.expression.Expression;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class FilterCompilerTest extends TestCase {
+
+    static final String[] NUMERIC = new String[] { "i", "l", "d", "f", "sh" };
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+
+    GeometryFactory gf = new GeometryFactory();
+
+    SimpleFeatureType type;
+
+    List<SimpleFeature> features;
+
+    @Override
+    protected void setUp() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("test");
+        tb.add("geom", Point.class);
+        tb.add("i", Integer.class);
+        tb.add("l", Long.class);
+        tb.add("d", Double.class);
+        tb.add("f", Float.class);
+        tb.add("sh", Short.class);
+        tb.add("s", String.class);
+        type = tb.buildFeatureType();
+
+        Object[] numbers = new Object[] { null, -3, 0, 1, 2, 5, 10, 42, 1000, -0.0, 0.5, 2.5,
+                41.9, Double.NaN, Double.POSITIVE_INFINITY, Long.MAX_VALUE };
+        String[] strings = new String[] { null, "", "abc", "ABC", "abd", "10", "5", "2.5" };
+        features = new ArrayList<SimpleFeature>();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        for (int i = 0; i < numbers.length; i++) {
+            Number n = (Number) numbers[i];
+            fb.add(gf.createPoint(new Coordinate(i, i)));
+            fb.add(n == null ? null : n.intValue());
+            fb.add(n == null ? null : n.longValue());
+            fb.add(n == null ? null : n.doubleValue());
+            fb.add(n == null ? null : n.floatValue());
+            fb.add(n == null ? null : n.shortValue());
+            fb.add(strings[i % strings.length]);
+            features.add(fb.buildFeature("test." + i));
+        }
+        // values of a class other than the binding, the compiled code has to fall back
+        Object[] values = new Object[] { gf.createPoint(new Coordinate(1, 1)), 5L, 5, 5f, 5.0,
+                5, new StringBuilder("abc") };
+        features.add(new SimpleFeatureImpl(values, type, new FeatureIdImpl("test.mixed"), false));
+    }
+
+    List<Expression> literals() {
+        return Arrays.asList(new Expression[] { ff.literal(5), ff.literal(5L), ff.literal(2.5),
+                ff.literal(5.0), ff.literal(2.5f), ff.literal((short) 10), ff.literal(-0.0),
+                ff.literal(Double.NaN), ff.literal(new BigDecimal("41.9")), ff.literal("5"),
+                ff.literal("2.5"), ff.literal("abc"), ff.literal("ABC"), ff.literal("ab"),
+                ff.literal(Long.MAX_VALUE) });
+    }
+
+    void assertSameResults(Filter filter) {
+        Filter compiled = FilterCompiler.compile(filter, type);
+        for (SimpleFeature feature : features) {
+            assertEquals(filter + " on " + feature, evaluate(filter, feature), evaluate(compiled,
+                    feature));
+        }
+    }
+
+    /**
+     * Returns the result, or the exception class, some filters fail against null values
+     */
+    Object evaluate(Filter filter, SimpleFeature feature) {
+        try {
+            return filter.evaluate(feature);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    public void testComparisons() {
+        List<String> attributes = new ArrayList<String>(Arrays.asList(NUMERIC));
+        attributes.add("s");
+        for (String name : attributes) {
+            Expression p = ff.property(name);
+            for (Expression l : literals()) {
+                assertSameResults(ff.equals(p, l));
+                assertSameResults(ff.equals(l, p));
+                assertSameResults(ff.equal(p, l, false));
+                assertSameResults(ff.notEqual(p, l));
+                assertSameResults(ff.notEqual(l, p, false));
+                assertSameResults(ff.less(p, l));
+                assertSameResults(ff.less(l, p));
+                assertSameResults(ff.lessOrEqual(p, l));
+                assertSameResults(ff.lessOrEqual(l, p));
+                assertSameResults(ff.greater(p, l));
+                assertSameResults(ff.greater(l, p));
+                assertSameResults(ff.greaterOrEqual(p, l));
+                assertSameResults(ff.greaterOrEqual(l, p));
+            }
+        }
+    }
+
+    public void testBetweenAndNull() {
+        List<String> attributes = new ArrayList<String>(Arrays.asList(NUMERIC));
+        attributes.add("s");
+        for (String name : attributes) {
+            Expression p = ff.property(name);
+            assertSameResults(ff.isNull(p));
+            assertSameResults(ff.between(p, ff.literal(0), ff.literal(10)));
+            assertSameResults(ff.between(p, ff.literal(0.5), ff.literal(41.9)));
+            assertSameResults(ff.between(p, ff.literal("abc"), ff.literal("abd")));
+            assertSameResults(ff.between(p, ff.literal(-0.0), ff.literal("5")));
+        }
+    }
+
+    public void testPrimitiveFeatures() {
+        PrimitiveFeatureFactoryImpl factory = new PrimitiveFeatureFactoryImpl();
+        List<SimpleFeature> primitives = new ArrayList<SimpleFeature>();
+        for (SimpleFeature f : features) {
+            primitives.add(factory.createSimpleFeature(f.getAttributes().toArray(), type, f
+                    .getID()));
+        }
+        features = primitives;
+        testComparisons();
+        testBetweenAndNull();
+    }
+
+    public void testExtremeNumberComparisons() {
+        // longs next to Long.MAX_VALUE collapse to the same double, NaN is neither greater nor
+        // equal to anything, the compiled filters must order them as the interpreted ones do
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        List<SimpleFeature> extremes = new ArrayList<SimpleFeature>();
+        for (long l = Long.MAX_VALUE - 2; l > 0; l++) {
+            fb.set("l", l);
+            extremes.add(fb.buildFeature("large." + extremes.size()));
+        }
+        fb.set("d", Double.NaN);
+        extremes.add(fb.buildFeature("nan"));
+        PrimitiveFeatureFactoryImpl factory = new PrimitiveFeatureFactoryImpl();
+        for (int i = 0, size = extremes.size(); i < size; i++) {
+            extremes.add(factory.createSimpleFeature(extremes.get(i).getAttributes().toArray(),
+                    type, "primitive." + i));
+        }
+        features = extremes;
+
+        assertSameResults(ff.greater(ff.property("l"), ff.literal(Long.MAX_VALUE - 1)));
+        assertSameResults(ff.equals(ff.property("l"), ff.literal(Long.MAX_VALUE - 1)));
+        assertSameResults(ff.lessOrEqual(ff.literal(Long.MAX_VALUE - 1), ff.property("l")));
+        assertSameResults(ff.greater(ff.property("d"), ff.literal(Double.POSITIVE_INFINITY)));
+        assertSameResults(ff.less(ff.property("d"), ff.literal(Double.NaN)));
+        assertSameResults(ff.greaterOrEqual(ff.property("d"), ff.literal(Double.NaN)));
+    }
+
+    public void testLogic() {
+        Filter gt = ff.greater(ff.property("i"), ff.literal(2));
+        Filter lt = ff.less(ff.property("d"), ff.literal(100));
+        Filter eq = ff.equals(ff.property("s"), ff.literal("abc"));
+        Filter like = ff.like(ff.property("s"), "a*");
+        assertSameResults(ff.and(gt, lt));
+        assertSameResults(ff.or(Arrays.asList(new Filter[] { gt, eq, like })));
+        assertSameResults(ff.not(ff.and(ff.or(gt, eq), ff.not(lt))));
+        assertSameResults(ff.and(Filter.INCLUDE, ff.or(Filter.EXCLUDE, like)));
+    }
+
+    public void testBBox() {
+        assertSameResults(ff.bbox("geom", 0.5, 0.5, 3.5, 3.5, null));
+        assertSameResults(ff.bbox("geom", 100, 100, 200, 200, null));
+        assertSameResults(ff.not(ff.bbox("geom", 2, 2, 2, 2, null)));
+    }
+
+    public void testCompiledEvaluators() {
+        assertEvaluator(FeatureEvaluator.NumberCompare.class, ff.greater(ff.property("d"), ff
+                .literal(5)));
+        assertEvaluator(FeatureEvaluator.NumberEquals.class, ff.equals(ff.literal("5"), ff
+                .property("i")));
+        assertEvaluator(FeatureEvaluator.StringEquals.class, ff.notEqual(ff.property("s"), ff
+                .literal("abc")));
+        assertEvaluator(FeatureEvaluator.NumberBetween.class, ff.between(ff.property("l"), ff
+                .literal(1), ff.literal(2)));
+        assertEvaluator(FeatureEvaluator.IsNull.class, ff.isNull(ff.property("s")));
+        assertEvaluator(FeatureEvaluator.And.class, ff.and(ff.isNull(ff.property("s")), ff
+                .isNull(ff.property("i"))));
+        // not a simple property, or not part of the type
+        assertEvaluator(FeatureEvaluator.Interpreted.class, ff.equals(ff.property("gml:i"), ff
+                .literal(5)));
+        assertEvaluator(FeatureEvaluator.Interpreted.class, ff.equals(ff.property("missing"),
+                ff.literal(5)));
+        assertEvaluator(FeatureEvaluator.Interpreted.class, ff.like(ff.property("s"), "a*"));
+    }
+
+    void assertEvaluator(Class<?> expected, Filter filter) {
+        CompiledFilter compiled = (CompiledFilter) FilterCompiler.compile(filter, type);
+        assertEquals(expected, compiled.compiled.evaluator.getClass());
+    }
+
+    public void testTransparency() throws Exception {
+        assertSame(Filter.INCLUDE, FilterCompiler.compile(Filter.INCLUDE));
+        assertSame(Filter.EXCLUDE, FilterCompiler.compile(Filter.EXCLUDE, type));
+        assertNull(FilterCompiler.compile(null));
+
+        final PropertyIsEqualTo filter = ff.equals(ff.property("i"), ff.literal(5));
+        Filter compiled = FilterCompiler.compile(filter);
+        assertSame(compiled, FilterCompiler.compile(compiled));
+        assertEquals(filter.toString(), compiled.toString());
+
+        // visitors see the original filter
+        final List<Object> visited = new ArrayList<Object>();
+        compiled.accept(new DefaultFilterVisitor() {
+            public Object visit(PropertyIsEqualTo filter, Object data) {
+                visited.add(filter);
+                return data;
+            }
+        }, null);
+        assertEquals(1, visited.size());
+        assertSame(filter, visited.get(0));
+
+        // not a feature
+        assertFalse(compiled.evaluate(null));
+
+        // compiled lazily, and again when the type changes
+        assertTrue(compiled.evaluate(features.get(5)));
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("other");
+        tb.add("s", String.class);
+        tb.add("i", Integer.class);
+        SimpleFeatureType other = tb.buildFeatureType();
+        SimpleFeature feature = SimpleFeatureBuilder.build(other, new Object[] { "abc", 5 },
+                null);
+        assertTrue(compiled.evaluate(feature));
+        assertSame(other, ((CompiledFilter) compiled).compiled.featureType);
+    }
+}
@@ -19,6 +19,7 @@ package org.geotools.filter.function;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.memory.MemoryDataStore;
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.factory.Hints;
 import org.geotools.feature.FeatureCollections;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.opengis.feature.simple.SimpleFeature;
@@ -97,6 +98,24 @@ public class JenksFunctionTest extends FunctionTestSupport {
         assertEquals("100.1..155.3", ranged.getTitle(4));
     }
 
+    public void testEvaluateRealDataApproximate() throws Exception {
+        Hints.putSystemDefault(Hints.APPROXIMATE_AGGREGATES, Boolean.TRUE);
+        try {
+            Function func = ff.function("Jenks", ff.property("jenks71"), ff.literal(5));
+
+            // few values, the sketch keeps them all and the breaks are the exact ones
+            RangedClassifier ranged = (RangedClassifier) func.evaluate(jenksCollection);
+            assertEquals(5, ranged.getSize());
+            assertEquals("15.57..41.2", ranged.getTitle(0));
+            assertEquals("41.2..60.66", ranged.getTitle(1));
+            assertEquals("60.66..77.29", ranged.getTitle(2));
+            assertEquals("77.29..100.1", ranged.getTitle(3));
+            assertEquals("100.1..155.3", ranged.getTitle(4));
+        } finally {
+            Hints.removeSystemDefault(Hints.APPROXIMATE_AGGREGATES);
+        }
+    }
+
     public void testEvaluateWithExpressions() throws Exception {
         Literal classes = ff.literal(2);
         PropertyName exp = ff.property("foo");
@@ -19,6 +19,7 @@ package org.geotools.filter.function;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.memory.MemoryDataStore;
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.factory.Hints;
 import org.geotools.feature.FeatureCollections;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.opengis.feature.simple.SimpleFeature;
@@ -93,6 +94,21 @@ public class QuantileFunctionTest extends FunctionTestSupport {
         assertEquals("4..29", ranged.getTitle(0));
         assertEquals("29..90", ranged.getTitle(1));
     }
+
+    public void testEvaluateApproximate() throws Exception {
+        Hints.putSystemDefault(Hints.APPROXIMATE_AGGREGATES, Boolean.TRUE);
+        try {
+            Function func = ff.function("Quantile", ff.property("foo"), ff.literal(2));
+            RangedClassifier ranged = (RangedClassifier) func.evaluate(featureCollection);
+
+            // the break is interpolated between 20 and 29
+            assertEquals(2, ranged.getSize());
+            assertEquals("4..24.5", ranged.getTitle(0));
+            assertEquals("24.5..90", ranged.getTitle(1));
+        } finally {
+            Hints.removeSystemDefault(Hints.APPROXIMATE_AGGREGATES);
+        }
+    }
     
     
     /**
@@ -15,6 +15,7 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LineString;
 import com.vividsolutions.jts.geom.LinearRing;
 import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
 
 public class DecimatorTest {
 
@@ -138,4 +139,46 @@ public class DecimatorTest {
         assertEquals(4, ls.getNumPoints());
         assertEquals(2, ls.getCoordinateSequence().getDimension());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testSingleTransformCall() throws Exception {
+        // a polygon with a hole plus a line, all transformed with a single call
+        LinearRing shell = gf.createLinearRing(csf.create(new double[] {0,0,0,10,10,10,10,0,0,0}));
+        LinearRing hole = gf.createLinearRing(csf.create(new double[] {2,2,2,4,4,4,4,2,2,2}));
+        Polygon polygon = gf.createPolygon(shell, new LinearRing[] {hole});
+        LineString line = gf.createLineString(csf.create(new double[] {0,0,1,1,5,5,20,20}));
+        Geometry collection = gf.createGeometryCollection(new Geometry[] {polygon, line});
+        
+        CountingTransform transform = new CountingTransform(AffineTransform.getScaleInstance(2, 3));
+        Decimator d = new Decimator(3, 3);
+        d.decimateTransformGeneralize(collection, transform);
+        collection.geometryChanged();
+        assertEquals(1, transform.calls);
+        
+        assertEquals(5, polygon.getExteriorRing().getNumPoints());
+        assertEquals(20, polygon.getExteriorRing().getCoordinateN(2).x, 0d);
+        assertEquals(30, polygon.getExteriorRing().getCoordinateN(2).y, 0d);
+        // the hole is smaller than the spans, but a ring keeps at least 4 points
+        assertEquals(4, polygon.getInteriorRingN(0).getNumPoints());
+        assertEquals(4, polygon.getInteriorRingN(0).getCoordinateN(0).x, 0d);
+        // the line lost the points close to the first one
+        assertEquals(3, line.getNumPoints());
+        assertEquals(10, line.getCoordinateN(1).x, 0d);
+        assertEquals(60, line.getCoordinateN(2).y, 0d);
+        assertEquals(6, ((LiteCoordinateSequence) line.getCoordinateSequence()).getArray().length);
+    }
+    
+    static class CountingTransform extends AffineTransform2D {
+        int calls;
+
+        public CountingTransform(AffineTransform transform) {
+            super(transform);
+        }
+
+        @Override
+        public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) {
+            calls++;
+            super.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        }
+    }
+}
@@ -588,6 +588,35 @@ public class Hints extends RenderingHints {
      * @since 2.4.1
      */
     public static final Key FEATURE_2D = new Key(Boolean.class);
+
+    /**
+     * The maximum number of features that will be sorted in memory by the stores that cannot
+     * sort natively. Past this amount the features are sorted in blocks spilled to temporary
+     * files, and then merged back, see {@code org.geotools.data.sort.SortedFeatureReader}.
+     *
+     * @since 8.0
+     */
+    public static final Key MAX_MEMORY_SORT = new Key(Integer.class);
+
+    /**
+     * When {@code Boolean.TRUE}, the unique, median and quantile visitors (and the
+     * classification functions using them) keep bounded size, mergeable sketches of the visited
+     * values instead of the values themselves, trading exactness for constant memory usage.
+     * Used as a system default, the visitors can also be switched one by one.
+     *
+     * @since 8.0
+     */
+    public static final Key APPROXIMATE_AGGREGATES = new Key(Boolean.class);
+
+    /**
+     * The number of partitions the stores able to split a query in independent readers will use
+     * to run the mergeable visitors (count, sum, bounds, min, max, average) in parallel. A value
+     * of 1 disables the parallel visits. When not set the number of available processors is
+     * used, provided the query returns enough features to make it worthwhile.
+     *
+     * @since 8.0
+     */
+    public static final Key VISITOR_PARTITIONS = new Key(Integer.class);
     
     /**
      * Asks a datastore having a vector pyramid (pre-generalized geometries)
@@ -839,11 +868,15 @@ public class Hints extends RenderingHints {
      *   <li>{@code "none"} for disabling the cache.</li>
      *   <li>{@code "soft"} for holding the value throuhg(@linkplain java.lang.ref.SoftReference 
      *       soft references}.
+     *   <li>{@code "concurrent"} for holding the {@link #CACHE_LIMIT} most recently used values
+     *       through strong references and the other ones through weak references.</li>
      * </ul>
+     * Except for {@code "fixed"}, {@code "soft"} and {@code "none"}, the values can be read
+     * without locking.
      *
      * @since 2.5
      */
-    public static final OptionKey CACHE_POLICY = new OptionKey("weak", "all", "fixed","none","default","soft");
+    public static final OptionKey CACHE_POLICY = new OptionKey("weak", "all", "fixed","none","default","soft","concurrent");
 
     /**
      * The recommended maximum number of referencing objects to hold in a
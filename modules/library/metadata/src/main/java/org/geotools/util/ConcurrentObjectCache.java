@@ -0,0 +1,384 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * An {@link ObjectCache} that can be read by many threads at the same time without locking.
+ * <p>
+ * The most recently used values are kept by strong references, up to the amount specified
+ * at construction time. Past that amount the least recently used ones are only kept by
+ * {@linkplain WeakReference weak references}, so they are still returned as long as they are
+ * in use somewhere else, and get their strong reference back when requested again. A limit
+ * of {@code 0} gives a purely weak cache, {@link Integer#MAX_VALUE} a cache that holds
+ * everything.
+ * <p>
+ * The {@link #writeLock} / {@link #writeUnLock} pair only locks the given key, so that
+ * threads creating different values do not wait for each other while threads asking for the
+ * same value let the first one create it, then find it with {@link #peek}.
+ * <p>
+ * The hits, misses and evictions are counted for monitoring purpose.
+ *
+ * @since 8.0
+ */
+public final class ConcurrentObjectCache implements ObjectCache {
+    /**
+     * A cached value. The entry is a weak reference to the value, and also holds it by a
+     * strong reference until evicted from the most recently used ones.
+     */
+    private static final class Entry extends WeakReference<Object> {
+        final Object key;
+
+        volatile Object strong;
+
+        volatile long lastAccess;
+
+        Entry(Object key, Object value, long lastAccess, ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.key = key;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * Sorts the entries from the least to the most recently used.
+     */
+    private static final Comparator<Entry> LEAST_RECENTLY_USED = new Comparator<Entry>() {
+        public int compare(Entry e1, Entry e2) {
+            final long a1 = e1.lastAccess;
+            final long a2 = e2.lastAccess;
+            return a1 < a2 ? -1 : (a1 == a2 ? 0 : 1);
+        }
+    };
+
+    private final ConcurrentMap<Object, Entry> entries;
+
+    /**
+     * The locks for keys under construction.
+     */
+    private final ConcurrentMap<Object, ReentrantLock> locks = new ConcurrentHashMap<Object, ReentrantLock>();
+
+    /**
+     * The entries holding their value by strong reference. Also used as the lock for
+     * every change to the strong references.
+     */
+    private final Set<Entry> strongEntries = new HashSet<Entry>();
+
+    /**
+     * The entries whose value has been garbage collected.
+     */
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+    /**
+     * Advanced at each addition, the entries read since then get the new value as their
+     * last access, which is enough to sort them by use without a write at each read.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile int maxStrongReferences;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxStrongReferences the max number of values kept by strong reference
+     */
+    public ConcurrentObjectCache(int maxStrongReferences) {
+        this(maxStrongReferences, 16);
+    }
+
+    /**
+     * Creates a new cache using the indicated initial size.
+     *
+     * @param maxStrongReferences the max number of values kept by strong reference
+     * @param initialSize the initial capacity of the cache
+     */
+    public ConcurrentObjectCache(int maxStrongReferences, int initialSize) {
+        this.maxStrongReferences = Math.max(0, maxStrongReferences);
+        this.entries = new ConcurrentHashMap<Object, Entry>(Math.max(16, initialSize));
+    }
+
+    /**
+     * Returns the value for the specified key, or {@code null} if not found. This method does
+     * not lock unless the value has to be promoted back to a strong reference.
+     */
+    public Object get(final Object key) {
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            Object value = entry.strong;
+            if (value == null) {
+                value = entry.get();
+                if (value != null && maxStrongReferences > 0) {
+                    promote(entry, value);
+                }
+            }
+            if (value != null) {
+                final long now = clock.get();
+                if (entry.lastAccess != now) {
+                    entry.lastAccess = now;
+                }
+                hits.incrementAndGet();
+                return value;
+            }
+            entries.remove(key, entry);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns the value for the specified key without updating the statistics, meant to be
+     * used while holding the {@linkplain #writeLock write lock} of the key.
+     */
+    public Object peek(final Object key) {
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            final Object value = entry.strong;
+            return value != null ? value : entry.get();
+        }
+        return null;
+    }
+
+    /**
+     * Stores a value, evicting the least recently used strong references if needed.
+     */
+    public void put(final Object key, final Object object) {
+        if (object == null) {
+            remove(key);
+            return;
+        }
+        final Entry entry = new Entry(key, object, clock.incrementAndGet(), collected);
+        final Entry old = entries.put(key, entry);
+        synchronized (strongEntries) {
+            if (old != null) {
+                strongEntries.remove(old);
+            }
+            if (maxStrongReferences > 0) {
+                entry.strong = object;
+                strongEntries.add(entry);
+                evict();
+            }
+        }
+        expunge();
+    }
+
+    /**
+     * Gives back its strong reference to a value read from its weak reference.
+     */
+    private void promote(final Entry entry, final Object value) {
+        synchronized (strongEntries) {
+            if (entry.strong == null && entries.get(entry.key) == entry) {
+                entry.lastAccess = clock.incrementAndGet();
+                entry.strong = value;
+                strongEntries.add(entry);
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Drops the strong references to the least recently used values, making some room so that
+     * the eviction does not happen again at the next addition. Must be invoked while holding
+     * the lock on {@link #strongEntries}.
+     */
+    private void evict() {
+        final int max = maxStrongReferences;
+        if (strongEntries.size() <= max) {
+            return;
+        }
+        final List<Entry> sorted = new ArrayList<Entry>(strongEntries);
+        Collections.sort(sorted, LEAST_RECENTLY_USED);
+        final int target = max - max / 8;
+        for (int i = 0; i < sorted.size() && strongEntries.size() > target; i++) {
+            final Entry entry = sorted.get(i);
+            entry.strong = null;
+            strongEntries.remove(entry);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the entries whose value has been garbage collected.
+     */
+    private void expunge() {
+        Entry entry;
+        while ((entry = (Entry) collected.poll()) != null) {
+            entries.remove(entry.key, entry);
+        }
+    }
+
+    /**
+     * Removes the given key from the cache.
+     */
+    public void remove(final Object key) {
+        final Entry old = entries.remove(key);
+        if (old != null) {
+            synchronized (strongEntries) {
+                strongEntries.remove(old);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from this cache. The statistics are left untouched.
+     */
+    public void clear() {
+        synchronized (strongEntries) {
+            entries.clear();
+            strongEntries.clear();
+        }
+        expunge();
+    }
+
+    /**
+     * Returns a copy of the keys whose value is still available.
+     */
+    public Set<Object> getKeys() {
+        final Set<Object> keys = new HashSet<Object>();
+        for (final Map.Entry<Object, Entry> entry : entries.entrySet()) {
+            final Entry value = entry.getValue();
+            if (value.strong != null || value.get() != null) {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Acquires the write lock on the indicated key. It may block if another thread is
+     * writing the same key, but not if it is writing another one.
+     */
+    public void writeLock(final Object key) {
+        while (true) {
+            ReentrantLock lock = locks.get(key);
+            if (lock == null) {
+                final ReentrantLock created = new ReentrantLock();
+                lock = locks.putIfAbsent(key, created);
+                if (lock == null) {
+                    lock = created;
+                }
+            }
+            lock.lock();
+            if (locks.get(key) == lock) {
+                return;
+            }
+            // the previous owner dropped this lock from the map while we were waiting on it
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the write lock on the indicated key.
+     *
+     * @throws IllegalMonitorStateException if the current thread does not hold the lock
+     */
+    public void writeUnLock(final Object key) {
+        final ReentrantLock lock = locks.get(key);
+        if (lock == null || !lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("Cannot unlock prior to locking");
+        }
+        if (lock.getHoldCount() == 1 && !lock.hasQueuedThreads()) {
+            locks.remove(key, lock);
+        }
+        lock.unlock();
+    }
+
+    /**
+     * The number of values currently in the cache, including the ones held only by weak
+     * reference that may have been garbage collected already
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * The number of values currently kept by strong reference
+     */
+    public int getStrongReferenceCount() {
+        synchronized (strongEntries) {
+            return strongEntries.size();
+        }
+    }
+
+    /**
+     * The max number of values kept by strong reference
+     */
+    public int getMaxStrongReferences() {
+        return maxStrongReferences;
+    }
+
+    /**
+     * Sets the max number of values kept by strong reference. The values past the new limit
+     * are still available as long as they are in use somewhere else.
+     */
+    public void setMaxStrongReferences(int maxStrongReferences) {
+        synchronized (strongEntries) {
+            this.maxStrongReferences = Math.max(0, maxStrongReferences);
+            evict();
+        }
+    }
+
+    /**
+     * The number of lookups that found a cached value
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of lookups that did not find a cached value
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The number of values whose strong reference was dropped to keep within the
+     * {@linkplain #getMaxStrongReferences max number of strong references}
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Resets the hits, misses and evictions counters
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+}
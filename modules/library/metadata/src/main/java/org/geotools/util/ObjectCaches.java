@@ -161,7 +161,7 @@ public final class ObjectCaches {
             }
 
             public void writeUnLock( Object key ) {
-                level1.writeLock(key);
+                level1.writeUnLock(key);
             }
             
             public Set<Object> getKeys(){
@@ -186,16 +186,18 @@ public final class ObjectCaches {
     /**
      * Utility method used to produce an ObjectCache.
      *
-     * @param policy One of "weak", "all", "none", "soft"
+     * @param policy One of "weak", "all", "none", "soft", "fixed", "concurrent"
      * @param size Used to indicate requested size, exact use depends on policy
      * @return A new ObjectCache
      * @see Hints.BUFFER_POLICY
      */
     public static ObjectCache create( String policy, int size ){
         if ("weak".equalsIgnoreCase(policy)) {
-            return new WeakObjectCache(0);
+            return new ConcurrentObjectCache(0, size);
         } else if ("all".equalsIgnoreCase(policy)) {
-            return new DefaultObjectCache(size);
+            return new ConcurrentObjectCache(Integer.MAX_VALUE, size);
+        } else if ("concurrent".equalsIgnoreCase(policy)) {
+            return new ConcurrentObjectCache(size, size);
         } else if ("none".equalsIgnoreCase(policy)) {
             return NullObjectCache.INSTANCE;
         } else if ("fixed".equalsIgnoreCase(policy)) {
@@ -203,7 +205,7 @@ public final class ObjectCaches {
         } else if ("soft".equals(policy)){
         	return new SoftObjectCache(size);
         } else {
-            return new DefaultObjectCache(size);
+            return new ConcurrentObjectCache(Integer.MAX_VALUE, size);
         }
     }
 
@@ -0,0 +1,170 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link ConcurrentObjectCache}.
+ */
+public final class ConcurrentObjectCacheTest {
+
+    @Test
+    public void testSimple() {
+        ConcurrentObjectCache cache = new ConcurrentObjectCache(10);
+        String value1 = new String("value 1");
+        assertNull(cache.get(1));
+        cache.put(1, value1);
+        assertSame(value1, cache.get(1));
+        assertSame(value1, cache.peek(1));
+        assertEquals(1, cache.getKeys().size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        cache.remove(1);
+        assertNull(cache.peek(1));
+        assertEquals(0, cache.getKeys().size());
+        assertEquals(0, cache.getStrongReferenceCount());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        ConcurrentObjectCache cache = new ConcurrentObjectCache(8);
+        String[] values = new String[20];
+        for (int i = 0; i < 8; i++) {
+            values[i] = "value " + i;
+            cache.put(i, values[i]);
+        }
+        assertEquals(0, cache.getEvictions());
+        // use the first one, so that it is not the least recently used anymore
+        assertSame(values[0], cache.get(0));
+        for (int i = 8; i < 20; i++) {
+            values[i] = "value " + i;
+            cache.put(i, values[i]);
+        }
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.getStrongReferenceCount() <= 8);
+        // the values evicted are still available since we hold them
+        for (int i = 0; i < 20; i++) {
+            assertSame(values[i], cache.peek(i));
+        }
+
+        // reading an evicted value gives it back its strong reference
+        cache.resetStatistics();
+        assertSame(values[1], cache.get(1));
+        assertEquals(1, cache.getHits());
+        assertTrue(cache.getStrongReferenceCount() <= 8);
+    }
+
+    @Test
+    public void testWeakOnly() {
+        ConcurrentObjectCache cache = new ConcurrentObjectCache(0);
+        String value = new String("value");
+        cache.put("key", value);
+        assertEquals(0, cache.getStrongReferenceCount());
+        assertSame(value, cache.get("key"));
+        assertEquals(0, cache.getStrongReferenceCount());
+
+        cache.setMaxStrongReferences(5);
+        cache.put("other", new String("other"));
+        assertEquals(1, cache.getStrongReferenceCount());
+        cache.setMaxStrongReferences(0);
+        assertEquals(0, cache.getStrongReferenceCount());
+    }
+
+    @Test
+    public void testLockPerKey() throws Exception {
+        final ConcurrentObjectCache cache = new ConcurrentObjectCache(10);
+        cache.writeLock(1);
+
+        // another thread can write an other key, but waits on the locked one
+        final CountDownLatch otherKey = new CountDownLatch(1);
+        final CountDownLatch sameKey = new CountDownLatch(1);
+        Thread writer = new Thread() {
+            public void run() {
+                cache.writeLock(2);
+                cache.put(2, "value 2");
+                cache.writeUnLock(2);
+                otherKey.countDown();
+
+                cache.writeLock(1);
+                try {
+                    if (cache.peek(1) == null) {
+                        cache.put(1, "from the writer");
+                    }
+                } finally {
+                    cache.writeUnLock(1);
+                }
+                sameKey.countDown();
+            }
+        };
+        writer.start();
+        assertTrue(otherKey.await(5, TimeUnit.SECONDS));
+        assertFalse(sameKey.await(100, TimeUnit.MILLISECONDS));
+
+        cache.put(1, "value 1");
+        cache.writeUnLock(1);
+        assertTrue(sameKey.await(5, TimeUnit.SECONDS));
+        writer.join();
+        // the writer found the value and did not compute it again
+        assertEquals("value 1", cache.get(1));
+        assertEquals("value 2", cache.get(2));
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void testUnlockWithoutLock() {
+        new ConcurrentObjectCache(10).writeUnLock("key");
+    }
+
+    @Test
+    public void testPolicies() {
+        assertTrue(ObjectCaches.create("concurrent", 50) instanceof ConcurrentObjectCache);
+        ConcurrentObjectCache weak = (ConcurrentObjectCache) ObjectCaches.create("weak", 50);
+        assertEquals(0, weak.getMaxStrongReferences());
+        ConcurrentObjectCache all = (ConcurrentObjectCache) ObjectCaches.create("all", 50);
+        assertEquals(Integer.MAX_VALUE, all.getMaxStrongReferences());
+    }
+
+    @Test
+    public void testChainUnlocks() throws Exception {
+        final ObjectCache level2 = new ConcurrentObjectCache(10);
+        final ObjectCache chain = ObjectCaches.chain(new ConcurrentObjectCache(10), level2);
+        level2.put("key", "value");
+        assertEquals("value", chain.get("key"));
+
+        // the lock taken while copying the value must have been released
+        Thread other = new Thread() {
+            public void run() {
+                chain.writeLock("key");
+                chain.writeUnLock("key");
+            }
+        };
+        other.start();
+        other.join(5000);
+        assertFalse(other.isAlive());
+    }
+}
@@ -173,6 +173,12 @@ public final class CRS {
      */
     private static CoordinateOperationFactory lenientFactory;
 
+    /**
+     * The transforms already returned by {@link #findMathTransform}.
+     */
+    private static final MathTransformCache transformCache = new MathTransformCache(
+            Integer.getInteger(MathTransformCache.MAX_SIZE_KEY, 256));
+
     /**
      * Registers a listener automatically invoked when the system-wide configuration changed.
      */
@@ -185,6 +191,7 @@ public final class CRS {
                     strictFactory  = null;
                     lenientFactory = null;
                 }
+                transformCache.clear();
             }
         });
     }
@@ -1103,8 +1110,25 @@ search:             if (DefaultCoordinateSystemAxis.isCompassDirection(axis.getD
             // Slight optimization in order to avoid the overhead of loading the full referencing engine.
             return IdentityTransform.create(sourceCRS.getCoordinateSystem().getDimension());
         }
-        CoordinateOperationFactory operationFactory = getCoordinateOperationFactory(lenient);
-        return operationFactory.createOperation(sourceCRS, targetCRS).getMathTransform();
+        MathTransform transform = transformCache.get(sourceCRS, targetCRS, lenient);
+        if (transform == null) {
+            CoordinateOperationFactory operationFactory = getCoordinateOperationFactory(lenient);
+            transform = operationFactory.createOperation(sourceCRS, targetCRS).getMathTransform();
+            transformCache.put(sourceCRS, targetCRS, lenient, transform);
+        }
+        return transform;
+    }
+
+    /**
+     * Returns the cache of the transforms returned by {@link #findMathTransform}, whose size is
+     * controlled by the {@link MathTransformCache#MAX_SIZE_KEY} system property. Applications
+     * can use it to check the hit ratio, or to {@linkplain MathTransformCache#warmUp() warm it
+     * up} at startup.
+     *
+     * @since 8.0
+     */
+    public static MathTransformCache getMathTransformCache() {
+        return transformCache;
     }
 
     /**
@@ -1741,6 +1765,7 @@ search:             if (DefaultCoordinateSystemAxis.isCompassDirection(axis.getD
         xyFactory = null;
         strictFactory = null;
         lenientFactory = null;
+        transformCache.clear();
     }
     
     /**
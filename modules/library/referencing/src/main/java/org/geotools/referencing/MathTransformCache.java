@@ -0,0 +1,388 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.referencing.datum.BursaWolfParameters;
+import org.geotools.referencing.datum.DefaultGeodeticDatum;
+import org.geotools.util.logging.Logging;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeneralDerivedCRS;
+import org.opengis.referencing.crs.SingleCRS;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * A bounded cache of the math transforms returned by
+ * {@link CRS#findMathTransform(CoordinateReferenceSystem, CoordinateReferenceSystem, boolean)},
+ * so that asking again for the transform between the same pair of CRS does not go through the
+ * coordinate operation factories, and their locks, one more time.
+ * <p>
+ * The CRS are compared {@linkplain CRS#equalsIgnoreMetadata ignoring metadata}, since the
+ * metadata play no role in the math transform, which means that CRS decoded separately from the
+ * same definition share the same entry. The comparison ignoring metadata skips the
+ * {@linkplain BursaWolfParameters Bursa-Wolf parameters} (the WKT <code>TOWGS84</code> element)
+ * attached to the datums, which do drive the datum shift, so the keys compare them too. Lookups
+ * do not lock, once the cache is full the least recently used entries are evicted.
+ * <p>
+ * The cache can be filled at startup with {@link #warmUp()}, which resolves the CRS pairs listed
+ * in the {@link #WARMUP_KEY} system property.
+ */
+public final class MathTransformCache {
+
+    static final Logger LOGGER = Logging.getLogger(MathTransformCache.class);
+
+    /**
+     * System property controlling the max number of transforms kept in the cache, zero disables
+     * caching
+     */
+    public static final String MAX_SIZE_KEY = "org.geotools.referencing.transformCache.maxSize";
+
+    /**
+     * System property listing the CRS pairs resolved by {@link #warmUp()}, as a comma separated
+     * list of <code>source->target</code> codes, for example
+     * <code>EPSG:4326->EPSG:3857,EPSG:4326->EPSG:32632</code>
+     */
+    public static final String WARMUP_KEY = "org.geotools.referencing.transformCache.warmup";
+
+    /**
+     * Identifies a transform, caching the hash code since CRS hash codes are not cheap to compute
+     */
+    static final class Key {
+        final CoordinateReferenceSystem sourceCRS;
+
+        final CoordinateReferenceSystem targetCRS;
+
+        final boolean lenient;
+
+        final List<BursaWolfParameters> sourceShifts;
+
+        final List<BursaWolfParameters> targetShifts;
+
+        final int hash;
+
+        Key(CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem targetCRS,
+                boolean lenient) {
+            this.sourceCRS = sourceCRS;
+            this.targetCRS = targetCRS;
+            this.lenient = lenient;
+            this.sourceShifts = bursaWolf(sourceCRS, new ArrayList<BursaWolfParameters>());
+            this.targetShifts = bursaWolf(targetCRS, new ArrayList<BursaWolfParameters>());
+            // the Bursa-Wolf hash codes do not include the target datum
+            int hash = 37 * hash(sourceCRS) + hash(targetCRS);
+            hash = 37 * hash + 31 * sourceShifts.hashCode() + targetShifts.hashCode();
+            this.hash = lenient ? ~hash : hash;
+        }
+
+        /**
+         * Collects the Bursa-Wolf parameters of all the geodetic datums used by the CRS
+         */
+        static List<BursaWolfParameters> bursaWolf(CoordinateReferenceSystem crs,
+                List<BursaWolfParameters> parameters) {
+            if (crs instanceof CompoundCRS) {
+                for (CoordinateReferenceSystem component : ((CompoundCRS) crs)
+                        .getCoordinateReferenceSystems()) {
+                    bursaWolf(component, parameters);
+                }
+            } else if (crs instanceof SingleCRS) {
+                // the derived CRS return the datum of their base CRS
+                final Object datum = ((SingleCRS) crs).getDatum();
+                if (datum instanceof DefaultGeodeticDatum) {
+                    parameters.addAll(Arrays.asList(((DefaultGeodeticDatum) datum)
+                            .getBursaWolfParameters()));
+                }
+            }
+            return parameters;
+        }
+
+        /**
+         * Returns a hash code consistent with the comparison ignoring metadata. The CRS hash codes
+         * do not include the metadata, with the exception of the derived CRS, which use the name
+         * of the conversion from the base CRS: use the conversion math transform instead.
+         */
+        static int hash(CoordinateReferenceSystem crs) {
+            if (crs instanceof GeneralDerivedCRS) {
+                final GeneralDerivedCRS derived = (GeneralDerivedCRS) crs;
+                return 31 * hash(derived.getBaseCRS())
+                        + derived.getConversionFromBase().getMathTransform().hashCode();
+            }
+            return crs.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash == other.hash && lenient == other.lenient
+                    && sameCRS(sourceCRS, other.sourceCRS) && sameCRS(targetCRS, other.targetCRS)
+                    && sameShifts(sourceShifts, other.sourceShifts)
+                    && sameShifts(targetShifts, other.targetShifts);
+        }
+
+        /**
+         * Compares the Bursa-Wolf parameters values, and their target datums ignoring metadata
+         */
+        static boolean sameShifts(List<BursaWolfParameters> shifts1,
+                List<BursaWolfParameters> shifts2) {
+            if (shifts1.size() != shifts2.size()) {
+                return false;
+            }
+            for (int i = 0; i < shifts1.size(); i++) {
+                final BursaWolfParameters p1 = shifts1.get(i);
+                final BursaWolfParameters p2 = shifts2.get(i);
+                if (!CRS.equalsIgnoreMetadata(p1.targetDatum, p2.targetDatum)) {
+                    return false;
+                }
+                if (p1.dx != p2.dx || p1.dy != p2.dy || p1.dz != p2.dz || p1.ex != p2.ex
+                        || p1.ey != p2.ey || p1.ez != p2.ez || p1.ppm != p2.ppm) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        static boolean sameCRS(CoordinateReferenceSystem crs1, CoordinateReferenceSystem crs2) {
+            return crs1 == crs2 || CRS.equalsIgnoreMetadata(crs1, crs2);
+        }
+    }
+
+    static final class Entry {
+        final MathTransform transform;
+
+        volatile long lastAccess;
+
+        Entry(MathTransform transform) {
+            this.transform = transform;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile int maxSize;
+
+    /**
+     * Builds a new cache
+     * 
+     * @param maxSize the max number of transforms kept in the cache, zero disables caching
+     */
+    public MathTransformCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached transform, or null if not found
+     */
+    public MathTransform get(CoordinateReferenceSystem sourceCRS,
+            CoordinateReferenceSystem targetCRS, boolean lenient) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        final Entry entry = entries.get(new Key(sourceCRS, targetCRS, lenient));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entry.lastAccess = System.nanoTime();
+        return entry.transform;
+    }
+
+    /**
+     * Adds a transform to the cache, evicting the least recently used ones if the cache is full
+     */
+    public void put(CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem targetCRS,
+            boolean lenient, MathTransform transform) {
+        if (maxSize <= 0) {
+            return;
+        }
+        entries.put(new Key(sourceCRS, targetCRS, lenient), new Entry(transform));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used entries, making some room so that the eviction does not
+     * happen again at the next addition
+     */
+    private synchronized void evict() {
+        final int target = maxSize - maxSize / 8;
+        if (entries.size() <= target) {
+            return;
+        }
+        final List<Map.Entry<Key, Entry>> sorted = new ArrayList<Map.Entry<Key, Entry>>(entries
+                .entrySet());
+        Collections.sort(sorted, new Comparator<Map.Entry<Key, Entry>>() {
+            public int compare(Map.Entry<Key, Entry> e1, Map.Entry<Key, Entry> e2) {
+                final long a1 = e1.getValue().lastAccess;
+                final long a2 = e2.getValue().lastAccess;
+                return a1 < a2 ? -1 : (a1 == a2 ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < sorted.size() && entries.size() > target; i++) {
+            if (entries.remove(sorted.get(i).getKey()) != null) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Resolves and caches the transforms between the CRS pairs listed in the {@link #WARMUP_KEY}
+     * system property
+     * 
+     * @return the number of pairs for which a transform was found
+     */
+    public int warmUp() {
+        final String pairs = System.getProperty(WARMUP_KEY);
+        return pairs != null ? warmUp(pairs) : 0;
+    }
+
+    /**
+     * Resolves and caches the transforms between the specified CRS pairs, both strict and
+     * lenient. Pairs that cannot be resolved are logged and skipped.
+     * 
+     * @param pairs a comma separated list of <code>source->target</code> codes
+     * @return the number of pairs for which a transform was found
+     */
+    public int warmUp(String pairs) {
+        int resolved = 0;
+        final StringTokenizer tokens = new StringTokenizer(pairs, ",");
+        while (tokens.hasMoreTokens()) {
+            final String pair = tokens.nextToken().trim();
+            final int separator = pair.indexOf("->");
+            if (separator < 0) {
+                LOGGER.warning("Invalid CRS pair '" + pair + "', should be source->target");
+                continue;
+            }
+            try {
+                final CoordinateReferenceSystem sourceCRS = CRS.decode(pair.substring(0,
+                        separator).trim());
+                final CoordinateReferenceSystem targetCRS = CRS.decode(pair.substring(
+                        separator + 2).trim());
+                put(sourceCRS, targetCRS, true, createTransform(sourceCRS, targetCRS, true));
+                resolved++;
+                try {
+                    put(sourceCRS, targetCRS, false, createTransform(sourceCRS, targetCRS, false));
+                } catch (FactoryException e) {
+                    // fine, the pair requires a lenient datum shift
+                    LOGGER.log(Level.FINE, "No strict transform for " + pair, e);
+                }
+            } catch (FactoryException e) {
+                LOGGER.log(Level.WARNING, "Could not warm up the transform for " + pair, e);
+            }
+        }
+        return resolved;
+    }
+
+    static MathTransform createTransform(CoordinateReferenceSystem sourceCRS,
+            CoordinateReferenceSystem targetCRS, boolean lenient) throws FactoryException {
+        return CRS.getCoordinateOperationFactory(lenient).createOperation(sourceCRS, targetCRS)
+                .getMathTransform();
+    }
+
+    /**
+     * Removes all the cached transforms
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * The number of transforms currently cached
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * The max number of transforms kept in the cache
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the max number of transforms kept in the cache, zero disables caching
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        if (maxSize <= 0) {
+            clear();
+        } else if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * The number of lookups that found a cached transform
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of lookups that did not find a cached transform
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The number of transforms removed to keep the cache within its max size
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Resets the hits, misses and evictions counters
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+}
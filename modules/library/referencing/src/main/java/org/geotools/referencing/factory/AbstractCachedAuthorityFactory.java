@@ -75,8 +75,8 @@ import org.opengis.util.InternationalString;
  * </p>
  * The behavior of the {@code createFoo(String)} methods first looks if a
  * previously created object exists for the given code. If such an object
- * exists, it is returned directly. The testing of the cache is synchronized and
- * may block if the referencing object is under construction.
+ * exists, it is returned directly. The testing of the cache does not lock with
+ * the default caches, it only blocks if the referencing object is under construction.
  * <p>
  * If the object is not yet created, the definition is delegated to the
  * appropriate the {@code generateFoo} method and the result is cached for
@@ -19,15 +19,12 @@
  */
 package org.geotools.referencing.factory;
 
-import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.Set;
-import java.util.Iterator;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.WeakHashMap;
-import java.util.LinkedHashMap;
 import java.util.logging.LogRecord;
 import java.util.logging.Level;
 import javax.measure.unit.Unit;
@@ -47,6 +44,7 @@ import org.opengis.util.InternationalString;
 
 import org.geotools.factory.Hints;
 import org.geotools.factory.BufferedFactory;
+import org.geotools.util.ConcurrentObjectCache;
 import org.geotools.util.Utilities;
 import org.geotools.resources.i18n.Errors;
 import org.geotools.resources.i18n.ErrorKeys;
@@ -67,6 +65,9 @@ import org.geotools.resources.i18n.LoggingKeys;
  * one. This means that this buffered factory will continue to returns them as long as
  * they are in use somewhere else in the Java virtual machine, but will be discarted
  * (and recreated on the fly if needed) otherwise.
+ * <p>
+ * The cached objects are returned without locking, so that many threads can ask for the
+ * same objects at the same time. Only the creation of the missing objects is synchronized.
  *
  * @since 2.1
  *
@@ -76,7 +77,7 @@ import org.geotools.resources.i18n.LoggingKeys;
  */
 public class BufferedAuthorityFactory extends AbstractAuthorityFactory implements BufferedFactory {
     /**
-     * The default value for {@link #maxStrongReferences}.
+     * The default maximum number of objects to keep by strong reference.
      */
     static final int DEFAULT_MAX = 20;
 
@@ -92,17 +93,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
     volatile AbstractAuthorityFactory backingStore;
 
     /**
-     * The pool of cached objects.
-     */
-    private final LinkedHashMap<Object,Object> pool =
-            new LinkedHashMap<Object,Object>(32, 0.75f, true);
-
-    /**
-     * The maximum number of objects to keep by strong reference. If a greater amount of
-     * objects are created, then the strong references for the oldest ones are replaced by
-     * weak references.
+     * The pool of cached objects. It keeps the most recently used objects by strong reference,
+     * up to the maximum number given at construction time, and the oldest ones by weak reference.
+     * The pool is read without locking, only the creation of missing objects is synchronized.
      */
-    private final int maxStrongReferences;
+    private final ConcurrentObjectCache pool;
 
     /**
      * The pool of objects identified by {@link #find}.
@@ -144,8 +139,8 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
         while (factory instanceof BufferedAuthorityFactory) {
             factory = ((BufferedAuthorityFactory) factory).backingStore;
         }
-        this.backingStore        = factory;
-        this.maxStrongReferences = maxStrongReferences;
+        this.backingStore = factory;
+        this.pool = new ConcurrentObjectCache(maxStrongReferences);
         completeHints();
     }
 
@@ -163,10 +158,24 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      */
     BufferedAuthorityFactory(final int priority, final int maxStrongReferences) {
         super(priority);
-        this.maxStrongReferences = maxStrongReferences;
+        this.pool = new ConcurrentObjectCache(maxStrongReferences);
         // completeHints() will be invoked by DeferredAuthorityFactory.getBackingStore()
     }
 
+    /**
+     * Returns the maximum number of objects to keep by strong reference specified by the
+     * {@link Hints#CACHE_LIMIT} hint, or {@link #DEFAULT_MAX} if none.
+     */
+    static int getMaxStrongReferences(final Hints hints) {
+        if (hints != null) {
+            final Object value = hints.get(Hints.CACHE_LIMIT);
+            if (value instanceof Integer) {
+                return (Integer) value;
+            }
+        }
+        return DEFAULT_MAX;
+    }
+
     /**
      * Completes the set of hints according the value currently set in this object. This method
      * is invoked by {@code BufferedAuthorityFactory} or by {@code DeferredAuthorityFactory} at
@@ -350,19 +359,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized IdentifiedObject createObject(final String code)
+    public IdentifiedObject createObject(final String code)
             throws FactoryException
     {
-        final IdentifiedObject object;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof IdentifiedObject) {
-            object = (IdentifiedObject) cached;
-        } else {
-            object = getBackingStore().createObject(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof IdentifiedObject)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof IdentifiedObject)) {
+                    cached = getBackingStore().createObject(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, object);
-        return object;
+        return (IdentifiedObject) cached;
     }
 
     /**
@@ -371,19 +382,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Datum createDatum(final String code)
+    public Datum createDatum(final String code)
             throws FactoryException
     {
-        final Datum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof Datum) {
-            datum = (Datum) cached;
-        } else {
-            datum = getBackingStore().createDatum(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof Datum)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof Datum)) {
+                    cached = getBackingStore().createDatum(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, datum);
-        return datum;
+        return (Datum) cached;
     }
 
     /**
@@ -392,19 +405,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EngineeringDatum createEngineeringDatum(final String code)
+    public EngineeringDatum createEngineeringDatum(final String code)
             throws FactoryException
     {
-        final EngineeringDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof EngineeringDatum) {
-            datum = (EngineeringDatum) cached;
-        } else {
-            datum = getBackingStore().createEngineeringDatum(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof EngineeringDatum)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof EngineeringDatum)) {
+                    cached = getBackingStore().createEngineeringDatum(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, datum);
-        return datum;
+        return (EngineeringDatum) cached;
     }
 
     /**
@@ -413,19 +428,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ImageDatum createImageDatum(final String code)
+    public ImageDatum createImageDatum(final String code)
             throws FactoryException
     {
-        final ImageDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof ImageDatum) {
-            datum = (ImageDatum) cached;
-        } else {
-            datum = getBackingStore().createImageDatum(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof ImageDatum)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof ImageDatum)) {
+                    cached = getBackingStore().createImageDatum(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, datum);
-        return datum;
+        return (ImageDatum) cached;
     }
 
     /**
@@ -434,19 +451,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalDatum createVerticalDatum(final String code)
+    public VerticalDatum createVerticalDatum(final String code)
             throws FactoryException
     {
-        final VerticalDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof VerticalDatum) {
-            datum = (VerticalDatum) cached;
-        } else {
-            datum = getBackingStore().createVerticalDatum(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof VerticalDatum)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof VerticalDatum)) {
+                    cached = getBackingStore().createVerticalDatum(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, datum);
-        return datum;
+        return (VerticalDatum) cached;
     }
 
     /**
@@ -455,19 +474,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TemporalDatum createTemporalDatum(final String code)
+    public TemporalDatum createTemporalDatum(final String code)
             throws FactoryException
     {
-        final TemporalDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof TemporalDatum) {
-            datum = (TemporalDatum) cached;
-        } else {
-            datum = getBackingStore().createTemporalDatum(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof TemporalDatum)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof TemporalDatum)) {
+                    cached = getBackingStore().createTemporalDatum(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, datum);
-        return datum;
+        return (TemporalDatum) cached;
     }
 
     /**
@@ -476,19 +497,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeodeticDatum createGeodeticDatum(final String code)
+    public GeodeticDatum createGeodeticDatum(final String code)
             throws FactoryException
     {
-        final GeodeticDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof GeodeticDatum) {
-            datum = (GeodeticDatum) cached;
-        } else {
-            datum = getBackingStore().createGeodeticDatum(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof GeodeticDatum)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof GeodeticDatum)) {
+                    cached = getBackingStore().createGeodeticDatum(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, datum);
-        return datum;
+        return (GeodeticDatum) cached;
     }
 
     /**
@@ -497,19 +520,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Ellipsoid createEllipsoid(final String code)
+    public Ellipsoid createEllipsoid(final String code)
             throws FactoryException
     {
-        final Ellipsoid ellipsoid;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof Ellipsoid) {
-            ellipsoid = (Ellipsoid) cached;
-        } else {
-            ellipsoid = getBackingStore().createEllipsoid(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof Ellipsoid)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof Ellipsoid)) {
+                    cached = getBackingStore().createEllipsoid(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, ellipsoid);
-        return ellipsoid;
+        return (Ellipsoid) cached;
     }
 
     /**
@@ -518,19 +543,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized PrimeMeridian createPrimeMeridian(final String code)
+    public PrimeMeridian createPrimeMeridian(final String code)
             throws FactoryException
     {
-        final PrimeMeridian meridian;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof PrimeMeridian) {
-            meridian = (PrimeMeridian) cached;
-        } else {
-            meridian = getBackingStore().createPrimeMeridian(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof PrimeMeridian)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof PrimeMeridian)) {
+                    cached = getBackingStore().createPrimeMeridian(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, meridian);
-        return meridian;
+        return (PrimeMeridian) cached;
     }
 
     /**
@@ -539,19 +566,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Extent createExtent(final String code)
+    public Extent createExtent(final String code)
             throws FactoryException
     {
-        final Extent extent;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof Extent) {
-            extent = (Extent) cached;
-        } else {
-            extent = getBackingStore().createExtent(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof Extent)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof Extent)) {
+                    cached = getBackingStore().createExtent(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, extent);
-        return extent;
+        return (Extent) cached;
     }
 
     /**
@@ -560,19 +589,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateSystem createCoordinateSystem(final String code)
+    public CoordinateSystem createCoordinateSystem(final String code)
             throws FactoryException
     {
-        final CoordinateSystem cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CoordinateSystem) {
-            cs = (CoordinateSystem) cached;
-        } else {
-            cs = getBackingStore().createCoordinateSystem(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof CoordinateSystem)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof CoordinateSystem)) {
+                    cached = getBackingStore().createCoordinateSystem(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, cs);
-        return cs;
+        return (CoordinateSystem) cached;
     }
 
     /**
@@ -581,19 +612,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CartesianCS createCartesianCS(final String code)
+    public CartesianCS createCartesianCS(final String code)
             throws FactoryException
     {
-        final CartesianCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CartesianCS) {
-            cs = (CartesianCS) cached;
-        } else {
-            cs = getBackingStore().createCartesianCS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof CartesianCS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof CartesianCS)) {
+                    cached = getBackingStore().createCartesianCS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, cs);
-        return cs;
+        return (CartesianCS) cached;
     }
 
     /**
@@ -602,19 +635,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized PolarCS createPolarCS(final String code)
+    public PolarCS createPolarCS(final String code)
             throws FactoryException
     {
-        final PolarCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof PolarCS) {
-            cs = (PolarCS) cached;
-        } else {
-            cs = getBackingStore().createPolarCS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof PolarCS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof PolarCS)) {
+                    cached = getBackingStore().createPolarCS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, cs);
-        return cs;
+        return (PolarCS) cached;
     }
 
     /**
@@ -623,19 +658,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CylindricalCS createCylindricalCS(final String code)
+    public CylindricalCS createCylindricalCS(final String code)
             throws FactoryException
     {
-        final CylindricalCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CylindricalCS) {
-            cs = (CylindricalCS) cached;
-        } else {
-            cs = getBackingStore().createCylindricalCS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof CylindricalCS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof CylindricalCS)) {
+                    cached = getBackingStore().createCylindricalCS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, cs);
-        return cs;
+        return (CylindricalCS) cached;
     }
 
     /**
@@ -644,19 +681,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized SphericalCS createSphericalCS(final String code)
+    public SphericalCS createSphericalCS(final String code)
             throws FactoryException
     {
-        final SphericalCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof SphericalCS) {
-            cs = (SphericalCS) cached;
-        } else {
-            cs = getBackingStore().createSphericalCS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof SphericalCS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof SphericalCS)) {
+                    cached = getBackingStore().createSphericalCS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, cs);
-        return cs;
+        return (SphericalCS) cached;
     }
 
     /**
@@ -665,19 +704,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EllipsoidalCS createEllipsoidalCS(final String code)
+    public EllipsoidalCS createEllipsoidalCS(final String code)
             throws FactoryException
     {
-        final EllipsoidalCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof EllipsoidalCS) {
-            cs = (EllipsoidalCS) cached;
-        } else {
-            cs = getBackingStore().createEllipsoidalCS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof EllipsoidalCS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof EllipsoidalCS)) {
+                    cached = getBackingStore().createEllipsoidalCS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, cs);
-        return cs;
+        return (EllipsoidalCS) cached;
     }
 
     /**
@@ -686,19 +727,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalCS createVerticalCS(final String code)
+    public VerticalCS createVerticalCS(final String code)
             throws FactoryException
     {
-        final VerticalCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof VerticalCS) {
-            cs = (VerticalCS) cached;
-        } else {
-            cs = getBackingStore().createVerticalCS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof VerticalCS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof VerticalCS)) {
+                    cached = getBackingStore().createVerticalCS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, cs);
-        return cs;
+        return (VerticalCS) cached;
     }
 
     /**
@@ -707,19 +750,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TimeCS createTimeCS(final String code)
+    public TimeCS createTimeCS(final String code)
             throws FactoryException
     {
-        final TimeCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof TimeCS) {
-            cs = (TimeCS) cached;
-        } else {
-            cs = getBackingStore().createTimeCS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof TimeCS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof TimeCS)) {
+                    cached = getBackingStore().createTimeCS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, cs);
-        return cs;
+        return (TimeCS) cached;
     }
 
     /**
@@ -728,19 +773,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateSystemAxis createCoordinateSystemAxis(final String code)
+    public CoordinateSystemAxis createCoordinateSystemAxis(final String code)
             throws FactoryException
     {
-        final CoordinateSystemAxis axis;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CoordinateSystemAxis) {
-            axis = (CoordinateSystemAxis) cached;
-        } else {
-            axis = getBackingStore().createCoordinateSystemAxis(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof CoordinateSystemAxis)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof CoordinateSystemAxis)) {
+                    cached = getBackingStore().createCoordinateSystemAxis(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, axis);
-        return axis;
+        return (CoordinateSystemAxis) cached;
     }
 
     /**
@@ -749,19 +796,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Unit<?> createUnit(final String code)
+    public Unit<?> createUnit(final String code)
             throws FactoryException
     {
-        final Unit<?> unit;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof Unit) {
-            unit = (Unit) cached;
-        } else {
-            unit = getBackingStore().createUnit(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof Unit)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof Unit)) {
+                    cached = getBackingStore().createUnit(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, unit);
-        return unit;
+        return (Unit<?>) cached;
     }
 
     /**
@@ -770,19 +819,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
             throws FactoryException
     {
-        final CoordinateReferenceSystem crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CoordinateReferenceSystem) {
-            crs = (CoordinateReferenceSystem) cached;
-        } else {
-            crs = getBackingStore().createCoordinateReferenceSystem(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof CoordinateReferenceSystem)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof CoordinateReferenceSystem)) {
+                    cached = getBackingStore().createCoordinateReferenceSystem(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (CoordinateReferenceSystem) cached;
     }
 
     /**
@@ -791,19 +842,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CompoundCRS createCompoundCRS(final String code)
+    public CompoundCRS createCompoundCRS(final String code)
             throws FactoryException
     {
-        final CompoundCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CompoundCRS) {
-            crs = (CompoundCRS) cached;
-        } else {
-            crs = getBackingStore().createCompoundCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof CompoundCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof CompoundCRS)) {
+                    cached = getBackingStore().createCompoundCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (CompoundCRS) cached;
     }
 
     /**
@@ -812,19 +865,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized DerivedCRS createDerivedCRS(final String code)
+    public DerivedCRS createDerivedCRS(final String code)
             throws FactoryException
     {
-        final DerivedCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof DerivedCRS) {
-            crs = (DerivedCRS) cached;
-        } else {
-            crs = getBackingStore().createDerivedCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof DerivedCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof DerivedCRS)) {
+                    cached = getBackingStore().createDerivedCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (DerivedCRS) cached;
     }
 
     /**
@@ -833,19 +888,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EngineeringCRS createEngineeringCRS(final String code)
+    public EngineeringCRS createEngineeringCRS(final String code)
             throws FactoryException
     {
-        final EngineeringCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof EngineeringCRS) {
-            crs = (EngineeringCRS) cached;
-        } else {
-            crs = getBackingStore().createEngineeringCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof EngineeringCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof EngineeringCRS)) {
+                    cached = getBackingStore().createEngineeringCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (EngineeringCRS) cached;
     }
 
     /**
@@ -854,19 +911,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeographicCRS createGeographicCRS(final String code)
+    public GeographicCRS createGeographicCRS(final String code)
             throws FactoryException
     {
-        final GeographicCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof GeographicCRS) {
-            crs = (GeographicCRS) cached;
-        } else {
-            crs = getBackingStore().createGeographicCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof GeographicCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof GeographicCRS)) {
+                    cached = getBackingStore().createGeographicCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (GeographicCRS) cached;
     }
 
     /**
@@ -875,19 +934,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeocentricCRS createGeocentricCRS(final String code)
+    public GeocentricCRS createGeocentricCRS(final String code)
             throws FactoryException
     {
-        final GeocentricCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof GeocentricCRS) {
-            crs = (GeocentricCRS) cached;
-        } else {
-            crs = getBackingStore().createGeocentricCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof GeocentricCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof GeocentricCRS)) {
+                    cached = getBackingStore().createGeocentricCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (GeocentricCRS) cached;
     }
 
     /**
@@ -896,19 +957,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ImageCRS createImageCRS(final String code)
+    public ImageCRS createImageCRS(final String code)
             throws FactoryException
     {
-        final ImageCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof ImageCRS) {
-            crs = (ImageCRS) cached;
-        } else {
-            crs = getBackingStore().createImageCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof ImageCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof ImageCRS)) {
+                    cached = getBackingStore().createImageCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (ImageCRS) cached;
     }
 
     /**
@@ -917,19 +980,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ProjectedCRS createProjectedCRS(final String code)
+    public ProjectedCRS createProjectedCRS(final String code)
             throws FactoryException
     {
-        final ProjectedCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof ProjectedCRS) {
-            crs = (ProjectedCRS) cached;
-        } else {
-            crs = getBackingStore().createProjectedCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof ProjectedCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof ProjectedCRS)) {
+                    cached = getBackingStore().createProjectedCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (ProjectedCRS) cached;
     }
 
     /**
@@ -938,19 +1003,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TemporalCRS createTemporalCRS(final String code)
+    public TemporalCRS createTemporalCRS(final String code)
             throws FactoryException
     {
-        final TemporalCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof TemporalCRS) {
-            crs = (TemporalCRS) cached;
-        } else {
-            crs = getBackingStore().createTemporalCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof TemporalCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof TemporalCRS)) {
+                    cached = getBackingStore().createTemporalCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (TemporalCRS) cached;
     }
 
     /**
@@ -959,19 +1026,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalCRS createVerticalCRS(final String code)
+    public VerticalCRS createVerticalCRS(final String code)
             throws FactoryException
     {
-        final VerticalCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof VerticalCRS) {
-            crs = (VerticalCRS) cached;
-        } else {
-            crs = getBackingStore().createVerticalCRS(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof VerticalCRS)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof VerticalCRS)) {
+                    cached = getBackingStore().createVerticalCRS(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, crs);
-        return crs;
+        return (VerticalCRS) cached;
     }
 
     /**
@@ -982,19 +1051,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized ParameterDescriptor createParameterDescriptor(final String code)
+    public ParameterDescriptor createParameterDescriptor(final String code)
             throws FactoryException
     {
-        final ParameterDescriptor parameter;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof ParameterDescriptor) {
-            parameter = (ParameterDescriptor) cached;
-        } else {
-            parameter = getBackingStore().createParameterDescriptor(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof ParameterDescriptor)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof ParameterDescriptor)) {
+                    cached = getBackingStore().createParameterDescriptor(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, parameter);
-        return parameter;
+        return (ParameterDescriptor) cached;
     }
 
     /**
@@ -1005,19 +1076,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized OperationMethod createOperationMethod(final String code)
+    public OperationMethod createOperationMethod(final String code)
             throws FactoryException
     {
-        final OperationMethod method;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof OperationMethod) {
-            method = (OperationMethod) cached;
-        } else {
-            method = getBackingStore().createOperationMethod(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof OperationMethod)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof OperationMethod)) {
+                    cached = getBackingStore().createOperationMethod(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, method);
-        return method;
+        return (OperationMethod) cached;
     }
 
     /**
@@ -1028,19 +1101,21 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized CoordinateOperation createCoordinateOperation(final String code)
+    public CoordinateOperation createCoordinateOperation(final String code)
             throws FactoryException
     {
-        final CoordinateOperation operation;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CoordinateOperation) {
-            operation = (CoordinateOperation) cached;
-        } else {
-            operation = getBackingStore().createCoordinateOperation(code);
+        Object cached = pool.get(key);
+        if (!(cached instanceof CoordinateOperation)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof CoordinateOperation)) {
+                    cached = getBackingStore().createCoordinateOperation(code);
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, operation);
-        return operation;
+        return (CoordinateOperation) cached;
     }
 
     /**
@@ -1051,21 +1126,23 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
+    public Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
                         final String sourceCRS, final String targetCRS)
             throws FactoryException
     {
-        final Set<CoordinateOperation> operations;
         final CodePair key = new CodePair(trimAuthority(sourceCRS), trimAuthority(targetCRS));
-        final Object cached = get(key);
-        if (cached instanceof Set) {
-            operations = (Set<CoordinateOperation>) cached;
-        } else {
-            operations = Collections.unmodifiableSet(getBackingStore()
-                         .createFromCoordinateReferenceSystemCodes(sourceCRS, targetCRS));
+        Object cached = pool.get(key);
+        if (!(cached instanceof Set)) {
+            synchronized (this) {
+                cached = pool.peek(key);
+                if (!(cached instanceof Set)) {
+                    cached = Collections.unmodifiableSet(getBackingStore()
+                             .createFromCoordinateReferenceSystemCodes(sourceCRS, targetCRS));
+                    pool.put(key, cached);
+                }
+            }
         }
-        put(key, operations);
-        return operations;
+        return (Set<CoordinateOperation>) cached;
     }
 
     /**
@@ -1205,46 +1282,15 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
     }
 
     /**
-     * Returns an object from the pool for the specified code. If the object was retained as a
-     * {@linkplain Reference weak reference}, the {@link Reference#get referent} is returned.
+     * Returns the pool of the objects created by this factory, for monitoring purpose. The pool
+     * gives the number of {@linkplain ConcurrentObjectCache#getHits hits} and
+     * {@linkplain ConcurrentObjectCache#getMisses misses}, and allows to change the
+     * {@linkplain ConcurrentObjectCache#setMaxStrongReferences maximum number of objects}
+     * kept by strong reference.
      *
-     * @todo Consider logging a message here to the finer or finest level.
-     */
-    private Object get(final Object key) {
-        assert Thread.holdsLock(this);
-        Object object = pool.get(key);
-        if (object instanceof Reference) {
-            object = ((Reference<?>) object).get();
-        }
-        return object;
-    }
-
-    /**
-     * Put an element in the pool. This method is invoked everytime a {@code createFoo(...)}
-     * method is invoked, even if an object was already in the pool for the given code, for
-     * the following reasons: 1) Replaces weak reference by strong reference (if applicable)
-     * and 2) Alters the linked hash set order, so that this object is declared as the last
-     * one used.
+     * @since 8.0
      */
-    private void put(final Object key, final Object object) {
-        assert Thread.holdsLock(this);
-        pool.put(key, object);
-        int toReplace = pool.size() - maxStrongReferences;
-        if (toReplace > 0) {
-            for (final Iterator<Map.Entry<Object,Object>> it=pool.entrySet().iterator(); it.hasNext();) {
-                final Map.Entry<Object,Object> entry = it.next();
-                final Object value = entry.getValue();
-                if (value instanceof Reference) {
-                    if (((Reference) value).get() == null) {
-                        it.remove();
-                    }
-                    continue;
-                }
-                entry.setValue(new WeakReference<Object>(value));
-                if (--toReplace == 0) {
-                    break;
-                }
-            }
-        }
+    public ConcurrentObjectCache getObjectCache() {
+        return pool;
     }
 }
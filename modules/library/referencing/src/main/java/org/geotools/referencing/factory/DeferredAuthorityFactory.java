@@ -72,7 +72,8 @@ public abstract class DeferredAuthorityFactory extends BufferedAuthorityFactory
     /**
      * Constructs an instance without initial backing store. Subclasses are responsible for
      * creating an appropriate backing store when the {@link #createBackingStore} method is
-     * invoked.
+     * invoked. The maximum number of objects to keep by strong reference is given by the
+     * {@link Hints#CACHE_LIMIT CACHE_LIMIT} hint, if any.
      *
      * @param userHints An optional set of hints, or {@code null} if none.
      * @param priority The priority for this factory, as a number between
@@ -84,7 +85,7 @@ public abstract class DeferredAuthorityFactory extends BufferedAuthorityFactory
      * @since 2.2
      */
     protected DeferredAuthorityFactory(final Hints userHints, final int priority) {
-        super(priority, DEFAULT_MAX);
+        super(priority, getMaxStrongReferences(userHints));
     }
 
     /**
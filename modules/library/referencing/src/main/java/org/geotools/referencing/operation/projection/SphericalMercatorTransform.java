@@ -0,0 +1,329 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.projection;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+import org.opengis.referencing.operation.TransformException;
+
+import org.geotools.referencing.operation.LinearTransform;
+import org.geotools.referencing.operation.transform.AbstractMathTransform;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+
+import static java.lang.Math.*;
+
+
+/**
+ * A concatenation of affine transforms and of a spherical {@link Mercator} projection (or of its
+ * inverse) evaluated in a single pass. This is the shape of the transforms between a geographic
+ * CRS and the "Web Mercator" (EPSG:3857) or any other spherical Mercator CRS, including the
+ * axis swap required by the EPSG latitude first axis order, and possibly the world to screen
+ * transform appended by the renderers.
+ * <p>
+ * The steps are kept as they are in the {@link #transform1} and {@link #transform2} fields, so
+ * this transform is formatted, compared and analyzed like any other concatenated transform.
+ * Only the {@code transform} methods differ: the affine steps, the degrees to radians conversion,
+ * the projection scale and the false easting/northing are folded into two sets of affine
+ * coefficients, applied around the Mercator formula in a tight loop over the coordinates,
+ * without intermediate buffers nor virtual calls.
+ * <p>
+ * Instances are created by {@link ConcatenatedTransform} when it detects such a chain.
+ * Projections with a central meridian other than Greenwich are not handled, since their
+ * longitudes need to be rolled between the affine steps.
+ *
+ * @since 8.0
+ */
+public final class SphericalMercatorTransform extends ConcatenatedTransform
+        implements MathTransform2D
+{
+    /**
+     * For cross-version compatibility.
+     */
+    private static final long serialVersionUID = -2452962316227728216L;
+
+    /**
+     * Maximum latitude allowed, in radians. Same limit than the {@link Mercator} projection.
+     */
+    private static final double MAX_LATITUDE = PI/2 - 1E-6;
+
+    /**
+     * {@code true} if this is the inverse projection.
+     */
+    private final boolean inverse;
+
+    /**
+     * The affine coefficients applied before the Mercator formula, in the
+     * {@link AffineTransform#getMatrix} order.
+     */
+    private final double a00, a10, a01, a11, a02, a12;
+
+    /**
+     * The affine coefficients applied after the Mercator formula, in the
+     * {@link AffineTransform#getMatrix} order.
+     */
+    private final double b00, b10, b01, b11, b02, b12;
+
+    /**
+     * Creates the fused transform.
+     *
+     * @param transform1 The first step of the equivalent concatenated transform.
+     * @param transform2 The second step of the equivalent concatenated transform.
+     * @param before     The normalized transform to apply before the Mercator formula.
+     * @param after      The normalized transform to apply after the Mercator formula.
+     * @param inverse    {@code true} if the Mercator formula is the inverse one.
+     */
+    private SphericalMercatorTransform(final MathTransform transform1,
+                                       final MathTransform transform2,
+                                       final AffineTransform before,
+                                       final AffineTransform after,
+                                       final boolean inverse)
+    {
+        super(transform1, transform2);
+        this.inverse = inverse;
+        a00 = before.getScaleX();     b00 = after.getScaleX();
+        a10 = before.getShearY();     b10 = after.getShearY();
+        a01 = before.getShearX();     b01 = after.getShearX();
+        a11 = before.getScaleY();     b11 = after.getScaleY();
+        a02 = before.getTranslateX(); b02 = after.getTranslateX();
+        a12 = before.getTranslateY(); b12 = after.getTranslateY();
+    }
+
+    /**
+     * Returns a fused transform equivalent to the concatenation of the given transforms, or
+     * {@code null} if the concatenation is not made of affine transforms around a single
+     * spherical Mercator projection or inverse projection.
+     *
+     * @param tr1 The first math transform.
+     * @param tr2 The second math transform.
+     * @return The fused transform, or {@code null} if the chain can not be fused.
+     */
+    public static ConcatenatedTransform create(final MathTransform tr1, final MathTransform tr2) {
+        final List<MathTransform> steps = new ArrayList<MathTransform>();
+        if (!addSteps(tr1, steps) || !addSteps(tr2, steps)) {
+            return null;
+        }
+        final AffineTransform before = new AffineTransform();
+        final AffineTransform after  = new AffineTransform();
+        Mercator projection = null;
+        boolean inverse = false;
+        for (final MathTransform step : steps) {
+            final AffineTransform affine = toAffine(step);
+            if (affine != null) {
+                (projection == null ? before : after).preConcatenate(affine);
+                continue;
+            }
+            if (projection != null) {
+                return null;
+            }
+            MathTransform candidate = step;
+            if (step instanceof AbstractMathTransform.Inverse) {
+                candidate = ((AbstractMathTransform.Inverse) step).inverse();
+                inverse = true;
+            }
+            if (!(candidate instanceof Mercator.Spherical)) {
+                return null;
+            }
+            projection = (Mercator) candidate;
+            if (projection.centralMeridian != 0) {
+                return null;
+            }
+        }
+        if (projection == null) {
+            return null;
+        }
+        /*
+         * Folds the units conversions, the projection scale and the false easting/northing
+         * into the affine transforms, so only the Mercator formula on the sphere is left.
+         */
+        final double scale = projection.globalScale;
+        final AffineTransform projected = new AffineTransform(scale, 0, 0, scale,
+                projection.falseEasting, projection.falseNorthing);
+        final AffineTransform radians = AffineTransform.getScaleInstance(PI/180, PI/180);
+        if (inverse) {
+            try {
+                before.preConcatenate(projected.createInverse());
+            } catch (java.awt.geom.NoninvertibleTransformException e) {
+                return null;
+            }
+            after.concatenate(AffineTransform.getScaleInstance(180/PI, 180/PI));
+        } else {
+            before.preConcatenate(radians);
+            after.concatenate(projected);
+        }
+        return new SphericalMercatorTransform(tr1, tr2, before, after, inverse);
+    }
+
+    /**
+     * Adds the steps of the given transform to the given list. Returns {@code false} if the
+     * transform is not two-dimensional, in which case it can not be fused.
+     */
+    private static boolean addSteps(final MathTransform transform, final List<MathTransform> steps) {
+        if (transform instanceof ConcatenatedTransform) {
+            final ConcatenatedTransform ct = (ConcatenatedTransform) transform;
+            return addSteps(ct.transform1, steps) && addSteps(ct.transform2, steps);
+        }
+        if (transform.getSourceDimensions() != 2 || transform.getTargetDimensions() != 2) {
+            return false;
+        }
+        steps.add(transform);
+        return true;
+    }
+
+    /**
+     * Returns the given step as an affine transform, or {@code null} if it is not affine.
+     */
+    private static AffineTransform toAffine(final MathTransform step) {
+        if (step instanceof AffineTransform) {
+            return (AffineTransform) step;
+        }
+        if (step instanceof LinearTransform) {
+            final Matrix m = ((LinearTransform) step).getMatrix();
+            if (m.getNumRow() == 3 && m.getNumCol() == 3 &&
+                m.getElement(2,0) == 0 && m.getElement(2,1) == 0 && m.getElement(2,2) == 1)
+            {
+                return new AffineTransform(m.getElement(0,0), m.getElement(1,0),
+                                           m.getElement(0,1), m.getElement(1,1),
+                                           m.getElement(0,2), m.getElement(1,2));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Transforms the specified {@code ptSrc} and stores the result in {@code ptDst}.
+     */
+    @Override
+    public Point2D transform(final Point2D ptSrc, Point2D ptDst) throws TransformException {
+        final double x = ptSrc.getX();
+        final double y = ptSrc.getY();
+        final double u = a00*x + a01*y + a02;
+        double v = a10*x + a11*y + a12;
+        if (inverse) {
+            v = PI/2 - 2*atan(exp(-v));
+        } else {
+            if (abs(v) > MAX_LATITUDE) {
+                throw new ProjectionException(v);
+            }
+            v = log(tan(PI/4 + 0.5*v));
+        }
+        if (ptDst == null) {
+            ptDst = new Point2D.Double();
+        }
+        ptDst.setLocation(b00*u + b01*v + b02, b10*u + b11*v + b12);
+        return ptDst;
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. Points that can't be transformed
+     * are set to {@link Double#NaN} and the exception about the first one is thrown after all
+     * the other points have been transformed.
+     */
+    @Override
+    public void transform(final double[] srcPts, int srcOff,
+                          final double[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        int step = 2;
+        if (srcPts == dstPts && srcOff < dstOff && srcOff + 2*numPts > dstOff) {
+            // Overlapping arrays with the destination after the source: iterate backward.
+            srcOff += 2*(numPts - 1);
+            dstOff += 2*(numPts - 1);
+            step = -2;
+        }
+        double failed = Double.NaN;
+        while (--numPts >= 0) {
+            final double x = srcPts[srcOff  ];
+            final double y = srcPts[srcOff+1];
+            final double u = a00*x + a01*y + a02;
+            double v = a10*x + a11*y + a12;
+            if (inverse) {
+                v = PI/2 - 2*atan(exp(-v));
+            } else if (abs(v) <= MAX_LATITUDE) {
+                v = log(tan(PI/4 + 0.5*v));
+            } else {
+                if (failed != failed) {
+                    failed = v;
+                }
+                v = Double.NaN;
+            }
+            dstPts[dstOff  ] = b00*u + b01*v + b02;
+            dstPts[dstOff+1] = b10*u + b11*v + b12;
+            srcOff += step;
+            dstOff += step;
+        }
+        if (failed == failed) {
+            throw new ProjectionException(failed);
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. Points that can't be transformed
+     * are set to {@link Float#NaN} and the exception about the first one is thrown after all
+     * the other points have been transformed.
+     */
+    @Override
+    public void transform(final float[] srcPts, int srcOff,
+                          final float[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        int step = 2;
+        if (srcPts == dstPts && srcOff < dstOff && srcOff + 2*numPts > dstOff) {
+            srcOff += 2*(numPts - 1);
+            dstOff += 2*(numPts - 1);
+            step = -2;
+        }
+        double failed = Double.NaN;
+        while (--numPts >= 0) {
+            final double x = srcPts[srcOff  ];
+            final double y = srcPts[srcOff+1];
+            final double u = a00*x + a01*y + a02;
+            double v = a10*x + a11*y + a12;
+            if (inverse) {
+                v = PI/2 - 2*atan(exp(-v));
+            } else if (abs(v) <= MAX_LATITUDE) {
+                v = log(tan(PI/4 + 0.5*v));
+            } else {
+                if (failed != failed) {
+                    failed = v;
+                }
+                v = Double.NaN;
+            }
+            dstPts[dstOff  ] = (float) (b00*u + b01*v + b02);
+            dstPts[dstOff+1] = (float) (b10*u + b11*v + b12);
+            srcOff += step;
+            dstOff += step;
+        }
+        if (failed == failed) {
+            throw new ProjectionException(failed);
+        }
+    }
+
+    /**
+     * Creates the inverse transform of this object.
+     */
+    @Override
+    public MathTransform2D inverse() throws NoninvertibleTransformException {
+        return (MathTransform2D) super.inverse();
+    }
+}
@@ -34,6 +34,7 @@ import org.geotools.referencing.operation.matrix.XMatrix;
 import org.geotools.referencing.operation.matrix.Matrix3;
 import org.geotools.referencing.operation.matrix.GeneralMatrix;
 import org.geotools.referencing.operation.LinearTransform;
+import org.geotools.referencing.operation.projection.SphericalMercatorTransform;
 import org.geotools.referencing.wkt.Formatter;
 import org.geotools.resources.Classes;
 import org.geotools.resources.i18n.Errors;
@@ -321,6 +322,14 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
          * Checks if the result need to be a MathTransform2D.
          */
         if (dimSource == 2 && dimTarget == 2) {
+            /*
+             * Affine transforms around a spherical Mercator projection (typically the
+             * geographic to "Web Mercator" case) get evaluated by a single fused loop.
+             */
+            final ConcatenatedTransform fused = SphericalMercatorTransform.create(tr1, tr2);
+            if (fused != null) {
+                return fused;
+            }
             if (tr1 instanceof MathTransform2D && tr2 instanceof MathTransform2D) {
                 return new ConcatenatedTransformDirect2D((MathTransform2D) tr1,
                                                          (MathTransform2D) tr2);
@@ -0,0 +1,130 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing;
+
+import static org.junit.Assert.*;
+
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Tests the {@link MathTransformCache} and its use in {@link CRS#findMathTransform}.
+ */
+public final class MathTransformCacheTest {
+
+    static final String UTM_WKT = "PROJCS[\"WGS 84 / UTM zone 32N\","
+            + "GEOGCS[\"WGS 84\",DATUM[\"WGS_1984\",SPHEROID[\"WGS 84\",6378137,298.257223563]],"
+            + "PRIMEM[\"Greenwich\",0],UNIT[\"degree\",0.0174532925199433]],"
+            + "PROJECTION[\"Transverse_Mercator\"],PARAMETER[\"latitude_of_origin\",0],"
+            + "PARAMETER[\"central_meridian\",9],PARAMETER[\"scale_factor\",0.9996],"
+            + "PARAMETER[\"false_easting\",500000],PARAMETER[\"false_northing\",0],"
+            + "UNIT[\"metre\",1]]";
+
+    @Test
+    public void testFindMathTransformHits() throws Exception {
+        final MathTransformCache cache = CRS.getMathTransformCache();
+        final CoordinateReferenceSystem utm = CRS.parseWKT(UTM_WKT);
+        final MathTransform transform = CRS.findMathTransform(DefaultGeographicCRS.WGS84, utm,
+                true);
+        cache.resetStatistics();
+
+        // same pair, lenient and strict are cached separately
+        assertSame(transform, CRS.findMathTransform(DefaultGeographicCRS.WGS84, utm, true));
+        assertEquals(1, cache.getHits());
+        CRS.findMathTransform(DefaultGeographicCRS.WGS84, utm, false);
+        assertEquals(1, cache.getMisses());
+
+        // the same definition parsed again, with different names, still hits the cache
+        final CoordinateReferenceSystem renamed = CRS.parseWKT(UTM_WKT.replace(
+                "WGS 84 / UTM zone 32N", "Another name").replace("GEOGCS[\"WGS 84\"",
+                "GEOGCS[\"Another base\""));
+        assertNotSame(utm, renamed);
+        assertSame(transform, CRS.findMathTransform(DefaultGeographicCRS.WGS84, renamed, true));
+        assertEquals(2, cache.getHits());
+
+        // a different projection does not
+        final CoordinateReferenceSystem other = CRS.parseWKT(UTM_WKT.replace(
+                "\"central_meridian\",9", "\"central_meridian\",11"));
+        assertNotSame(transform, CRS.findMathTransform(DefaultGeographicCRS.WGS84, other, true));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testBursaWolfParameters() throws Exception {
+        final String wkt = "GEOGCS[\"Custom\",DATUM[\"Custom_datum\","
+                + "SPHEROID[\"WGS 84\",6378137,298.257223563],TOWGS84[0,0,0,0,0,0,0]],"
+                + "PRIMEM[\"Greenwich\",0],UNIT[\"degree\",0.0174532925199433]]";
+        final CoordinateReferenceSystem noShift = CRS.parseWKT(wkt);
+        final CoordinateReferenceSystem shifted = CRS.parseWKT(wkt.replace(
+                "TOWGS84[0,0,0,0,0,0,0]", "TOWGS84[100,200,300,0,0,0,0]"));
+        // the two CRS only differ in their TOWGS84 parameters, not seen ignoring metadata
+        assertTrue(CRS.equalsIgnoreMetadata(noShift, shifted));
+
+        final CoordinateReferenceSystem target = DefaultGeographicCRS.WGS84;
+        assertFalse(new MathTransformCache.Key(noShift, target, true)
+                .equals(new MathTransformCache.Key(shifted, target, true)));
+        assertEquals(new MathTransformCache.Key(shifted, target, true),
+                new MathTransformCache.Key(CRS.parseWKT(wkt.replace("TOWGS84[0,0,0,0,0,0,0]",
+                        "TOWGS84[100,200,300,0,0,0,0]")), target, true));
+
+        final MathTransformCache cache = new MathTransformCache(8);
+        final MathTransform identity = CRS.findMathTransform(noShift, target, true);
+        cache.put(noShift, target, true, identity);
+        assertNull(cache.get(shifted, target, true));
+
+        // the global cache does not hand out the transform of the other CRS either
+        final MathTransform datumShift = CRS.findMathTransform(shifted, target, true);
+        assertTrue(identity.isIdentity());
+        assertFalse(datumShift.isIdentity());
+        assertSame(identity, CRS.findMathTransform(noShift, target, true));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        final MathTransformCache cache = new MathTransformCache(8);
+        final CoordinateReferenceSystem source = DefaultGeographicCRS.WGS84;
+        final CoordinateReferenceSystem[] targets = new CoordinateReferenceSystem[9];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = CRS.parseWKT(UTM_WKT.replace("\"central_meridian\",9",
+                    "\"central_meridian\"," + (i * 6 + 3)));
+            cache.put(source, targets[i], true, CRS.findMathTransform(source, targets[i], true));
+            Thread.sleep(1);
+            // keep the first one in use
+            assertNotNull(cache.get(source, targets[0], true));
+        }
+        assertEquals(7, cache.getSize());
+        assertEquals(2, cache.getEvictions());
+        assertNotNull(cache.get(source, targets[0], true));
+        assertNull(cache.get(source, targets[1], true));
+        assertNull(cache.get(source, targets[2], true));
+        assertNotNull(cache.get(source, targets[8], true));
+
+        cache.setMaxSize(0);
+        assertEquals(0, cache.getSize());
+        cache.put(source, targets[0], true, CRS.findMathTransform(source, targets[0], true));
+        assertNull(cache.get(source, targets[0], true));
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        final MathTransformCache cache = new MathTransformCache(16);
+        assertEquals(1, cache.warmUp("CRS:84->CRS:27, invalid, CRS:84->NOT:A_CODE"));
+        assertNotNull(cache.get(CRS.decode("CRS:84"), CRS.decode("CRS:27"), true));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.projection;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.operation.MathTransform;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.WKT;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+import org.geotools.referencing.operation.transform.ProjectiveTransform;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link SphericalMercatorTransform} fast path against the generic chain of transforms.
+ */
+public final class SphericalMercatorTransformTest {
+    /**
+     * Web Mercator with its latitude first base CRS, as defined in the EPSG database.
+     */
+    private static final String PSEUDO_MERCATOR =
+            "PROJCS[\"WGS 84 / Pseudo-Mercator\", " +
+              "GEOGCS[\"WGS 84\", " +
+                "DATUM[\"World Geodetic System 1984\", " +
+                  "SPHEROID[\"WGS 84\", 6378137.0, 298.257223563]], " +
+                "PRIMEM[\"Greenwich\", 0.0], " +
+                "UNIT[\"degree\", 0.017453292519943295], " +
+                "AXIS[\"Geodetic latitude\", NORTH], " +
+                "AXIS[\"Geodetic longitude\", EAST]], " +
+              "PROJECTION[\"Popular Visualisation Pseudo Mercator\"], " +
+              "PARAMETER[\"semi_major\", 6378137.0], " +
+              "PARAMETER[\"semi_minor\", 6378137.0], " +
+              "PARAMETER[\"latitude_of_origin\", 0.0], " +
+              "PARAMETER[\"central_meridian\", 0.0], " +
+              "PARAMETER[\"scale_factor\", 1.0], " +
+              "PARAMETER[\"false_easting\", 0.0], " +
+              "PARAMETER[\"false_northing\", 0.0], " +
+              "UNIT[\"m\", 1.0], " +
+              "AXIS[\"Easting\", EAST], " +
+              "AXIS[\"Northing\", NORTH]]";
+
+    /**
+     * Returns random (latitude, longitude) points.
+     */
+    private static double[] randomPoints(final int count) {
+        final Random random = new Random(7);
+        final double[] points = new double[count * 2];
+        for (int i=0; i<points.length; i+=2) {
+            points[i  ] = (random.nextDouble() - 0.5) * 170;
+            points[i+1] = (random.nextDouble() - 0.5) * 360;
+        }
+        return points;
+    }
+
+    /**
+     * Transforms the points one step after the other, as the generic concatenation does.
+     */
+    private static double[] transformSteps(final ConcatenatedTransform mt, final double[] points)
+            throws Exception
+    {
+        final double[] result = points.clone();
+        final int count = points.length / 2;
+        mt.transform1.transform(result, 0, result, 0, count);
+        mt.transform2.transform(result, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Asserts that the given ordinates are equal within the given tolerance.
+     */
+    private static void assertPointsEqual(final double[] expected, final double[] actual,
+                                          final double tolerance)
+    {
+        assertEquals(expected.length, actual.length);
+        for (int i=0; i<expected.length; i++) {
+            assertEquals(expected[i], actual[i], tolerance);
+        }
+    }
+
+    /**
+     * Asserts that the fused transform gives the same results than the generic chain.
+     */
+    private static void assertSameAsSteps(final MathTransform mt, final double tolerance)
+            throws Exception
+    {
+        assertTrue(mt instanceof SphericalMercatorTransform);
+        final double[] points = randomPoints(1000);
+        final double[] expected = transformSteps((ConcatenatedTransform) mt, points);
+        final double[] actual = new double[points.length];
+        mt.transform(points, 0, actual, 0, points.length / 2);
+        assertPointsEqual(expected, actual, tolerance);
+
+        final Point2D point = ((SphericalMercatorTransform) mt).transform(
+                new Point2D.Double(points[0], points[1]), null);
+        assertEquals(expected[0], point.getX(), tolerance);
+        assertEquals(expected[1], point.getY(), tolerance);
+    }
+
+    /**
+     * Tests the geographic to Web Mercator transform, forward and inverse.
+     */
+    @Test
+    public void testWebMercator() throws Exception {
+        final ProjectedCRS crs = (ProjectedCRS) CRS.parseWKT(PSEUDO_MERCATOR);
+        final MathTransform mt = CRS.findMathTransform(crs.getBaseCRS(), crs);
+        assertSameAsSteps(mt, 1E-6);
+
+        final MathTransform inverse = mt.inverse();
+        assertTrue(inverse instanceof SphericalMercatorTransform);
+        final double[] points = randomPoints(1000);
+        final double[] projected = new double[points.length];
+        mt.transform(points, 0, projected, 0, points.length / 2);
+        final double[] expected = transformSteps((ConcatenatedTransform) inverse, projected);
+        final double[] actual = new double[points.length];
+        inverse.transform(projected, 0, actual, 0, points.length / 2);
+        assertPointsEqual(expected, actual, 1E-10);
+        assertPointsEqual(points, actual, 1E-9);
+
+        // Well known value: the upper right corner of the tile pyramid.
+        final Point2D corner = ((SphericalMercatorTransform) mt).transform(
+                new Point2D.Double(85.0511287798066, 180), null);
+        assertEquals(20037508.34, corner.getX(), 0.01);
+        assertEquals(20037508.34, corner.getY(), 0.01);
+    }
+
+    /**
+     * Tests the "Google Mercator" flavor defined as Mercator_1SP on a sphere,
+     * concatenated with a world to screen transform.
+     */
+    @Test
+    public void testMercatorToScreen() throws Exception {
+        final ProjectedCRS crs = (ProjectedCRS) CRS.parseWKT(WKT.MERCATOR_GOOGLE);
+        final MathTransform mt = CRS.findMathTransform(crs.getBaseCRS(), crs);
+        assertSameAsSteps(mt, 1E-6);
+
+        final AffineTransform worldToScreen = new AffineTransform(256 / 4E7, 0, 0, -256 / 4E7, 128, 128);
+        final MathTransform screen = ConcatenatedTransform.create(mt,
+                ProjectiveTransform.create(worldToScreen));
+        assertSameAsSteps(screen, 1E-9);
+        assertSameAsSteps(screen.inverse(), 1E-9);
+    }
+
+    /**
+     * Tests that ellipsoidal projections and rotated central meridians keep the generic path.
+     */
+    @Test
+    public void testNotFused() throws Exception {
+        final ProjectedCRS ellipsoidal = (ProjectedCRS) CRS.parseWKT(WKT.MERCATOR);
+        assertFalse(CRS.findMathTransform(ellipsoidal.getBaseCRS(), ellipsoidal)
+                instanceof SphericalMercatorTransform);
+
+        final ProjectedCRS rotated = (ProjectedCRS) CRS.parseWKT(PSEUDO_MERCATOR.replace(
+                "\"central_meridian\", 0.0", "\"central_meridian\", 150.0"));
+        assertFalse(CRS.findMathTransform(rotated.getBaseCRS(), rotated)
+                instanceof SphericalMercatorTransform);
+    }
+
+    /**
+     * Tests that points at the poles are set to NaN without stopping the transformation.
+     */
+    @Test
+    public void testPole() throws Exception {
+        final ProjectedCRS crs = (ProjectedCRS) CRS.parseWKT(PSEUDO_MERCATOR);
+        final MathTransform mt = CRS.findMathTransform(crs.getBaseCRS(), crs);
+        final double[] points = new double[] {90, 10, 45, 10};
+        try {
+            mt.transform(points, 0, points, 0, 2);
+            fail("The pole can not be projected");
+        } catch (ProjectionException e) {
+            // Expected.
+        }
+        assertTrue(Double.isNaN(points[0]));
+        assertTrue(Double.isNaN(points[1]));
+        assertEquals(1113194.9, points[2], 0.1);
+        assertEquals(5621521.5, points[3], 0.1);
+    }
+}
@@ -34,6 +34,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -151,6 +154,15 @@ public final class LabelCacheImpl implements LabelCache {
 
     private boolean needsOrdering = false;
 
+    /**
+     * The number of labels placed by a single concurrent placement task
+     */
+    static final int PLACEMENT_CHUNK_SIZE = 16;
+
+    ExecutorService placementExecutor;
+
+    int placementBatchSize = 256;
+
     public void enableLayer(String layerId) {
         needsOrdering = true;
         enabledLayers.add(layerId);
@@ -167,6 +179,44 @@ public final class LabelCacheImpl implements LabelCache {
         this.labelRenderingMode = mode;
     }
 
+    public ExecutorService getPlacementExecutor() {
+        return placementExecutor;
+    }
+
+    /**
+     * Sets the executor used to compute the label placements concurrently.
+     * Labels are still processed in priority order, in batches: the labels of a
+     * batch are placed concurrently against the ones painted by the previous
+     * batches, then each placement is checked, in priority order, against the
+     * ones accepted before it in the same batch, and computed again on the
+     * calling thread if they got in the way. The result is the same as the
+     * serial placement, and the labels are painted on the calling thread.
+     * 
+     * @param executor the executor, or null to place the labels serially (the
+     *        default)
+     */
+    public void setPlacementExecutor(ExecutorService executor) {
+        this.placementExecutor = executor;
+    }
+
+    public int getPlacementBatchSize() {
+        return placementBatchSize;
+    }
+
+    /**
+     * Sets how many labels are placed concurrently before being checked against
+     * each other. Larger batches give more parallelism, but also more labels to
+     * place again when the map is crowded. Defaults to 256
+     * 
+     * @param placementBatchSize
+     */
+    public void setPlacementBatchSize(int placementBatchSize) {
+        if (placementBatchSize < 1) {
+            throw new IllegalArgumentException("The placement batch size must be positive");
+        }
+        this.placementBatchSize = placementBatchSize;
+    }
+
     public void stop() {
         stop = true;
         activeLayers.clear();
@@ -531,7 +581,7 @@ public final class LabelCacheImpl implements LabelCache {
                     + " are layers that started rendering but have not completed,"
                     + " stop() or endLayer() must be called before end() is called");
         }
-        LabelIndex glyphs = new LabelIndex();
+        LabelIndex glyphs = new LabelIndex(displayArea);
         glyphs.reserveArea( reserved );
 
         // Hack: let's reduce the display area width and height by one pixel.
@@ -555,45 +605,210 @@ public final class LabelCacheImpl implements LabelCache {
             items = getActiveLabels();
         }
         LabelPainter painter = new LabelPainter(graphics, labelRenderingMode);
+        if (placementExecutor != null && items.size() > PLACEMENT_CHUNK_SIZE) {
+            paintLabelsConcurrently(graphics, painter, items, displayArea, glyphs);
+            return;
+        }
         for (LabelCacheItem labelItem : items) {
             if (stop)
                 return;
             
             painter.setLabel(labelItem);
-            try {
-                // LabelCacheItem labelItem = (LabelCacheItem)
-                // labelCache.get(labelIter.next());
-
-                // DJB: simplified this. Just send off to the point,line,or
-                // polygon routine
-                // NOTE: labelItem.getGeometry() returns the FIRST geometry, so
-                // we're assuming that lines & points arent mixed
-                // If they are, then the FIRST geometry determines how its
-                // rendered (which is probably bad since it should be in
-                // area,line,point order
-                // TOD: as in NOTE above
-
-                /*
-                 * Just use identity for tempTransform because display area is
-                 * 0,0,width,height and oldTransform may have a different
-                 * origin. OldTransform will be used later for drawing. -rg & je
-                 */
-                AffineTransform tempTransform = new AffineTransform();
-
-                Geometry geom = labelItem.getGeometry();
-                if ((geom instanceof Point) || (geom instanceof MultiPoint))
-                    paintPointLabel(painter, tempTransform, displayArea, glyphs);
-                else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
-                        || (geom instanceof MultiLineString))
-                    paintLineLabels(painter, tempTransform, displayArea, glyphs);
-                else if (geom instanceof Polygon || geom instanceof MultiPolygon
-                        || geom instanceof LinearRing)
-                    paintPolygonLabel(painter, tempTransform, displayArea, glyphs);
-            } catch (Exception e) {
-                System.out.println("Issues painting " + labelItem.getLabel());
-                // the decimation can cause problems - we try to minimize it
-                // do nothing
-                e.printStackTrace();
+            placeLabel(painter, displayArea, glyphs);
+        }
+    }
+
+    /**
+     * Places and paints the painter current label, the painting can be
+     * recorded instead, see {@link LabelPainter#recording}
+     */
+    void placeLabel(LabelPainter painter, Rectangle displayArea, LabelIndex glyphs) {
+        LabelCacheItem labelItem = painter.getLabel();
+        try {
+            // LabelCacheItem labelItem = (LabelCacheItem)
+            // labelCache.get(labelIter.next());
+
+            // DJB: simplified this. Just send off to the point,line,or
+            // polygon routine
+            // NOTE: labelItem.getGeometry() returns the FIRST geometry, so
+            // we're assuming that lines & points arent mixed
+            // If they are, then the FIRST geometry determines how its
+            // rendered (which is probably bad since it should be in
+            // area,line,point order
+            // TOD: as in NOTE above
+
+            /*
+             * Just use identity for tempTransform because display area is
+             * 0,0,width,height and oldTransform may have a different
+             * origin. OldTransform will be used later for drawing. -rg & je
+             */
+            AffineTransform tempTransform = new AffineTransform();
+
+            Geometry geom = labelItem.getGeometry();
+            if ((geom instanceof Point) || (geom instanceof MultiPoint))
+                paintPointLabel(painter, tempTransform, displayArea, glyphs);
+            else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
+                    || (geom instanceof MultiLineString))
+                paintLineLabels(painter, tempTransform, displayArea, glyphs);
+            else if (geom instanceof Polygon || geom instanceof MultiPolygon
+                    || geom instanceof LinearRing)
+                paintPolygonLabel(painter, tempTransform, displayArea, glyphs);
+        } catch (Exception e) {
+            // the decimation can cause problems - we try to minimize it
+            LOGGER.log(Level.WARNING, "Issues painting " + labelItem.getLabel(), e);
+        }
+    }
+
+    /**
+     * Places the labels in batches using the {@link #placementExecutor}, see
+     * {@link #setPlacementExecutor(ExecutorService)}
+     */
+    void paintLabelsConcurrently(Graphics2D graphics, LabelPainter painter,
+            List<LabelCacheItem> items, final Rectangle displayArea, final LabelIndex glyphs) {
+        // used to place again the labels conflicting with others in the same batch
+        LabelPainter recorder = new LabelPainter(graphics, labelRenderingMode);
+        for (int start = 0; start < items.size(); start += placementBatchSize) {
+            final List<LabelCacheItem> batch = items.subList(start, Math.min(items.size(), start
+                    + placementBatchSize));
+            final LabelPlacement[] placements = new LabelPlacement[batch.size()];
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < batch.size(); i += PLACEMENT_CHUNK_SIZE) {
+                final int from = i;
+                final int to = Math.min(batch.size(), i + PLACEMENT_CHUNK_SIZE);
+                // each task lays out the labels on its own copy of the graphics
+                final Graphics2D taskGraphics = (Graphics2D) graphics.create();
+                futures.add(placementExecutor.submit(new Runnable() {
+                    public void run() {
+                        try {
+                            LabelPainter taskPainter = new LabelPainter(taskGraphics,
+                                    labelRenderingMode);
+                            for (int j = from; j < to && !stop; j++) {
+                                placements[j] = placeLabel(taskPainter, batch.get(j), displayArea,
+                                        glyphs);
+                            }
+                        } finally {
+                            taskGraphics.dispose();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stop = true;
+                } catch (ExecutionException e) {
+                    // the missing placements will be computed again below
+                    LOGGER.log(Level.WARNING, "Concurrent label placement failed", e.getCause());
+                }
+            }
+            if (stop)
+                return;
+
+            // check, accept and paint the placements in priority order
+            LabelIndex batchGlyphs = new LabelIndex();
+            for (int j = 0; j < placements.length; j++) {
+                if (stop)
+                    return;
+
+                LabelPlacement placement = placements[j];
+                if (placement == null || placement.conflicts(batchGlyphs)) {
+                    placement = placeLabel(recorder, batch.get(j), displayArea, glyphs);
+                }
+                placement.accept(glyphs, batchGlyphs);
+                painter.setLabel(placement.item);
+                try {
+                    painter.paintRecorded(placement.recorded);
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Issues painting " + placement.item.getLabel(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Places the label against the painted ones without modifying them, and
+     * records the outcome
+     */
+    LabelPlacement placeLabel(LabelPainter painter, LabelCacheItem labelItem,
+            Rectangle displayArea, LabelIndex glyphs) {
+        LabelPlacement placement = new LabelPlacement(labelItem, glyphs);
+        painter.setLabel(labelItem);
+        painter.recording = placement.recorded;
+        try {
+            placeLabel(painter, displayArea, placement);
+        } finally {
+            painter.recording = null;
+        }
+        return placement;
+    }
+
+    /**
+     * The outcome of a label placement done against a read only index of the
+     * painted labels: the label own bounds are collected separately, along
+     * with the recorded paint requests.
+     * <p>
+     * The placement algorithms only turn candidate positions down when they
+     * are close to a painted label, so adding more labels to the painted index
+     * cannot make a rejected candidate acceptable: the placement stays valid as
+     * long as the accepted bounds are not close to any label added in the
+     * meantime.
+     */
+    static class LabelPlacement extends LabelIndex {
+        final LabelCacheItem item;
+
+        final LabelIndex painted;
+
+        final List<Rectangle2D> bounds = new ArrayList<Rectangle2D>();
+
+        final List<Object> recorded = new ArrayList<Object>();
+
+        LabelPlacement(LabelCacheItem item, LabelIndex painted) {
+            this.item = item;
+            this.painted = painted;
+        }
+
+        @Override
+        public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
+            return painted.labelsWithinDistance(bounds, distance)
+                    || super.labelsWithinDistance(bounds, distance);
+        }
+
+        @Override
+        public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
+            super.addLabel(item, bounds);
+            this.bounds.add(bounds);
+        }
+
+        /**
+         * Returns true if the accepted bounds are close to the labels in the
+         * index, using the largest distance the placement algorithms check
+         */
+        boolean conflicts(LabelIndex labels) {
+            if (!item.isConflictResolutionEnabled()) {
+                return false;
+            }
+            TextStyle2D textStyle = item.getTextStyle();
+            int haloRadius = Math.round(textStyle.getHaloFill() != null ? textStyle
+                    .getHaloRadius() : 0);
+            int distance = item.getSpaceAround() + haloRadius;
+            for (Rectangle2D b : bounds) {
+                if (labels.labelsWithinDistance(b, distance)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Adds the accepted bounds to the specified indexes
+         */
+        void accept(LabelIndex... indexes) {
+            for (Rectangle2D b : bounds) {
+                for (LabelIndex index : indexes) {
+                    index.addLabel(item, b);
+                }
             }
         }
     }
@@ -17,15 +17,19 @@
 package org.geotools.renderer.label;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 
-import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.index.quadtree.Quadtree;
-
 /**
  * Stores label items and helps in finding the interferering ones, either by
  * pure overlap or within a certain distance from the specified bounds
+ * <p>
+ * The label bounds are kept in plain arrays and bucketed into a uniform grid
+ * of screen cells, each cell holding a linked list of the labels touching it,
+ * so that both insertions and queries are incremental and allocation free.
+ * Labels falling outside of the grid area are accounted to the border cells.
+ * Small indexes, such as the ones used to space the labels of a single group,
+ * are just scanned linearly until they grow enough to deserve a grid.
  * 
  * @author Andrea Aime
  * 
@@ -35,7 +39,85 @@ import com.vividsolutions.jts.index.quadtree.Quadtree;
  */
 public class LabelIndex {
 
-    Quadtree index = new Quadtree();
+    /**
+     * Up to this many labels the index is scanned linearly, unless an area has
+     * been provided
+     */
+    static final int LINEAR_SCAN_LIMIT = 16;
+
+    /**
+     * The minimum cell size, in pixels, a bit larger than a short label
+     */
+    static final double MIN_CELL_SIZE = 32;
+
+    /**
+     * Caps the grid size for very large paint areas
+     */
+    static final int MAX_CELLS_PER_SIDE = 512;
+
+    // the label bounds, as parallel arrays
+    double[] minXs = new double[LINEAR_SCAN_LIMIT];
+
+    double[] minYs = new double[LINEAR_SCAN_LIMIT];
+
+    double[] maxXs = new double[LINEAR_SCAN_LIMIT];
+
+    double[] maxYs = new double[LINEAR_SCAN_LIMIT];
+
+    /**
+     * The labels, null for reserved areas (keeping them around helps in
+     * debugging)
+     */
+    LabelCacheItem[] items = new LabelCacheItem[LINEAR_SCAN_LIMIT];
+
+    int count;
+
+    // the grid, cellHeads is null and cellSize is 0 until the grid gets
+    // built, cellSize is -1 if no grid could be built
+    double gridMinX;
+
+    double gridMinY;
+
+    double cellSize;
+
+    int columns;
+
+    int rows;
+
+    /**
+     * The first entry of each cell, or -1 if the cell is empty
+     */
+    int[] cellHeads;
+
+    /**
+     * The label referred by each entry
+     */
+    int[] entryLabels;
+
+    /**
+     * The next entry in the same cell, or -1
+     */
+    int[] entryNext;
+
+    int entryCount;
+
+    /**
+     * Builds an index whose grid will cover the labels added to it
+     */
+    public LabelIndex() {
+    }
+
+    /**
+     * Builds an index whose grid covers the specified area, usually the paint
+     * area
+     * 
+     * @param area
+     */
+    public LabelIndex(Rectangle2D area) {
+        buildGrid(Math.min(area.getMinX(), area.getMaxX()), Math.min(area.getMinY(), area
+                .getMaxY()), Math.max(area.getMinX(), area.getMaxX()), Math.max(area.getMinY(),
+                area.getMaxY()));
+    }
 
     /**
      * Returns true if there is any label in the index within the specified
@@ -46,25 +128,48 @@ public class LabelIndex {
      * @param distance
      * @return
      */
-    @SuppressWarnings("unchecked")
     public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
         if (distance < 0)
             return false;
 
-        Envelope e = toEnvelope(bounds);
-        e.expandBy(distance);
-        List<InterferenceItem> results = index.query(e);
-        if (results.size() == 0)
+        final double minx = Math.min(bounds.getMinX(), bounds.getMaxX()) - distance;
+        final double miny = Math.min(bounds.getMinY(), bounds.getMaxY()) - distance;
+        final double maxx = Math.max(bounds.getMinX(), bounds.getMaxX()) + distance;
+        final double maxy = Math.max(bounds.getMinY(), bounds.getMaxY()) + distance;
+
+        if (cellHeads == null) {
+            for (int i = 0; i < count; i++) {
+                if (intersects(i, minx, miny, maxx, maxy)) {
+                    return true;
+                }
+            }
             return false;
-        for (Iterator<InterferenceItem> it = results.iterator(); it.hasNext();) {
-            InterferenceItem item = it.next();
-            if (item.env.intersects(e)) {
-                return true;
+        }
+
+        final int c0 = column(minx);
+        final int c1 = column(maxx);
+        final int r0 = row(miny);
+        final int r1 = row(maxy);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                for (int e = cellHeads[r * columns + c]; e >= 0; e = entryNext[e]) {
+                    if (intersects(entryLabels[e], minx, miny, maxx, maxy)) {
+                        return true;
+                    }
+                }
             }
         }
         return false;
     }
 
+    /**
+     * Same test as JTS Envelope.intersects(Envelope), boundaries included
+     */
+    private boolean intersects(int label, double minx, double miny, double maxx, double maxy) {
+        return !(minXs[label] > maxx || maxXs[label] < minx || minYs[label] > maxy
+                || maxYs[label] < miny);
+    }
+
     /**
      * Adds a label into the index
      * 
@@ -72,51 +177,107 @@ public class LabelIndex {
      * @param bounds
      */
     public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
-        Envelope e = toEnvelope(bounds);
-        index.insert(e, new InterferenceItem(e, item));
+        add(item, bounds);
     }
 
     /**
-     * Turns the specified Java2D rectangle into a JTS envelope
+     * Reserve the area indicated by these Geometry.
      * 
-     * @param bounds
-     * @return
+     * @param reserved
      */
-    private Envelope toEnvelope(Rectangle2D bounds) {
-        return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
+    public void reserveArea(List<Rectangle2D> reserved) {
+        for (Rectangle2D area : reserved) {
+            add(null, area);
+        }
     }
 
-    /**
-     * Simple structure stored into the quadtree (keeping the item around helps
-     * in debugging)
-     * 
-     * @author Andrea Aime
-     * 
-     */
-    static class InterferenceItem {
-        Envelope env;
+    private void add(LabelCacheItem item, Rectangle2D bounds) {
+        if (count == items.length) {
+            int size = count * 2;
+            minXs = Arrays.copyOf(minXs, size);
+            minYs = Arrays.copyOf(minYs, size);
+            maxXs = Arrays.copyOf(maxXs, size);
+            maxYs = Arrays.copyOf(maxYs, size);
+            items = Arrays.copyOf(items, size);
+        }
+        final int label = count++;
+        minXs[label] = Math.min(bounds.getMinX(), bounds.getMaxX());
+        minYs[label] = Math.min(bounds.getMinY(), bounds.getMaxY());
+        maxXs[label] = Math.max(bounds.getMinX(), bounds.getMaxX());
+        maxYs[label] = Math.max(bounds.getMinY(), bounds.getMaxY());
+        items[label] = item;
 
-        LabelCacheItem item;
+        if (cellHeads != null) {
+            insertInGrid(label);
+        } else if (count > LINEAR_SCAN_LIMIT && cellSize == 0) {
+            // grown enough, build a grid around the labels collected so far
+            double minx = minXs[0], miny = minYs[0], maxx = maxXs[0], maxy = maxYs[0];
+            for (int i = 1; i < count; i++) {
+                minx = Math.min(minx, minXs[i]);
+                miny = Math.min(miny, minYs[i]);
+                maxx = Math.max(maxx, maxXs[i]);
+                maxy = Math.max(maxy, maxYs[i]);
+            }
+            buildGrid(minx, miny, maxx, maxy);
+        }
+    }
 
-        public InterferenceItem(Envelope env, LabelCacheItem item) {
-            super();
-            this.env = env;
-            this.item = item;
+    private void buildGrid(double minx, double miny, double maxx, double maxy) {
+        final double width = maxx - minx;
+        final double height = maxy - miny;
+        cellSize = Math.max(MIN_CELL_SIZE, Math.max(width, height) / MAX_CELLS_PER_SIDE);
+        if (Double.isNaN(cellSize) || Double.isInfinite(cellSize)) {
+            // no sensible grid can be built, stay with the linear scan
+            cellSize = -1;
+            return;
+        }
+        gridMinX = minx;
+        gridMinY = miny;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        cellHeads = new int[columns * rows];
+        Arrays.fill(cellHeads, -1);
+        entryLabels = new int[Math.max(64, count * 4)];
+        entryNext = new int[entryLabels.length];
+        entryCount = 0;
+        for (int i = 0; i < count; i++) {
+            insertInGrid(i);
         }
+    }
 
+    private void insertInGrid(int label) {
+        final int c0 = column(minXs[label]);
+        final int c1 = column(maxXs[label]);
+        final int r0 = row(minYs[label]);
+        final int r1 = row(maxYs[label]);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                if (entryCount == entryLabels.length) {
+                    entryLabels = Arrays.copyOf(entryLabels, entryCount * 2);
+                    entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+                }
+                final int cell = r * columns + c;
+                entryLabels[entryCount] = label;
+                entryNext[entryCount] = cellHeads[cell];
+                cellHeads[cell] = entryCount;
+                entryCount++;
+            }
+        }
     }
 
     /**
-     * Reserve the area indicated by these Geometry.
-     * 
-     * @param reserved
+     * The grid column containing the ordinate, clamped to the grid
      */
-    public void reserveArea(List<Rectangle2D> reserved) {
-        for( Rectangle2D area : reserved ){
-            Envelope env = toEnvelope(area);
-            
-            InterferenceItem item = new InterferenceItem(env,null);            
-            index.insert( env, item );
-        }
+    private int column(double x) {
+        int c = (int) ((x - gridMinX) / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    /**
+     * The grid row containing the ordinate, clamped to the grid
+     */
+    private int row(double y) {
+        int r = (int) ((y - gridMinY) / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
     }
 }
@@ -115,6 +115,12 @@ public class LabelPainter {
      */
     Rectangle2D labelBounds;
 
+    /**
+     * When not null the paint requests are recorded here instead of being
+     * performed, see {@link #paintRecorded(List)}
+     */
+    List<Object> recording;
+
     /**
      * Builds a new painter
      * 
@@ -443,6 +449,11 @@ public class LabelPainter {
      * @throws Exception
      */
     public void paintStraightLabel(AffineTransform transform) throws Exception {
+        if (recording != null) {
+            recording.add(new AffineTransform(transform));
+            return;
+        }
+
         AffineTransform oldTransform = graphics.getTransform();
         try {
             AffineTransform newTransform = new AffineTransform(oldTransform);
@@ -661,6 +672,11 @@ public class LabelPainter {
      * @param cursor
      */
     public void paintCurvedLabel(LineStringCursor cursor) {
+        if (recording != null) {
+            recording.add(new LineStringCursor(cursor));
+            return;
+        }
+
         // 0 is unfortunately an acceptable value if people only want to draw shields
         if(labelItem.getTextStyle().getFont().getSize() == 0)
             return;
@@ -728,6 +744,23 @@ public class LabelPainter {
         }
     }
 
+    /**
+     * Paints the current label in all the positions recorded while the
+     * {@link #recording} list was set
+     * 
+     * @param recorded
+     * @throws Exception
+     */
+    void paintRecorded(List<Object> recorded) throws Exception {
+        for (Object position : recorded) {
+            if (position instanceof AffineTransform) {
+                paintStraightLabel((AffineTransform) position);
+            } else {
+                paintCurvedLabel((LineStringCursor) position);
+            }
+        }
+    }
+
     /**
      * Vertical centering is not trivial, because visually we want centering on
      * characters such as a,m,e, and not centering on d,g whose center is
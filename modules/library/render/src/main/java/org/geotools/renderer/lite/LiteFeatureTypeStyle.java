@@ -23,8 +23,10 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.List;
 
+import org.geotools.filter.compiler.FilterCompiler;
 import org.geotools.renderer.ScreenMap;
 import org.geotools.styling.Rule;
+import org.opengis.filter.Filter;
 import org.opengis.filter.expression.Expression;
 
 /**
@@ -68,6 +70,12 @@ public final class LiteFeatureTypeStyle {
      */
     ScreenMap screenMap;
 
+    /**
+     * The compiled filters of the rules in {@link #ruleList}, same order, see
+     * {@link #compileRuleFilters()}
+     */
+    Filter[] ruleFilters;
+
     public LiteFeatureTypeStyle(BufferedImage image, AffineTransform at, List ruleList,
             List elseRule, RenderingHints hints, Expression transformation) {
         this.myImage = image;
@@ -75,6 +83,7 @@ public final class LiteFeatureTypeStyle {
         this.elseRules = (Rule[]) elseRule.toArray(new Rule[elseRule.size()]);
         this.graphics = image.createGraphics();
         this.transformation = transformation;
+        compileRuleFilters();
 
         if (hints != null) {
             graphics.setRenderingHints(hints);
@@ -95,6 +104,19 @@ public final class LiteFeatureTypeStyle {
         this.ruleList = (Rule[]) ruleList.toArray(new Rule[ruleList.size()]);
         this.elseRules = (Rule[]) elseRuleList.toArray(new Rule[elseRuleList.size()]);
         this.transformation = transformation;
+        compileRuleFilters();
+    }
+
+    /**
+     * Compiles the rule filters, rule evaluation happens once per rule and feature so it pays
+     * off to skip the generic filter machinery. Must be called again if {@link #ruleList} is
+     * modified.
+     */
+    void compileRuleFilters() {
+        ruleFilters = new Filter[ruleList.length];
+        for (int i = 0; i < ruleList.length; i++) {
+            ruleFilters[i] = FilterCompiler.compile(ruleList[i].getFilter());
+        }
     }
 
 }
@@ -18,13 +18,16 @@ package org.geotools.renderer.lite;
 
 import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.RenderingHints.Key;
 import java.awt.Shape;
+import java.awt.Transparency;
 import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
@@ -33,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -40,8 +44,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
@@ -391,6 +397,24 @@ public final class StreamingRenderer implements GTRenderer {
      */
     private ExecutorService threadPool;
 
+    /**
+     * The thread pool used to render layers in parallel, <code>null</code> if the layers
+     * have to be rendered sequentially
+     */
+    private ExecutorService layerThreadPool;
+
+    /**
+     * When non-negative, the only layer of the map content this renderer will paint. Used by the
+     * per layer renderers created during parallel layer rendering
+     */
+    private int layerIndex = -1;
+
+    /**
+     * The per layer renderers active during parallel layer rendering, tracked so that
+     * {@link #stopRendering()} can reach them
+     */
+    private List<StreamingRenderer> layerRenderers = new CopyOnWriteArrayList<StreamingRenderer>();
+
     /**
      * Creates a new instance of LiteRenderer without a context. Use it only to
      * gain access to utility methods of this class or if you want to render
@@ -408,6 +432,38 @@ public final class StreamingRenderer implements GTRenderer {
         this.threadPool = threadPool;
     }
 
+    /**
+     * Sets a thread pool that will be used to render each layer in parallel.
+     * <p>
+     * Each layer is read, transformed and rasterized by its own task into a back buffer
+     * as big as the paint area, the back buffers are then merged onto the destination
+     * graphics in z-order. This trades memory for latency, the map rendering time becomes
+     * roughly the one of the slowest layer instead of the sum of all layer rendering times.
+     * Labels are still collected in the shared label cache, in layer order, and painted once
+     * all layers are done, render listeners will however be called from multiple threads.
+     * The layer renderers do not use the {@linkplain #setThreadPool painting thread pool},
+     * each of them runs its painting thread in an executor of its own, so that a bounded
+     * painting pool cannot be exhausted by the layers waiting for their painting threads.
+     * <p>
+     * Parallel rendering is used only when the map contains more than one layer and
+     * transform concatenation is disabled, set the thread pool to <code>null</code>
+     * (the default) to go back to sequential layer rendering.
+     * 
+     * @param layerThreadPool
+     */
+    public void setLayerThreadPool(ExecutorService layerThreadPool) {
+        this.layerThreadPool = layerThreadPool;
+    }
+
+    /**
+     * Returns the thread pool used to render layers in parallel, or <code>null</code> if
+     * the layers are rendered sequentially
+     * @return
+     */
+    public ExecutorService getLayerThreadPool() {
+        return layerThreadPool;
+    }
+
     /**
      * Sets the flag which controls behaviour for applying affine transformation
      * to the graphics object.
@@ -495,6 +551,9 @@ public final class StreamingRenderer implements GTRenderer {
      */
     public void stopRendering() {
         renderingStopRequested = true;
+        for (StreamingRenderer layerRenderer : layerRenderers) {
+            layerRenderer.stopRendering();
+        }
         labelCache.stop();
     }
 
@@ -759,31 +818,40 @@ public final class StreamingRenderer implements GTRenderer {
                 ((LabelCacheImpl) labelCache).setLabelRenderingMode(LabelRenderingMode.valueOf(getTextRenderingMethod()));
             }
             final int layersNumber = mapContent.layers().size();
-            MapLayer currLayer;
-            for (int i = 0; i < layersNumber; i++) // DJB: for each layer (ie. one
-            {
-                currLayer = new MapLayer(mapContent.layers().get(i));
-    
-                if (!currLayer.isVisible()) {
-                    // Only render layer when layer is visible
-                    continue;
-                }
-    
-                if (renderingStopRequested) {
-                    return;
-                }
-                labelCache.startLayer(i+"");
-                try {
-    
-                    // extract the feature type stylers from the style object
-                    // and process them
-                    processStylers(graphics, currLayer, worldToScreenTransform,
-                            destinationCrs, mapExtent, screenSize, i+"");
-                } catch (Throwable t) {
-                    fireErrorEvent(t);
+            if (layerThreadPool != null && layerIndex < 0 && !concatTransforms
+                    && layersNumber > 1) {
+                paintLayersInParallel(graphics, paintArea, mapArea, worldToScreenTransform);
+            } else {
+                MapLayer currLayer;
+                for (int i = 0; i < layersNumber; i++) // DJB: for each layer (ie. one
+                {
+                    if (layerIndex >= 0 && i != layerIndex) {
+                        // we are painting a single layer of a parallel rendering
+                        continue;
+                    }
+                    currLayer = new MapLayer(mapContent.layers().get(i));
+        
+                    if (!currLayer.isVisible()) {
+                        // Only render layer when layer is visible
+                        continue;
+                    }
+        
+                    if (renderingStopRequested) {
+                        return;
+                    }
+                    labelCache.startLayer(i+"");
+                    try {
+        
+                        // extract the feature type stylers from the style object
+                        // and process them
+                        processStylers(graphics, currLayer, worldToScreenTransform,
+                                destinationCrs, mapExtent, screenSize, i+"");
+                    } catch (Throwable t) {
+                        fireErrorEvent(t);
+                    }
+        
+                    labelCache.endLayer(i+"", graphics, screenSize);
                 }
-    
-                labelCache.endLayer(i+"", graphics, screenSize);
             }
         } finally {
             try {
@@ -815,6 +883,98 @@ public final class StreamingRenderer implements GTRenderer {
         
     }
 
+    /**
+     * Renders each visible layer in its own back buffer using the layer thread pool, and then
+     * merges the back buffers onto the destination graphics in z-order
+     * 
+     * @param graphics the destination graphics
+     * @param paintArea the paint area
+     * @param mapArea the map area as provided by the caller
+     * @param worldToScreen the world to screen transform
+     */
+    private void paintLayersInParallel(Graphics2D graphics, Rectangle paintArea,
+            ReferencedEnvelope mapArea, AffineTransform worldToScreen) {
+        final List<Layer> layers = mapContent.layers();
+        final List<Future<BufferedImage>> futures = new ArrayList<Future<BufferedImage>>();
+        final List<LayerLabelCache> layerLabelCaches = new ArrayList<LayerLabelCache>();
+        // the destination graphics is not thread safe, the layer painters get a copy of its
+        // hints and device configuration instead
+        final RenderingHints hints = new RenderingHints(null);
+        hints.add(graphics.getRenderingHints());
+        final GraphicsConfiguration configuration = graphics.getDeviceConfiguration();
+        try {
+            for (int i = 0; i < layers.size(); i++) {
+                if (!layers.get(i).isVisible()) {
+                    continue;
+                }
+                LayerLabelCache layerLabelCache = new LayerLabelCache(labelCache);
+                StreamingRenderer layerRenderer = createLayerRenderer(i, layerLabelCache);
+                layerRenderers.add(layerRenderer);
+                layerLabelCaches.add(layerLabelCache);
+                futures.add(layerThreadPool.submit(new LayerPainter(layerRenderer, configuration,
+                        hints, paintArea, mapArea, worldToScreen)));
+            }
+
+            // merge back in the same order the layers appear in the map content
+            for (int i = 0; i < futures.size(); i++) {
+                if (renderingStopRequested) {
+                    break;
+                }
+                BufferedImage image = null;
+                try {
+                    image = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    fireErrorEvent(e.getCause());
+                }
+                // labels reach the label cache in layer order too, as in sequential rendering
+                layerLabelCaches.get(i).replay(graphics);
+                if (image != null) {
+                    requests.put(new MergeLayerImageRequest(graphics, image, paintArea.x,
+                            paintArea.y));
+                }
+            }
+        } catch (InterruptedException e) {
+            renderingStopRequested = true;
+            fireErrorEvent(e);
+        } finally {
+            for (Future<BufferedImage> future : futures) {
+                future.cancel(true);
+            }
+            layerRenderers.clear();
+        }
+    }
+
+    /**
+     * Builds a renderer that will paint just the specified layer of the current map content,
+     * sharing the configuration of this renderer and contributing labels to its label cache
+     * 
+     * @param layerIndex
+     * @param layerLabelCache the label cache buffering the layer labels
+     * @return
+     */
+    private StreamingRenderer createLayerRenderer(int layerIndex,
+            LayerLabelCache layerLabelCache) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.layerIndex = layerIndex;
+        renderer.mapContent = mapContent;
+        // not sharing the painting thread pool, the layer painting threads would compete with
+        // the main one for it, and a bounded pool would deadlock
+        renderer.threadPool = null;
+        renderer.generalizationDistance = generalizationDistance;
+        renderer.indexedFeatureResults = indexedFeatureResults;
+        renderer.renderListeners.addAll(renderListeners);
+        if (java2dHints != null) {
+            renderer.setJava2DHints(java2dHints);
+        }
+        Map hints = new HashMap();
+        if (rendererHints != null) {
+            hints.putAll(rendererHints);
+        }
+        hints.put(LABEL_CACHE_KEY, layerLabelCache);
+        renderer.setRendererHints(hints);
+        return renderer;
+    }
+
     /**
      * Extends the provided {@link Envelope} in order to add the number of pixels
      * specified by <code>buffer</code> in every direction.
@@ -2219,6 +2379,7 @@ public final class StreamingRenderer implements GTRenderer {
                 fts.elseRules[i] = (Rule) visitor.getCopy();
             }
         }
+        fts.compileRuleFilters();
     }
 
     /**
@@ -2386,6 +2547,7 @@ public final class StreamingRenderer implements GTRenderer {
         boolean doElse = true;
         Rule[] elseRuleList = fts.elseRules;
         Rule[] ruleList = fts.ruleList;
+        Filter[] ruleFilters = fts.ruleFilters;
         Rule r;
         Filter filter;
         Graphics2D graphics = fts.graphics;
@@ -2393,7 +2555,7 @@ public final class StreamingRenderer implements GTRenderer {
         final int length = ruleList.length;
         for (int t = 0; t < length; t++) {
             r = ruleList[t];
-            filter = r.getFilter();
+            filter = ruleFilters[t];
 
             if (filter == null || filter.evaluate(rf.content)) {
                 doElse = false;
@@ -3157,6 +3319,192 @@ public final class StreamingRenderer implements GTRenderer {
         }
     }
     
+    /**
+     * A request to merge the back buffer of a layer rendered in parallel to the main graphics
+     */
+    class MergeLayerImageRequest extends RenderingRequest {
+        Graphics2D graphics;
+
+        BufferedImage image;
+
+        int x, y;
+
+        public MergeLayerImageRequest(Graphics2D graphics, BufferedImage image, int x, int y) {
+            this.graphics = graphics;
+            this.image = image;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        void execute() {
+            graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER));
+            graphics.drawImage(image, x, y, null);
+            image.flush();
+        }
+    }
+
+    /**
+     * Paints a single layer into its own back buffer during parallel layer rendering
+     */
+    class LayerPainter implements Callable<BufferedImage> {
+        StreamingRenderer renderer;
+
+        GraphicsConfiguration configuration;
+
+        RenderingHints hints;
+
+        Rectangle paintArea;
+
+        ReferencedEnvelope mapArea;
+
+        AffineTransform worldToScreen;
+
+        public LayerPainter(StreamingRenderer renderer, GraphicsConfiguration configuration,
+                RenderingHints hints, Rectangle paintArea, ReferencedEnvelope mapArea,
+                AffineTransform worldToScreen) {
+            this.renderer = renderer;
+            this.configuration = configuration;
+            this.hints = hints;
+            this.paintArea = paintArea;
+            this.mapArea = mapArea;
+            this.worldToScreen = worldToScreen;
+        }
+
+        public BufferedImage call() throws Exception {
+            if (renderingStopRequested) {
+                return null;
+            }
+            // same back buffer setup as DelayedBackbufferGraphic
+            BufferedImage image = configuration.createCompatibleImage(paintArea.width,
+                    paintArea.height, Transparency.TRANSLUCENT);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setRenderingHints(hints);
+                // the back buffer only covers the paint area, which may not start at the origin
+                graphics.translate(-paintArea.x, -paintArea.y);
+                renderer.paint(graphics, paintArea, mapArea, new AffineTransform(worldToScreen));
+            } finally {
+                graphics.dispose();
+            }
+            return image;
+        }
+    }
+
+    /**
+     * The label cache used by the single layer renderers during parallel rendering. It
+     * buffers the layer labels, which the main renderer replays into its own label cache once
+     * the layer is painted, so that labels get there in layer order whatever the order the
+     * layers complete in. The label cache life cycle (start, end, stop) is left to the main
+     * renderer.
+     */
+    static class LayerLabelCache implements LabelCache {
+        LabelCache delegate;
+
+        List<LabelCall> calls = new ArrayList<LabelCall>();
+
+        public LayerLabelCache(LabelCache delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Forwards the buffered labels to the main label cache
+         * 
+         * @param graphics the destination graphics
+         */
+        void replay(Graphics2D graphics) {
+            for (LabelCall call : calls) {
+                call.replay(delegate, graphics);
+            }
+            calls.clear();
+        }
+
+        public void start() {
+            // the main renderer handles the cache life cycle
+        }
+
+        public void startLayer(final String layerId) {
+            calls.add(new LabelCall() {
+                void replay(LabelCache cache, Graphics2D graphics) {
+                    cache.startLayer(layerId);
+                }
+            });
+        }
+
+        public void put(final String layerId, final TextSymbolizer symbolizer,
+                final Feature feature, final LiteShape2 shape,
+                final NumberRange<Double> scaleRange) {
+            calls.add(new LabelCall() {
+                void replay(LabelCache cache, Graphics2D graphics) {
+                    cache.put(layerId, symbolizer, feature, shape, scaleRange);
+                }
+            });
+        }
+
+        public void put(final Rectangle2D area) {
+            calls.add(new LabelCall() {
+                void replay(LabelCache cache, Graphics2D graphics) {
+                    cache.put(area);
+                }
+            });
+        }
+
+        public void endLayer(final String layerId, Graphics2D graphics,
+                final Rectangle displayArea) {
+            // the layer graphics is a back buffer, the main one is used on replay
+            calls.add(new LabelCall() {
+                void replay(LabelCache cache, Graphics2D graphics) {
+                    cache.endLayer(layerId, graphics, displayArea);
+                }
+            });
+        }
+
+        public void end(Graphics2D graphics, Rectangle displayArea) {
+            // the main renderer handles the cache life cycle
+        }
+
+        public void stop() {
+            // the main renderer handles the cache life cycle
+        }
+
+        public void clear() {
+            synchronized (delegate) {
+                delegate.clear();
+            }
+        }
+
+        public void clear(String layerId) {
+            synchronized (delegate) {
+                delegate.clear(layerId);
+            }
+        }
+
+        public void disableLayer(String layerId) {
+            synchronized (delegate) {
+                delegate.disableLayer(layerId);
+            }
+        }
+
+        public void enableLayer(String layerId) {
+            synchronized (delegate) {
+                delegate.enableLayer(layerId);
+            }
+        }
+
+        public List orderedLabels() {
+            synchronized (delegate) {
+                return delegate.orderedLabels();
+            }
+        }
+    }
+
+    /**
+     * A label cache call buffered by a {@link LayerLabelCache}
+     */
+    static abstract class LabelCall {
+        abstract void replay(LabelCache cache, Graphics2D graphics);
+    }
+
     /**
      * A request to render a raster
      * @author aaime
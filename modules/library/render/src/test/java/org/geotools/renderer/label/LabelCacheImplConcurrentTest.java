@@ -0,0 +1,156 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class LabelCacheImplConcurrentTest extends TestCase {
+
+    static final Rectangle AREA = new Rectangle(0, 0, 800, 800);
+
+    static final NumberRange<Double> SCALE_RANGE = NumberRange.create(0d, Double.MAX_VALUE);
+
+    SimpleFeatureType type;
+
+    TextSymbolizer pointSymbolizer;
+
+    TextSymbolizer lineSymbolizer;
+
+    @Override
+    protected void setUp() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("labels");
+        tb.add("geom", Geometry.class);
+        tb.add("name", String.class);
+        tb.add("priority", Integer.class);
+        type = tb.buildFeatureType();
+
+        StyleBuilder sb = new StyleBuilder();
+        pointSymbolizer = sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 12),
+                "name");
+        pointSymbolizer.setPriority(sb.attributeExpression("priority"));
+        pointSymbolizer.setHalo(sb.createHalo(Color.WHITE, 2));
+        pointSymbolizer.getOptions().put(TextSymbolizer.SPACE_AROUND_KEY, "3");
+        pointSymbolizer.getOptions().put(TextSymbolizer.MAX_DISPLACEMENT_KEY, "20");
+        lineSymbolizer = sb.createTextSymbolizer(Color.BLUE, sb.createFont("Serif", 10), "name");
+        lineSymbolizer.setPriority(sb.attributeExpression("priority"));
+        lineSymbolizer.setLabelPlacement(sb.createLinePlacement(0));
+        lineSymbolizer.getOptions().put(TextSymbolizer.FOLLOW_LINE_KEY, "true");
+        lineSymbolizer.getOptions().put(TextSymbolizer.LABEL_REPEAT_KEY, "150");
+    }
+
+    /**
+     * Fills the cache with a crowded map of points and lines, so that many
+     * labels conflict with each other
+     */
+    LabelCacheImpl buildCache() throws Exception {
+        Random random = new Random(0);
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        LabelCacheImpl cache = new LabelCacheImpl();
+        cache.start();
+        cache.startLayer("points");
+        for (int i = 0; i < 1500; i++) {
+            Geometry point = gf.createPoint(new Coordinate(random.nextDouble() * AREA.width,
+                    random.nextDouble() * AREA.height));
+            SimpleFeature f = fb.buildFeature(null, new Object[] { point, "point " + i,
+                    random.nextInt(100) });
+            cache.put("points", pointSymbolizer, f, new LiteShape2(point, null, null, false),
+                    SCALE_RANGE);
+        }
+        cache.endLayer("points", null, AREA);
+        cache.startLayer("lines");
+        for (int i = 0; i < 200; i++) {
+            Coordinate[] coords = new Coordinate[5];
+            double x = random.nextDouble() * AREA.width;
+            double y = random.nextDouble() * AREA.height;
+            for (int j = 0; j < coords.length; j++) {
+                coords[j] = new Coordinate(x, y);
+                x += random.nextDouble() * 200 - 50;
+                y += random.nextDouble() * 100 - 50;
+            }
+            Geometry line = gf.createLineString(coords);
+            SimpleFeature f = fb.buildFeature(null, new Object[] { line, "line " + i,
+                    random.nextInt(100) });
+            cache.put("lines", lineSymbolizer, f, new LiteShape2(line, null, null, false),
+                    SCALE_RANGE);
+        }
+        cache.endLayer("lines", null, AREA);
+        return cache;
+    }
+
+    int[] paint(LabelCacheImpl cache) {
+        BufferedImage image = new BufferedImage(AREA.width, AREA.height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            cache.end(graphics, AREA);
+        } finally {
+            graphics.dispose();
+        }
+        return image.getRGB(0, 0, AREA.width, AREA.height, null, 0, AREA.width);
+    }
+
+    public void testSameAsSerial() throws Exception {
+        int[] expected = paint(buildCache());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // small batches exercise the check between batches, large ones the
+            // placements computed again within a batch
+            for (int batchSize : new int[] { 1, 17, 256, 5000 }) {
+                LabelCacheImpl cache = buildCache();
+                cache.setPlacementExecutor(executor);
+                cache.setPlacementBatchSize(batchSize);
+                assertTrue("Batch size " + batchSize, Arrays.equals(expected, paint(cache)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testInvalidBatchSize() {
+        try {
+            new LabelCacheImpl().setPlacementBatchSize(0);
+            fail("Should have failed, batch size must be positive");
+        } catch (IllegalArgumentException e) {
+            // fine
+        }
+    }
+}
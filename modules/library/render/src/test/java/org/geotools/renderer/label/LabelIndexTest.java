@@ -0,0 +1,103 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+public class LabelIndexTest extends TestCase {
+
+    /**
+     * Checks the index against a brute force scan using JTS envelopes, as the
+     * original quadtree based implementation did
+     */
+    void checkAgainstScan(LabelIndex index, Rectangle2D area, long seed) {
+        Random random = new Random(seed);
+        List<Envelope> labels = new ArrayList<Envelope>();
+        for (int i = 0; i < 500; i++) {
+            Rectangle2D label = randomRectangle(random, area);
+            // check before adding, to exercise incremental insertion
+            for (int j = 0; j < 20; j++) {
+                Rectangle2D query = randomRectangle(random, area);
+                double distance = random.nextInt(6) - 1;
+                assertEquals(scan(labels, query, distance), index.labelsWithinDistance(query,
+                        distance));
+            }
+            index.addLabel(null, label);
+            labels.add(new Envelope(label.getMinX(), label.getMaxX(), label.getMinY(), label
+                    .getMaxY()));
+        }
+    }
+
+    Rectangle2D randomRectangle(Random random, Rectangle2D area) {
+        // some labels cross the area borders, or fall completely outside
+        double x = area.getMinX() - 50 + random.nextDouble() * (area.getWidth() + 100);
+        double y = area.getMinY() - 50 + random.nextDouble() * (area.getHeight() + 100);
+        return new Rectangle2D.Double(x, y, random.nextInt(120), random.nextInt(20));
+    }
+
+    boolean scan(List<Envelope> labels, Rectangle2D bounds, double distance) {
+        if (distance < 0) {
+            return false;
+        }
+        Envelope e = new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds
+                .getMaxY());
+        e.expandBy(distance);
+        for (Envelope label : labels) {
+            if (label.intersects(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void testPaintAreaGrid() {
+        Rectangle area = new Rectangle(0, 0, 1024, 768);
+        checkAgainstScan(new LabelIndex(area), area, 0);
+    }
+
+    public void testLargePaintArea() {
+        Rectangle area = new Rectangle(-500, 200, 30000, 20000);
+        LabelIndex index = new LabelIndex(area);
+        assertTrue(index.columns <= LabelIndex.MAX_CELLS_PER_SIDE);
+        checkAgainstScan(index, area, 1);
+    }
+
+    public void testGridOnDemand() {
+        LabelIndex index = new LabelIndex();
+        checkAgainstScan(index, new Rectangle(0, 0, 300, 300), 2);
+        assertNotNull(index.cellHeads);
+    }
+
+    public void testTouchingAndReserved() {
+        LabelIndex index = new LabelIndex(new Rectangle(0, 0, 100, 100));
+        index.reserveArea(Collections.<Rectangle2D> singletonList(new Rectangle(10, 10, 10, 10)));
+        // touching boundaries interfere
+        assertTrue(index.labelsWithinDistance(new Rectangle(20, 20, 5, 5), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle(21, 21, 5, 5), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle(21, 21, 5, 5), 1));
+        assertFalse(index.labelsWithinDistance(new Rectangle(10, 10, 5, 5), -1));
+    }
+}
@@ -17,16 +17,24 @@
 package org.geotools.renderer.lite;
 
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createStrictMock;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
@@ -42,6 +50,7 @@ import org.geotools.map.MapContext;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.renderer.RenderListener;
+import org.geotools.renderer.lite.StreamingRenderer.LayerLabelCache;
 import org.geotools.styling.Style;
 import org.geotools.styling.StyleBuilder;
 import org.junit.Test;
@@ -239,4 +248,128 @@ public class StreamingRendererTest extends TestCase {
                 screen.height - 1) != 0);
 
     }
+
+    private MapContext createParallelMapContext() throws Exception {
+        SimpleFeatureCollection points = FeatureCollections.newCollection();
+        points.add(createPoint(0, 0));
+        points.add(createPoint(5, 5));
+        SimpleFeatureCollection lines = FeatureCollections.newCollection();
+        lines.add(createLine(-10, -10, 10, 10));
+        lines.add(createLine(-10, 10, 10, -10));
+        MapContext mapContext = new DefaultMapContext(DefaultGeographicCRS.WGS84);
+        mapContext.addLayer(lines, createLineStyle());
+        mapContext.addLayer(points, createPointStyle());
+        return mapContext;
+    }
+
+    @Test
+    public void testParallelLayerRendering() throws Exception {
+        final Rectangle screen = new Rectangle(0, 0, 100, 100);
+        ReferencedEnvelope world = new ReferencedEnvelope(new Envelope(-10, 10, -10, 10),
+                DefaultGeographicCRS.WGS84);
+        MapContext mapContext = createParallelMapContext();
+
+        // sequential reference rendering
+        BufferedImage expected = new BufferedImage(screen.width, screen.height,
+                BufferedImage.TYPE_4BYTE_ABGR);
+        StreamingRenderer sr = new StreamingRenderer();
+        sr.setContext(mapContext);
+        sr.paint(expected.createGraphics(), screen, world);
+
+        // parallel rendering
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            BufferedImage image = new BufferedImage(screen.width, screen.height,
+                    BufferedImage.TYPE_4BYTE_ABGR);
+            sr = new StreamingRenderer();
+            sr.setContext(mapContext);
+            sr.setLayerThreadPool(pool);
+            sr.paint(image.createGraphics(), screen, world);
+
+            for (int x = 0; x < screen.width; x++) {
+                for (int y = 0; y < screen.height; y++) {
+                    assertEquals("Pixel differs at " + x + "," + y, expected.getRGB(x, y),
+                            image.getRGB(x, y));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelLayerRenderingOffsetArea() throws Exception {
+        // a paint area not starting at the origin, and a painting pool with a single thread
+        final Rectangle screen = new Rectangle(20, 30, 100, 100);
+        final ReferencedEnvelope world = new ReferencedEnvelope(new Envelope(-10, 10, -10, 10),
+                DefaultGeographicCRS.WGS84);
+        final MapContext mapContext = createParallelMapContext();
+
+        BufferedImage expected = new BufferedImage(150, 150, BufferedImage.TYPE_4BYTE_ABGR);
+        StreamingRenderer sr = new StreamingRenderer();
+        sr.setContext(mapContext);
+        sr.paint(expected.createGraphics(), screen, world);
+        assertTrue(expected.getRGB(screen.x + screen.width / 2, screen.y + screen.height / 2) != 0);
+
+        ExecutorService painters = Executors.newFixedThreadPool(1);
+        ExecutorService layers = Executors.newFixedThreadPool(2);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            final BufferedImage image = new BufferedImage(150, 150,
+                    BufferedImage.TYPE_4BYTE_ABGR);
+            final StreamingRenderer parallel = new StreamingRenderer();
+            parallel.setContext(mapContext);
+            parallel.setThreadPool(painters);
+            parallel.setLayerThreadPool(layers);
+            Future<?> rendering = caller.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    parallel.paint(image.createGraphics(), screen, world);
+                    return null;
+                }
+            });
+            // would hang if the layer renderers waited for a painting thread
+            rendering.get(30, TimeUnit.SECONDS);
+
+            for (int x = 0; x < image.getWidth(); x++) {
+                for (int y = 0; y < image.getHeight(); y++) {
+                    assertEquals("Pixel differs at " + x + "," + y, expected.getRGB(x, y),
+                            image.getRGB(x, y));
+                }
+            }
+        } finally {
+            painters.shutdownNow();
+            layers.shutdownNow();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLayerLabelsReplayedInLayerOrder() throws Exception {
+        Rectangle2D first = new Rectangle2D.Double(0, 0, 1, 1);
+        Rectangle2D second = new Rectangle2D.Double(1, 1, 1, 1);
+        Graphics2D graphics = createNiceMock(Graphics2D.class);
+        Rectangle area = new Rectangle(0, 0, 10, 10);
+        LabelCache main = createStrictMock(LabelCache.class);
+        main.startLayer("0");
+        main.put(first);
+        main.endLayer("0", graphics, area);
+        main.startLayer("1");
+        main.put(second);
+        main.endLayer("1", graphics, area);
+        replay(main);
+
+        LayerLabelCache layer0 = new LayerLabelCache(main);
+        LayerLabelCache layer1 = new LayerLabelCache(main);
+        // the second layer completes first
+        layer1.startLayer("1");
+        layer1.put(second);
+        layer1.endLayer("1", null, area);
+        layer0.startLayer("0");
+        layer0.put(first);
+        layer0.endLayer("0", null, area);
+
+        layer0.replay(graphics);
+        layer1.replay(graphics);
+        verify(main);
+    }
 }
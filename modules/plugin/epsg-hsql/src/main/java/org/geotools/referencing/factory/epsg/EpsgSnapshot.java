@@ -0,0 +1,463 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.resources.NIOUtilities;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+
+/**
+ * A file of serialized {@linkplain CoordinateReferenceSystem coordinate reference systems}
+ * keyed by EPSG code, used to skip the HSQL database startup and the SQL queries for the
+ * CRS decoded most often. The file is memory mapped and the objects are deserialized only
+ * when first requested, then kept by soft references.
+ * <p>
+ * File layout:
+ * <ul>
+ *   <li>the segments, each of them an independent serialization stream holding up to
+ *       {@link #SEGMENT_SIZE} consecutive codes and objects, so that the objects in the same
+ *       segment share their datum, ellipsoid, units and citations;</li>
+ *   <li>the index: the version string, the position and length of each segment, and the
+ *       codes with the segment they belong to;</li>
+ *   <li>the trailer: the index position and the {@link #MAGIC} number.</li>
+ * </ul>
+ * The version string identifies both the EPSG database and the GeoTools version, since the
+ * serialized form of the referencing objects may change across releases. A snapshot for
+ * another version is ignored.
+ * <p>
+ * Since anybody able to write the file could make the deserialization instantiate arbitrary
+ * classes, only the classes in the {@linkplain #ALLOWED_PACKAGES referencing, metadata and
+ * unit packages} are accepted when reading it back.
+ *
+ * @since 8.0
+ */
+final class EpsgSnapshot {
+    /**
+     * The number of objects serialized together.
+     */
+    static final int SEGMENT_SIZE = 32;
+
+    /**
+     * The last 8 bytes of a snapshot file ("GTEPSGSN").
+     */
+    static final long MAGIC = 0x475445505347534EL;
+
+    /**
+     * The packages of the classes allowed in the serialized objects: the referencing objects,
+     * their metadata, their units and the few JDK classes they use.
+     */
+    private static final String[] ALLOWED_PACKAGES = {
+        "org.geotools.referencing.",
+        "org.geotools.metadata.",
+        "org.geotools.parameter.",
+        "org.geotools.measure.",
+        "org.geotools.util.",
+        "org.geotools.resources.",
+        "org.opengis.",
+        "javax.measure.",
+        "java.lang.",
+        "java.util.",
+        "java.awt.geom.",
+        "java.net.URI"
+    };
+
+    /**
+     * The snapshot file.
+     */
+    private final File file;
+
+    /**
+     * The memory mapped file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The position and length of each segment in the file.
+     */
+    private final long[] offsets;
+    private final int[] lengths;
+
+    /**
+     * The segment of each code.
+     */
+    private final Map<String,Integer> index;
+
+    /**
+     * The deserialized segments, by soft reference.
+     */
+    private final Reference<Map<String,CoordinateReferenceSystem>>[] segments;
+
+    /**
+     * Set once the buffer has been unmapped.
+     */
+    private boolean disposed;
+
+    /**
+     * Opens a snapshot file.
+     */
+    @SuppressWarnings("unchecked")
+    private EpsgSnapshot(final File file, final ByteBuffer buffer, final long[] offsets,
+                         final int[] lengths, final Map<String,Integer> index)
+    {
+        this.file     = file;
+        this.buffer   = buffer;
+        this.offsets  = offsets;
+        this.lengths  = lengths;
+        this.index    = index;
+        this.segments = new Reference[offsets.length];
+    }
+
+    /**
+     * Opens the specified snapshot file, or returns {@code null} if the file does not exist
+     * or has been written for an other version.
+     *
+     * @param  file The snapshot file.
+     * @param  version The expected version string.
+     * @return The snapshot, or {@code null} if not available.
+     * @throws IOException if the file can not be read or is not a snapshot file.
+     */
+    static EpsgSnapshot open(final File file, final String version) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        final ByteBuffer buffer;
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+        final int size = buffer.capacity();
+        if (size < 16 || buffer.getLong(size - 8) != MAGIC) {
+            throw new IOException(file + " is not an EPSG snapshot file");
+        }
+        final ByteBuffer header = buffer.duplicate();
+        header.position((int) buffer.getLong(size - 16));
+        final DataInputStream in = new DataInputStream(new BufferInputStream(header));
+        if (!version.equals(in.readUTF())) {
+            return null;
+        }
+        final int segmentCount = in.readInt();
+        final long[] offsets = new long[segmentCount];
+        final int[] lengths = new int[segmentCount];
+        for (int i=0; i<segmentCount; i++) {
+            offsets[i] = in.readLong();
+            lengths[i] = in.readInt();
+        }
+        final int count = in.readInt();
+        final Map<String,Integer> index = new HashMap<String,Integer>(count * 2);
+        for (int i=0; i<count; i++) {
+            final String code = in.readUTF();
+            index.put(code, in.readInt());
+        }
+        return new EpsgSnapshot(file, buffer, offsets, lengths, index);
+    }
+
+    /**
+     * Returns the number of objects in this snapshot.
+     */
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns {@code true} if this snapshot contains the specified code.
+     */
+    boolean contains(final String code) {
+        return index.containsKey(code);
+    }
+
+    /**
+     * Returns the coordinate reference system for the specified code, or {@code null} if it
+     * is not in this snapshot. The same instance is returned as long as it is in use.
+     *
+     * @param  code The EPSG code, without authority.
+     * @return The coordinate reference system, or {@code null}.
+     * @throws IOException if the object can not be deserialized.
+     */
+    CoordinateReferenceSystem get(final String code) throws IOException {
+        final Integer segment = index.get(code);
+        if (segment == null) {
+            return null;
+        }
+        return getSegment(segment).get(code);
+    }
+
+    /**
+     * Returns the objects of the specified segment, deserializing them if needed, or an
+     * empty map if this snapshot has been disposed.
+     */
+    private synchronized Map<String,CoordinateReferenceSystem> getSegment(final int segment)
+            throws IOException
+    {
+        if (disposed) {
+            return Collections.emptyMap();
+        }
+        final Reference<Map<String,CoordinateReferenceSystem>> ref = segments[segment];
+        Map<String,CoordinateReferenceSystem> objects = (ref != null) ? ref.get() : null;
+        if (objects == null) {
+            final ByteBuffer data = buffer.duplicate();
+            data.position((int) offsets[segment]);
+            data.limit((int) offsets[segment] + lengths[segment]);
+            final ObjectInputStream in = new SnapshotInputStream(new BufferInputStream(data));
+            try {
+                final int count = in.readInt();
+                objects = new HashMap<String,CoordinateReferenceSystem>(count * 2);
+                for (int i=0; i<count; i++) {
+                    final String code = in.readUTF();
+                    objects.put(code, (CoordinateReferenceSystem) in.readObject());
+                }
+            } catch (ClassNotFoundException e) {
+                final IOException exception = new IOException("Can't read " + file);
+                exception.initCause(e);
+                throw exception;
+            } finally {
+                in.close();
+            }
+            segments[segment] = new SoftReference<Map<String,CoordinateReferenceSystem>>(objects);
+        }
+        return objects;
+    }
+
+    /**
+     * Unmaps the file. The segments are read under the same lock, so no reading can be in
+     * progress, and the lookups made afterward find nothing.
+     */
+    synchronized void dispose() {
+        if (!disposed) {
+            disposed = true;
+            NIOUtilities.clean(buffer, true);
+        }
+    }
+
+    /**
+     * Writes a snapshot file. The objects are serialized one segment at a time, so that only
+     * a segment is kept in memory. The file is written under a temporary name and renamed
+     * only once complete, so that readers never see a partial snapshot.
+     */
+    static final class Writer {
+        /**
+         * The final and the temporary file.
+         */
+        private final File file, temporary;
+
+        /**
+         * The version string to write in the index.
+         */
+        private final String version;
+
+        /**
+         * The output stream on the temporary file.
+         */
+        private final DataOutputStream out;
+
+        /**
+         * The position and length of the segments written so far.
+         */
+        private final List<long[]> segments = new ArrayList<long[]>();
+
+        /**
+         * The codes written so far, with their segment.
+         */
+        private final List<String> codes = new ArrayList<String>();
+
+        /**
+         * The codes and objects of the segment being filled.
+         */
+        private final List<String> pendingCodes = new ArrayList<String>(SEGMENT_SIZE);
+        private final List<CoordinateReferenceSystem> pendingObjects =
+                new ArrayList<CoordinateReferenceSystem>(SEGMENT_SIZE);
+
+        /**
+         * Creates a writer for the specified snapshot file.
+         */
+        Writer(final File file, final String version) throws IOException {
+            this.file     = file;
+            this.version  = version;
+            this.temporary = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        }
+
+        /**
+         * Adds a coordinate reference system to the snapshot.
+         */
+        void add(final String code, final CoordinateReferenceSystem crs) throws IOException {
+            pendingCodes.add(code);
+            pendingObjects.add(crs);
+            if (pendingCodes.size() == SEGMENT_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the pending objects as a new segment.
+         */
+        private void flush() throws IOException {
+            if (pendingCodes.isEmpty()) {
+                return;
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream stream = new ObjectOutputStream(bytes);
+            stream.writeInt(pendingCodes.size());
+            for (int i=0; i<pendingCodes.size(); i++) {
+                stream.writeUTF(pendingCodes.get(i));
+                stream.writeObject(pendingObjects.get(i));
+            }
+            stream.close();
+            segments.add(new long[] {out.size(), bytes.size()});
+            bytes.writeTo(out);
+            codes.addAll(pendingCodes);
+            pendingCodes.clear();
+            pendingObjects.clear();
+        }
+
+        /**
+         * Writes the index and moves the complete snapshot to its final location.
+         */
+        void close() throws IOException {
+            flush();
+            final long indexPosition = out.size();
+            out.writeUTF(version);
+            out.writeInt(segments.size());
+            for (final long[] segment : segments) {
+                out.writeLong(segment[0]);
+                out.writeInt((int) segment[1]);
+            }
+            out.writeInt(codes.size());
+            for (int i=0; i<codes.size(); i++) {
+                out.writeUTF(codes.get(i));
+                out.writeInt(i / SEGMENT_SIZE);
+            }
+            out.writeLong(indexPosition);
+            out.writeLong(MAGIC);
+            out.close();
+            if (!temporary.renameTo(file)) {
+                // Windows does not rename over an existing file.
+                file.delete();
+                if (!temporary.renameTo(file)) {
+                    temporary.delete();
+                    throw new IOException("Can't create " + file);
+                }
+            }
+        }
+
+        /**
+         * Discards the snapshot being written.
+         */
+        void abort() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Not a problem, we are discarding the file anyway.
+            }
+            temporary.delete();
+        }
+    }
+
+    /**
+     * An object input stream refusing the classes outside of the {@link #ALLOWED_PACKAGES}.
+     */
+    private static final class SnapshotInputStream extends ObjectInputStream {
+        SnapshotInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException
+        {
+            String name = desc.getName();
+            // Arrays: check the component type, primitive components are fine.
+            final int dimension = name.lastIndexOf('[') + 1;
+            if (dimension != 0) {
+                if (name.charAt(dimension) != 'L') {
+                    return super.resolveClass(desc);
+                }
+                name = name.substring(dimension + 1, name.length() - 1);
+            } else if (name.indexOf('.') < 0) {
+                // Primitive types, as in the value class of parameter descriptors.
+                return super.resolveClass(desc);
+            }
+            for (final String allowed : ALLOWED_PACKAGES) {
+                if (name.startsWith(allowed)) {
+                    return super.resolveClass(desc);
+                }
+            }
+            throw new InvalidClassException(name, "Not allowed in an EPSG snapshot");
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException {
+            throw new InvalidClassException("Proxies are not allowed in an EPSG snapshot");
+        }
+    }
+
+    /**
+     * An input stream over the remaining bytes of a buffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -47,6 +47,13 @@ final class FactoryUsingHSQL extends FactoryUsingAnsiSQL {
             Pattern.compile("\\s+FROM\\s*\\(",
             Pattern.CASE_INSENSITIVE);
 
+    /**
+     * Whether the database engine should be shutdown when this factory is disposed.
+     * Set to {@code false} for additional connections opened while an other factory
+     * may still be using the same database.
+     */
+    boolean shutdownOnDispose = true;
+
     /**
      * Constructs the factory for the given connection to the HSQL database.
      */
@@ -92,7 +99,7 @@ final class FactoryUsingHSQL extends FactoryUsingAnsiSQL {
      * shutdown time just before to close the connection.
      */
     protected void shutdown(final boolean active) throws SQLException {
-        if (active) {
+        if (active && shutdownOnDispose) {
             final Statement statement = getConnection().createStatement();
             statement.execute("SHUTDOWN");
             statement.close();
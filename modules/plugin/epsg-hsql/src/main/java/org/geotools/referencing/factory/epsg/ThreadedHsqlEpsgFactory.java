@@ -24,6 +24,9 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -32,7 +35,9 @@ import java.util.zip.ZipInputStream;
 
 import javax.sql.DataSource;
 
+import org.geotools.factory.GeoTools;
 import org.geotools.factory.Hints;
+import org.geotools.referencing.ReferencingFactoryFinder;
 import org.geotools.referencing.factory.AbstractAuthorityFactory;
 import org.geotools.resources.i18n.ErrorKeys;
 import org.geotools.resources.i18n.Errors;
@@ -42,6 +47,9 @@ import org.geotools.util.Version;
 import org.geotools.util.logging.Logging;
 import org.hsqldb.jdbc.jdbcDataSource;
 import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
 
 
 /**
@@ -63,6 +71,14 @@ import org.opengis.referencing.FactoryException;
  * If the EPSG database should be created in a different directory (or already exists in that
  * directory), it may be specified as a {@linkplain System#getProperty(String) system property}
  * nammed {@value #DIRECTORY_KEY}.
+ * <p>
+ * The coordinate reference systems are also saved in a snapshot file next to the database,
+ * built in a background thread the first time the database is used. Later instances map
+ * that file and deserialize the objects from there, which is much faster than starting the
+ * database and querying it. The snapshot can be disabled by setting the {@value #SNAPSHOT_KEY}
+ * system property to {@code false}. On creation the factory also decodes, in the same
+ * background thread, the codes listed in the {@value #WARMUP_KEY} system property
+ * ({@value #DEFAULT_WARMUP} by default, an empty value disables the warmup).
  *
  * @since 2.4
  *
@@ -86,6 +102,24 @@ public class ThreadedHsqlEpsgFactory extends ThreadedEpsgFactory {
      */
     public static final String DIRECTORY_KEY = "EPSG-HSQL.directory";
 
+    /**
+     * The key for fetching from {@linkplain System#getProperty(String) system properties}
+     * whether the CRS snapshot should be used and built. Enabled by default.
+     */
+    public static final String SNAPSHOT_KEY = "EPSG-HSQL.snapshot";
+
+    /**
+     * The key for fetching from {@linkplain System#getProperty(String) system properties}
+     * the comma separated list of codes to decode in background on factory creation.
+     */
+    public static final String WARMUP_KEY = "EPSG-HSQL.warmup";
+
+    /**
+     * The codes decoded in background on factory creation, unless
+     * the {@value #WARMUP_KEY} system property says otherwise.
+     */
+    public static final String DEFAULT_WARMUP = "4326,3857,4258,4269,3395,32632,32633";
+
     /**
      * The name of the ZIP file to read in order to create the cached database.
      */
@@ -106,6 +140,16 @@ public class ThreadedHsqlEpsgFactory extends ThreadedEpsgFactory {
      */
     static final String LOCK_FILE = "EPSG_creation_lock.txt";
 
+    /**
+     * The snapshot of the coordinate reference systems
+     */
+    static final String SNAPSHOT_FILE = "EPSG_snapshot.bin";
+
+    /**
+     * The snapshot files being built in this JVM, so that they get built only once
+     */
+    private static final Set<File> SNAPSHOT_BUILDS = Collections.synchronizedSet(new HashSet<File>());
+
     /**
      * The prefix to put in front of URL to the database.
      */
@@ -116,6 +160,26 @@ public class ThreadedHsqlEpsgFactory extends ThreadedEpsgFactory {
      */
     static final String LOGGER = "org.geotools.referencing.factory.epsg";
 
+    /**
+     * The snapshot file, or {@code null} if snapshots are disabled.
+     */
+    private final File snapshotFile;
+
+    /**
+     * The snapshot of the coordinate reference systems, or {@code null} if not yet available.
+     */
+    private volatile EpsgSnapshot snapshot;
+
+    /**
+     * The codes to decode in background.
+     */
+    private final String[] warmupCodes;
+
+    /**
+     * Set to {@code true} on disposal, stops the background warmup.
+     */
+    private volatile boolean disposed;
+
     /**
      * Creates a new instance of this factory. If the {@value #DIRECTORY_KEY}
      * {@linkplain System#getProperty(String) system property} is defined and contains
@@ -139,6 +203,229 @@ public class ThreadedHsqlEpsgFactory extends ThreadedEpsgFactory {
      */
     public ThreadedHsqlEpsgFactory(final Hints hints) {
         super(hints, PRIORITY + 1);
+        final File directory = getDirectory();
+        if (directory != null && !"false".equalsIgnoreCase(System.getProperty(SNAPSHOT_KEY))) {
+            snapshotFile = new File(new File(directory, "v" + VERSION), SNAPSHOT_FILE);
+            try {
+                snapshot = EpsgSnapshot.open(snapshotFile, getSnapshotVersion());
+            } catch (IOException e) {
+                Logging.getLogger(LOGGER).log(Level.WARNING, "Ignoring the EPSG snapshot "
+                        + snapshotFile + ", it will be built again", e);
+            }
+        } else {
+            snapshotFile = null;
+        }
+        warmupCodes = System.getProperty(WARMUP_KEY, DEFAULT_WARMUP).split(",");
+        final boolean warmup = warmupCodes.length > 1 || warmupCodes[0].trim().length() > 0;
+        if (warmup || (snapshotFile != null && snapshot == null)) {
+            final Thread thread = new Thread(new Warmup(), "EPSG-HSQL warmup");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns the version written in the snapshot files. The serialized form of the
+     * referencing objects depends on the GeoTools version as well.
+     */
+    private static String getSnapshotVersion() {
+        return VERSION + "/" + GeoTools.getVersion();
+    }
+
+    /**
+     * Decodes the warmup codes, then builds the snapshot if there is none yet.
+     */
+    private final class Warmup implements Runnable {
+        public void run() {
+            final Logger logger = Logging.getLogger(LOGGER);
+            for (final String code : warmupCodes) {
+                if (disposed) {
+                    return;
+                }
+                if (code.trim().length() != 0) {
+                    try {
+                        if (fromSnapshot(code.trim()) == null && snapshot == null) {
+                            decode(ThreadedHsqlEpsgFactory.this, code.trim());
+                        }
+                    } catch (FactoryException e) {
+                        logger.log(Level.FINE, "Warmup failed for code " + code, e);
+                    }
+                }
+            }
+            if (snapshotFile != null && snapshot == null && SNAPSHOT_BUILDS.add(snapshotFile)) {
+                try {
+                    buildSnapshot();
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Could not build the EPSG snapshot " + snapshotFile, e);
+                } finally {
+                    SNAPSHOT_BUILDS.remove(snapshotFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes all the coordinate reference systems and saves them in the snapshot file.
+     * The objects are created by a backing store of its own, so that the one used by this
+     * factory can still be released after the {@linkplain #setTimeout timeout}. That store
+     * is not registered nor shared, so no thread scanning the factory registry can wait on
+     * it: the codes are decoded without the {@link ReferencingFactoryFinder} lock, leaving
+     * the application lookups free to proceed while the snapshot is built.
+     */
+    private void buildSnapshot() throws FactoryException, IOException, SQLException {
+        final long start = System.currentTimeMillis();
+        final AbstractAuthorityFactory store;
+        synchronized (ReferencingFactoryFinder.class) {
+            store = createBackingStore(new Hints(hints));
+        }
+        if (store instanceof FactoryUsingHSQL) {
+            // The database may be in use by our own backing store, let HSQL shut it
+            // down when the last connection gets closed.
+            ((FactoryUsingHSQL) store).shutdownOnDispose = false;
+        }
+        try {
+            final Set<String> codes = store.getAuthorityCodes(CoordinateReferenceSystem.class);
+            final EpsgSnapshot.Writer writer = new EpsgSnapshot.Writer(snapshotFile,
+                    getSnapshotVersion());
+            try {
+                for (final String code : codes) {
+                    if (disposed) {
+                        writer.abort();
+                        return;
+                    }
+                    final CoordinateReferenceSystem crs;
+                    try {
+                        crs = create(store, code);
+                    } catch (FactoryException e) {
+                        // Some EPSG codes can not be decoded, they just won't be in the snapshot.
+                        continue;
+                    }
+                    writer.add(code, crs);
+                }
+                writer.close();
+            } catch (IOException e) {
+                writer.abort();
+                throw e;
+            }
+        } finally {
+            store.dispose();
+        }
+        final EpsgSnapshot snapshot = EpsgSnapshot.open(snapshotFile, getSnapshotVersion());
+        synchronized (this) {
+            if (disposed) {
+                snapshot.dispose();
+                return;
+            }
+            this.snapshot = snapshot;
+        }
+        final Logger logger = Logging.getLogger(LOGGER);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Built the EPSG snapshot " + snapshotFile + " with " + snapshot.size()
+                    + " CRS in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    /**
+     * Decodes a code from the database on behalf of the background warmup. The lock on
+     * {@link ReferencingFactoryFinder} is taken first, in the same order than a thread
+     * scanning the factory registry does, since the database objects creation ends up asking
+     * the registry for factories too: otherwise the two threads could deadlock.
+     *
+     * @param factory The factory to use.
+     */
+    private static CoordinateReferenceSystem decode(final AbstractAuthorityFactory factory,
+            final String code) throws FactoryException
+    {
+        synchronized (ReferencingFactoryFinder.class) {
+            return create(factory, code);
+        }
+    }
+
+    /**
+     * Creates the coordinate reference system for the specified code, trying again once if
+     * the database connection was lost.
+     */
+    private static CoordinateReferenceSystem create(final AbstractAuthorityFactory factory,
+            final String code) throws FactoryException
+    {
+        try {
+            return factory.createCoordinateReferenceSystem(code);
+        } catch (FactoryException e) {
+            if (!(e.getCause() instanceof SQLException)) {
+                throw e;
+            }
+            // The database may have been shutdown by the disposal of an other backing
+            // store, try again with the new connection the factory will open.
+            return factory.createCoordinateReferenceSystem(code);
+        }
+    }
+
+    /**
+     * Returns the coordinate reference system for the specified code from the snapshot,
+     * or {@code null} if it is not there.
+     */
+    private CoordinateReferenceSystem fromSnapshot(final String code) {
+        final EpsgSnapshot snapshot = this.snapshot;
+        if (snapshot != null) {
+            try {
+                return snapshot.get(trimAuthority(code));
+            } catch (IOException e) {
+                Logging.getLogger(LOGGER).log(Level.WARNING, "Disabling the EPSG snapshot "
+                        + snapshotFile + ", it can not be read", e);
+                this.snapshot = null;
+                snapshot.dispose();
+                snapshotFile.delete();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns an arbitrary coordinate reference system from a code, looking in the snapshot
+     * first.
+     *
+     * @throws FactoryException if the object creation failed.
+     */
+    @Override
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+            throws FactoryException
+    {
+        final CoordinateReferenceSystem crs = fromSnapshot(code);
+        if (crs != null) {
+            return crs;
+        }
+        return super.createCoordinateReferenceSystem(code);
+    }
+
+    /**
+     * Returns a geographic coordinate reference system from a code, looking in the snapshot
+     * first.
+     *
+     * @throws FactoryException if the object creation failed.
+     */
+    @Override
+    public GeographicCRS createGeographicCRS(final String code) throws FactoryException {
+        final CoordinateReferenceSystem crs = fromSnapshot(code);
+        if (crs instanceof GeographicCRS) {
+            return (GeographicCRS) crs;
+        }
+        return super.createGeographicCRS(code);
+    }
+
+    /**
+     * Returns a projected coordinate reference system from a code, looking in the snapshot
+     * first.
+     *
+     * @throws FactoryException if the object creation failed.
+     */
+    @Override
+    public ProjectedCRS createProjectedCRS(final String code) throws FactoryException {
+        final CoordinateReferenceSystem crs = fromSnapshot(code);
+        if (crs instanceof ProjectedCRS) {
+            return (ProjectedCRS) crs;
+        }
+        return super.createProjectedCRS(code);
     }
 
     /**
@@ -364,4 +651,18 @@ public class ThreadedHsqlEpsgFactory extends ThreadedEpsgFactory {
         return lock;
     }
 
+    /**
+     * Releases resources immediately instead of waiting for the garbage collector,
+     * and stops the background warmup.
+     */
+    @Override
+    public synchronized void dispose() throws FactoryException {
+        disposed = true;
+        if (snapshot != null) {
+            snapshot.dispose();
+            snapshot = null;
+        }
+        super.dispose();
+    }
+
 }
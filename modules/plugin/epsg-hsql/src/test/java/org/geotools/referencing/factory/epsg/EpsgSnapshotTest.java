@@ -0,0 +1,184 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Writes and reads back snapshots of coordinate reference systems.
+ */
+public class EpsgSnapshotTest {
+
+    private static final String VERSION = "test/1";
+
+    private CRSAuthorityFactory factory;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        factory = ReferencingFactoryFinder.getCRSAuthorityFactory("EPSG", null);
+        file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    /**
+     * Collects enough codes to fill more than a segment, skipping the ones that can't be decoded.
+     */
+    private List<String> codes(final int count) throws FactoryException {
+        final List<String> codes = new ArrayList<String>();
+        codes.add("4326");
+        codes.add("3857");
+        final Iterator<String> it = factory.getAuthorityCodes(CoordinateReferenceSystem.class)
+                .iterator();
+        while (codes.size() < count && it.hasNext()) {
+            final String code = it.next();
+            if (codes.contains(code)) {
+                continue;
+            }
+            try {
+                factory.createCoordinateReferenceSystem(code);
+                codes.add(code);
+            } catch (FactoryException e) {
+                // not all EPSG codes can be decoded
+            }
+        }
+        return codes;
+    }
+
+    private void write(final List<String> codes, final String version) throws Exception {
+        final EpsgSnapshot.Writer writer = new EpsgSnapshot.Writer(file, version);
+        for (String code : codes) {
+            writer.add(code, factory.createCoordinateReferenceSystem(code));
+        }
+        writer.close();
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        final List<String> codes = codes(EpsgSnapshot.SEGMENT_SIZE + 8);
+        write(codes, VERSION);
+
+        final EpsgSnapshot snapshot = EpsgSnapshot.open(file, VERSION);
+        assertNotNull(snapshot);
+        assertEquals(codes.size(), snapshot.size());
+        for (String code : codes) {
+            assertTrue(snapshot.contains(code));
+            final CoordinateReferenceSystem expected = factory.createCoordinateReferenceSystem(code);
+            final CoordinateReferenceSystem actual = snapshot.get(code);
+            assertEquals(code, expected, actual);
+            assertSame(code, actual, snapshot.get(code));
+        }
+        assertNotNull(CRS.getEnvelope(snapshot.get("4326")));
+        assertNull(snapshot.get("123456"));
+        assertFalse(snapshot.contains("123456"));
+    }
+
+    @Test
+    public void testDispose() throws Exception {
+        final List<String> codes = new ArrayList<String>();
+        codes.add("4326");
+        write(codes, VERSION);
+        final EpsgSnapshot snapshot = EpsgSnapshot.open(file, VERSION);
+        assertNotNull(snapshot.get("4326"));
+        snapshot.dispose();
+        assertNull(snapshot.get("4326"));
+        snapshot.dispose();
+    }
+
+    @Test
+    public void testRefusesOtherClasses() throws Exception {
+        // a segment holding an object outside of the referencing packages
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream segment = new ObjectOutputStream(bytes);
+        segment.writeInt(1);
+        segment.writeUTF("4326");
+        segment.writeObject(new File("not a crs"));
+        segment.close();
+
+        final DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        bytes.writeTo(out);
+        out.writeUTF(VERSION);
+        out.writeInt(1);
+        out.writeLong(0);
+        out.writeInt(bytes.size());
+        out.writeInt(1);
+        out.writeUTF("4326");
+        out.writeInt(0);
+        out.writeLong(bytes.size());
+        out.writeLong(EpsgSnapshot.MAGIC);
+        out.close();
+
+        final EpsgSnapshot snapshot = EpsgSnapshot.open(file, VERSION);
+        try {
+            snapshot.get("4326");
+            fail("java.io.File should not be deserialized");
+        } catch (InvalidClassException e) {
+            assertEquals("java.io.File", e.classname);
+        } finally {
+            snapshot.dispose();
+        }
+    }
+
+    @Test
+    public void testVersionMismatch() throws Exception {
+        final List<String> codes = new ArrayList<String>();
+        codes.add("4326");
+        write(codes, VERSION);
+        assertNull(EpsgSnapshot.open(file, "test/2"));
+        assertNotNull(EpsgSnapshot.open(file, VERSION));
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+        file.delete();
+        assertNull(EpsgSnapshot.open(file, VERSION));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotASnapshot() throws Exception {
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[64]);
+        out.close();
+        EpsgSnapshot.open(file, VERSION);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.spi.ImageInputStreamSpi;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+
+import org.geotools.gce.geotiff.GeoTiffTileCache.TileKey;
+
+/**
+ * A deferred image over a tiled TIFF image, whose tile grid matches the one of the file. Each
+ * tile request decodes exactly one TIFF tile, and only if the tile is not found in the
+ * {@link GeoTiffTileCache}, where the decoded tiles are stored for the next reads.
+ * <p>
+ * The image keeps a single reader open on the file, the one used to parse the headers when the
+ * image was created, and decodes the missing tiles with it one at a time. The reader is closed
+ * by {@link #dispose()}. The tiles returned are copies, so that callers writing into them do
+ * not alter the cached ones.
+ */
+class CachedTiffTileImage extends PlanarImage {
+
+    final File file;
+
+    final long lastModified;
+
+    final int imageIndex;
+
+    final ImageReaderSpi readerSpi;
+
+    final ImageInputStreamSpi inStreamSpi;
+
+    final GeoTiffTileCache cache;
+
+    /**
+     * Guards the reader, which is not thread safe
+     */
+    final Object readerLock = new Object();
+
+    ImageInputStream stream;
+
+    ImageReader reader;
+
+    /**
+     * Builds an image over the specified image of the TIFF file, or returns null if the image is
+     * not tiled
+     * 
+     * @param file the TIFF file
+     * @param imageIndex the index of the image in the file, either the full resolution one or an
+     *        overview
+     * @param readerSpi used to create the reader decoding the tiles
+     * @param inStreamSpi used to open the file, if null {@link ImageIO} will be used instead
+     * @param cache the cache holding the decoded tiles
+     */
+    static CachedTiffTileImage create(File file, int imageIndex, ImageReaderSpi readerSpi,
+            ImageInputStreamSpi inStreamSpi, GeoTiffTileCache cache) throws IOException {
+        final long lastModified = file.lastModified();
+        ImageInputStream stream = null;
+        ImageReader reader = null;
+        CachedTiffTileImage image = null;
+        try {
+            stream = openStream(file, inStreamSpi);
+            reader = readerSpi.createReaderInstance();
+            reader.setInput(stream);
+            if (!reader.isImageTiled(imageIndex)) {
+                return null;
+            }
+            final int width = reader.getWidth(imageIndex);
+            final int height = reader.getHeight(imageIndex);
+            // a tile larger than the image is clipped by the reader, keep the grid as small
+            final int tileWidth = Math.min(reader.getTileWidth(imageIndex), width);
+            final int tileHeight = Math.min(reader.getTileHeight(imageIndex), height);
+            final Iterator<ImageTypeSpecifier> types = reader.getImageTypes(imageIndex);
+            if (!types.hasNext()) {
+                return null;
+            }
+            final ImageTypeSpecifier type = types.next();
+            final ImageLayout layout = new ImageLayout(0, 0, width, height, 0, 0, tileWidth,
+                    tileHeight, type.getSampleModel(tileWidth, tileHeight), type.getColorModel());
+            image = new CachedTiffTileImage(file, lastModified, imageIndex, readerSpi,
+                    inStreamSpi, cache, layout);
+            // the headers are parsed already, keep the reader for the tiles
+            image.stream = stream;
+            image.reader = reader;
+            return image;
+        } finally {
+            if (image == null) {
+                close(stream, reader);
+            }
+        }
+    }
+
+    CachedTiffTileImage(File file, long lastModified, int imageIndex, ImageReaderSpi readerSpi,
+            ImageInputStreamSpi inStreamSpi, GeoTiffTileCache cache, ImageLayout layout) {
+        super(layout, null, null);
+        this.file = file;
+        this.lastModified = lastModified;
+        this.imageIndex = imageIndex;
+        this.readerSpi = readerSpi;
+        this.inStreamSpi = inStreamSpi;
+        this.cache = cache;
+    }
+
+    static ImageInputStream openStream(File file, ImageInputStreamSpi inStreamSpi)
+            throws IOException {
+        final ImageInputStream stream;
+        if (inStreamSpi != null) {
+            stream = inStreamSpi.createInputStreamInstance(file, ImageIO.getUseCache(), ImageIO
+                    .getCacheDirectory());
+        } else {
+            stream = ImageIO.createImageInputStream(file);
+        }
+        if (stream == null) {
+            throw new IOException("Could not open an input stream on " + file);
+        }
+        return stream;
+    }
+
+    static void close(ImageInputStream stream, ImageReader reader) {
+        if (reader != null) {
+            try {
+                reader.dispose();
+            } catch (Throwable t) {
+            }
+        }
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (Throwable t) {
+            }
+        }
+    }
+
+    /**
+     * Returns the cached tile, decoding it if missing. The returned raster is the cached one, it
+     * must not be handed out to callers as is
+     */
+    Raster getCachedTile(int tileX, int tileY) throws IOException {
+        final TileKey key = new TileKey(file, lastModified, imageIndex, tileX, tileY);
+        Raster tile = cache.getTile(key);
+        if (tile == null) {
+            synchronized (readerLock) {
+                // another thread might have decoded it while we were waiting
+                tile = cache.getTile(key);
+                if (tile == null) {
+                    tile = decodeTile(tileX, tileY);
+                    cache.addTile(key, tile);
+                }
+            }
+        }
+        return tile;
+    }
+
+    /**
+     * Decodes a tile, must be called holding the reader lock
+     */
+    Raster decodeTile(int tileX, int tileY) throws IOException {
+        if (reader == null) {
+            // reopened after a dispose
+            stream = openStream(file, inStreamSpi);
+            reader = readerSpi.createReaderInstance();
+            reader.setInput(stream);
+        }
+        final BufferedImage decoded = reader.readTile(imageIndex, tileX, tileY);
+        Raster raster = decoded.getRaster();
+        if (raster.getWidth() != tileWidth || raster.getHeight() != tileHeight) {
+            // tiles on the right and bottom borders are clipped by the reader, while the
+            // ones of a rendered image all have the same size
+            final WritableRaster full = Raster.createWritableRaster(sampleModel, null);
+            full.setRect(raster);
+            raster = full;
+        }
+        return raster.createTranslatedChild(tileX * tileWidth, tileY * tileHeight);
+    }
+
+    public Raster getTile(int tileX, int tileY) {
+        final Raster tile;
+        try {
+            tile = getCachedTile(tileX, tileY);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read tile " + tileX + ", " + tileY + " of "
+                    + file, e);
+        }
+        final WritableRaster copy = tile.createCompatibleWritableRaster(tile.getMinX(), tile
+                .getMinY(), tile.getWidth(), tile.getHeight());
+        copy.setRect(tile);
+        return copy;
+    }
+
+    public Raster getData() {
+        return getData(getBounds());
+    }
+
+    public Raster getData(Rectangle region) {
+        final Rectangle area = region.intersection(getBounds());
+        if (area.isEmpty()) {
+            throw new IllegalArgumentException("The region " + region
+                    + " does not intersect the image bounds " + getBounds());
+        }
+        final WritableRaster raster = Raster.createWritableRaster(sampleModel
+                .createCompatibleSampleModel(area.width, area.height), new Point(area.x, area.y));
+        copyTiles(raster, area);
+        return raster;
+    }
+
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            raster = Raster.createWritableRaster(sampleModel.createCompatibleSampleModel(width,
+                    height), null);
+        }
+        final Rectangle area = raster.getBounds().intersection(getBounds());
+        if (!area.isEmpty()) {
+            copyTiles(raster, area);
+        }
+        return raster;
+    }
+
+    /**
+     * Copies the tiles intersecting the area in the raster, straight from the cache
+     */
+    void copyTiles(WritableRaster raster, Rectangle area) {
+        final int minTileX = area.x / tileWidth;
+        final int maxTileX = (area.x + area.width - 1) / tileWidth;
+        final int minTileY = area.y / tileHeight;
+        final int maxTileY = (area.y + area.height - 1) / tileHeight;
+        try {
+            for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                    // setRect clips the tile to the raster bounds
+                    raster.setRect(getCachedTile(tileX, tileY));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + area + " from " + file, e);
+        }
+    }
+
+    /**
+     * Closes the reader, the decoded tiles stay in the cache
+     */
+    @Override
+    public void dispose() {
+        synchronized (readerLock) {
+            close(stream, reader);
+            stream = null;
+            reader = null;
+        }
+        super.dispose();
+    }
+}
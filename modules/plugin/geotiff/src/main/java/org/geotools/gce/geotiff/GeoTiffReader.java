@@ -65,7 +65,6 @@ import javax.imageio.spi.ImageInputStreamSpi;
 import javax.imageio.stream.ImageInputStream;
 import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
-import javax.media.jai.RenderedOp;
 
 import org.geotools.coverage.Category;
 import org.geotools.coverage.GridSampleDimension;
@@ -135,6 +134,9 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 
     private int extOvrImgChoice = -1;
 
+    /** Cache of the decoded tiles, null if tiles are not cached */
+    private GeoTiffTileCache tileCache = GeoTiffTileCache.getSharedCache();
+
 	/**
 	 * Creates a new instance of GeoTiffReader
 	 * 
@@ -494,25 +496,34 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 //		}
 //		inStream.close();
 //		reader.reset();
-		final ParameterBlock pbjRead = new ParameterBlock();
-        if (extOvrImgChoice >= 0 && imageChoice >= extOvrImgChoice) {
-            pbjRead.add(ovrInStreamSPI.createInputStreamInstance(ovrSource, ImageIO.getUseCache(),
-                    ImageIO.getCacheDirectory()));
-            pbjRead.add(imageChoice - extOvrImgChoice);
-        } else {
-            pbjRead.add(inStreamSPI != null ? inStreamSPI.createInputStreamInstance(source, ImageIO.getUseCache(), 
-                    ImageIO.getCacheDirectory()) : ImageIO.createImageInputStream(source));
-            pbjRead.add(imageChoice);
-        }
-    		pbjRead.add(Boolean.FALSE);
-		pbjRead.add(Boolean.FALSE);
-		pbjRead.add(Boolean.FALSE);
-		pbjRead.add(null);
-		pbjRead.add(null);
-		pbjRead.add(readP);
-		pbjRead.add( readerSPI.createReaderInstance());
-		final RenderedOp coverageRaster=JAI.create("ImageRead", pbjRead,
-                        (RenderingHints) newHints);
+		// tiled images are read tile by tile through the tile cache, so that tiles decoded by
+		// previous reads are not decompressed again
+		PlanarImage coverageRaster = null;
+		if (tileCache != null && tileCache.isEnabled() && source instanceof File
+				&& readP.getSourceXSubsampling() == 1 && readP.getSourceYSubsampling() == 1) {
+			coverageRaster = readCachedTiles(imageChoice, newHints);
+		}
+		if (coverageRaster == null) {
+			final ParameterBlock pbjRead = new ParameterBlock();
+			if (extOvrImgChoice >= 0 && imageChoice >= extOvrImgChoice) {
+				pbjRead.add(ovrInStreamSPI.createInputStreamInstance(ovrSource, ImageIO.getUseCache(),
+						ImageIO.getCacheDirectory()));
+				pbjRead.add(imageChoice - extOvrImgChoice);
+			} else {
+				pbjRead.add(inStreamSPI != null ? inStreamSPI.createInputStreamInstance(source, ImageIO.getUseCache(), 
+						ImageIO.getCacheDirectory()) : ImageIO.createImageInputStream(source));
+				pbjRead.add(imageChoice);
+			}
+			pbjRead.add(Boolean.FALSE);
+			pbjRead.add(Boolean.FALSE);
+			pbjRead.add(Boolean.FALSE);
+			pbjRead.add(null);
+			pbjRead.add(null);
+			pbjRead.add(readP);
+			pbjRead.add( readerSPI.createReaderInstance());
+			coverageRaster=JAI.create("ImageRead", pbjRead,
+					(RenderingHints) newHints);
+		}
 
 		// /////////////////////////////////////////////////////////////////////
 		//
@@ -549,6 +560,48 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 
 	}
 
+    /**
+     * Builds a deferred image reading the tiles of the selected image through the tile cache, or
+     * returns null if the image is not tiled. The image follows the TIFF tile grid, a layout or a
+     * JAI tile cache found in the hints is applied by a format operation on top of it.
+     */
+    private PlanarImage readCachedTiles(int imageChoice, Hints hints) throws IOException {
+        final CachedTiffTileImage image;
+        if (extOvrImgChoice >= 0 && imageChoice >= extOvrImgChoice) {
+            image = CachedTiffTileImage.create(ovrSource, imageChoice - extOvrImgChoice,
+                    readerSPI, ovrInStreamSPI, tileCache);
+        } else {
+            image = CachedTiffTileImage.create((File) source, imageChoice, readerSPI,
+                    inStreamSPI, tileCache);
+        }
+        if (image == null) {
+            return null;
+        }
+        if (hints == null || (!hints.containsKey(JAI.KEY_IMAGE_LAYOUT)
+                && !hints.containsKey(JAI.KEY_TILE_CACHE))) {
+            return image;
+        }
+        final ParameterBlock pb = new ParameterBlock();
+        pb.addSource(image);
+        pb.add(image.getSampleModel().getDataType());
+        return JAI.create("Format", pb, (RenderingHints) hints);
+    }
+
+    /**
+     * Returns the cache holding the decoded tiles, by default the
+     * {@link GeoTiffTileCache#getSharedCache() shared one}
+     */
+    public GeoTiffTileCache getTileCache() {
+        return tileCache;
+    }
+
+    /**
+     * Sets the cache holding the decoded tiles, null disables tile caching for this reader
+     */
+    public void setTileCache(GeoTiffTileCache tileCache) {
+        this.tileCache = tileCache;
+    }
+
     /**
      * Returns the geotiff metadata for this geotiff file.
      * 
@@ -0,0 +1,271 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A memory bounded cache of decoded GeoTIFF tiles, keyed by file, image index (the full
+ * resolution image or an overview) and tile position.
+ * <p>
+ * Differently from the JAI tile cache, whose entries are bound to the image that computed them,
+ * the tiles stored here survive the coverage they were read for, so that repeated or
+ * overlapping reads against the same file do not decompress the same tiles over and over. The
+ * cache keeps the most recently used tiles, evicting the least recently used ones once the
+ * memory capacity is exceeded. Entries are keyed by the file modification time as well, so
+ * that a file changed on disk will not return stale tiles.
+ * <p>
+ * Cached tiles are shared among all the images reading them, and thus must be treated as read
+ * only.
+ */
+public class GeoTiffTileCache {
+
+    /**
+     * System property controlling the memory capacity, in bytes, of the shared cache, zero
+     * disables tile caching
+     */
+    public static final String MEMORY_CAPACITY_KEY = "org.geotools.gce.geotiff.tileCache.memoryCapacity";
+
+    private static final GeoTiffTileCache SHARED_CACHE = new GeoTiffTileCache(Long.getLong(
+            MEMORY_CAPACITY_KEY, 64 * 1024 * 1024));
+
+    /**
+     * Identifies a tile in a specific version of a file
+     */
+    static final class TileKey {
+        final File file;
+
+        final long lastModified;
+
+        final int imageIndex;
+
+        final int tileX;
+
+        final int tileY;
+
+        TileKey(File file, long lastModified, int imageIndex, int tileX, int tileY) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.imageIndex = imageIndex;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = file.hashCode();
+            result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+            result = 31 * result + imageIndex;
+            result = 31 * result + tileX;
+            result = 31 * result + tileY;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return tileX == other.tileX && tileY == other.tileY && imageIndex == other.imageIndex
+                    && lastModified == other.lastModified && file.equals(other.file);
+        }
+
+        @Override
+        public String toString() {
+            return file + "[" + imageIndex + "](" + tileX + ", " + tileY + ")";
+        }
+    }
+
+    /** The cached tiles, in access order */
+    final LinkedHashMap<TileKey, Raster> tiles = new LinkedHashMap<TileKey, Raster>(16, 0.75f,
+            true);
+
+    long memoryCapacity;
+
+    long memoryUsage;
+
+    long hits;
+
+    long misses;
+
+    long evictions;
+
+    /**
+     * Builds a new cache
+     * 
+     * @param memoryCapacity the max amount of memory, in bytes, used by the cached tiles, zero
+     *        disables caching
+     */
+    public GeoTiffTileCache(long memoryCapacity) {
+        this.memoryCapacity = memoryCapacity;
+    }
+
+    /**
+     * Returns the cache shared by all the {@link GeoTiffReader} instances, whose capacity is set
+     * by the {@link #MEMORY_CAPACITY_KEY} system property
+     */
+    public static GeoTiffTileCache getSharedCache() {
+        return SHARED_CACHE;
+    }
+
+    /**
+     * Returns true if the cache can hold tiles at all
+     */
+    public synchronized boolean isEnabled() {
+        return memoryCapacity > 0;
+    }
+
+    /**
+     * Returns the cached tile, or null if not found
+     */
+    synchronized Raster getTile(TileKey key) {
+        Raster tile = tiles.get(key);
+        if (tile != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return tile;
+    }
+
+    /**
+     * Adds a decoded tile to the cache, evicting the least recently used ones if the memory
+     * capacity is exceeded. Tiles bigger than the whole capacity are not cached.
+     */
+    synchronized void addTile(TileKey key, Raster tile) {
+        final long size = getTileSize(tile);
+        if (size > memoryCapacity) {
+            return;
+        }
+        Raster previous = tiles.put(key, tile);
+        if (previous != null) {
+            memoryUsage -= getTileSize(previous);
+        }
+        memoryUsage += size;
+        evict(memoryCapacity);
+    }
+
+    /**
+     * Removes the least recently used tiles until the memory usage is within the specified limit
+     */
+    void evict(long limit) {
+        for (Iterator<Raster> it = tiles.values().iterator(); memoryUsage > limit && it.hasNext();) {
+            memoryUsage -= getTileSize(it.next());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Returns the amount of memory, in bytes, used by the tile data
+     */
+    static long getTileSize(Raster tile) {
+        final DataBuffer buffer = tile.getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * Removes all the tiles read from the specified file
+     */
+    public synchronized void flush(File file) {
+        for (Iterator<Map.Entry<TileKey, Raster>> it = tiles.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<TileKey, Raster> entry = it.next();
+            if (entry.getKey().file.equals(file)) {
+                memoryUsage -= getTileSize(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all the tiles from the cache
+     */
+    public synchronized void flush() {
+        tiles.clear();
+        memoryUsage = 0;
+    }
+
+    /**
+     * The max amount of memory, in bytes, used by the cached tiles
+     */
+    public synchronized long getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    /**
+     * Sets the max amount of memory, in bytes, used by the cached tiles, evicting tiles if the
+     * current usage exceeds the new capacity. Zero disables caching.
+     */
+    public synchronized void setMemoryCapacity(long memoryCapacity) {
+        this.memoryCapacity = memoryCapacity;
+        evict(Math.max(0, memoryCapacity));
+    }
+
+    /**
+     * The amount of memory, in bytes, currently used by the cached tiles
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * The number of tiles currently cached
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * The number of tile lookups served by the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of tile lookups that required decoding the tile
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of tiles evicted to stay within the memory capacity
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Resets the hits, misses and evictions counters
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff;
+
+import static org.junit.Assert.*;
+
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReaderSpi;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+
+import org.geotools.gce.geotiff.GeoTiffTileCache.TileKey;
+import org.geotools.test.TestData;
+import org.junit.Test;
+
+public class GeoTiffTileCacheTest {
+
+    static final File FILE = new File("test.tif");
+
+    static Raster tile(int size) {
+        // one byte per pixel
+        return Raster.createBandedRaster(DataBuffer.TYPE_BYTE, size, size, 1, null);
+    }
+
+    static TileKey key(int imageIndex, int tileX, int tileY) {
+        return new TileKey(FILE, 0, imageIndex, tileX, tileY);
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        GeoTiffTileCache cache = new GeoTiffTileCache(1024);
+        assertNull(cache.getTile(key(0, 0, 0)));
+        cache.addTile(key(0, 0, 0), tile(8));
+        assertNotNull(cache.getTile(key(0, 0, 0)));
+        // different overview, different tile
+        assertNull(cache.getTile(key(1, 0, 0)));
+        // a new version of the file does not hit the old tiles
+        assertNull(cache.getTile(new TileKey(FILE, 1, 0, 0, 0)));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(64, cache.getMemoryUsage());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        GeoTiffTileCache cache = new GeoTiffTileCache(200);
+        cache.addTile(key(0, 0, 0), tile(8));
+        cache.addTile(key(0, 1, 0), tile(8));
+        cache.addTile(key(0, 2, 0), tile(8));
+        // touch the first one, the second becomes the least recently used
+        assertNotNull(cache.getTile(key(0, 0, 0)));
+        cache.addTile(key(0, 3, 0), tile(8));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getTileCount());
+        assertEquals(192, cache.getMemoryUsage());
+        assertNull(cache.getTile(key(0, 1, 0)));
+        assertNotNull(cache.getTile(key(0, 0, 0)));
+
+        // too big to be cached at all
+        cache.addTile(key(0, 4, 0), tile(16));
+        assertEquals(3, cache.getTileCount());
+
+        cache.setMemoryCapacity(64);
+        assertEquals(1, cache.getTileCount());
+        assertEquals(64, cache.getMemoryUsage());
+
+        cache.flush(FILE);
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void testCachedTiles() throws Exception {
+        // a 910x996 image with 64x64 tiles
+        final File file = TestData.file(GeoTiffReaderTest.class, "milanogeo1.tif");
+        final ImageReader reader = new TIFFImageReaderSpi().createReaderInstance();
+        reader.setInput(ImageIO.createImageInputStream(file));
+        final RenderedImage expected = reader.read(0);
+        reader.dispose();
+
+        GeoTiffTileCache cache = new GeoTiffTileCache(64 * 1024 * 1024);
+        CachedTiffTileImage image = CachedTiffTileImage.create(file, 0, new TIFFImageReaderSpi(),
+                null, cache);
+        assertEquals(910, image.getWidth());
+        assertEquals(996, image.getHeight());
+        assertEquals(64, image.getTileWidth());
+        assertEquals(15, image.getNumXTiles());
+        assertEquals(16, image.getNumYTiles());
+
+        // only the tiles intersecting the area get decoded
+        Rectangle area = new Rectangle(70, 70, 100, 100);
+        assertRasterEquals(expected.getData(area), image.getData(area));
+        assertEquals(0, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(4, cache.getTileCount());
+
+        // another image on the same file reuses the decoded tiles, including the clipped one on
+        // the bottom right corner
+        image = CachedTiffTileImage.create(file, 0, new TIFFImageReaderSpi(), null, cache);
+        area = new Rectangle(120, 120, 790, 876);
+        assertRasterEquals(expected.getData(area), image.getData(area));
+        assertEquals(4, cache.getHits());
+        Raster corner = image.getTile(14, 15);
+        assertEquals(64, corner.getWidth());
+        assertEquals(14 * 64, corner.getMinX());
+        assertEquals(15 * 64, corner.getMinY());
+        image.dispose();
+    }
+
+    @Test
+    public void testReaderAndTileCopies() throws Exception {
+        final File file = TestData.file(GeoTiffReaderTest.class, "milanogeo1.tif");
+        GeoTiffTileCache cache = new GeoTiffTileCache(64 * 1024 * 1024);
+        CachedTiffTileImage image = CachedTiffTileImage.create(file, 0, new TIFFImageReaderSpi(),
+                null, cache);
+
+        // the reader that parsed the headers decodes all the missing tiles
+        final ImageReader tileReader = image.reader;
+        assertNotNull(tileReader);
+        Raster tile = image.getTile(0, 0);
+        image.getTile(1, 0);
+        assertEquals(2, cache.getMisses());
+        assertSame(tileReader, image.reader);
+
+        // writing into a returned tile does not alter the cached one
+        final int sample = tile.getSample(0, 0, 0);
+        ((WritableRaster) tile).setSample(0, 0, 0, sample + 1);
+        assertEquals(sample, image.getTile(0, 0).getSample(0, 0, 0));
+        assertEquals(1, cache.getHits());
+
+        // disposing closes the reader, the cached tiles are still used
+        image.dispose();
+        assertNull(image.reader);
+        assertEquals(sample, image.getTile(0, 0).getSample(0, 0, 0));
+        assertNull(image.reader);
+    }
+
+    void assertRasterEquals(Raster expected, Raster actual) {
+        assertEquals(expected.getBounds(), actual.getBounds());
+        assertEquals(expected.getNumBands(), actual.getNumBands());
+        int[] expectedPixels = expected.getPixels(expected.getMinX(), expected.getMinY(), expected
+                .getWidth(), expected.getHeight(), (int[]) null);
+        int[] actualPixels = actual.getPixels(actual.getMinX(), actual.getMinY(), actual
+                .getWidth(), actual.getHeight(), (int[]) null);
+        assertArrayEquals(expectedPixels, actualPixels);
+    }
+}
@@ -541,33 +541,46 @@ public class GranuleDescriptor {
 
 		ImageInputStream inStream=null;
 		ImageReader reader=null;
+		// direct reads are over by the time we return, so the reader can be reused
+		final GranuleReaderPool readerPool = request.getReadType() == ReadType.DIRECT_READ
+				&& GranuleReaderPool.getSharedPool().isEnabled() ? GranuleReaderPool.getSharedPool() : null;
+		GranuleReaderPool.PooledReader pooled = readerPool != null ? readerPool.acquire(granuleUrl) : null;
+		boolean reusable = true;
 		try {
 			//
 			//get info about the raster we have to read
 			//
 			
-			// get a stream
-			inStream = Utils.getInputStream(granuleUrl);
-			if(inStream==null)
-				return null;
-	
-			// get a reader and try to cache the relevant SPI
-			if(cachedReaderSPI==null){
-				reader = ImageIOExt.getImageioReader(inStream);
-				if(reader!=null)
-					cachedReaderSPI=reader.getOriginatingProvider();
-			}
-			else
-				reader=cachedReaderSPI.createReaderInstance();
-			if(reader==null) {
-				if (LOGGER.isLoggable(java.util.logging.Level.WARNING)){
-					LOGGER.warning(new StringBuilder("Unable to get s reader for granuleDescriptor ").append(this.toString())
-					        .append(" with request ").append(request.toString()).append(" Resulting in no granule loaded: Empty result").toString());
+			if (pooled != null) {
+				// a warm reader, its input and headers are already there
+				inStream = pooled.getStream();
+				reader = pooled.getReader();
+			} else {
+				// get a stream
+				inStream = Utils.getInputStream(granuleUrl);
+				if(inStream==null)
+					return null;
+		
+				// get a reader and try to cache the relevant SPI
+				if(cachedReaderSPI==null){
+					reader = ImageIOExt.getImageioReader(inStream);
+					if(reader!=null)
+						cachedReaderSPI=reader.getOriginatingProvider();
 				}
-				return null;
+				else
+					reader=cachedReaderSPI.createReaderInstance();
+				if(reader==null) {
+					if (LOGGER.isLoggable(java.util.logging.Level.WARNING)){
+						LOGGER.warning(new StringBuilder("Unable to get s reader for granuleDescriptor ").append(this.toString())
+						        .append(" with request ").append(request.toString()).append(" Resulting in no granule loaded: Empty result").toString());
+					}
+					return null;
+				}
+				// set input
+				reader.setInput(inStream);
+				if (readerPool != null)
+					pooled = readerPool.create(granuleUrl, inStream, reader);
 			}
-			// set input
-			reader.setInput(inStream);
 			
 			// Checking for heterogeneous granules
 			if (request.isHeterogeneousGranules()){
@@ -644,9 +657,15 @@ public class GranuleDescriptor {
 			final RenderedImage raster;
 			try {
 				// read
-				raster= request.getReadType().read(readParameters,imageIndex, granuleUrl, selectedlevel.rasterDimensions,reader, hints,false);
+				if (pooled != null) {
+					// let the errors through, a null raster only means an empty source region
+					raster = ReadType.readDirect(readParameters, imageIndex, granuleUrl, selectedlevel.rasterDimensions, reader);
+				} else {
+					raster= request.getReadType().read(readParameters,imageIndex, granuleUrl, selectedlevel.rasterDimensions,reader, hints,false);
+				}
 				
 			} catch (Throwable e) {
+				reusable = false;
 				if (LOGGER.isLoggable(java.util.logging.Level.FINE)){
 					LOGGER.log(java.util.logging.Level.FINE,
 					        "Unable to load raster for granuleDescriptor "
@@ -655,6 +674,9 @@ public class GranuleDescriptor {
 				}
 				return null;
 			}
+			if (raster == null) {
+				return null;
+			}
 
 			// use fixed source area
 			sourceArea.setRect(readParameters.getSourceRegion());
@@ -837,14 +859,32 @@ public class GranuleDescriptor {
                     }
 			return null;
 
+                } catch (IOException e) {
+                    reusable = false;
+                    throw e;
+                } catch (RuntimeException e) {
+                    reusable = false;
+                    throw e;
+                } catch (Error e) {
+                    reusable = false;
+                    throw e;
                 } finally {
-                    try {
-                        if (inStream != null) {
-                            inStream.close();
+                    if (pooled != null) {
+                        // give back the reader, or close it if it's not in a good state
+                        if (reusable) {
+                            readerPool.release(pooled);
+                        } else {
+                            readerPool.dispose(pooled);
                         }
-                    } finally {
-                        if (request.getReadType() != ReadType.JAI_IMAGEREAD && reader != null) {
-                            reader.dispose();
+                    } else {
+                        try {
+                            if (inStream != null) {
+                                inStream.close();
+                            }
+                        } finally {
+                            if (request.getReadType() != ReadType.JAI_IMAGEREAD && reader != null) {
+                                reader.dispose();
+                            }
                         }
                     }
                 }
@@ -19,6 +19,9 @@ package org.geotools.gce.imagemosaic;
 import java.awt.Dimension;
 import java.awt.RenderingHints;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.imageio.ImageReadParam;
 import javax.media.jai.ImageLayout;
@@ -38,6 +41,8 @@ import org.opengis.referencing.operation.MathTransform2D;
  */
 class GranuleLoader implements Callable<GranuleLoadingResult>{
 
+	private final static Logger LOGGER = org.geotools.util.logging.Logging.getLogger(GranuleLoader.class);
+
 	final ReferencedEnvelope cropBBox;
 	
 	final MathTransform2D mosaicWorldToGrid;
@@ -51,6 +56,12 @@ class GranuleLoader implements Callable<GranuleLoadingResult>{
 	final Hints hints;
 
 	RasterLayerRequest request;
+
+	/** Where to record the loading times, can be null */
+	GranuleLoadingStatistics statistics;
+
+	/** When this loader was created, used to compute the time spent waiting in the queue */
+	final long creationTime = System.nanoTime();
 	
 	GranuleLoader(
 			final ImageReadParam readParameters, 
@@ -105,7 +116,21 @@ class GranuleLoader implements Callable<GranuleLoadingResult>{
 	}
 	
 	public GranuleLoadingResult call() throws Exception {
-		return granuleDescriptor.loadRaster(readParameters, imageIndex, cropBBox, mosaicWorldToGrid, request, hints);
+		final long start = System.nanoTime();
+		GranuleLoadingResult result = null;
+		try {
+			result = granuleDescriptor.loadRaster(readParameters, imageIndex, cropBBox, mosaicWorldToGrid, request, hints);
+			return result;
+		} finally {
+			final long loadTime = System.nanoTime() - start;
+			final long waitTime = start - creationTime;
+			if (statistics != null)
+				statistics.granuleLoaded(waitTime, loadTime, result != null);
+			if (LOGGER.isLoggable(Level.FINE))
+				LOGGER.fine("Granule " + granuleDescriptor.granuleUrl + " loaded in "
+						+ TimeUnit.NANOSECONDS.toMillis(loadTime) + "ms, after waiting "
+						+ TimeUnit.NANOSECONDS.toMillis(waitTime) + "ms to start");
+		}
 	}
 
 }
\ No newline at end of file
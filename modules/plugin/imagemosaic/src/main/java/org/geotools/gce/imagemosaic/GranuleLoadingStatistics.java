@@ -0,0 +1,128 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects timing information about the granule loads performed by an {@link ImageMosaicReader}:
+ * the time spent opening and setting up the read of each granule, and the time the granule
+ * waited in the loading executor queue before its load started.
+ */
+public class GranuleLoadingStatistics {
+
+    final AtomicLong loads = new AtomicLong();
+
+    final AtomicLong failures = new AtomicLong();
+
+    final AtomicLong loadTime = new AtomicLong();
+
+    final AtomicLong maxLoadTime = new AtomicLong();
+
+    final AtomicLong waitTime = new AtomicLong();
+
+    /**
+     * Records a granule load
+     * 
+     * @param waitNanos the time the load waited to be started
+     * @param loadNanos the time the load took
+     * @param success false if the granule could not be loaded
+     */
+    void granuleLoaded(long waitNanos, long loadNanos, boolean success) {
+        loads.incrementAndGet();
+        if (!success) {
+            failures.incrementAndGet();
+        }
+        loadTime.addAndGet(loadNanos);
+        waitTime.addAndGet(waitNanos);
+        long max = maxLoadTime.get();
+        while (loadNanos > max && !maxLoadTime.compareAndSet(max, loadNanos)) {
+            max = maxLoadTime.get();
+        }
+    }
+
+    /**
+     * The number of granule loads performed
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * The number of granule loads that did not return a raster, or failed with an exception
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * The total time spent loading granules, in milliseconds
+     */
+    public long getTotalLoadTime() {
+        return TimeUnit.NANOSECONDS.toMillis(loadTime.get());
+    }
+
+    /**
+     * The average time spent loading a granule, in milliseconds
+     */
+    public double getAverageLoadTime() {
+        long count = loads.get();
+        return count == 0 ? 0 : loadTime.get() / 1e6 / count;
+    }
+
+    /**
+     * The longest granule load, in milliseconds
+     */
+    public long getMaxLoadTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLoadTime.get());
+    }
+
+    /**
+     * The total time granules spent waiting for their load to start, in milliseconds
+     */
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+    }
+
+    /**
+     * The average time a granule waited for its load to start, in milliseconds
+     */
+    public double getAverageWaitTime() {
+        long count = loads.get();
+        return count == 0 ? 0 : waitTime.get() / 1e6 / count;
+    }
+
+    /**
+     * Resets all the statistics
+     */
+    public void reset() {
+        loads.set(0);
+        failures.set(0);
+        loadTime.set(0);
+        maxLoadTime.set(0);
+        waitTime.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "GranuleLoadingStatistics[loads=" + getLoadCount() + ", failures="
+                + getFailureCount() + ", averageLoadTime=" + getAverageLoadTime()
+                + "ms, maxLoadTime=" + getMaxLoadTime() + "ms, averageWaitTime="
+                + getAverageWaitTime() + "ms]";
+    }
+}
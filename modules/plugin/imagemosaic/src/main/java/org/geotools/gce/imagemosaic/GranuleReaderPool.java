@@ -0,0 +1,381 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * A keyed pool of warm {@link ImageReader}/{@link ImageInputStream} pairs, one key per granule.
+ * A pooled reader already has its input set, so it can be used to read the granule again without
+ * opening the file, looking up the reader and parsing the headers one more time.
+ * <p>
+ * The pool keeps at most {@link #getMaxIdlePerGranule()} idle readers for each granule and
+ * {@link #getMaxIdle()} idle readers overall, which also caps the number of file handles kept
+ * open: once the cap is reached the least recently used readers are closed. Readers that stayed
+ * idle longer than {@link #getIdleTimeout()} are closed as well, the check happens whenever the
+ * pool is used.
+ * <p>
+ * A reader is handed to a single caller at a time, which must return it with
+ * {@link #release(PooledReader)} once done, or close it with {@link #dispose(PooledReader)} if
+ * it is not in a reusable state anymore.
+ */
+public class GranuleReaderPool {
+
+    private final static Logger LOGGER = org.geotools.util.logging.Logging.getLogger(GranuleReaderPool.class);
+
+    /**
+     * System property controlling the max number of idle readers kept by the shared pool, zero
+     * disables pooling
+     */
+    public static final String MAX_IDLE_KEY = "org.geotools.imagemosaic.readerPool.maxIdle";
+
+    /**
+     * System property controlling the max number of idle readers kept by the shared pool for a
+     * single granule
+     */
+    public static final String MAX_IDLE_PER_GRANULE_KEY = "org.geotools.imagemosaic.readerPool.maxIdlePerGranule";
+
+    /**
+     * System property controlling how long, in milliseconds, a reader of the shared pool can stay
+     * idle before being closed
+     */
+    public static final String IDLE_TIMEOUT_KEY = "org.geotools.imagemosaic.readerPool.idleTimeout";
+
+    private static final GranuleReaderPool SHARED_POOL = new GranuleReaderPool(Integer.getInteger(
+            MAX_IDLE_KEY, 128), Integer.getInteger(MAX_IDLE_PER_GRANULE_KEY, 4), Long.getLong(
+            IDLE_TIMEOUT_KEY, 60000));
+
+    /**
+     * A reader along with the stream it is reading from
+     */
+    public static final class PooledReader {
+        final URL granuleUrl;
+
+        final ImageInputStream stream;
+
+        final ImageReader reader;
+
+        long lastUsed;
+
+        PooledReader(URL granuleUrl, ImageInputStream stream, ImageReader reader) {
+            this.granuleUrl = granuleUrl;
+            this.stream = stream;
+            this.reader = reader;
+        }
+
+        public ImageInputStream getStream() {
+            return stream;
+        }
+
+        public ImageReader getReader() {
+            return reader;
+        }
+    }
+
+    /** The idle readers for each granule, the most recently used last */
+    final Map<URL, LinkedList<PooledReader>> idle = new HashMap<URL, LinkedList<PooledReader>>();
+
+    /** All the idle readers, the least recently used first */
+    final LinkedHashSet<PooledReader> lru = new LinkedHashSet<PooledReader>();
+
+    int maxIdle;
+
+    int maxIdlePerGranule;
+
+    long idleTimeout;
+
+    long hits;
+
+    long misses;
+
+    long evictions;
+
+    /**
+     * Builds a new pool
+     * 
+     * @param maxIdle the max number of idle readers overall, zero disables pooling
+     * @param maxIdlePerGranule the max number of idle readers for a single granule
+     * @param idleTimeout how long, in milliseconds, a reader can stay idle before being closed
+     */
+    public GranuleReaderPool(int maxIdle, int maxIdlePerGranule, long idleTimeout) {
+        this.maxIdle = maxIdle;
+        this.maxIdlePerGranule = maxIdlePerGranule;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Returns the pool shared by all the mosaic granules, configured by the {@link #MAX_IDLE_KEY},
+     * {@link #MAX_IDLE_PER_GRANULE_KEY} and {@link #IDLE_TIMEOUT_KEY} system properties
+     */
+    public static GranuleReaderPool getSharedPool() {
+        return SHARED_POOL;
+    }
+
+    /**
+     * Returns true if the pool can hold readers at all
+     */
+    public synchronized boolean isEnabled() {
+        return maxIdle > 0 && maxIdlePerGranule > 0;
+    }
+
+    /**
+     * Returns an idle reader for the specified granule, or null if there is none, in which case
+     * the caller is free to open a new one, and then hand it over to the pool with
+     * {@link #release(PooledReader)}
+     */
+    public PooledReader acquire(URL granuleUrl) {
+        List<PooledReader> expired;
+        PooledReader result = null;
+        synchronized (this) {
+            expired = collectExpired(System.currentTimeMillis());
+            final LinkedList<PooledReader> readers = idle.get(granuleUrl);
+            if (readers != null) {
+                result = readers.removeLast();
+                if (readers.isEmpty()) {
+                    idle.remove(granuleUrl);
+                }
+                lru.remove(result);
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        close(expired);
+        return result;
+    }
+
+    /**
+     * Creates a new pooled reader, to be returned with {@link #release(PooledReader)} once done
+     * 
+     * @param granuleUrl the granule the reader is reading
+     * @param stream the stream opened on the granule
+     * @param reader the reader, whose input is already set to the stream
+     */
+    public PooledReader create(URL granuleUrl, ImageInputStream stream, ImageReader reader) {
+        return new PooledReader(granuleUrl, stream, reader);
+    }
+
+    /**
+     * Returns a reader to the pool, closing it right away if the pool is full
+     */
+    public void release(PooledReader pooled) {
+        final long now = System.currentTimeMillis();
+        final List<PooledReader> closed;
+        synchronized (this) {
+            closed = collectExpired(now);
+            if (maxIdle <= 0 || maxIdlePerGranule <= 0) {
+                closed.add(pooled);
+            } else {
+                pooled.lastUsed = now;
+                LinkedList<PooledReader> readers = idle.get(pooled.granuleUrl);
+                if (readers == null) {
+                    readers = new LinkedList<PooledReader>();
+                    idle.put(pooled.granuleUrl, readers);
+                }
+                readers.addLast(pooled);
+                lru.add(pooled);
+                if (readers.size() > maxIdlePerGranule) {
+                    closed.add(removeIdle(readers.getFirst()));
+                    evictions++;
+                }
+                while (lru.size() > maxIdle) {
+                    closed.add(removeIdle(lru.iterator().next()));
+                    evictions++;
+                }
+            }
+        }
+        close(closed);
+    }
+
+    /**
+     * Closes a reader that cannot be returned to the pool
+     */
+    public void dispose(PooledReader pooled) {
+        List<PooledReader> list = new ArrayList<PooledReader>(1);
+        list.add(pooled);
+        close(list);
+    }
+
+    /**
+     * Closes all the idle readers of the specified granule, to be used when the granule file
+     * changed or is about to be removed
+     */
+    public void invalidate(URL granuleUrl) {
+        List<PooledReader> closed;
+        synchronized (this) {
+            final LinkedList<PooledReader> readers = idle.remove(granuleUrl);
+            if (readers == null) {
+                return;
+            }
+            lru.removeAll(readers);
+            closed = readers;
+        }
+        close(closed);
+    }
+
+    /**
+     * Closes all the idle readers
+     */
+    public void clear() {
+        List<PooledReader> closed;
+        synchronized (this) {
+            closed = new ArrayList<PooledReader>(lru);
+            lru.clear();
+            idle.clear();
+        }
+        close(closed);
+    }
+
+    /**
+     * Removes the readers idle for too long from the pool, and returns them
+     */
+    private List<PooledReader> collectExpired(long now) {
+        final List<PooledReader> expired = new ArrayList<PooledReader>();
+        for (Iterator<PooledReader> it = lru.iterator(); it.hasNext();) {
+            final PooledReader pooled = it.next();
+            if (now - pooled.lastUsed < idleTimeout) {
+                break;
+            }
+            it.remove();
+            final LinkedList<PooledReader> readers = idle.get(pooled.granuleUrl);
+            readers.remove(pooled);
+            if (readers.isEmpty()) {
+                idle.remove(pooled.granuleUrl);
+            }
+            expired.add(pooled);
+            evictions++;
+        }
+        return expired;
+    }
+
+    private PooledReader removeIdle(PooledReader pooled) {
+        lru.remove(pooled);
+        final LinkedList<PooledReader> readers = idle.get(pooled.granuleUrl);
+        readers.remove(pooled);
+        if (readers.isEmpty()) {
+            idle.remove(pooled.granuleUrl);
+        }
+        return pooled;
+    }
+
+    private void close(List<PooledReader> readers) {
+        for (PooledReader pooled : readers) {
+            try {
+                pooled.reader.dispose();
+            } catch (Throwable t) {
+                // swallow the exception, we are just trying to close as much stuff as possible
+            }
+            try {
+                pooled.stream.close();
+            } catch (IOException e) {
+                if (LOGGER.isLoggable(Level.FINE))
+                    LOGGER.log(Level.FINE, "Failed to close the stream on " + pooled.granuleUrl, e);
+            }
+        }
+    }
+
+    public synchronized int getMaxIdle() {
+        return maxIdle;
+    }
+
+    /**
+     * Sets the max number of idle readers, that is, of file handles kept open by the pool. Zero
+     * disables pooling
+     */
+    public void setMaxIdle(int maxIdle) {
+        final List<PooledReader> closed = new ArrayList<PooledReader>();
+        synchronized (this) {
+            this.maxIdle = maxIdle;
+            while (lru.size() > Math.max(0, maxIdle)) {
+                closed.add(removeIdle(lru.iterator().next()));
+                evictions++;
+            }
+        }
+        close(closed);
+    }
+
+    public synchronized int getMaxIdlePerGranule() {
+        return maxIdlePerGranule;
+    }
+
+    /**
+     * Sets the max number of idle readers for a single granule, applies to the readers returned
+     * from now on
+     */
+    public synchronized void setMaxIdlePerGranule(int maxIdlePerGranule) {
+        this.maxIdlePerGranule = maxIdlePerGranule;
+    }
+
+    public synchronized long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets how long, in milliseconds, a reader can stay idle before being closed
+     */
+    public synchronized void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * The number of idle readers, that is, the number of files kept open by the pool
+     */
+    public synchronized int getIdleCount() {
+        return lru.size();
+    }
+
+    /**
+     * The number of times an idle reader was found for the requested granule
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of times no idle reader was found for the requested granule
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of idle readers closed because the pool was full, or they had been idle for too
+     * long
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
@@ -28,6 +28,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.TimeZone;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -139,6 +145,23 @@ public final class ImageMosaicFormat extends AbstractGridFormat implements Forma
     public static final ParameterDescriptor<Boolean> ALLOW_MULTITHREADING = new DefaultParameterDescriptor<Boolean>(
             "AllowMultithreading", Boolean.class, new Boolean[]{Boolean.TRUE,Boolean.FALSE}, Boolean.FALSE);
     
+    /** 
+     * Maximum number of granules a single request loads in parallel when multithreading is
+     * allowed, zero or negative to let the loading executor decide
+     */
+    public static final ParameterDescriptor<Integer> MAX_LOADING_THREADS = new DefaultParameterDescriptor<Integer>(
+            "MaxLoadingThreads", Integer.class, null, Integer.valueOf(0));
+    
+    /**
+     * System property controlling the number of threads of the granule loading pool shared by
+     * the readers that have not been given their own executor via {@link Hints#EXECUTOR_SERVICE},
+     * defaults to the number of available processors
+     */
+    public static final String LOADING_THREADS_KEY = "org.geotools.imagemosaic.loadingThreads";
+    
+    /** The shared granule loading pool, created on first use */
+    private static ExecutorService sharedLoader;
+    
     /** Control the footprint management.*/
     public static final ParameterDescriptor<Boolean> HANDLE_FOOTPRINT = new DefaultParameterDescriptor<Boolean>(
             "HandleFootprint", Boolean.class, new Boolean[]{Boolean.TRUE,Boolean.FALSE}, Boolean.TRUE);
@@ -188,6 +211,7 @@ public final class ImageMosaicFormat extends AbstractGridFormat implements Forma
                 BACKGROUND_VALUES,
                 SUGGESTED_TILE_SIZE,
                 ALLOW_MULTITHREADING,
+                MAX_LOADING_THREADS,
                 MAX_ALLOWED_TILES,
                 TIME,
                 ELEVATION,
@@ -434,7 +458,6 @@ public final class ImageMosaicFormat extends AbstractGridFormat implements Forma
         try {
 
             final ImageMosaicReader reader = new ImageMosaicReader(source, hints);
-//            reader.multiThreadedLoader = mtLoader;
             return reader;
         } catch (MalformedURLException e) {
             if (LOGGER.isLoggable(Level.WARNING))
@@ -447,6 +470,41 @@ public final class ImageMosaicFormat extends AbstractGridFormat implements Forma
         }
     }
 
+    /**
+     * Returns the bounded granule loading pool shared by the readers that have not been given
+     * their own executor. The pool threads are daemons and die off when idle, see
+     * {@link #LOADING_THREADS_KEY} to control the pool size.
+     */
+    static synchronized ExecutorService getSharedLoader() {
+        if (sharedLoader == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            final String value = System.getProperty(LOADING_THREADS_KEY);
+            if (value != null) {
+                try {
+                    threads = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    if (LOGGER.isLoggable(Level.WARNING))
+                        LOGGER.log(Level.WARNING, "Invalid value for " + LOADING_THREADS_KEY + ": " + value, e);
+                }
+            }
+            threads = Math.max(1, threads);
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        final AtomicInteger count = new AtomicInteger();
+
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "ImageMosaicGranuleLoader-"
+                                    + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            sharedLoader = executor;
+        }
+        return sharedLoader;
+    }
+
     /**
      * Throw an exception since this plugin is readonly.
      * 
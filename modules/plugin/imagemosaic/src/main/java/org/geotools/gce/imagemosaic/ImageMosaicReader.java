@@ -124,6 +124,8 @@ public final class ImageMosaicReader extends AbstractGridCoverage2DReader implem
 	
 	ExecutorService multiThreadedLoader = null;
 
+	final GranuleLoadingStatistics loadingStatistics = new GranuleLoadingStatistics();
+
 	String locationAttributeName="location";
 
 	RasterManager rasterManager;
@@ -640,6 +642,28 @@ public final class ImageMosaicReader extends AbstractGridCoverage2DReader implem
 	Hints getHints(){
 		return super.hints;
 	}
+
+	/**
+	 * Returns the executor loading the granules when multithreading is allowed: the one
+	 * provided with the {@link Hints#EXECUTOR_SERVICE} hint, or the pool shared by all the
+	 * mosaic readers otherwise.
+	 * 
+	 * @return the granule loading executor
+	 */
+	ExecutorService getMultiThreadedLoader(){
+		if (multiThreadedLoader != null)
+			return multiThreadedLoader;
+		return ImageMosaicFormat.getSharedLoader();
+	}
+
+	/**
+	 * Returns the timing statistics of the granules loaded by this reader.
+	 * 
+	 * @return the granule loading statistics
+	 */
+	public GranuleLoadingStatistics getGranuleLoadingStatistics(){
+		return loadingStatistics;
+	}
 	
 	/**
 	 * Package private accessor for the highest resolution values.
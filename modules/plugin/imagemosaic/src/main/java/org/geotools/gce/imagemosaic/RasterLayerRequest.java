@@ -76,7 +76,8 @@ class RasterLayerRequest {
 	/** Logger. */
     private final static Logger LOGGER = org.geotools.util.logging.Logging.getLogger(RasterLayerRequest.class);
 
-    private ReadType readType = AbstractGridFormat.USE_JAI_IMAGEREAD.getDefaultValue()?ReadType.JAI_IMAGEREAD:ReadType.DIRECT_READ;
+    /** Direct reads when the granule readers are pooled, see {@link ReadType#getDefault()} */
+    private ReadType readType = ReadType.getDefault();
 
     /** The {@link BoundingBox} requested */
     private BoundingBox requestedBBox;
@@ -152,6 +153,8 @@ class RasterLayerRequest {
 
 	private boolean multithreadingAllowed;
 
+	private int maxLoadingThreads = ImageMosaicFormat.MAX_LOADING_THREADS.getDefaultValue().intValue();
+
 	private List<?> requestedTimes;
 
 	private List<?> elevation;
@@ -174,6 +177,10 @@ class RasterLayerRequest {
 		return multithreadingAllowed;
 	}
 
+	public int getMaxLoadingThreads() {
+		return maxLoadingThreads;
+	}
+
 	public DecimationPolicy getDecimationPolicy() {
 	        return decimationPolicy;
 	}
@@ -403,6 +410,13 @@ class RasterLayerRequest {
 				continue;
 			}	 	
 			
+			if (name.equals(ImageMosaicFormat.MAX_LOADING_THREADS.getName())) {
+	        	if(value==null)
+	        		continue;
+				maxLoadingThreads = ((Integer) value).intValue();
+				continue;
+			}
+			
 			if (name.equals(ImageMosaicFormat.HANDLE_FOOTPRINT.getName())) {
                             if (value == null)
                                     continue;
@@ -615,6 +629,14 @@ class RasterLayerRequest {
 			return;
 		}	 	
 		
+		if (name.equals(ImageMosaicFormat.MAX_LOADING_THREADS.getName())) {
+        	final Object value = param.getValue();
+        	if(value==null)
+        		return;
+			maxLoadingThreads = param.intValue();
+			return;
+		}
+		
 		if (name.equals(ImageMosaicFormat.HANDLE_FOOTPRINT.getName())) {
                     final Object value = param.getValue();
                     if (value == null) {
@@ -34,14 +34,16 @@ import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Constructor;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -378,7 +380,7 @@ class RasterLayerResponse{
 		}
 		
 
-		private final List<Future<GranuleLoadingResult>> tasks= new ArrayList<Future<GranuleLoadingResult>>();
+		private final List<FutureTask<GranuleLoadingResult>> tasks= new ArrayList<FutureTask<GranuleLoadingResult>>();
 		private int   granulesNumber;
 		private List<ROI> rois = new ArrayList<ROI>();
 		private Color inputTransparentColor;
@@ -416,17 +418,27 @@ class RasterLayerResponse{
                     && inclusionGeometry.intersects(bb)) {
                 final GranuleLoader loader = new GranuleLoader(baseReadParameters, imageChoice,
                         mosaicBBox, finalWorldToGridCorner, granuleDescriptor, request, hints);
-                if (multithreadingAllowed && rasterManager.parent.multiThreadedLoader != null)
-                    tasks.add(rasterManager.parent.multiThreadedLoader.submit(loader));
-                else
-                    tasks.add(new FutureTask<GranuleLoadingResult>(loader));
+                loader.statistics = rasterManager.parent.loadingStatistics;
+                // the loads get started in produce(), so that their parallelism can be capped
+                tasks.add(new FutureTask<GranuleLoadingResult>(loader));
 
                 granulesNumber++;
             }
         }
 		
 		
-		public void produce(){
+		public void produce() throws IOException {
+			try {
+				produceMosaicSources();
+			} finally {
+				// cancel the loads still pending or running, if we are giving up on the request
+				for (FutureTask<GranuleLoadingResult> task : tasks) {
+					task.cancel(true);
+				}
+			}
+		}
+
+		private void produceMosaicSources() throws IOException {
 			
 			// reusable parameters
 			alphaChannels = new PlanarImage[granulesNumber];
@@ -437,18 +449,32 @@ class RasterLayerResponse{
 			boolean firstGranule=true;
 			int[] alphaIndex=null;
 			
-			for (Future<GranuleLoadingResult> future :tasks) {
-				
+			// the granules are loaded in parallel by the executor, if any, keeping at most
+			// "window" loads ahead of the granule being added to the mosaic
+			final ExecutorService loader = multithreadingAllowed ? rasterManager.parent.getMultiThreadedLoader() : null;
+			final int window = maxLoadingThreads > 0 ? maxLoadingThreads : tasks.size();
+			int submitted = 0;
+			
+			for (int i = 0; i < tasks.size(); i++) {
+				final FutureTask<GranuleLoadingResult> future = tasks.get(i);
 				
 				final RenderedImage loadedImage;
 				final GranuleLoadingResult result;
 				boolean doFiltering;
 				try {
-					if(!multithreadingAllowed || rasterManager.parent.multiThreadedLoader == null)
-					{
+					if (loader == null) {
 						//run the loading in this thread
-					    final FutureTask<GranuleLoadingResult> task=(FutureTask<GranuleLoadingResult>) future;
-                                            task.run();
+						future.run();
+					} else {
+						for (; submitted < tasks.size() && submitted < i + window; submitted++) {
+							final FutureTask<GranuleLoadingResult> task = tasks.get(submitted);
+							try {
+								loader.execute(task);
+							} catch (RejectedExecutionException e) {
+								// the executor is shut down or saturated, load it here
+								task.run();
+							}
+						}
 					}
 					result = future.get();
                                         if (result == null) {
@@ -495,9 +521,11 @@ class RasterLayerResponse{
 					}					
 					
 				} catch (InterruptedException e) {
-					if(LOGGER.isLoggable(Level.SEVERE))
-						LOGGER.log(Level.SEVERE,"Unable to load the raster for granuleDescriptor " +granuleIndex,e);
-					continue;
+					// the request has been abandoned, no point in loading the other granules
+					Thread.currentThread().interrupt();
+					final InterruptedIOException ie = new InterruptedIOException("Interrupted while loading granule " + granuleIndex);
+					ie.initCause(e);
+					throw ie;
 				} catch (ExecutionException e) {
 					if(LOGGER.isLoggable(Level.SEVERE))
 						LOGGER.log(Level.SEVERE,"Unable to load the raster for granuleDescriptor " +granuleIndex,e);
@@ -632,6 +660,8 @@ class RasterLayerResponse{
 	private ImageReadParam baseReadParameters= new ImageReadParam();
 
 	private boolean multithreadingAllowed=false;
+
+	private int maxLoadingThreads;
 	
 	private boolean footprintManagement = !Utils.IGNORE_FOOTPRINT;
 	
@@ -680,6 +710,7 @@ class RasterLayerResponse{
 		finalTransparentColor=request.getOutputTransparentColor();
 		// are we doing multithreading?
 		multithreadingAllowed= request.isMultithreadingAllowed();
+		maxLoadingThreads = request.getMaxLoadingThreads();
 		footprintManagement = request.isFootprintManagement();
 		setRoiProperty = request.isSetRoiProperty();
 		backgroundValues = request.getBackgroundValues();
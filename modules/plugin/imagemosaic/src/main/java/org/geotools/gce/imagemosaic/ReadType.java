@@ -72,15 +72,7 @@ enum ReadType {
     			}
     			
     			
-    			//check source regione
-    			if(CoverageUtilities.checkEmptySourceRegion(readParameters, rasterDimensions))
-    				return null;
-    			
-    			if (LOGGER.isLoggable(Level.FINER))
-    			    LOGGER.log(Level.FINER, "reading file: " + granuleUrl);
-    			
-    			// read data
-    			return reader.read(imageIndex,readParameters);
+    			return readDirect(readParameters, imageIndex, granuleUrl, rasterDimensions, reader);
     		} catch (IOException e) {
     			if (LOGGER.isLoggable(Level.WARNING))
     				LOGGER.log(Level.WARNING,"Unable to compute source area for URL "
@@ -291,13 +283,39 @@ enum ReadType {
      * Default {@link ReadType}  enumeration.
      * 
      * <p>
-     * We use the JAI ImageRead as the default type so that we can be sure that we can read very large mosaics with
-     * deferred loading.
+     * When the shared {@link GranuleReaderPool} is enabled we read directly, since the deferred
+     * JAI ImageRead operation keeps its reader until the image is disposed, so it cannot give it
+     * back to the pool. Otherwise we use the JAI ImageRead so that we can be sure that we can read
+     * very large mosaics with deferred loading.
      * 
      * @return the default {@link ReadType}.
      */
     static ReadType getDefault() {
-        return JAI_IMAGEREAD;
+        return GranuleReaderPool.getSharedPool().isEnabled() ? DIRECT_READ : JAI_IMAGEREAD;
+    }
+
+    /**
+     * Reads the source region with the provided reader, letting the read errors through, so that
+     * the caller can tell a broken reader from an empty source region
+     * 
+     * @return the raster, or <code>null</code> if the source region is empty
+     * @throws IOException if the reader failed
+     */
+    static RenderedImage readDirect(
+            final ImageReadParam readParameters, 
+            final int imageIndex,
+            final URL granuleUrl, 
+            final Rectangle rasterDimensions, 
+            final ImageReader reader) throws IOException {
+        //check source regione
+        if(CoverageUtilities.checkEmptySourceRegion(readParameters, rasterDimensions))
+            return null;
+        
+        if (LOGGER.isLoggable(Level.FINER))
+            LOGGER.log(Level.FINER, "reading file: " + granuleUrl);
+        
+        // read data
+        return reader.read(imageIndex,readParameters);
     }
 
 	/**
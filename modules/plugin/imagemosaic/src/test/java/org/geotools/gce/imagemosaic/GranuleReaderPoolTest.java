@@ -0,0 +1,161 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.geotools.gce.imagemosaic.GranuleReaderPool.PooledReader;
+import org.geotools.test.TestData;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Testing {@link GranuleReaderPool} class.
+ */
+public class GranuleReaderPoolTest extends Assert {
+
+    PooledReader open(GranuleReaderPool pool, URL url) throws IOException {
+        PooledReader pooled = pool.acquire(url);
+        if (pooled == null) {
+            ImageInputStream stream = ImageIO.createImageInputStream(TestData.file(this, url
+                    .getPath().substring(url.getPath().indexOf("rgb/"))));
+            ImageReader reader = ImageIO.getImageReaders(stream).next();
+            reader.setInput(stream);
+            pooled = pool.create(url, stream, reader);
+        }
+        return pooled;
+    }
+
+    @Test
+    public void reuse() throws IOException {
+        final URL url = TestData.url(this, "rgb/global_mosaic_0.png");
+        GranuleReaderPool pool = new GranuleReaderPool(10, 2, 60000);
+        PooledReader first = open(pool, url);
+        assertEquals(0, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        final int width = first.getReader().getWidth(0);
+        pool.release(first);
+        assertEquals(1, pool.getIdleCount());
+
+        // we get back the same warm reader, still usable
+        PooledReader second = open(pool, url);
+        assertSame(first, second);
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(width, second.getReader().read(0).getWidth());
+
+        // a reader in use is not handed out twice
+        PooledReader third = open(pool, url);
+        assertNotSame(second, third);
+        pool.release(second);
+        pool.release(third);
+        assertEquals(2, pool.getIdleCount());
+        pool.clear();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void caps() throws IOException {
+        final URL url0 = TestData.url(this, "rgb/global_mosaic_0.png");
+        final URL url1 = TestData.url(this, "rgb/global_mosaic_1.png");
+        GranuleReaderPool pool = new GranuleReaderPool(3, 2, 60000);
+
+        // per granule cap
+        PooledReader a = open(pool, url0);
+        PooledReader b = open(pool, url0);
+        PooledReader c = open(pool, url0);
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(1, pool.getEvictions());
+
+        // overall cap, the least recently used one goes
+        PooledReader d = open(pool, url1);
+        PooledReader e = open(pool, url1);
+        pool.release(d);
+        pool.release(e);
+        assertEquals(3, pool.getIdleCount());
+        assertEquals(2, pool.getEvictions());
+
+        pool.invalidate(url1);
+        assertEquals(1, pool.getIdleCount());
+        assertSame(c, pool.acquire(url0));
+        assertNull(pool.acquire(url1));
+        pool.dispose(c);
+
+        // disabling the pool closes everything
+        pool.release(open(pool, url0));
+        pool.setMaxIdle(0);
+        assertFalse(pool.isEnabled());
+        assertEquals(0, pool.getIdleCount());
+        pool.release(open(pool, url0));
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void defaultReadType() {
+        // the JAI ImageRead keeps its reader, it would defeat the pool
+        GranuleReaderPool shared = GranuleReaderPool.getSharedPool();
+        int maxIdle = shared.getMaxIdle();
+        try {
+            shared.setMaxIdle(10);
+            assertEquals(ReadType.DIRECT_READ, ReadType.getDefault());
+            shared.setMaxIdle(0);
+            assertEquals(ReadType.JAI_IMAGEREAD, ReadType.getDefault());
+        } finally {
+            shared.setMaxIdle(maxIdle);
+        }
+    }
+
+    @Test
+    public void emptySourceRegion() throws IOException {
+        final URL url = TestData.url(this, "rgb/global_mosaic_0.png");
+        GranuleReaderPool pool = new GranuleReaderPool(10, 2, 60000);
+        PooledReader pooled = open(pool, url);
+        ImageReader reader = pooled.getReader();
+        Rectangle dimensions = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+
+        // nothing to read, but the reader is fine
+        ImageReadParam param = new ImageReadParam();
+        param.setSourceRegion(new Rectangle(dimensions.width + 10, 0, 5, 5));
+        assertNull(ReadType.readDirect(param, 0, url, dimensions, reader));
+        param.setSourceRegion(new Rectangle(0, 0, 5, 5));
+        assertEquals(5, ReadType.readDirect(param, 0, url, dimensions, reader).getWidth());
+        pool.dispose(pooled);
+    }
+
+    @Test
+    public void idleTimeout() throws Exception {
+        final URL url = TestData.url(this, "rgb/global_mosaic_0.png");
+        GranuleReaderPool pool = new GranuleReaderPool(10, 2, 60000);
+        pool.release(open(pool, url));
+        assertEquals(1, pool.getIdleCount());
+
+        pool.setIdleTimeout(0);
+        assertNull(pool.acquire(url));
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, pool.getEvictions());
+    }
+}
@@ -223,6 +223,36 @@ public class ImageMosaicReaderTest extends Assert{
 
 	}
 	
+	/**
+	 * Loads the granules in parallel, with a cap on the loads a single request
+	 * can run at the same time, and checks the loading statistics.
+	 * 
+	 * @throws IOException
+	 * @throws MismatchedDimensionException
+	 * @throws FactoryException 
+	 */
+	@Test
+	public void multithreadedLoading() throws IOException,
+			MismatchedDimensionException, FactoryException {
+		final AbstractGridFormat format = getFormat(rgbURL);
+		final ImageMosaicReader reader = getReader(rgbURL, format);
+		final GranuleLoadingStatistics statistics = reader.getGranuleLoadingStatistics();
+		assertEquals(0, statistics.getLoadCount());
+
+		final ParameterValue<Boolean> multithreading = ImageMosaicFormat.ALLOW_MULTITHREADING.createValue();
+		multithreading.setValue(true);
+		final ParameterValue<Integer> loadingThreads = ImageMosaicFormat.MAX_LOADING_THREADS.createValue();
+		loadingThreads.setValue(2);
+		checkCoverage(reader, new GeneralParameterValue[] { multithreading, loadingThreads }, "multithreaded-" + rgbURL.getFile());
+
+		assertTrue(statistics.getLoadCount() > 0);
+		assertEquals(0, statistics.getFailureCount());
+		assertTrue(statistics.getMaxLoadTime() <= statistics.getTotalLoadTime());
+		statistics.reset();
+		assertEquals(0, statistics.getLoadCount());
+		reader.dispose();
+	}
+
 	/**
 	 * Tests the {@link ImageMosaicReader} with default parameters for the
 	 * various input params.
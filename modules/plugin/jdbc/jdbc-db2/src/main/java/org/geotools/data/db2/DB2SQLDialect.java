@@ -28,9 +28,11 @@ import java.util.logging.Level;
 
 import org.geotools.factory.Hints;
 import org.geotools.factory.Hints.Key;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.SQLDialect;
 import org.geotools.referencing.CRS;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -343,6 +345,14 @@ public class DB2SQLDialect extends SQLDialect  {
 
     }
 
+    @Override
+    public void registerAggregateFunctions(Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        super.registerAggregateFunctions(aggregates);
+
+        // the DB2 standard deviation is the population one
+        aggregates.put(StandardDeviationVisitor.class, "stddev");
+    }
+
 
     @Override
     public void postCreateTable(String schemaName, SimpleFeatureType featureType, Connection cx)
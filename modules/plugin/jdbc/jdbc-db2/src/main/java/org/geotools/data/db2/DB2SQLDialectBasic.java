@@ -29,6 +29,7 @@ import org.geotools.factory.Hints;
 import org.geotools.factory.Hints.Key;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.JDBCDataStore;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -139,6 +140,11 @@ public class DB2SQLDialectBasic extends BasicSQLDialect {
     	delegate.registerSqlTypeNameToClassMappings(mappings);
     }
 
+    @Override
+    public void registerAggregateFunctions(Map<Class<? extends FeatureVisitor>, String> aggregates) {
+    	delegate.registerAggregateFunctions(aggregates);
+    }
+
 
     @Override
     public void postCreateTable(String schemaName, SimpleFeatureType featureType, Connection cx)
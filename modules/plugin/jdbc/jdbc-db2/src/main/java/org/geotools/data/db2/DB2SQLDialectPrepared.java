@@ -28,6 +28,7 @@ import org.geotools.factory.Hints.Key;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -133,6 +134,11 @@ public class DB2SQLDialectPrepared extends PreparedStatementSQLDialect {
     public void registerSqlTypeNameToClassMappings(Map<String, Class<?>> mappings) {
     	delegate.registerSqlTypeNameToClassMappings(mappings);
 
+    }
+
+    @Override
+    public void registerAggregateFunctions(Map<Class<? extends FeatureVisitor>, String> aggregates) {
+    	delegate.registerAggregateFunctions(aggregates);
     }
 	
 	@Override
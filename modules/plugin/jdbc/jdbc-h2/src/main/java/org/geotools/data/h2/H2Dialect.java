@@ -31,10 +31,12 @@ import java.sql.Types;
 import java.util.Map;
 import java.util.logging.Level;
 
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.geometry.jts.Geometries;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.SQLDialect;
 import org.geotools.referencing.CRS;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -172,6 +174,14 @@ public class H2Dialect extends SQLDialect {
         mappings.put(Geometry.class, Types.BLOB);
     }
     
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        super.registerAggregateFunctions(aggregates);
+        
+        aggregates.put( StandardDeviationVisitor.class, "stddev_pop" );
+    }
+    
     @Override
     public void postCreateTable(String schemaName,
             SimpleFeatureType featureType, Connection cx) throws SQLException {
@@ -26,10 +26,12 @@ import java.sql.Types;
 import java.util.Map;
 import java.util.logging.Level;
 
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.geometry.jts.Geometries;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.SQLDialect;
 import org.geotools.referencing.CRS;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -297,6 +299,14 @@ public class MySQLDialect extends SQLDialect {
         overrides.put( Types.BOOLEAN, "BOOL");
     }
     
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        super.registerAggregateFunctions(aggregates);
+        
+        aggregates.put( StandardDeviationVisitor.class, "stddev_pop" );
+    }
+    
     public void encodePostCreateTable(String tableName, StringBuffer sql) {
         //TODO: make this configurable
         sql.append("ENGINE="+storageEngine);
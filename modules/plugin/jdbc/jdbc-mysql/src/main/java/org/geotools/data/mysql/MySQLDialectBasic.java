@@ -25,6 +25,7 @@ import java.util.Map;
 import org.geotools.data.jdbc.FilterToSQL;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.JDBCDataStore;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -111,6 +112,12 @@ public class MySQLDialectBasic extends BasicSQLDialect {
         delegate.registerSqlTypeToSqlTypeNameOverrides(overrides);
     }
     
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        delegate.registerAggregateFunctions(aggregates);
+    }
+    
     @Override
     public void encodePostCreateTable(String tableName, StringBuffer sql) {
         delegate.encodePostCreateTable(tableName, sql);
@@ -26,6 +26,7 @@ import java.util.Map;
 
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -109,6 +110,12 @@ public class MySQLDialectPrepared extends PreparedStatementSQLDialect {
             Map<Integer, String> overrides) {
         delegate.registerSqlTypeToSqlTypeNameOverrides(overrides);
     }
+    
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        delegate.registerAggregateFunctions(aggregates);
+    }
 
     @Override
     public void encodePostCreateTable(String tableName, StringBuffer sql) {
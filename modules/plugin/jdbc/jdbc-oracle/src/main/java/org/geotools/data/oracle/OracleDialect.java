@@ -41,12 +41,16 @@ import org.geotools.data.oracle.sdo.GeometryConverter;
 import org.geotools.data.oracle.sdo.SDOSqlDumper;
 import org.geotools.data.oracle.sdo.TT;
 import org.geotools.factory.Hints;
+import org.geotools.feature.visitor.MedianVisitor;
+import org.geotools.feature.visitor.QuantileListVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
 import org.geotools.referencing.CRS;
 import org.geotools.util.SoftValueHashMap;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -338,6 +342,16 @@ public class OracleDialect extends PreparedStatementSQLDialect {
         mappings.put( "MDSYS.SDO_GEOMETRY", Geometry.class );
     }
     
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        super.registerAggregateFunctions(aggregates);
+        
+        aggregates.put( StandardDeviationVisitor.class, "stddev_pop" );
+        aggregates.put( MedianVisitor.class, "median" );
+        aggregates.put( QuantileListVisitor.class, "ntile" );
+    }
+    
     @Override
     public String getNameEscape() {
         return "";
@@ -0,0 +1,284 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ParseException;
+
+/**
+ * A WKB parser working directly against a byte array, without the intermediate stream objects
+ * used by the JTS WKBReader.
+ * <p>
+ * When the geometry factory uses a {@link LiteCoordinateSequenceFactory} the ordinates are
+ * decoded straight into the packed array backing the {@link LiteCoordinateSequence}, otherwise
+ * the factory own coordinate sequences are filled.
+ * <p>
+ * Both the OGC WKB and the PostGIS EWKB dialects are supported (the SRID, if any, is skipped),
+ * M values are read and dropped. The class is not thread safe.
+ */
+class ByteArrayWKBReader {
+
+    static final int WKB_POINT = 1;
+
+    static final int WKB_LINESTRING = 2;
+
+    static final int WKB_POLYGON = 3;
+
+    static final int WKB_MULTIPOINT = 4;
+
+    static final int WKB_MULTILINESTRING = 5;
+
+    static final int WKB_MULTIPOLYGON = 6;
+
+    static final int WKB_GEOMETRYCOLLECTION = 7;
+
+    static final int EWKB_Z_FLAG = 0x80000000;
+
+    static final int EWKB_M_FLAG = 0x40000000;
+
+    static final int EWKB_SRID_FLAG = 0x20000000;
+
+    GeometryFactory factory;
+
+    CoordinateSequenceFactory csFactory;
+
+    boolean lite;
+
+    byte[] wkb;
+
+    int position;
+
+    boolean littleEndian;
+
+    public ByteArrayWKBReader(GeometryFactory factory) {
+        setGeometryFactory(factory);
+    }
+
+    public void setGeometryFactory(GeometryFactory factory) {
+        this.factory = factory;
+        this.csFactory = factory.getCoordinateSequenceFactory();
+        this.lite = csFactory instanceof LiteCoordinateSequenceFactory;
+    }
+
+    /**
+     * Parses the provided WKB into a geometry
+     *
+     * @param wkb
+     * @return
+     * @throws ParseException if the WKB is not valid
+     */
+    public Geometry read(byte[] wkb) throws ParseException {
+        this.wkb = wkb;
+        this.position = 0;
+        try {
+            return readGeometry();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new ParseException("Unexpected end of WKB after " + position + " bytes");
+        } finally {
+            this.wkb = null;
+        }
+    }
+
+    Geometry readGeometry() throws ParseException {
+        byte order = wkb[position++];
+        if (order == 0) {
+            littleEndian = false;
+        } else if (order == 1) {
+            littleEndian = true;
+        } else {
+            throw new ParseException("Unknown WKB byte order " + order + " at offset "
+                    + (position - 1));
+        }
+
+        int typeInt = readInt();
+        int dimensions = 2;
+        boolean measures = false;
+        // EWKB flags
+        if ((typeInt & EWKB_Z_FLAG) != 0) {
+            dimensions = 3;
+        }
+        if ((typeInt & EWKB_M_FLAG) != 0) {
+            measures = true;
+        }
+        if ((typeInt & EWKB_SRID_FLAG) != 0) {
+            // skip the srid
+            position += 4;
+        }
+        typeInt &= 0x0FFFFFFF;
+        // ISO WKB dimension encoding (1000 = Z, 2000 = M, 3000 = ZM)
+        int isoDimensions = typeInt / 1000;
+        if (isoDimensions == 1 || isoDimensions == 3) {
+            dimensions = 3;
+        }
+        if (isoDimensions == 2 || isoDimensions == 3) {
+            measures = true;
+        }
+        int type = typeInt % 1000;
+
+        switch (type) {
+        case WKB_POINT:
+            return readPoint(dimensions, measures);
+        case WKB_LINESTRING:
+            return factory.createLineString(readCoordinates(dimensions, measures));
+        case WKB_POLYGON:
+            return readPolygon(dimensions, measures);
+        case WKB_MULTIPOINT: {
+            Point[] points = new Point[readInt()];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = (Point) readChild(Point.class);
+            }
+            return factory.createMultiPoint(points);
+        }
+        case WKB_MULTILINESTRING: {
+            LineString[] lines = new LineString[readInt()];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = (LineString) readChild(LineString.class);
+            }
+            return factory.createMultiLineString(lines);
+        }
+        case WKB_MULTIPOLYGON: {
+            Polygon[] polygons = new Polygon[readInt()];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = (Polygon) readChild(Polygon.class);
+            }
+            return factory.createMultiPolygon(polygons);
+        }
+        case WKB_GEOMETRYCOLLECTION: {
+            Geometry[] geometries = new Geometry[readInt()];
+            for (int i = 0; i < geometries.length; i++) {
+                geometries[i] = readGeometry();
+            }
+            return factory.createGeometryCollection(geometries);
+        }
+        default:
+            throw new ParseException("Unknown WKB type " + type);
+        }
+    }
+
+    Geometry readChild(Class<? extends Geometry> expected) throws ParseException {
+        Geometry child = readGeometry();
+        if (!expected.isInstance(child)) {
+            throw new ParseException("Expected a " + expected.getSimpleName()
+                    + " inside the collection, but found a " + child.getGeometryType());
+        }
+        return child;
+    }
+
+    Point readPoint(int dimensions, boolean measures) throws ParseException {
+        CoordinateSequence cs = readCoordinateSequence(1, dimensions, measures);
+        // an empty point is encoded with NaN ordinates
+        if (Double.isNaN(cs.getOrdinate(0, 0)) && Double.isNaN(cs.getOrdinate(0, 1))) {
+            return factory.createPoint((CoordinateSequence) null);
+        }
+        return factory.createPoint(cs);
+    }
+
+    Polygon readPolygon(int dimensions, boolean measures) throws ParseException {
+        int rings = readInt();
+        if (rings == 0) {
+            return factory.createPolygon(null, null);
+        }
+        LinearRing shell = factory.createLinearRing(readCoordinates(dimensions, measures));
+        LinearRing[] holes = new LinearRing[rings - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = factory.createLinearRing(readCoordinates(dimensions, measures));
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    CoordinateSequence readCoordinates(int dimensions, boolean measures) throws ParseException {
+        int size = readInt();
+        if (size < 0) {
+            throw new ParseException("Invalid number of points " + size);
+        }
+        return readCoordinateSequence(size, dimensions, measures);
+    }
+
+    CoordinateSequence readCoordinateSequence(int size, int dimensions, boolean measures) {
+        if (lite) {
+            // decode straight into the packed array
+            double[] ordinates = new double[size * dimensions];
+            int idx = 0;
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < dimensions; j++) {
+                    ordinates[idx++] = readDouble();
+                }
+                if (measures) {
+                    position += 8;
+                }
+            }
+            return new LiteCoordinateSequence(ordinates, dimensions);
+        } else {
+            CoordinateSequence cs = csFactory.create(size, dimensions);
+            int csDimensions = Math.min(dimensions, cs.getDimension());
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < dimensions; j++) {
+                    double value = readDouble();
+                    if (j < csDimensions) {
+                        cs.setOrdinate(i, j, value);
+                    }
+                }
+                if (measures) {
+                    position += 8;
+                }
+            }
+            return cs;
+        }
+    }
+
+    int readInt() {
+        final byte[] b = wkb;
+        final int p = position;
+        position += 4;
+        if (littleEndian) {
+            return (b[p] & 0xff) | ((b[p + 1] & 0xff) << 8) | ((b[p + 2] & 0xff) << 16)
+                    | ((b[p + 3] & 0xff) << 24);
+        } else {
+            return ((b[p] & 0xff) << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8)
+                    | (b[p + 3] & 0xff);
+        }
+    }
+
+    double readDouble() {
+        final byte[] b = wkb;
+        final int p = position;
+        position += 8;
+        long bits;
+        if (littleEndian) {
+            bits = (b[p] & 0xffL) | ((b[p + 1] & 0xffL) << 8) | ((b[p + 2] & 0xffL) << 16)
+                    | ((b[p + 3] & 0xffL) << 24) | ((b[p + 4] & 0xffL) << 32)
+                    | ((b[p + 5] & 0xffL) << 40) | ((b[p + 6] & 0xffL) << 48)
+                    | ((b[p + 7] & 0xffL) << 56);
+        } else {
+            bits = ((b[p] & 0xffL) << 56) | ((b[p + 1] & 0xffL) << 48)
+                    | ((b[p + 2] & 0xffL) << 40) | ((b[p + 3] & 0xffL) << 32)
+                    | ((b[p + 4] & 0xffL) << 24) | ((b[p + 5] & 0xffL) << 16)
+                    | ((b[p + 6] & 0xffL) << 8) | (b[p + 7] & 0xffL);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+}
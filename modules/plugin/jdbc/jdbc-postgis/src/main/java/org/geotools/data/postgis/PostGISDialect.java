@@ -18,6 +18,7 @@ package org.geotools.data.postgis;
 
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Savepoint;
@@ -30,12 +31,16 @@ import java.util.Map;
 import java.util.logging.Level;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.feature.visitor.MedianVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
+import org.geotools.feature.visitor.QuantileListVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.referencing.CRS;
 import org.geotools.util.Version;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -93,6 +98,10 @@ public class PostGISDialect extends BasicSQLDialect {
     };
     
     static final Version V_1_5_0 = new Version("1.5.0");
+    
+    static final Version PGSQL_V_8_4 = new Version("8.4");
+    
+    static final Version PGSQL_V_9_4 = new Version("9.4");
 
     public PostGISDialect(JDBCDataStore dataStore) {
         super(dataStore);
@@ -104,7 +113,14 @@ public class PostGISDialect extends BasicSQLDialect {
     
     boolean functionEncodingEnabled = false;
     
+    boolean binaryGeometryEnabled = false;
+    
     Version version;
+    
+    /**
+     * The PostgreSQL server version, grabbed from the first connection
+     */
+    Version pgsqlVersion;
 
     public boolean isLooseBBOXEnabled() {
         return looseBBOXEnabled;
@@ -133,6 +149,17 @@ public class PostGISDialect extends BasicSQLDialect {
         this.functionEncodingEnabled = functionEncodingEnabled;
     }
 
+    public boolean isBinaryGeometryEnabled() {
+        return binaryGeometryEnabled;
+    }
+
+    /**
+     * @see PostgisNGDataStoreFactory#BINARY_GEOMETRY
+     */
+    public void setBinaryGeometryEnabled(boolean binaryGeometryEnabled) {
+        this.binaryGeometryEnabled = binaryGeometryEnabled;
+    }
+
 
     @Override
     public boolean includeTable(String schemaName, String tableName,
@@ -176,6 +203,8 @@ public class PostGISDialect extends BasicSQLDialect {
         }  else {
             reader.setGeometryFactory(factory);
         }
+        // set at each call, the flag can change after the reader got cached
+        reader.setBase64EncodingEnabled(!binaryGeometryEnabled);
         return reader;
     }
 
@@ -185,7 +214,9 @@ public class PostGISDialect extends BasicSQLDialect {
         
         boolean geography = "geography".equals(gatt.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME));
         
-        sql.append("encode(");
+        if (!binaryGeometryEnabled) {
+            sql.append("encode(");
+        }
         sql.append("ST_AsBinary(");
         if (!geography) {
             sql.append("ST_Force_2D(");
@@ -195,7 +226,10 @@ public class PostGISDialect extends BasicSQLDialect {
         if (!geography) {
             sql.append(")");
         }
-        sql.append("),'base64')");
+        sql.append(")");
+        if (!binaryGeometryEnabled) {
+            sql.append(",'base64')");
+        }
     }
 
     @Override
@@ -814,4 +848,38 @@ public class PostGISDialect extends BasicSQLDialect {
         return getVersion(cx).compareTo(V_1_5_0) >= 0;
     }
     
+    @Override
+    public void initializeConnection(Connection cx) throws SQLException {
+        if (pgsqlVersion == null) {
+            DatabaseMetaData md = cx.getMetaData();
+            pgsqlVersion = new Version(md.getDatabaseMajorVersion() + "."
+                    + md.getDatabaseMinorVersion());
+        }
+    }
+    
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        super.registerAggregateFunctions(aggregates);
+        
+        aggregates.put(StandardDeviationVisitor.class, "stddev_pop");
+        if (pgsqlVersion != null && pgsqlVersion.compareTo(PGSQL_V_8_4) >= 0) {
+            // window functions are available since 8.4
+            aggregates.put(QuantileListVisitor.class, "ntile");
+        }
+        if (pgsqlVersion != null && pgsqlVersion.compareTo(PGSQL_V_9_4) >= 0) {
+            // and ordered set aggregates since 9.4
+            aggregates.put(MedianVisitor.class, "median");
+        }
+    }
+    
+    @Override
+    public void encodeAggregateFunction(String function, String column, StringBuffer sql) {
+        if ("median".equals(function)) {
+            sql.append("percentile_cont(0.5) WITHIN GROUP (ORDER BY ").append(column).append(")");
+        } else {
+            super.encodeAggregateFunction(function, column, sql);
+        }
+    }
+    
 }
@@ -28,6 +28,7 @@ import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.GeometryDescriptor;
 
@@ -164,6 +165,22 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
             Map<Integer, String> overrides) {
         delegate.registerSqlTypeToSqlTypeNameOverrides(overrides);
     }
+    
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        delegate.registerAggregateFunctions(aggregates);
+    }
+    
+    @Override
+    public void encodeAggregateFunction(String function, String column, StringBuffer sql) {
+        delegate.encodeAggregateFunction(function, column, sql);
+    }
+    
+    @Override
+    public void initializeConnection(Connection cx) throws SQLException {
+        delegate.initializeConnection(cx);
+    }
 
     @Override
     public void handleUserDefinedType(ResultSet columnMetaData, ColumnMetadata metadata,
@@ -175,6 +192,14 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         delegate.setLooseBBOXEnabled(looseBBOXEnabled);
     }
 
+    public boolean isBinaryGeometryEnabled() {
+        return delegate.isBinaryGeometryEnabled();
+    }
+
+    public void setBinaryGeometryEnabled(boolean binaryGeometryEnabled) {
+        delegate.setBinaryGeometryEnabled(binaryGeometryEnabled);
+    }
+
 
     @Override
     public void prepareGeometryValue(Geometry g, int srid, Class binding,
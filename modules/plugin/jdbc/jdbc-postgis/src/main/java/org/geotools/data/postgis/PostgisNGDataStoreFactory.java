@@ -59,6 +59,16 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
             new KVP( Param.LEVEL, "advanced"));
     
     
+    /**
+     * Enables transferring geometries as raw WKB instead of base64 encoded WKB
+     */
+    public static final Param BINARY_GEOMETRY = new Param("binary geometry", Boolean.class,
+            "set to true to have geometries transferred as raw WKB (bytea) instead of base64 " +
+            "encoded text. This makes the geometries a third smaller on the wire and avoids " +
+            "decoding them on the client, but is slower with old JDBC drivers that do not " +
+            "support the bytea hex output format.", false, Boolean.FALSE,
+            new KVP( Param.LEVEL, "advanced"));
+    
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
         return new PostGISDialect(dataStore);
@@ -120,6 +130,10 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         Boolean encodeFunctions = (Boolean) ENCODE_FUNCTIONS.lookUp(params);
         dialect.setFunctionEncodingEnabled(encodeFunctions != null && encodeFunctions);
         
+        // check if geometries should be transferred as raw WKB
+        Boolean binaryGeometry = (Boolean) BINARY_GEOMETRY.lookUp(params);
+        dialect.setBinaryGeometryEnabled(binaryGeometry != null && binaryGeometry);
+        
         // setup the ps dialect if need be
         Boolean usePs = (Boolean) PREPARED_STATEMENTS.lookUp(params);
         if(Boolean.TRUE.equals(usePs)) {
@@ -142,6 +156,7 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(PREPARED_STATEMENTS.key, PREPARED_STATEMENTS);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
+        parameters.put(BINARY_GEOMETRY.key, BINARY_GEOMETRY);
     }
     
     @Override
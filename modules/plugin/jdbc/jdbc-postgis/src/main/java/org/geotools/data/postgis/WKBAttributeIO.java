@@ -27,8 +27,6 @@ import org.geotools.data.DataSourceException;
 
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
-import com.vividsolutions.jts.io.ByteArrayInStream;
-import com.vividsolutions.jts.io.WKBReader;
 import com.vividsolutions.jts.io.WKBWriter;
 
 
@@ -42,20 +40,37 @@ import com.vividsolutions.jts.io.WKBWriter;
  * @since 2.4.1
  */
 public class WKBAttributeIO {
-    WKBReader wkbr;
-    ByteArrayInStream inStream = new ByteArrayInStream(new byte[0]);
+    ByteArrayWKBReader wkbr;
     GeometryFactory gf;
+    boolean base64EncodingEnabled = true;
 
     public WKBAttributeIO() {
         this(new GeometryFactory());
     }
     
     public WKBAttributeIO(GeometryFactory gf) {
-        wkbr = new WKBReader(gf);
+        wkbr = new ByteArrayWKBReader(gf);
     }
     
     public void setGeometryFactory(GeometryFactory gf) {
-        wkbr = new WKBReader(gf);
+        wkbr.setGeometryFactory(gf);
+    }
+
+    /**
+     * Returns true if the geometries are read as base64 encoded WKB, false if they are read as
+     * raw WKB bytes
+     */
+    public boolean isBase64EncodingEnabled() {
+        return base64EncodingEnabled;
+    }
+
+    /**
+     * Sets whether the geometries are read as base64 encoded WKB, or as raw WKB bytes
+     * 
+     * @see PostgisNGDataStoreFactory#BINARY_GEOMETRY
+     */
+    public void setBase64EncodingEnabled(boolean base64EncodingEnabled) {
+        this.base64EncodingEnabled = base64EncodingEnabled;
     }
 
     /**
@@ -76,8 +91,7 @@ public class WKBAttributeIO {
         if (wkbBytes == null)  //DJB: null value from database --> null geometry (the same behavior as WKT).  NOTE: sending back a GEOMETRYCOLLECTION(EMPTY) is also a possibility, but this is not the same as NULL
             return null;
         try {
-            inStream.setBytes(wkbBytes);
-            return wkbr.read(inStream);
+            return wkbr.read(wkbBytes);
         } catch (Exception e) {
             throw new DataSourceException("An exception occurred while parsing WKB data", e);
         }
@@ -92,7 +106,7 @@ public class WKBAttributeIO {
             byte bytes[] = rs.getBytes(columnName);
             if (bytes == null) // ie. its a null column -> return a null geometry!
                 return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return wkb2Geometry(base64EncodingEnabled ? Base64.decode(bytes) : bytes);
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
@@ -107,7 +121,7 @@ public class WKBAttributeIO {
             byte bytes[] = rs.getBytes(columnIndex);
             if (bytes == null) // ie. its a null column -> return a null geometry!
                 return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return wkb2Geometry(base64EncodingEnabled ? Base64.decode(bytes) : bytes);
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
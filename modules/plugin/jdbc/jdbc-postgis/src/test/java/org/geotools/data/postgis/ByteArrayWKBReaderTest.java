@@ -0,0 +1,82 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import junit.framework.TestCase;
+
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.io.ByteOrderValues;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class ByteArrayWKBReaderTest extends TestCase {
+
+    static final String[] WKT = new String[] { "POINT(1 2)", "LINESTRING(0 0, 10 10, 20 0)",
+            "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 2))",
+            "MULTIPOINT(0 0, 1 1)", "MULTILINESTRING((0 0, 1 1), (2 2, 3 3))",
+            "MULTIPOLYGON(((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+            "GEOMETRYCOLLECTION(POINT(1 1), LINESTRING(0 0, 1 1))" };
+
+    public void testRoundTrip() throws Exception {
+        WKTReader wktReader = new WKTReader();
+        ByteArrayWKBReader reader = new ByteArrayWKBReader(new GeometryFactory());
+        for (String wkt : WKT) {
+            Geometry expected = wktReader.read(wkt);
+            for (int order : new int[] { ByteOrderValues.BIG_ENDIAN, ByteOrderValues.LITTLE_ENDIAN }) {
+                byte[] wkb = new WKBWriter(2, order).write(expected);
+                Geometry actual = reader.read(wkb);
+                assertTrue(wkt, expected.equalsExact(actual));
+            }
+        }
+    }
+
+    public void testLiteCoordinateSequence() throws Exception {
+        GeometryFactory liteFactory = new GeometryFactory(new LiteCoordinateSequenceFactory());
+        ByteArrayWKBReader reader = new ByteArrayWKBReader(liteFactory);
+        Geometry expected = new WKTReader().read("LINESTRING(0 0, 10 10, 20 0)");
+        LineString ls = (LineString) reader.read(new WKBWriter().write(expected));
+        assertTrue(ls.getCoordinateSequence() instanceof LiteCoordinateSequence);
+        assertTrue(expected.equalsExact(ls));
+    }
+
+    public void testEWKBWithSRIDAndZ() throws Exception {
+        Geometry expected = new WKTReader().read("LINESTRING(0 0 1, 10 10 2)");
+        expected.setSRID(4326);
+        byte[] wkb = new WKBWriter(3, ByteOrderValues.LITTLE_ENDIAN, true).write(expected);
+        Geometry actual = new ByteArrayWKBReader(new GeometryFactory()).read(wkb);
+        assertTrue(expected.equalsExact(actual));
+        assertEquals(2.0, actual.getCoordinates()[1].z);
+    }
+
+    public void testTruncated() throws Exception {
+        byte[] wkb = new WKBWriter().write(new WKTReader().read("LINESTRING(0 0, 10 10)"));
+        byte[] truncated = new byte[wkb.length - 4];
+        System.arraycopy(wkb, 0, truncated, 0, truncated.length);
+        try {
+            new ByteArrayWKBReader(new GeometryFactory()).read(truncated);
+            fail("Should have failed on truncated WKB");
+        } catch (ParseException e) {
+            // fine
+        }
+    }
+}
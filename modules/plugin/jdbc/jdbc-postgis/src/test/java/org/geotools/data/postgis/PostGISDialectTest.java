@@ -0,0 +1,75 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+import junit.framework.TestCase;
+
+import org.geotools.jdbc.JDBCDataStore;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class PostGISDialectTest extends TestCase {
+
+    /**
+     * Returns a result set whose getBytes methods return the provided bytes
+     */
+    ResultSet resultSet(final byte[] bytes) {
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { ResultSet.class }, new InvocationHandler() {
+
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                            throws Throwable {
+                        if ("getBytes".equals(method.getName())) {
+                            return bytes;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    public void testDecodeGeometryValue() throws Exception {
+        Geometry expected = new WKTReader().read("LINESTRING(0 0, 10 10, 20 0)");
+        byte[] wkb = new WKBWriter().write(expected);
+        byte[] base64 = Base64.encodeBytes(wkb).getBytes("US-ASCII");
+        GeometryFactory factory = new GeometryFactory();
+        PostGISDialect dialect = new PostGISDialect(new JDBCDataStore());
+
+        // base64 encoded by default
+        Geometry g = dialect.decodeGeometryValue(null, resultSet(base64), 1, factory, null);
+        assertTrue(expected.equalsExact(g));
+
+        // raw bytes in binary mode, the flag being changed after the reader got cached
+        dialect.setBinaryGeometryEnabled(true);
+        g = dialect.decodeGeometryValue(null, resultSet(wkb), 1, factory, null);
+        assertTrue(expected.equalsExact(g));
+        g = dialect.decodeGeometryValue(null, resultSet(wkb), "geom", factory, null);
+        assertTrue(expected.equalsExact(g));
+
+        // and back
+        dialect.setBinaryGeometryEnabled(false);
+        g = dialect.decodeGeometryValue(null, resultSet(base64), "geom", factory, null);
+        assertTrue(expected.equalsExact(g));
+    }
+}
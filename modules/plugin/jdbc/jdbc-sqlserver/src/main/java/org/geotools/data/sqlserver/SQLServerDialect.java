@@ -27,10 +27,13 @@ import java.sql.Types;
 import java.util.Map;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.feature.visitor.QuantileListVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.referencing.CRS;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -97,6 +100,15 @@ public class SQLServerDialect extends BasicSQLDialect {
         overrides.put( Types.VARCHAR, "varchar");
     }
     
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        super.registerAggregateFunctions(aggregates);
+        
+        aggregates.put( StandardDeviationVisitor.class, "stdevp" );
+        aggregates.put( QuantileListVisitor.class, "ntile" );
+    }
+    
     @Override
     public void postCreateTable(String schemaName, SimpleFeatureType featureType, Connection cx)
             throws SQLException, IOException {
@@ -10,6 +10,7 @@ import java.util.Properties;
 import org.geotools.data.AttributeReader;
 import org.geotools.data.DataSourceException;
 import org.geotools.data.DataUtilities;
+import org.geotools.data.SkippableReader;
 import org.geotools.feature.SchemaException;
 import org.geotools.util.Converters;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -57,7 +58,7 @@ import com.vividsolutions.jts.geom.Geometry;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/plugin/property/src/main/java/org/geotools/data/property/PropertyAttributeReader.java $
  */
-public class PropertyAttributeReader implements AttributeReader {
+public class PropertyAttributeReader implements AttributeReader, SkippableReader {
     BufferedReader reader;
 
     SimpleFeatureType type;
@@ -226,6 +227,48 @@ public class PropertyAttributeReader implements AttributeReader {
         }
         return txt.substring(start);        
     }
+    /**
+     * Skips the next records, reading their lines without unescaping, splitting and parsing
+     * them
+     */
+    public int skip(int count) throws IOException {
+        int skipped = 0;
+        if (next != null && count > 0) {
+            next = null;
+            skipped++;
+        }
+        line = null;
+        while (skipped < count && skipLine()) {
+            skipped++;
+        }
+        return skipped;
+    }
+    /**
+     * Moves over the next record lines, same as {@link #readLine()}, returns false if there
+     * was no record to skip
+     */
+    boolean skipLine() throws IOException {
+        boolean found = false;
+        while( true ){
+            String txt = reader.readLine();
+            if( txt == null ){
+                break;
+            }
+            if( txt.startsWith("#") || txt.startsWith("!")){
+                continue; // skip content
+            }
+            txt = trimLeft( txt );
+            if( txt.endsWith("\\")){
+                found = true;
+                continue;
+            }
+            else {
+                found |= txt.length() > 0;
+                break;
+            }
+        }
+        return found;
+    }
     // multiline end
     /**
      * Retrieve the next line.
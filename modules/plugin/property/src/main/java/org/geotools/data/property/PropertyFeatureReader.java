@@ -22,6 +22,7 @@ import java.util.NoSuchElementException;
 import java.util.logging.Logger;
 
 import org.geotools.data.FeatureReader;
+import org.geotools.data.SkippableReader;
 import org.geotools.feature.IllegalAttributeException;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.opengis.feature.simple.SimpleFeature;
@@ -36,7 +37,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/plugin/property/src/main/java/org/geotools/data/property/PropertyFeatureReader.java $
  * @version $Id
  */
-public class PropertyFeatureReader implements  FeatureReader<SimpleFeatureType, SimpleFeature> {
+public class PropertyFeatureReader implements  FeatureReader<SimpleFeatureType, SimpleFeature>, SkippableReader {
 	private static final Logger LOGGER = org.geotools.util.logging.Logging.getLogger("org.geotools.data.property");
     /** DOCUMENT ME! */
     PropertyAttributeReader reader;
@@ -105,6 +106,15 @@ public class PropertyFeatureReader implements  FeatureReader<SimpleFeatureType,
         return reader.hasNext();
     }
 
+    /**
+     * Skips the next features without parsing their lines
+     *
+     * @throws IOException
+     */
+    public int skip(int count) throws IOException {
+        return reader.skip(count);
+    }
+
     /**
      * DOCUMENT ME!
      *
@@ -221,6 +221,55 @@ public class PropertyDataStoreTest extends TestCase {
         }
         assertEquals( 5, count );
     }
+    public void testSkip() throws Exception {
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = store.getFeatureReader("road");
+        try {
+            assertEquals( 3, DataUtilities.skip( reader, 3 ) );
+            assertEquals( "fid4", reader.next().getID() );
+            assertEquals( 1, DataUtilities.skip( reader, 10 ) );
+            assertFalse( reader.hasNext() );
+        }
+        finally {
+            reader.close();
+        }
+        // continuation lines belong to the skipped feature
+        reader = store.getFeatureReader("multiline");
+        try {
+            assertEquals( 1, DataUtilities.skip( reader, 1 ) );
+            SimpleFeature feature = reader.next();
+            assertEquals( "fid2", feature.getID() );
+            assertEquals( "brent", feature.getAttribute("name") );
+        }
+        finally {
+            reader.close();
+        }
+    }
+    public void testStartIndex() throws Exception {
+        DefaultQuery query = new DefaultQuery( "road" );
+        query.setStartIndex( 3 );
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = store.getFeatureReader( query, Transaction.AUTO_COMMIT );
+        try {
+            assertEquals( "fid4", reader.next().getID() );
+            assertEquals( "fid5", reader.next().getID() );
+            assertFalse( reader.hasNext() );
+        }
+        finally {
+            reader.close();
+        }
+        SimpleFeatureSource road = store.getFeatureSource( "road" );
+        assertEquals( 2, road.getFeatures( query ).size() );
+        
+        query.setMaxFeatures( 1 );
+        assertEquals( 1, road.getFeatures( query ).size() );
+        SimpleFeatureIterator features = road.getFeatures( query ).features();
+        try {
+            assertEquals( "fid4", features.next().getID() );
+            assertFalse( features.hasNext() );
+        }
+        finally {
+            features.close();
+        }
+    }
     private int count(  FeatureReader<SimpleFeatureType, SimpleFeature> reader ) throws Exception {
         int count = 0;
         try {
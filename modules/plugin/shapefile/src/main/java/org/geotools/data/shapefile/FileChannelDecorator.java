@@ -24,6 +24,8 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A FileChannel that delegates all calls to the underlying FileChannel but for
@@ -44,6 +46,10 @@ public class FileChannelDecorator extends FileChannel implements
     private final FileReader reader;
     private final FileWriter writer;
     private boolean closed;
+    /**
+     * The memory map cache mappings leased by {@link #map}, released when the channel is closed
+     */
+    private final List<MemoryMapCache.Mapping> leases = new ArrayList<MemoryMapCache.Mapping>();
 
     public FileChannelDecorator(FileChannel channel, ShpFiles shapefileFiles,
             URL url, FileReader requestor) {
@@ -76,7 +82,9 @@ public class FileChannelDecorator extends FileChannel implements
     public MappedByteBuffer map(MapMode mode, long position, long size)
             throws IOException {
 //    	return wrapped.map(mode, position, size)
-    	 return shapefileFiles.map(wrapped, url, mode, position, size);
+        synchronized (leases) {
+            return shapefileFiles.map(wrapped, url, mode, position, size, leases);
+        }
     }
 
     public long position() throws IOException {
@@ -141,6 +149,9 @@ public class FileChannelDecorator extends FileChannel implements
         try {
             wrapped.close();
         } finally {
+            synchronized (leases) {
+                shapefileFiles.release(leases);
+            }
             if (!closed) {
                 closed = true;
                 if (reader != null) {
@@ -18,68 +18,272 @@ package org.geotools.data.shapefile;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.geotools.data.DataUtilities;
 import org.geotools.resources.NIOUtilities;
-import org.geotools.util.SoftValueHashMap;
-import org.geotools.util.SoftValueHashMap.ValueCleaner;
 import org.geotools.util.logging.Logging;
 
 /**
  * A cache for memory mapped buffers, used to avoid generating over and over
  * read only memory mapped buffers. Mapping a file is a synchronized operation,
  * plus by generating light copies the same buffer can be shared by various threads
+ * <p>
+ * Cache hits are lock free, misses only lock the stripe the mapped file belongs to, so
+ * readers working against different shapefiles do not contend with each other. The total
+ * amount of mapped bytes is kept under a configurable budget by evicting the least recently
+ * used mappings.
+ * <p>
+ * Each duplicate handed out to a reader is a lease on the mapping, which the reader gives back
+ * with {@link #release(Mapping)}, the {@link FileChannelDecorator} doing so when the channel is
+ * closed. An evicted mapping is unmapped when its last lease is released, so that a reader never
+ * sees its buffer vanish, the release does not depend on the garbage collector. Only
+ * {@link #cleanFileCache(URL)} and {@link #clean()}, used before writing the files, unmap the
+ * mappings regardless of their leases.
+ * <p>
+ * A single instance is shared by all the shapefiles in the JVM, see {@link #getSharedCache()},
+ * and its statistics are published in JMX as {@link #OBJECT_NAME}
  * @author Andrea Aime - OpenGeo
  *
  */
-class MemoryMapCache {
-	
+class MemoryMapCache implements MemoryMapCacheMBean {
+
 	static final Logger LOGGER = Logging.getLogger(MemoryMapCache.class);
 
-    SoftValueHashMap<MappingKey, MappedByteBuffer> buffers = new SoftValueHashMap<MappingKey, MappedByteBuffer>(0, new BufferCleaner());
-    
-	MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size) throws IOException {
+	/**
+	 * The system property used to set the default cache budget, in bytes
+	 */
+	static final String MAX_BYTES_KEY = "org.geotools.shapefile.memoryMapCacheSize";
+
+	/**
+	 * The name under which the shared cache is registered in the platform MBean server
+	 */
+	static final String OBJECT_NAME = "org.geotools.data.shapefile:type=MemoryMapCache";
+
+	static final int STRIPES = 32;
+
+	static MemoryMapCache sharedCache;
+
+	/**
+	 * Returns the cache shared by all the shapefiles in the JVM, registering it in JMX the first
+	 * time it's accessed
+	 * @return
+	 */
+	static synchronized MemoryMapCache getSharedCache() {
+		if(sharedCache == null) {
+			sharedCache = new MemoryMapCache(Long.getLong(MAX_BYTES_KEY, Long.MAX_VALUE));
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				ObjectName name = new ObjectName(OBJECT_NAME);
+				if(!server.isRegistered(name)) {
+					server.registerMBean(sharedCache, name);
+				}
+			} catch(Throwable t) {
+				LOGGER.log(Level.FINE, "Could not register the memory map cache in JMX", t);
+			}
+		}
+		return sharedCache;
+	}
+
+	ConcurrentHashMap<MappingKey, Mapping> buffers = new ConcurrentHashMap<MappingKey, Mapping>();
+
+	/**
+	 * Evicted mappings still leased by some reader, waiting to be unmapped
+	 */
+	ConcurrentLinkedQueue<Mapping> retired = new ConcurrentLinkedQueue<Mapping>();
+
+	final Object[] locks = new Object[STRIPES];
+
+	final Object evictionLock = new Object();
+
+	volatile long maxBytes;
+
+	final AtomicLong mappedBytes = new AtomicLong();
+
+	final AtomicLong clock = new AtomicLong();
+
+	final AtomicLong hits = new AtomicLong();
+
+	final AtomicLong misses = new AtomicLong();
+
+	final AtomicLong evictions = new AtomicLong();
+
+	MemoryMapCache() {
+		this(Long.MAX_VALUE);
+	}
+
+	MemoryMapCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Maps the file region, sharing a cached read only mapping when possible. The mappings
+	 * leased are added to the specified list, and have to be given back with
+	 * {@link #release(Mapping)} once the returned buffer is no longer used
+	 */
+	MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size,
+			List<Mapping> leases) throws IOException {
 		if(mode != MapMode.READ_ONLY) {
 			return wrapped.map(mode, position, size);
 		}
-		
+
 		File file = DataUtilities.urlToFile(url).getCanonicalFile();
 		MappingKey mk = new MappingKey(file, position, size);
-		MappedByteBuffer buffer = buffers.get(mk);
-		if(buffer == null) {
-			synchronized (this) {
-				buffer = buffers.get(mk);
-				if(buffer == null) {
-					buffer = wrapped.map(mode, position, size);
-					buffers.put(mk, buffer);
+		MappedByteBuffer result = null;
+		Mapping mapping = null;
+		while(result == null) {
+			mapping = getMapping(wrapped, mk, mode);
+			// null if the mapping got evicted in the meantime
+			result = mapping.lease(clock.incrementAndGet());
+		}
+		leases.add(mapping);
+
+		if(mappedBytes.get() > maxBytes) {
+			evict(mapping);
+		}
+		return result;
+	}
+
+	/**
+	 * Gives back a lease obtained from {@link #map}, unmapping the mapping if it has been
+	 * evicted and this was its last lease
+	 */
+	void release(Mapping mapping) {
+		if(mapping.release()) {
+			retired.remove(mapping);
+			unmap(mapping);
+		}
+	}
+
+	Mapping getMapping(FileChannel wrapped, MappingKey mk, MapMode mode) throws IOException {
+		File file = mk.file;
+		Mapping mapping = buffers.get(mk);
+		if(mapping == null) {
+			boolean mapped = false;
+			synchronized (locks[(file.hashCode() & 0x7fffffff) % STRIPES]) {
+				mapping = buffers.get(mk);
+				if(mapping == null) {
+					mapping = new Mapping(mk, wrapped.map(mode, mk.position, mk.size));
+					buffers.put(mk, mapping);
+					mappedBytes.addAndGet(mapping.buffer.capacity());
+					mapped = true;
 					if(LOGGER.isLoggable(Level.FINE)) {
 						LOGGER.log(Level.FINE, "Mapping and caching " + file.getAbsolutePath());
 					}
 				}
 			}
+			if(mapped) {
+				misses.incrementAndGet();
+			} else {
+				hits.incrementAndGet();
+			}
 		} else {
+			hits.incrementAndGet();
 			if(LOGGER.isLoggable(Level.FINE)) {
 				LOGGER.log(Level.FINE, "Using cached map for " + file.getAbsolutePath());
 			}
 		}
-		
-		return (MappedByteBuffer) buffer.duplicate();
+		return mapping;
+	}
+
+	/**
+	 * Evicts the least recently used mappings until the mapped bytes fall back in the budget.
+	 * The mapping just served is never evicted, even if it alone exceeds the budget
+	 */
+	void evict(Mapping current) {
+		synchronized (evictionLock) {
+			if(mappedBytes.get() <= maxBytes) {
+				return;
+			}
+			List<Mapping> candidates = new ArrayList<Mapping>(buffers.values());
+			Collections.sort(candidates, new Comparator<Mapping>() {
+				public int compare(Mapping m1, Mapping m2) {
+					return m1.lastAccess < m2.lastAccess ? -1 : (m1.lastAccess == m2.lastAccess ? 0 : 1);
+				}
+			});
+			for (Mapping mapping : candidates) {
+				if(mappedBytes.get() <= maxBytes) {
+					break;
+				}
+				if(mapping != current && remove(mapping)) {
+					evictions.incrementAndGet();
+					retire(mapping);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the mapping from the cache, returns false if some other thread already did
+	 */
+	boolean remove(Mapping mapping) {
+		if(buffers.remove(mapping.key, mapping)) {
+			mappedBytes.addAndGet(-mapping.buffer.capacity());
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Unmaps the mapping right away if no reader is using it, otherwise delays the unmapping
+	 * until the last lease is released
+	 */
+	void retire(Mapping mapping) {
+		// queue first, the last lease may be released right after the kill attempt
+		retired.add(mapping);
+		if(mapping.kill(false) && retired.remove(mapping)) {
+			unmap(mapping);
+		}
 	}
-	
+
+	/**
+	 * Releases the native memory of a mapping that has been {@link Mapping#kill(boolean) killed}
+	 */
+	void unmap(Mapping mapping) {
+		NIOUtilities.clean(mapping.buffer, true);
+		if(LOGGER.isLoggable(Level.FINE)) {
+			LOGGER.log(Level.FINE, "Removed mapping for " + mapping.key.file.getAbsolutePath());
+		}
+	}
+
 	/**
 	 * Cleans up all memory mapped regions for a specified file. It is necessary to call this
 	 * method before any attempt to open a file for writing on Windows
 	 * @param file
 	 */
 	void cleanFileCache(URL url) {
+		cleanFileCache(url, true);
+	}
+
+	/**
+	 * Removes all the memory mapped regions of the specified file from the cache, without
+	 * unmapping those still used by a reader
+	 * @param url
+	 */
+	void releaseFileCache(URL url) {
+		cleanFileCache(url, false);
+	}
+
+	void cleanFileCache(URL url, boolean force) {
 	    try {
     	    final File rawFile = DataUtilities.urlToFile(url);
     	    if(rawFile == null) {
@@ -87,32 +291,161 @@ class MemoryMapCache {
     	        return;
     	    }
             File file = rawFile.getCanonicalFile();
-    	    List<MappingKey> keys = new ArrayList<MappingKey>(buffers.keySet());
-    	    for (MappingKey key : keys) {
-                if(key.file.equals(file)) {
-                    MappedByteBuffer buffer = buffers.remove(key);
-                    NIOUtilities.clean(buffer, true);
-                    if(LOGGER.isLoggable(Level.FINE)) {
-        				LOGGER.log(Level.FINE, "Removed mapping for " + file.getAbsolutePath());
+    	    for (Mapping mapping : buffers.values()) {
+                if(mapping.key.file.equals(file) && remove(mapping)) {
+                    if(force) {
+                        if(mapping.kill(true)) {
+                            unmap(mapping);
+                        }
+                    } else {
+                        retire(mapping);
                     }
                 }
             }
+    	    if(force) {
+    	        for (Mapping mapping : retired) {
+    	            if(mapping.key.file.equals(file) && retired.remove(mapping)
+    	                    && mapping.kill(true)) {
+    	                unmap(mapping);
+    	            }
+                }
+    	    }
 	    } catch(Throwable t) {
 	        LOGGER.log(Level.WARNING, "An error occurred while trying to clean the memory map cache", t);
 	    }
 	}
-	
+
 	void clean() {
-		List<MappingKey> keys = new ArrayList<MappingKey>(buffers.keySet());
-	    for (MappingKey key : keys) {
-            MappedByteBuffer buffer = buffers.remove(key);
-            NIOUtilities.clean(buffer, true);
-            if(LOGGER.isLoggable(Level.FINE)) {
-				LOGGER.log(Level.FINE, "Removed mapping for " + key.file.getAbsolutePath());
-            }
+	    for (Mapping mapping : buffers.values()) {
+	        if(remove(mapping) && mapping.kill(true)) {
+	            unmap(mapping);
+	        }
         }
+	    Mapping mapping;
+	    while((mapping = retired.poll()) != null) {
+	        if(mapping.kill(true)) {
+	            unmap(mapping);
+	        }
+	    }
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public long getMappedBytes() {
+		return mappedBytes.get();
 	}
-	
+
+	public int getMappingCount() {
+		return buffers.size();
+	}
+
+	public int getRetiredMappingCount() {
+		return retired.size();
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		if(mappedBytes.get() > maxBytes) {
+			evict(null);
+		}
+	}
+
+	public void resetStatistics() {
+		hits.set(0);
+		misses.set(0);
+		evictions.set(0);
+	}
+
+	/**
+	 * A cached memory mapped region, counts the duplicates leased to the readers so that the
+	 * region is not unmapped while still in use
+	 */
+	static class Mapping {
+		final MappingKey key;
+
+		final MappedByteBuffer buffer;
+
+		volatile long lastAccess;
+
+		/**
+		 * The leases not released yet
+		 */
+		int leases;
+
+		/**
+		 * Set once the mapping is out of the cache, no more leases are given
+		 */
+		boolean retired;
+
+		/**
+		 * Set once the mapping can be unmapped
+		 */
+		boolean dead;
+
+		Mapping(MappingKey key, MappedByteBuffer buffer) {
+			this.key = key;
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Returns a duplicate of the mapped buffer for a reader to use, or null if the mapping
+		 * has already been removed from the cache
+		 */
+		synchronized MappedByteBuffer lease(long time) {
+			lastAccess = time;
+			if(retired || dead) {
+				return null;
+			}
+			leases++;
+			return (MappedByteBuffer) buffer.duplicate();
+		}
+
+		/**
+		 * Releases a lease, returns true if the mapping has been retired and this was its last
+		 * lease, meaning the caller has to unmap it
+		 */
+		synchronized boolean release() {
+			if(dead) {
+				// forcefully killed already
+				return false;
+			}
+			leases--;
+			if(retired && leases <= 0) {
+				dead = true;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Retires the mapping so that it won't be leased anymore, returns true if it can be
+		 * unmapped right away. Unless forced, returns false while some reader still holds a
+		 * lease, the last {@link #release()} will then report the mapping as ready to unmap
+		 */
+		synchronized boolean kill(boolean force) {
+			retired = true;
+			if(dead || (!force && leases > 0)) {
+				return false;
+			}
+			dead = true;
+			return true;
+		}
+	}
+
 	/**
 	 * Tracks a memory mapped region of a certain file
 	 */
@@ -120,7 +453,7 @@ class MemoryMapCache {
 		File file;
 		long position;
 		long size;
-		
+
 		public MappingKey(File file, long position, long size) {
 			super();
 			this.file = file;
@@ -159,21 +492,5 @@ class MemoryMapCache {
             return true;
         }
 	}
-	
-	/**
-	 * Cleans up the buffers before the soft reference gets deallocated
-	 * @author Andrea Aime
- *
- * @source $URL: http://svn.osgeo.org/geotools/trunk/modules/plugin/shapefile/src/main/java/org/geotools/data/shapefile/MemoryMapCache.java $
-	 */
-	public class BufferCleaner implements ValueCleaner {
-
-        public void clean(Object object) {
-            MappedByteBuffer buffer = (MappedByteBuffer) object;
-            NIOUtilities.clean(buffer, true);
-        }
-
-    }
-
 
 }
@@ -0,0 +1,70 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+/**
+ * Management interface of the memory mapped buffer cache shared by the shapefile readers
+ */
+public interface MemoryMapCacheMBean {
+
+    /**
+     * Number of requests served by an already mapped region
+     */
+    long getHits();
+
+    /**
+     * Number of requests that required a new mapping
+     */
+    long getMisses();
+
+    /**
+     * Number of mappings evicted to respect the byte budget
+     */
+    long getEvictions();
+
+    /**
+     * Sum of the sizes of the cached mappings
+     */
+    long getMappedBytes();
+
+    /**
+     * Number of cached mappings
+     */
+    int getMappingCount();
+
+    /**
+     * Number of evicted mappings that are still waiting for their readers to be gone before
+     * getting unmapped
+     */
+    int getRetiredMappingCount();
+
+    /**
+     * The maximum amount of bytes kept mapped by the cache
+     */
+    long getMaxBytes();
+
+    /**
+     * Sets the maximum amount of bytes kept mapped by the cache, evicting the least recently
+     * used mappings if necessary
+     */
+    void setMaxBytes(long maxBytes);
+
+    /**
+     * Resets the hit, miss and eviction counters
+     */
+    void resetStatistics();
+}
@@ -22,6 +22,7 @@ import java.util.NoSuchElementException;
 
 import org.geotools.data.AbstractAttributeIO;
 import org.geotools.data.AttributeReader;
+import org.geotools.data.SkippableReader;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.dbf.DbaseFileReader;
 import org.geotools.data.shapefile.indexed.RecordNumberTracker;
@@ -41,7 +42,7 @@ import com.vividsolutions.jts.geom.Envelope;
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/plugin/shapefile/src/main/java/org/geotools/data/shapefile/ShapefileAttributeReader.java $
  */
 public class ShapefileAttributeReader extends AbstractAttributeIO implements
-        AttributeReader, RecordNumberTracker {
+        AttributeReader, RecordNumberTracker, SkippableReader {
 
     protected ShapefileReader shp;
     protected DbaseFileReader dbf;
@@ -114,6 +115,18 @@ public class ShapefileAttributeReader extends AbstractAttributeIO implements
                 }
                 dbfindexes[i] = -1; // geometry
             }
+
+            // don't make the dbf reader decode the columns we are not going to return
+            int[] fields = new int[atts.length];
+            int count = 0;
+            for (int i = 0; i < dbfindexes.length; i++) {
+                if (dbfindexes[i] >= 0) {
+                    fields[count++] = dbfindexes[i];
+                }
+            }
+            int[] projection = new int[count];
+            System.arraycopy(fields, 0, projection, 0, count);
+            dbf.setProjection(projection);
         }
     }
 
@@ -208,6 +221,73 @@ public class ShapefileAttributeReader extends AbstractAttributeIO implements
         featureAvailable = false;
     }
 
+    /**
+     * Skips the next records without building their geometries and reading their attributes.
+     * If no bounding box or screenmap is in use the shapefile reader jumps over the records
+     * using the .shx file, otherwise only the record headers are read to check the envelopes.
+     */
+    public int skip(int count) throws IOException {
+        int skipped = 0;
+        // a record already read by hasNext() is the first one to go
+        if (featureAvailable && count > 0) {
+            featureAvailable = false;
+            skipped++;
+        }
+        geometry = null;
+        row = null;
+
+        if (!envelopeChecks()) {
+            int records = shp.skip(count - skipped);
+            if (dbf != null) {
+                for (int i = 0; i < records; i++) {
+                    if (!dbf.hasNext()) {
+                        throw new IOException("Shp has extra record");
+                    }
+                    dbf.skip();
+                }
+            }
+            return skipped + records;
+        }
+
+        while (skipped < count && internalReadersHaveNext()) {
+            record = shp.nextRecord();
+            if (dbf != null) {
+                dbf.skip();
+            }
+            if (accept(record.envelope())) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Returns true if records can be dropped by {@link #hasNext()} based on their envelope
+     */
+    protected boolean envelopeChecks() {
+        return (targetBBox != null && !targetBBox.isNull())
+                || (simplificationDistance > 0 && screenMap != null);
+    }
+
+    /**
+     * Returns true if a record with the specified envelope would be returned by
+     * {@link #hasNext()}, using the same checks
+     */
+    protected boolean accept(Envelope envelope) {
+        if (targetBBox != null && !targetBBox.isNull() && !targetBBox.intersects(envelope)) {
+            return false;
+        }
+        if (simplificationDistance > 0 && envelope.getWidth() < simplificationDistance
+                && envelope.getHeight() < simplificationDistance && screenMap != null) {
+            try {
+                return !screenMap.checkAndSet(envelope);
+            } catch (Exception e) {
+                return true;
+            }
+        }
+        return true;
+    }
+
     public Object read(int param) throws IOException,
             java.lang.ArrayIndexOutOfBoundsException {
         int index = dbfindexes != null ? dbfindexes[param] : -1;
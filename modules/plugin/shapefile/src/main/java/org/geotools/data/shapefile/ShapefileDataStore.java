@@ -38,6 +38,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -402,6 +403,13 @@ public class ShapefileDataStore extends AbstractFileDataStore {
      * Just like the basic version, but adds a small optimization: if no
      * attributes are going to be read, don't uselessly open and read the dbf
      * file. Makes sure to consider also attributes in the query.
+     * <p>
+     * When the query has a property list that already contains all the
+     * attributes used by the filter, the reader returns a sub type made of
+     * just those properties, in the order they are listed, and the dbf reader
+     * skips decoding the other columns. The geometry is part of the sub type
+     * only if it is in the property list, otherwise it is omitted. When the
+     * filter uses other attributes, the full schema is returned.
      * 
      * @see org.geotools.data.AbstractDataStore#getFeatureReader(java.lang.String,
      *      org.geotools.data.Query)
@@ -437,8 +445,26 @@ public class ShapefileDataStore extends AbstractFileDataStore {
         }
 
         try {
+            // if the query property list covers the filter, read only those
+            // attributes (the geometry too is left out if not listed), the dbf
+            // reader will then skip decoding the other columns
+            SimpleFeatureType readSchema = schema;
+            if (propertyNames != null && propertyNames.length > 0) {
+                Set<String> attributes = new LinkedHashSet<String>();
+                for (String name : propertyNames) {
+                    if (schema.getDescriptor(name) != null) {
+                        attributes.add(name);
+                    }
+                }
+                if (!attributes.isEmpty()
+                        && attributes.containsAll(Arrays.asList(filterAttnames))) {
+                    readSchema = DataUtilities.createSubType(schema,
+                            attributes.toArray(new String[attributes.size()]));
+                }
+            }
+
             return createFeatureReader(getSchema().getTypeName(),
-                    getAttributesReader(true, query), schema);
+                    getAttributesReader(true, query, readSchema), readSchema);
         } catch (SchemaException se) {
             throw new DataSourceException("Error creating schema", se);
         }
@@ -493,9 +519,25 @@ public class ShapefileDataStore extends AbstractFileDataStore {
      */
     protected ShapefileAttributeReader getAttributesReader(boolean readDbf, Query q)
             throws IOException {
+        return getAttributesReader(readDbf, q, schema);
+    }
 
-        List<AttributeDescriptor> atts = (schema == null) ? readAttributes()
-                : schema.getAttributeDescriptors();
+    /**
+     * Returns the attribute reader, allowing for a pure shapefile reader, or a
+     * combined dbf/shp reader, reading only the attributes in the specified schema
+     * 
+     * @param readDbf -
+     *                if true, the dbf fill will be opened and read
+     * @param readSchema -
+     *                the attributes to be read, if null all of them will be read
+     * 
+     * @throws IOException
+     */
+    protected ShapefileAttributeReader getAttributesReader(boolean readDbf, Query q,
+            SimpleFeatureType readSchema) throws IOException {
+
+        List<AttributeDescriptor> atts = (readSchema == null) ? readAttributes()
+                : readSchema.getAttributeDescriptors();
         
         GeometryFactory geometryFactory;
         if(q != null) {
@@ -1080,6 +1122,21 @@ public class ShapefileDataStore extends AbstractFileDataStore {
         return new ShapefileFeatureSource(this, getSupportedHints(), featureType);
     }
 
+    /**
+     * Splits the query in partitions that can be read in parallel, see
+     * {@link org.geotools.data.PartitionedFeatureSource}. A plain shapefile can only be read
+     * sequentially, so this implementation returns null, the indexed store splits the records in
+     * ranges instead.
+     * 
+     * @param query
+     * @param partitions the desired number of partitions
+     * @return the partitions, or null if the query cannot be split
+     * @throws IOException
+     */
+    protected List<Query> getPartitions(Query query, int partitions) throws IOException {
+        return null;
+    }
+
     /**
      * @see org.geotools.data.AbstractDataStore#getCount(org.geotools.data.Query)
      */
@@ -22,6 +22,7 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -109,6 +110,15 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             "enable/disable the automatic creation of spatial index", false, true,
             new KVP(Param.LEVEL,"advanced") );
 
+    /**
+     * Optional - the type of spatial index to create and use, QIX (quadtree) or PRT (packed
+     * R-tree)
+     */
+    public static final Param SPATIAL_INDEX_TYPE = new Param("spatial index type",
+            String.class, "the type of spatial index, QIX (quadtree) or PRT (packed R-tree)",
+            false, IndexType.QIX.name(), new KVP(Param.LEVEL, "advanced", Param.OPTIONS,
+                    Arrays.asList(new String[] { IndexType.QIX.name(), IndexType.PRT.name() })));
+
     /**
      * Optional - character used to decode strings from the DBF file
      */
@@ -233,6 +243,15 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
         TimeZone dbfTimeZone = (TimeZone) DBFTIMEZONE.lookUp(params);
         Boolean isCreateSpatialIndex = (Boolean) CREATE_SPATIAL_INDEX
                 .lookUp(params);
+        String spatialIndexType = (String) SPATIAL_INDEX_TYPE.lookUp(params);
+        IndexType indexType = IndexType.QIX;
+        if (spatialIndexType != null) {
+            try {
+                indexType = IndexType.valueOf(spatialIndexType.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown spatial index type " + spatialIndexType);
+            }
+        }
         if (isCreateSpatialIndex == null) {
             // should not be needed as default is TRUE
             assert (true);
@@ -272,7 +291,7 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             	ShapefileDataStore store;
                 if (createIndex) {
                     store = new IndexedShapefileDataStore(url, namespace,
-                            useMemoryMappedBuffer, cacheMemoryMaps, true, IndexType.QIX, dbfCharset);
+                            useMemoryMappedBuffer, cacheMemoryMaps, true, indexType, dbfCharset);
                 } else {
                     store = new ShapefileDataStore(url, namespace,
                             useMemoryMappedBuffer, cacheMemoryMaps, dbfCharset);
@@ -349,7 +368,7 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
      * @see org.geotools.data.DataStoreFactorySpi#getParametersInfo()
      */
     public Param[] getParametersInfo() {
-        return new Param[] { URLP, NAMESPACEP, CREATE_SPATIAL_INDEX,
+        return new Param[] { URLP, NAMESPACEP, CREATE_SPATIAL_INDEX, SPATIAL_INDEX_TYPE,
                 DBFCHARSET, DBFTIMEZONE, MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE };
     }
 
@@ -17,17 +17,20 @@
 package org.geotools.data.shapefile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.AbstractFeatureLocking;
 import org.geotools.data.DataStore;
 import org.geotools.data.FeatureListener;
+import org.geotools.data.PartitionedFeatureSource;
 import org.geotools.data.Query;
 import org.geotools.data.ResourceInfo;
+import org.geotools.data.Transaction;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.simple.SimpleFeatureType;
 
-public class ShapefileFeatureLocking extends AbstractFeatureLocking {
+public class ShapefileFeatureLocking extends AbstractFeatureLocking implements PartitionedFeatureSource {
     /**
      * 
      */
@@ -57,4 +60,11 @@ public class ShapefileFeatureLocking extends AbstractFeatureLocking {
     public ResourceInfo getInfo(){
         return shapefile.getInfo( featureType.getTypeName() );
     }
+    public List<Query> getPartitions(Query query, int partitions) throws IOException {
+        // the pending changes are not visible to the record ranges
+        if (getTransaction() != Transaction.AUTO_COMMIT) {
+            return null;
+        }
+        return shapefile.getPartitions(query, partitions);
+    }
 }
@@ -17,11 +17,13 @@
 package org.geotools.data.shapefile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.AbstractFeatureSource;
 import org.geotools.data.DataStore;
 import org.geotools.data.FeatureListener;
+import org.geotools.data.PartitionedFeatureSource;
 import org.geotools.data.Query;
 import org.geotools.data.ResourceInfo;
 import org.geotools.geometry.jts.ReferencedEnvelope;
@@ -32,7 +34,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
  * 
  * @author Jody Garnett (Refractions Research Inc)
  */
-class ShapefileFeatureSource extends AbstractFeatureSource {
+class ShapefileFeatureSource extends AbstractFeatureSource implements PartitionedFeatureSource {
     private final ShapefileDataStore shapefile;
     private final SimpleFeatureType featureType;
     
@@ -59,4 +61,7 @@ class ShapefileFeatureSource extends AbstractFeatureSource {
     public ResourceInfo getInfo(){
         return shapefile.getInfo( featureType.getTypeName() );
     }
+    public List<Query> getPartitions(Query query, int partitions) throws IOException {
+        return shapefile.getPartitions(query, partitions);
+    }
 }
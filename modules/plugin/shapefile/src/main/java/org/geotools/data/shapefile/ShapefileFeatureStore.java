@@ -17,13 +17,16 @@
 package org.geotools.data.shapefile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.AbstractFeatureStore;
 import org.geotools.data.DataStore;
 import org.geotools.data.FeatureListener;
+import org.geotools.data.PartitionedFeatureSource;
 import org.geotools.data.Query;
 import org.geotools.data.ResourceInfo;
+import org.geotools.data.Transaction;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.simple.SimpleFeatureType;
 /**
@@ -34,7 +37,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/plugin/shapefile/src/main/java/org/geotools/data/shapefile/ShapefileFeatureStore.java $
  */
-public class ShapefileFeatureStore extends AbstractFeatureStore {
+public class ShapefileFeatureStore extends AbstractFeatureStore implements PartitionedFeatureSource {
     private final ShapefileDataStore shapefile;
     private final SimpleFeatureType featureType;
     
@@ -62,4 +65,11 @@ public class ShapefileFeatureStore extends AbstractFeatureStore {
     public ResourceInfo getInfo(){
         return shapefile.getInfo( featureType.getTypeName() );
     }
+    public List<Query> getPartitions(Query query, int partitions) throws IOException {
+        // the pending changes are not visible to the record ranges
+        if (getTransaction() != Transaction.AUTO_COMMIT) {
+            return null;
+        }
+        return shapefile.getPartitions(query, partitions);
+    }
 }
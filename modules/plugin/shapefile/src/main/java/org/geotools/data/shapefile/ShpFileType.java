@@ -49,6 +49,10 @@ public enum ShpFileType {
      * format the mapservers shptree tool generates
      */
     QIX("qix"),
+    /**
+     * the .prt file, a packed R-tree spatial index of the shapefile
+     */
+    PRT("prt"),
     /**
      * the .fix file, it contains all the Feature IDs for constant time lookup
      * by fid also so that the fids stay consistent across deletes and adds
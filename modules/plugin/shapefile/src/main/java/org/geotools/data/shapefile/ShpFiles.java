@@ -40,6 +40,7 @@ import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -91,9 +92,9 @@ public class ShpFiles {
     private final Map<Thread, Collection<ShpFilesLocker>> lockers = new ConcurrentHashMap<Thread, Collection<ShpFilesLocker>>();
 
     /**
-     * A cache for read only memory mapped buffers
+     * A cache for read only memory mapped buffers, shared by all the shapefiles
      */
-    private final MemoryMapCache mapCache = new MemoryMapCache();
+    private final MemoryMapCache mapCache = MemoryMapCache.getSharedCache();
     
     private boolean memoryMapCacheEnabled;
     
@@ -232,7 +233,7 @@ public class ShpFiles {
             logCurrentLockers(Level.SEVERE);
             lockers.clear(); // so as not to get this log again.
         }
-        mapCache.clean();
+        releaseMapCache();
     }
 
     /**
@@ -968,16 +969,30 @@ public class ShpFiles {
      * @param mode
      * @param position
      * @param size
+     * @param leases collects the memory map cache leases, to be given back with {@link #release(List)}
      * @return
      * @throws IOException
      */
-	MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size) throws IOException {
+	MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size,
+			List<MemoryMapCache.Mapping> leases) throws IOException {
 		if(memoryMapCacheEnabled) {
-			return mapCache.map(wrapped, url, mode, position, size);
+			return mapCache.map(wrapped, url, mode, position, size, leases);
 		} else {
 			return wrapped.map(mode, position, size);
 		}
 	}
+
+	/**
+	 * Gives back the memory map cache leases taken by a file channel decorator, once the
+	 * buffers it mapped are no longer in use
+	 * @param leases
+	 */
+	void release(List<MemoryMapCache.Mapping> leases) {
+		for (MemoryMapCache.Mapping mapping : leases) {
+			mapCache.release(mapping);
+		}
+		leases.clear();
+	}
 	
 	/**
 	 * Returns the status of the memory map cache. When enabled the memory mapped portions of the files are cached and shared
@@ -996,7 +1011,17 @@ public class ShpFiles {
 	public void setMemoryMapCacheEnabled(boolean memoryMapCacheEnabled) {
 		this.memoryMapCacheEnabled = memoryMapCacheEnabled;
 		if(!memoryMapCacheEnabled) {
-			mapCache.clean();
+			releaseMapCache();
+		}
+	}
+
+	/**
+	 * Removes the files of this shapefile from the memory map cache, the mappings still in use
+	 * by some reader get unmapped once the readers close their channels
+	 */
+	private void releaseMapCache() {
+		for (URL url : urls.values()) {
+			mapCache.releaseFileCache(url);
 		}
 	}
 
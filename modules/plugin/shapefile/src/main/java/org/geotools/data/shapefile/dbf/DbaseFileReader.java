@@ -25,10 +25,13 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -63,6 +66,8 @@ import org.geotools.resources.NIOUtilities;
  * row.read(i) ); } } r.close();
  * 
  * </PRE></CODE>
+ * When only some of the fields are needed, {@link #setProjection(int[])} makes the
+ * reader skip the others altogether, they will be read as null.
  * 
  * @author Ian Schneider, Andrea Aaime
  *
@@ -120,6 +125,22 @@ public class DbaseFileReader implements FileReader {
     
     private boolean oneBytePerChar;
 
+    /**
+     * Cached decoder for multi byte charsets, along with its input and output buffers
+     */
+    private CharsetDecoder decoder;
+
+    private ByteBuffer decoderInput;
+
+    private CharBuffer decoderOutput;
+
+    /**
+     * The fields read from each record, all of them if null
+     */
+    private int[] projectedFields;
+
+    private boolean[] projection;
+
     private Calendar calendar;
 
     private final long MILLISECS_PER_DAY = 24*60*60*1000;
@@ -389,6 +410,52 @@ public class DbaseFileReader implements FileReader {
         return readObject(fieldOffsets[fieldNum], fieldNum);
     }
 
+    /**
+     * Restricts the fields read from each record to the specified ones. The other fields are
+     * not even copied out of the file, and are returned as null by {@link #readEntry(Object[])},
+     * {@link #readField(int)} and {@link Row#read(int)}.
+     * 
+     * @param fields
+     *                The field numbers to be read (zero based), or null to read all of them
+     */
+    public void setProjection(final int[] fields) {
+        if (fields == null) {
+            projection = null;
+            projectedFields = null;
+            return;
+        }
+
+        final boolean[] selected = new boolean[header.getNumFields()];
+        int count = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (!selected[fields[i]]) {
+                selected[fields[i]] = true;
+                count++;
+            }
+        }
+        if (count == selected.length) {
+            projection = null;
+            projectedFields = null;
+        } else {
+            // keep them in file order, so that the record is scanned forward
+            projectedFields = new int[count];
+            for (int i = 0, j = 0; i < selected.length; i++) {
+                if (selected[i]) {
+                    projectedFields[j++] = i;
+                }
+            }
+            projection = selected;
+        }
+    }
+
+    /**
+     * Returns the field numbers set with {@link #setProjection(int[])}, or null if all fields are
+     * read
+     */
+    public int[] getProjection() {
+        return projectedFields == null ? null : projectedFields.clone();
+    }
+
     /**
      * Transfer, by bytes, the next record to the writer.
      */
@@ -418,9 +485,20 @@ public class DbaseFileReader implements FileReader {
                 continue;
             }
 
-            buffer.limit(buffer.position() + header.getRecordLength() - 1);
-            buffer.get(bytes); // SK: There is a side-effect here!!!
-            buffer.limit(buffer.capacity());
+            if (projectedFields == null) {
+                buffer.limit(buffer.position() + header.getRecordLength() - 1);
+                buffer.get(bytes); // SK: There is a side-effect here!!!
+                buffer.limit(buffer.capacity());
+            } else {
+                // copy only the projected fields, jumping over the others
+                final int start = buffer.position();
+                for (int i = 0; i < projectedFields.length; i++) {
+                    final int field = projectedFields[i];
+                    buffer.position(start + fieldOffsets[field]);
+                    buffer.get(bytes, fieldOffsets[field], fieldLengths[field]);
+                }
+                buffer.position(start + header.getRecordLength() - 1);
+            }
 
             foundRecord = true;
         }
@@ -442,6 +520,9 @@ public class DbaseFileReader implements FileReader {
     }
     private Object readObject(final int fieldOffset, final int fieldNum)
             throws IOException {
+        if (projection != null && !projection[fieldNum]) {
+            return null;
+        }
         final char type = fieldTypes[fieldNum];
         final int fieldLen = fieldLengths[fieldNum];
         Object object = null;
@@ -478,7 +559,7 @@ public class DbaseFileReader implements FileReader {
                     if(oneBytePerChar) {
                         object = fastParse(bytes, fieldOffset, fieldLen).trim();
                     } else {
-                        object = new String(bytes, fieldOffset, fieldLen, stringCharset.name()).trim();
+                        object = decode(bytes, fieldOffset, fieldLen).trim();
                     }
                 }
                 break;
@@ -601,6 +682,36 @@ public class DbaseFileReader implements FileReader {
         return new String(chars);
     }
 
+    /**
+     * Decodes a string using the reader charset, reusing the same decoder and buffers for all
+     * the fields instead of looking up the charset by name at each call
+     */
+    String decode(final byte[] bytes, final int fieldOffset, final int fieldLen)
+            throws IOException {
+        if (decoder == null) {
+            // same behavior as new String(bytes, charset) on bad input
+            decoder = stringCharset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        if (decoderInput == null || decoderInput.array() != bytes) {
+            decoderInput = ByteBuffer.wrap(bytes);
+        }
+        final int maxChars = (int) Math.ceil(fieldLen * (double) decoder.maxCharsPerByte());
+        if (decoderOutput == null || decoderOutput.capacity() < maxChars) {
+            decoderOutput = CharBuffer.allocate(maxChars);
+        }
+
+        decoderInput.clear();
+        decoderInput.position(fieldOffset);
+        decoderInput.limit(fieldOffset + fieldLen);
+        decoderOutput.clear();
+        decoder.reset();
+        decoder.decode(decoderInput, decoderOutput, true);
+        decoder.flush(decoderOutput);
+        decoderOutput.flip();
+        return decoderOutput.toString();
+    }
+
     public static void main(final String[] args) throws Exception {
         final DbaseFileReader reader = new DbaseFileReader(new ShpFiles(args[0]),
                 false, Charset.forName("ISO-8859-1"), null);
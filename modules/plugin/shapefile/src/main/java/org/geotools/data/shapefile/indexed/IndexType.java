@@ -33,7 +33,12 @@ public enum IndexType {
     /**
      * The same index as mapserver. Its the most reliable and is the default
      */
-    QIX(ShpFileType.QIX);
+    QIX(ShpFileType.QIX),
+    /**
+     * A bulk loaded, page aligned, packed R-tree. Balanced regardless of the data distribution,
+     * it's a better fit than the quadtree for large shapefiles with dense clusters
+     */
+    PRT(ShpFileType.PRT);
 
     public final ShpFileType shpFileType;
 
@@ -29,6 +29,7 @@ import java.util.logging.Logger;
 
 import org.geotools.data.DataUtilities;
 import org.geotools.data.FIDReader;
+import org.geotools.data.SkippableReader;
 import org.geotools.data.shapefile.FileReader;
 import org.geotools.data.shapefile.ShpFiles;
 import org.geotools.data.shapefile.StreamLogging;
@@ -43,7 +44,7 @@ import org.geotools.resources.NIOUtilities;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/plugin/shapefile/src/main/java/org/geotools/data/shapefile/indexed/IndexedFidReader.java $
  */
-public class IndexedFidReader implements FIDReader, FileReader {
+public class IndexedFidReader implements FIDReader, FileReader, SkippableReader {
     private static final Logger LOGGER = org.geotools.util.logging.Logging
             .getLogger("org.geotools.data.shapefile");
     private ReadableByteChannel readChannel;
@@ -325,6 +326,23 @@ public class IndexedFidReader implements FIDReader, FileReader {
         return fidBuilder.toString();
     }
 
+    /**
+     * Skips the next ids. Nothing needs to be done if the reader follows the record number of
+     * an attribute reader, otherwise the index entries are moved over without building the ids
+     */
+    public int skip(int count) throws IOException {
+        if (reader != null) {
+            return count;
+        }
+
+        int skipped = 0;
+        while (skipped < count && hasNext()) {
+            buffer.position(buffer.position() + IndexedFidWriter.RECORD_SIZE);
+            skipped++;
+        }
+        return skipped;
+    }
+
     /**
      * Returns the record number of the feature in the shx or shp that is
      * identified by the the last fid returned by next().
@@ -141,6 +141,39 @@ public class IndexedShapefileAttributeReader extends ShapefileAttributeReader {
         
     }
 
+    /**
+     * Skips the next records of the index search results, reading only the record headers
+     * if their envelopes need to be checked
+     */
+    public int skip(int count) throws IOException {
+        if (this.goodRecs == null) {
+            return super.skip(count);
+        }
+
+        int skipped = 0;
+        if (featureAvailable && count > 0) {
+            featureAvailable = false;
+            skipped++;
+        }
+        geometry = null;
+        row = null;
+
+        boolean envelopeChecks = envelopeChecks();
+        while (skipped < count && this.goodRecs.hasNext()) {
+            next = (Data) goodRecs.next();
+            if (envelopeChecks) {
+                Long l = (Long) next.getValue(1);
+                shp.goTo((int) l.longValue());
+                record = shp.nextRecord();
+                if (!accept(record.envelope())) {
+                    continue;
+                }
+            }
+            skipped++;
+        }
+        return skipped;
+    }
+
     
 
     
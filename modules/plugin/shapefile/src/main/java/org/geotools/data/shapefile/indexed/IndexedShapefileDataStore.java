@@ -18,6 +18,7 @@ package org.geotools.data.shapefile.indexed;
 
 import static org.geotools.data.shapefile.ShpFileType.DBF;
 import static org.geotools.data.shapefile.ShpFileType.FIX;
+import static org.geotools.data.shapefile.ShpFileType.PRT;
 import static org.geotools.data.shapefile.ShpFileType.QIX;
 import static org.geotools.data.shapefile.ShpFileType.SHP;
 import static org.geotools.data.shapefile.ShpFileType.SHX;
@@ -43,12 +44,14 @@ import java.util.logging.Level;
 
 import org.geotools.data.DataSourceException;
 import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultQuery;
 import org.geotools.data.EmptyFeatureReader;
 import org.geotools.data.EmptyFeatureWriter;
 import org.geotools.data.FIDReader;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.FeatureWriter;
 import org.geotools.data.InProcessLockingManager;
+import org.geotools.data.PartitionedVisitExecutor;
 import org.geotools.data.Query;
 import org.geotools.data.Transaction;
 import org.geotools.data.TransactionStateDiff;
@@ -78,6 +81,7 @@ import org.geotools.index.TreeException;
 import org.geotools.index.quadtree.QuadTree;
 import org.geotools.index.quadtree.StoreException;
 import org.geotools.index.quadtree.fs.FileSystemIndexStore;
+import org.geotools.index.rtree.PackedRTree;
 import org.geotools.renderer.ScreenMap;
 import org.geotools.util.NullProgressListener;
 import org.opengis.feature.simple.SimpleFeature;
@@ -111,6 +115,13 @@ public class IndexedShapefileDataStore extends ShapefileDataStore implements
         }
     }
 
+    /**
+     * Query hint limiting the records read to a range, as the first (included) and last
+     * (excluded) zero based record numbers. Set on the partitions returned by
+     * {@link #getPartitions(Query, int)}
+     */
+    static final Hints.Key RECORD_RANGE = new Hints.Key(int[].class);
+
     IndexType treeType;
 
     final boolean useIndex;
@@ -118,6 +129,8 @@ public class IndexedShapefileDataStore extends ShapefileDataStore implements
     final boolean createIndex;
     
     CachedQuadTree cachedTree;
+    
+    PackedRTree packedTree;
 
 	int maxQixCacheSize = DEFAULT_MAX_QIX_CACHE_SIZE;
 	
@@ -264,7 +277,11 @@ public class IndexedShapefileDataStore extends ShapefileDataStore implements
      * Forces the spatial index to be created
      */
     public void createSpatialIndex() throws IOException {
-        buildQuadTree();
+        if (treeType == IndexType.PRT) {
+            buildPackedRTree();
+        } else {
+            buildQuadTree();
+        }
     }
 
     protected Filter getUnsupportedFilter(String typeName, Filter filter) {
@@ -533,13 +550,21 @@ public class IndexedShapefileDataStore extends ShapefileDataStore implements
 
             if (!bbox.isNull() && this.useIndex) {
                 try {
-                    goodRecs = this.queryQuadTree(bbox);
+                    if (treeType == IndexType.PRT) {
+                        goodRecs = this.queryPackedRTree(bbox);
+                    } else {
+                        goodRecs = this.queryQuadTree(bbox);
+                    }
                 } catch (TreeException e) {
                     throw new IOException("Error querying index: "
                             + e.getMessage());
                 }
             }
         }
+        int[] range = query != null ? (int[]) query.getHints().get(RECORD_RANGE) : null;
+        if (range != null) {
+            goodRecs = getRecordRange(goodRecs, range);
+        }
         List<AttributeDescriptor> atts = targetSchema.getAttributeDescriptors();
 
         IndexedDbaseFileReader dbfR = null;
@@ -584,6 +609,66 @@ public class IndexedShapefileDataStore extends ShapefileDataStore implements
         return reader;
     }
     
+    /**
+     * Limits the records to be read to the specified range, walking the whole range if no
+     * index search has been performed, or filtering the search results otherwise
+     */
+    CloseableIterator<Data> getRecordRange(CloseableIterator<Data> goodRecs, int[] range)
+            throws IOException {
+        IndexFile shx = openIndexFile();
+        if (shx == null) {
+            throw new IOException("Record ranges can be read only if the .shx file is available");
+        }
+        if (goodRecs == null) {
+            return new RecordRangeIterator(shx, range[0], range[1]);
+        }
+        try {
+            long start = shx.getOffsetInBytes(range[0]);
+            long end = range[1] < shx.getRecordCount() ? shx.getOffsetInBytes(range[1])
+                    : Long.MAX_VALUE;
+            return new RecordRangeIterator(goodRecs, start, end);
+        } finally {
+            shx.close();
+        }
+    }
+
+    /**
+     * Splits the records in contiguous ranges of about the same size, each partition is read
+     * with its own readers using the .shx file offsets to jump to its first record
+     */
+    @Override
+    protected List<Query> getPartitions(Query query, int partitions) throws IOException {
+        if (query.getFilter() == Filter.EXCLUDE || !shpFiles.isLocal()) {
+            return null;
+        }
+        IndexFile shx = openIndexFile();
+        if (shx == null) {
+            return null;
+        }
+        int records;
+        try {
+            records = shx.getRecordCount();
+        } finally {
+            shx.close();
+        }
+
+        partitions = PartitionedVisitExecutor.getPartitionCount(query, partitions, records);
+        if (partitions < 2) {
+            return null;
+        }
+        int size = (records + partitions - 1) / partitions;
+        List<Query> result = new ArrayList<Query>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            DefaultQuery partition = new DefaultQuery(query);
+            Hints hints = query.getHints().clone();
+            hints.put(RECORD_RANGE, new int[] { Math.min(records, i * size),
+                    Math.min(records, (i + 1) * size) });
+            partition.setHints(hints);
+            result.add(partition);
+        }
+        return result;
+    }
+
     /**
      * Convenience method for opening a ShapefileReader.
      * 
@@ -842,6 +927,68 @@ public class IndexedShapefileDataStore extends ShapefileDataStore implements
         return tmp;
     }
 
+    /**
+     * Packed R-tree query, returns the matching records sorted by position in the .shp file
+     * 
+     * @param bbox
+     * @return the matching records, or null if the index cannot be used or all the records
+     *         match
+     * @throws IOException
+     * @throws TreeException
+     */
+    protected CloseableIterator<Data> queryPackedRTree(Envelope bbox) throws IOException,
+            TreeException {
+        // check if the spatial index needs recreating
+        createSpatialIndex(false);
+
+        PackedRTree tree = openPackedRTree();
+        if (tree == null || bbox.contains(tree.getBounds())) {
+            return null;
+        }
+        return tree.search(bbox);
+    }
+
+    /**
+     * Opens the packed R-tree index, or returns the one already open. The tree is kept open
+     * since it does not hold any file handle.
+     * 
+     * @return the tree, or null if the index file is missing
+     * @throws IOException
+     */
+    protected synchronized PackedRTree openPackedRTree() throws IOException {
+        if (packedTree != null) {
+            return packedTree;
+        }
+        if (!isLocal()) {
+            return null;
+        }
+        URL treeURL = shpFiles.acquireRead(PRT, this);
+        try {
+            File treeFile = DataUtilities.urlToFile(treeURL);
+
+            if (!treeFile.exists() || (treeFile.length() == 0)) {
+                treeType = IndexType.NONE;
+                return null;
+            }
+
+            packedTree = new PackedRTree(treeFile, useMemoryMappedBuffer);
+            return packedTree;
+        } finally {
+            shpFiles.unlockRead(treeURL, this);
+        }
+    }
+
+    /**
+     * Releases the packed R-tree index, if open, so that the index file can be rebuilt or
+     * removed
+     */
+    synchronized void closePackedRTree() {
+        if (packedTree != null) {
+            packedTree.close();
+            packedTree = null;
+        }
+    }
+
     /**
      * Convenience method for opening a DbaseFileReader.
      * 
@@ -1215,10 +1362,42 @@ public class IndexedShapefileDataStore extends ShapefileDataStore implements
         }
     }
 
+    /**
+     * Builds the packed R-tree index. Usually not necessary since reading features
+     * will index when required
+     * @throws TreeException
+     */
+    public void buildPackedRTree() throws TreeException {
+        if (isLocal()) {
+            LOGGER.fine("Creating packed R-tree spatial index for " + shpFiles.get(SHP));
+
+            closePackedRTree();
+            ShapeFileIndexer indexer = new ShapeFileIndexer();
+            indexer.setIdxType(IndexType.PRT);
+            indexer.setShapeFileName(shpFiles);
+            
+            try {
+                indexer.index(false, new NullProgressListener());
+            } catch (Exception e) {
+                if (e instanceof TreeException) {
+                    throw (TreeException) e;
+                } else {
+                    throw new TreeException(e);
+                }
+            }
+        }
+    }
+
     public boolean isMemoryMapped() {
         return useMemoryMappedBuffer;
     }
 
+    @Override
+    public void dispose() {
+        closePackedRTree();
+        super.dispose();
+    }
+
     public String id() {
         return getClass().getName() + ": " + getCurrentTypeName();
     }
@@ -116,9 +116,13 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements
                 }
 
                 deleteFile(ShpFileType.QIX);
+                indexedShapefileDataStore.closePackedRTree();
+                deleteFile(ShpFileType.PRT);
 
                 if (indexedShapefileDataStore.treeType == IndexType.QIX) {
                     indexedShapefileDataStore.buildQuadTree();
+                } else if (indexedShapefileDataStore.treeType == IndexType.PRT) {
+                    indexedShapefileDataStore.buildPackedRTree();
                 }
             }
         } catch (Throwable e) {
@@ -0,0 +1,129 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.indexed;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.index.CloseableIterator;
+import org.geotools.index.Data;
+import org.geotools.index.DataDefinition;
+
+/**
+ * Limits the records read by the {@link IndexedShapefileAttributeReader} to a range, used to read
+ * a partition of a query. Either walks all the records in the range, looking up their offsets
+ * in the .shx file, or filters by offset the records returned by an index search.
+ */
+class RecordRangeIterator implements CloseableIterator<Data> {
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    }
+
+    IndexFile shx;
+
+    int recno;
+
+    int end;
+
+    CloseableIterator<Data> delegate;
+
+    long startOffset;
+
+    long endOffset;
+
+    Data next;
+
+    /**
+     * Walks the records between <code>first</code> (included) and <code>end</code> (excluded),
+     * zero based
+     * 
+     * @param shx the index file, will be closed along with this iterator
+     */
+    RecordRangeIterator(IndexFile shx, int first, int end) {
+        this.shx = shx;
+        this.recno = first;
+        this.end = end;
+    }
+
+    /**
+     * Returns the records of the delegate whose offset in the .shp file is between
+     * <code>startOffset</code> (included) and <code>endOffset</code> (excluded)
+     * 
+     * @param delegate the index search results, will be closed along with this iterator
+     */
+    RecordRangeIterator(CloseableIterator<Data> delegate, long startOffset, long endOffset) {
+        this.delegate = delegate;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (delegate == null) {
+            if (recno < end) {
+                try {
+                    next = new Data(DATA_DEFINITION);
+                    next.addValue(new Integer(recno + 1));
+                    next.addValue(new Long(shx.getOffsetInBytes(recno)));
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to read the offset of record " + recno, e);
+                }
+                recno++;
+            }
+        } else {
+            while (next == null && delegate.hasNext()) {
+                Data data = delegate.next();
+                long offset = ((Long) data.getValue(1)).longValue();
+                if (offset >= startOffset && offset < endOffset) {
+                    next = data;
+                }
+            }
+        }
+        return next != null;
+    }
+
+    public Data next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Data result = next;
+        next = null;
+        return result;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close() throws IOException {
+        try {
+            if (shx != null) {
+                shx.close();
+            }
+        } finally {
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+    }
+}
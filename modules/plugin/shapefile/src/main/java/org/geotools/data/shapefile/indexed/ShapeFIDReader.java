@@ -19,6 +19,7 @@ package org.geotools.data.shapefile.indexed;
 import java.io.IOException;
 
 import org.geotools.data.FIDReader;
+import org.geotools.data.SkippableReader;
 import org.geotools.data.shapefile.ShapefileAttributeReader;
 import org.opengis.feature.simple.SimpleFeatureType;
 
@@ -29,7 +30,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
  *
  * @source $URL: http://svn.osgeo.org/geotools/tags/8.0-M1/modules/plugin/shapefile/src/main/java/org/geotools/data/shapefile/indexed/ShapeFIDReader.java $
  */
-public class ShapeFIDReader implements FIDReader {
+public class ShapeFIDReader implements FIDReader, SkippableReader {
     protected static final String CLOSE_MESG = "Close has already been called"
             + " on this FIDReader";
     private boolean opened;
@@ -99,4 +100,14 @@ public class ShapeFIDReader implements FIDReader {
 
         return buffer.toString();
     }
+
+    /**
+     * Nothing to do, the ids are built out of the record number of the attribute reader
+     */
+    public int skip(int count) throws IOException {
+        if (!this.opened) {
+            throw new IOException(CLOSE_MESG);
+        }
+        return count;
+    }
 }
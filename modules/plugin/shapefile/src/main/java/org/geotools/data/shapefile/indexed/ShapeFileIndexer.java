@@ -42,6 +42,7 @@ import org.geotools.index.quadtree.QuadTree;
 import org.geotools.index.quadtree.StoreException;
 import org.geotools.index.quadtree.fs.FileSystemIndexStore;
 import org.geotools.index.quadtree.fs.IndexHeader;
+import org.geotools.index.rtree.PackedRTreeBuilder;
 import org.geotools.util.NullProgressListener;
 import org.geotools.util.logging.Logging;
 import org.opengis.util.ProgressListener;
@@ -59,6 +60,7 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 public class ShapeFileIndexer implements FileWriter {
     private static final Logger LOGGER = Logging.getLogger(ShapeFileIndexer.class);
     
+    private IndexType idxType = IndexType.QIX;
     private int max = -1;
     private int leafSize = 16;
 
@@ -78,9 +80,7 @@ public class ShapeFileIndexer implements FileWriter {
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-t")) {
-                // idx.setIdxType(IndexType.valueOf(args[++i]));
-                // just skip it for backwards compatibility
-                i++;
+                idx.setIdxType(IndexType.valueOf(args[++i].toUpperCase()));
             } else if (args[i].equals("-M")) {
                 idx.setMax(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-s")) {
@@ -114,7 +114,7 @@ public class ShapeFileIndexer implements FileWriter {
     }
 
     private static void usage() {
-        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX> "
+        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX | PRT> "
                 + "[-M <max tree depth>] "
                 + "[-b <byte order NL | NM>] " + "<shape file>"
                 + "[-s <max number of items in a leaf>]");
@@ -122,7 +122,7 @@ public class ShapeFileIndexer implements FileWriter {
         System.out.println();
 
         System.out.println("Options:");
-        System.out.println("\t-t Index type: RTREE or QUADTREE");
+        System.out.println("\t-t Index type: QIX (quadtree, default) or PRT (packed R-tree)");
         System.out.println();
         System.out.println("Following options apllies only to QUADTREE:");
         System.out.println("\t-b byte order to use: NL = LSB; "
@@ -164,32 +164,36 @@ public class ShapeFileIndexer implements FileWriter {
         ShapefileReader reader = null;
 
         // Temporary file for building...
-        StorageFile storage = shpFiles.getStorageFile(ShpFileType.QIX);
+        StorageFile storage = shpFiles.getStorageFile(idxType.shpFileType);
         File treeFile = storage.getFile();
 
         try {
             reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
             
-            if(max == -1) {
-                // compute a reasonable index max depth, considering a fully developed
-                // 10 levels one already contains 200k index nodes, good for indexing up
-                // to 3M features without consuming too much memory
-                int features = reader.getCount(0);
-                max = 1;
-                int nodes = 1;
-                while(nodes * leafSize < features) {
-                    max++;
-                    nodes *= 4;
-                }
-                if(max < 10) {
-                    max = 10;
+            if(idxType == IndexType.PRT) {
+                cnt = this.buildPackedRTree(reader, treeFile, verbose);
+            } else {
+                if(max == -1) {
+                    // compute a reasonable index max depth, considering a fully developed
+                    // 10 levels one already contains 200k index nodes, good for indexing up
+                    // to 3M features without consuming too much memory
+                    int features = reader.getCount(0);
+                    max = 1;
+                    int nodes = 1;
+                    while(nodes * leafSize < features) {
+                        max++;
+                        nodes *= 4;
+                    }
+                    if(max < 10) {
+                        max = 10;
+                    }
+                
+                    reader.close();
+                    reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
                 }
                 
-                reader.close();
-                reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
+                cnt = this.buildQuadTree(reader, treeFile, verbose);
             }
-            
-            cnt = this.buildQuadTree(reader, treeFile, verbose);
         } finally {
             if (reader != null)
                 reader.close();
@@ -259,6 +263,52 @@ public class ShapeFileIndexer implements FileWriter {
         return cnt;
     }
     
+    private int buildPackedRTree(final ShapefileReader reader, File file, boolean verbose)
+            throws IOException {
+        LOGGER.fine("Building packed R-tree spatial index for file " + file.getAbsolutePath());
+
+        final IndexFile shpIndex = new IndexFile(shpFiles, false);
+        try {
+            ShapefileHeader header = reader.getHeader();
+            Envelope bounds = new Envelope(header.minX(), header.maxX(), header.minY(), header
+                    .maxY());
+            PackedRTreeBuilder builder = new PackedRTreeBuilder(bounds, shpIndex.getRecordCount());
+
+            // first pass, sequential, to sort the records along the Hilbert curve
+            int cnt = 0;
+            while (reader.hasNext()) {
+                Record rec = reader.nextRecord();
+                builder.add(cnt++, rec.minX, rec.minY, rec.maxX, rec.maxY);
+
+                if (verbose && ((cnt % 1000) == 0)) {
+                    System.out.print('.');
+                }
+                if (cnt % 100000 == 0)
+                    System.out.print('\n');
+            }
+            if (verbose)
+                System.out.println("done");
+
+            // second pass, in Hilbert order, to write down the tree
+            builder.write(file, new PackedRTreeBuilder.EnvelopeSource() {
+
+                public int getRecord(int recno, double[] envelope) throws IOException {
+                    int offset = shpIndex.getOffsetInBytes(recno);
+                    reader.goTo(offset);
+                    Record rec = reader.nextRecord();
+                    envelope[0] = rec.minX;
+                    envelope[1] = rec.minY;
+                    envelope[2] = rec.maxX;
+                    envelope[3] = rec.maxY;
+                    return offset;
+                }
+            });
+            return cnt;
+        } finally {
+            shpIndex.close();
+        }
+    }
+    
     private Node optimizeTree(QuadTree tree, Node node, int level, ShapefileReader reader, IndexFile index) throws StoreException, IOException {
         // recurse, with a check to avoid too deep recursion due to odd data that has a
         if(node.getNumShapeIds() > leafSize && node.getNumSubNodes() == 0 && level < max * 2) {
@@ -387,6 +437,19 @@ public class ShapeFileIndexer implements FileWriter {
         }
     }
 
+    /**
+     * Sets the type of spatial index to be built, {@link IndexType#QIX} by default
+     * 
+     * @param idxType
+     */
+    public void setIdxType(IndexType idxType) {
+        this.idxType = idxType;
+    }
+
+    public IndexType getIdxType() {
+        return idxType;
+    }
+
     /**
      * For quad tree this is the max depth. I don't know what it is for RTree
      * 
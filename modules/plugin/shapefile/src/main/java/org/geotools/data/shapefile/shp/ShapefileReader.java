@@ -627,26 +627,7 @@ public class ShapefileReader implements FileReader {
             UnsupportedOperationException {
         disableShxUsage();
         if (randomAccessEnabled) {
-            if (this.useMemoryMappedBuffer) {
-                buffer.position(offset);
-            } else {
-                /*
-                 * Check to see if requested offset is already loaded; ensure
-                 * that record header is in the buffer
-                 */
-                if (this.currentOffset <= offset
-                        && this.currentOffset + buffer.limit() >= offset + 8) {
-                    buffer.position(this.toBufferOffset(offset));
-                } else {
-                    FileChannel fc = (FileChannel) this.channel;
-                    fc.position(offset);
-                    this.currentOffset = offset;
-                    buffer.position(0);
-                    buffer.limit(buffer.capacity());
-                    fill(buffer, fc);
-                    buffer.position(0);
-                }
-            }
+            positionBuffer(offset);
 
             int oldRecordOffset = record.end;
             record.end = offset;
@@ -661,6 +642,69 @@ public class ShapefileReader implements FileReader {
         }
     }
 
+    /**
+     * Skips the next records without reading them. If the .shx file is
+     * available and the .shp file can be accessed randomly the reader jumps
+     * directly to the first record that is not skipped, otherwise only the
+     * headers of the skipped records are read.
+     * 
+     * @param count
+     *                the number of records to skip
+     * @return the number of records actually skipped, lower than
+     *         <code>count</code> if the end of the file is reached
+     * @throws IOException
+     */
+    public int skip(int count) throws IOException {
+        if (currentShape >= 0 && randomAccessEnabled) {
+            int skipped = Math.max(0, Math.min(count, shxReader.getRecordCount()
+                    - currentShape));
+            if (skipped > 0) {
+                currentShape += skipped;
+                // keep the logical record number check in hasNext() working
+                record.number += skipped;
+                record.shape = null;
+                if (currentShape < shxReader.getRecordCount()) {
+                    positionBuffer(shxReader.getOffsetInBytes(currentShape));
+                }
+            }
+            return skipped;
+        }
+
+        int skipped = 0;
+        while (skipped < count && hasNext()) {
+            nextRecord();
+            skipped++;
+        }
+        return skipped;
+    }
+
+    /**
+     * Makes sure the record header at the specified file offset is loaded in
+     * the buffer, and moves the buffer there
+     */
+    private void positionBuffer(int offset) throws IOException {
+        if (this.useMemoryMappedBuffer) {
+            buffer.position(offset);
+        } else {
+            /*
+             * Check to see if requested offset is already loaded; ensure
+             * that record header is in the buffer
+             */
+            if (this.currentOffset <= offset
+                    && this.currentOffset + buffer.limit() >= offset + 8) {
+                buffer.position(this.toBufferOffset(offset));
+            } else {
+                FileChannel fc = (FileChannel) this.channel;
+                fc.position(offset);
+                this.currentOffset = offset;
+                buffer.position(0);
+                buffer.limit(buffer.capacity());
+                fill(buffer, fc);
+                buffer.position(0);
+            }
+        }
+    }
+
     /**
      * Returns the shape at the specified byte distance from the beginning of
      * the file. Mind that:
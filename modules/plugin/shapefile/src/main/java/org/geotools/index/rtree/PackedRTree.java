@@ -0,0 +1,382 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.index.rtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.index.CloseableIterator;
+import org.geotools.index.Data;
+import org.geotools.index.DataDefinition;
+import org.geotools.index.TreeException;
+import org.geotools.resources.NIOUtilities;
+import org.geotools.util.logging.Logging;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Read only access to a packed R-tree stored in a ".prt" file, see {@link PackedRTreeBuilder}
+ * for the file layout.
+ * <p>
+ * The tree is never turned into objects, searches walk the nodes directly in the (usually memory
+ * mapped) file using an explicit stack of node positions, and return the matching records sorted
+ * by their position in the .shp file, so that the shapefile reader can scan it forward only.
+ * <p>
+ * Instances are thread safe, each search works against its own view of the file. The memory
+ * mapped buffer is reference counted by the searches using it, so that {@link #close()} only
+ * unmaps it once the last running search is done with it.
+ */
+public class PackedRTree {
+
+    static final Logger LOGGER = Logging.getLogger(PackedRTree.class);
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    };
+
+    File file;
+
+    /**
+     * The whole file, when memory mapped, or null if nodes are read on demand
+     */
+    ByteBuffer buffer;
+
+    /**
+     * The number of searches currently reading the memory mapped buffer
+     */
+    int activeSearches;
+
+    /**
+     * Set by {@link #close()}, the buffer gets unmapped as soon as no search uses it anymore
+     */
+    boolean closed;
+
+    int nodeCapacity;
+
+    int pageSize;
+
+    int count;
+
+    Envelope bounds;
+
+    /**
+     * The number of entries in each level, root first
+     */
+    int[] levelEntries;
+
+    /**
+     * The position of each level in the file, root first
+     */
+    long[] levelOffsets;
+
+    /**
+     * Opens the packed R-tree stored in the specified file
+     *
+     * @param file
+     * @param useMemoryMapping if true the file will be memory mapped, otherwise the nodes will be
+     *        read from disk at each search
+     * @throws IOException
+     */
+    public PackedRTree(File file, boolean useMemoryMapping) throws IOException {
+        this.file = file;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header;
+            if (useMemoryMapping) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.BIG_ENDIAN);
+                header = buffer.duplicate();
+            } else {
+                header = ByteBuffer.allocate(PackedRTreeBuilder.HEADER_SIZE);
+                fill(channel, header, 0);
+            }
+            readHeader(header);
+        } finally {
+            raf.close();
+        }
+    }
+
+    void readHeader(ByteBuffer header) throws IOException {
+        byte[] magic = new byte[PackedRTreeBuilder.MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, PackedRTreeBuilder.MAGIC)) {
+            throw new IOException(file + " is not a packed R-tree file");
+        }
+        int version = header.getInt();
+        if (version != PackedRTreeBuilder.VERSION) {
+            throw new IOException("Unsupported packed R-tree version " + version + " in " + file);
+        }
+        nodeCapacity = header.getInt();
+        pageSize = header.getInt();
+        count = header.getInt();
+        double minx = header.getDouble();
+        double miny = header.getDouble();
+        double maxx = header.getDouble();
+        double maxy = header.getDouble();
+        bounds = new Envelope(minx, maxx, miny, maxy);
+        int levels = header.getInt();
+        levelEntries = new int[levels];
+        levelOffsets = new long[levels];
+        for (int i = 0; i < levels; i++) {
+            levelEntries[i] = header.getInt();
+            levelOffsets[i] = header.getLong();
+        }
+    }
+
+    /**
+     * The number of records indexed by the tree
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * The bounds of the indexed records
+     */
+    public Envelope getBounds() {
+        return new Envelope(bounds);
+    }
+
+    /**
+     * Returns the record numbers and .shp offsets of the records whose envelope intersects the
+     * provided one, in the same form as the quadtree search results ({@link Data} with the record
+     * number and the offset in bytes), ordered by offset.
+     *
+     * @param bbox
+     * @return
+     * @throws TreeException
+     */
+    public CloseableIterator<Data> search(Envelope bbox) throws TreeException {
+        final long[] hits;
+        try {
+            hits = collect(bbox);
+        } catch (IOException e) {
+            throw new TreeException(e);
+        }
+
+        final Data data = new Data(DATA_DEFINITION);
+        return new CloseableIterator<Data>() {
+            int idx = 0;
+
+            public boolean hasNext() {
+                return idx < hits.length;
+            }
+
+            public Data next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long hit = hits[idx++];
+                try {
+                    data.clear();
+                    data.addValue((int) hit);
+                    data.addValue(hit >>> 32);
+                } catch (TreeException e) {
+                    throw new RuntimeException(e);
+                }
+                return data;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            public void close() throws IOException {
+                // nothing to release
+            }
+        };
+    }
+
+    /**
+     * Returns the record numbers of the records whose envelope intersects the provided one, in
+     * ascending order
+     *
+     * @param bbox
+     * @return
+     * @throws IOException
+     */
+    public int[] searchRecords(Envelope bbox) throws IOException {
+        long[] hits = collect(bbox);
+        int[] records = new int[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            records[i] = (int) hits[i];
+        }
+        return records;
+    }
+
+    /**
+     * Collects the matching leaf entries as (offset << 32 | record number) sorted values
+     */
+    long[] collect(Envelope bbox) throws IOException {
+        if (count == 0 || bbox.isNull() || !bbox.intersects(bounds)) {
+            return new long[0];
+        }
+
+        final double qminx = bbox.getMinX();
+        final double qminy = bbox.getMinY();
+        final double qmaxx = bbox.getMaxX();
+        final double qmaxy = bbox.getMaxY();
+        final int leafLevel = levelEntries.length - 1;
+
+        // depth first visit, at most nodeCapacity children get pushed for each level
+        int[] stackLevels = new int[levelEntries.length * nodeCapacity + 1];
+        int[] stackNodes = new int[stackLevels.length];
+        int top = 0;
+        stackLevels[0] = 0;
+        stackNodes[0] = 0;
+
+        long[] hits = new long[64];
+        int hitCount = 0;
+
+        ByteBuffer page;
+        RandomAccessFile raf = null;
+        FileChannel channel = null;
+        ByteBuffer mapped = acquireBuffer();
+        try {
+            if (mapped != null) {
+                page = mapped.duplicate();
+                page.order(ByteOrder.BIG_ENDIAN);
+            } else {
+                raf = new RandomAccessFile(file, "r");
+                channel = raf.getChannel();
+                page = ByteBuffer.allocate(pageSize);
+            }
+
+            while (top >= 0) {
+                final int level = stackLevels[top];
+                final int node = stackNodes[top];
+                top--;
+
+                final int first = node * nodeCapacity;
+                final int entries = Math.min(nodeCapacity, levelEntries[level] - first);
+                final long nodeOffset = levelOffsets[level] + (long) node * pageSize;
+                int base;
+                if (channel != null) {
+                    page.clear();
+                    page.limit(entries * PackedRTreeBuilder.ENTRY_SIZE);
+                    fill(channel, page, nodeOffset);
+                    base = 0;
+                } else {
+                    base = (int) nodeOffset;
+                }
+
+                for (int i = 0; i < entries; i++) {
+                    final int p = base + i * PackedRTreeBuilder.ENTRY_SIZE;
+                    if (page.getDouble(p) > qmaxx || page.getDouble(p + 8) > qmaxy
+                            || page.getDouble(p + 16) < qminx || page.getDouble(p + 24) < qminy) {
+                        continue;
+                    }
+                    if (level == leafLevel) {
+                        if (hitCount == hits.length) {
+                            long[] resized = new long[hits.length * 2];
+                            System.arraycopy(hits, 0, resized, 0, hitCount);
+                            hits = resized;
+                        }
+                        long recno = page.getInt(p + 32);
+                        long offset = page.getInt(p + 36);
+                        hits[hitCount++] = (offset << 32) | (recno & 0xFFFFFFFFL);
+                    } else {
+                        top++;
+                        stackLevels[top] = level + 1;
+                        stackNodes[top] = first + i;
+                    }
+                }
+            }
+        } finally {
+            if (mapped != null) {
+                releaseBuffer();
+            }
+            if (raf != null) {
+                raf.close();
+            }
+        }
+
+        // sort by offset, so that the .shp file gets read sequentially
+        long[] result = new long[hitCount];
+        System.arraycopy(hits, 0, result, 0, hitCount);
+        Arrays.sort(result);
+        return result;
+    }
+
+    static void fill(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of packed R-tree file");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Returns the memory mapped buffer and registers the caller as one of its users, or returns
+     * null if the tree is not memory mapped or is closed, in which case the nodes have to be read
+     * from disk
+     */
+    synchronized ByteBuffer acquireBuffer() {
+        if (buffer == null || closed) {
+            return null;
+        }
+        activeSearches++;
+        return buffer;
+    }
+
+    /**
+     * Releases a buffer obtained with {@link #acquireBuffer()}, unmapping it if the tree got
+     * closed meanwhile and this was the last search using it
+     */
+    synchronized void releaseBuffer() {
+        activeSearches--;
+        if (closed && activeSearches == 0) {
+            unmap();
+        }
+    }
+
+    /**
+     * Releases the memory mapped buffer, if any. If searches are running the buffer is unmapped
+     * when the last of them completes. The tree should not be used afterwards, searches still
+     * work but read the nodes from disk
+     */
+    public synchronized void close() {
+        closed = true;
+        if (activeSearches == 0) {
+            unmap();
+        }
+    }
+
+    void unmap() {
+        if (buffer != null) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Closing packed R-tree " + file);
+            }
+            NIOUtilities.clean(buffer, true);
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.index.rtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Bulk loads a packed R-tree. The records are sorted along a Hilbert curve built on the center
+ * of their envelopes, then packed bottom up into full nodes, which results in a perfectly
+ * balanced tree whose nodes overlap little even when the data is very skewed.
+ * <p>
+ * File layout, all values big endian:
+ * <ul>
+ * <li>a header page: the "GTPRTREE" magic, version, node capacity, page size, record count,
+ * bounds (minx, miny, maxx, maxy), number of levels and, for each level starting from the root,
+ * the number of entries and the level offset in the file</li>
+ * <li>the levels, root first, each made of page aligned nodes of {@link #NODE_CAPACITY}
+ * entries</li>
+ * </ul>
+ * Each entry is made of its envelope (minx, miny, maxx, maxy as doubles) and two integers,
+ * that in leaf entries are the record number and the record offset in bytes in the .shp file.
+ * The children of entry <code>i</code> of a level are stored in node <code>i</code> of the next
+ * level, so no pointers are needed.
+ * <p>
+ * Usage: call {@link #add(int, double, double, double, double)} once per record, in
+ * record order, to compute the Hilbert ordering, then {@link #write(File, EnvelopeSource)} to
+ * write the tree, fetching the envelopes again in the Hilbert order. Only a long per record
+ * is kept in memory while building.
+ */
+public class PackedRTreeBuilder {
+
+    static final byte[] MAGIC = new byte[] { 'G', 'T', 'P', 'R', 'T', 'R', 'E', 'E' };
+
+    static final int VERSION = 1;
+
+    static final int PAGE_SIZE = 4096;
+
+    static final int HEADER_SIZE = PAGE_SIZE;
+
+    static final int ENTRY_SIZE = 40;
+
+    /**
+     * The number of entries fitting in a page
+     */
+    static final int NODE_CAPACITY = PAGE_SIZE / ENTRY_SIZE;
+
+    /**
+     * The Hilbert curve order, keeps the curve index in 30 bits
+     */
+    static final int HILBERT_ORDER = 15;
+
+    /**
+     * Provides the envelope and .shp offset of a record while writing the tree
+     */
+    public interface EnvelopeSource {
+        /**
+         * Returns the offset in bytes of the record in the .shp file, and sets its envelope
+         * in the provided array as minx, miny, maxx, maxy
+         */
+        int getRecord(int recno, double[] envelope) throws IOException;
+    }
+
+    Envelope bounds;
+
+    long[] keys;
+
+    int count;
+
+    /**
+     * Creates a builder for the specified amount of records
+     *
+     * @param bounds the bounds of the records
+     * @param records the number of records that will be added
+     */
+    public PackedRTreeBuilder(Envelope bounds, int records) {
+        this.bounds = bounds;
+        this.keys = new long[records];
+    }
+
+    /**
+     * Adds a record to the tree
+     */
+    public void add(int recno, double minx, double miny, double maxx, double maxy) {
+        if (count == keys.length) {
+            long[] resized = new long[Math.max(16, keys.length * 3 / 2)];
+            System.arraycopy(keys, 0, resized, 0, count);
+            keys = resized;
+        }
+        long hilbert = hilbert((minx + maxx) / 2, (miny + maxy) / 2);
+        keys[count++] = (hilbert << 32) | (recno & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the position on the Hilbert curve covering the tree bounds of the specified point
+     */
+    long hilbert(double x, double y) {
+        final int side = 1 << HILBERT_ORDER;
+        int hx = scale(x, bounds.getMinX(), bounds.getWidth(), side);
+        int hy = scale(y, bounds.getMinY(), bounds.getHeight(), side);
+        long d = 0;
+        for (int s = side / 2; s > 0; s /= 2) {
+            int rx = (hx & s) > 0 ? 1 : 0;
+            int ry = (hy & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    hx = side - 1 - hx;
+                    hy = side - 1 - hy;
+                }
+                int t = hx;
+                hx = hy;
+                hy = t;
+            }
+        }
+        return d;
+    }
+
+    static int scale(double value, double min, double span, int side) {
+        if (span <= 0 || Double.isNaN(value)) {
+            return 0;
+        }
+        int scaled = (int) ((value - min) / span * (side - 1));
+        return Math.max(0, Math.min(side - 1, scaled));
+    }
+
+    /**
+     * Writes the tree in the specified file
+     *
+     * @param file
+     * @param source used to fetch the envelopes, in the Hilbert order
+     * @throws IOException
+     */
+    public void write(File file, EnvelopeSource source) throws IOException {
+        Arrays.sort(keys, 0, count);
+
+        // compute the number of entries in each level, leaves first
+        int levels = 1;
+        for (int entries = count; entries > NODE_CAPACITY; entries = nodes(entries)) {
+            levels++;
+        }
+        int[] levelEntries = new int[levels];
+        long[] levelOffsets = new long[levels];
+        int entries = count;
+        for (int i = levels - 1; i >= 0; i--) {
+            levelEntries[i] = entries;
+            entries = nodes(entries);
+        }
+        long offset = HEADER_SIZE;
+        for (int i = 0; i < levels; i++) {
+            levelOffsets[i] = offset;
+            offset += (long) nodes(levelEntries[i]) * PAGE_SIZE;
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+
+            // the leaves, collecting the bounds of each leaf node
+            int parents = nodes(count);
+            double[] pminx = new double[parents];
+            double[] pminy = new double[parents];
+            double[] pmaxx = new double[parents];
+            double[] pmaxy = new double[parents];
+            double[] envelope = new double[4];
+            int leafLevel = levels - 1;
+            for (int i = 0; i < count; i++) {
+                int recno = (int) keys[i];
+                int recordOffset = source.getRecord(recno, envelope);
+                page.putDouble(envelope[0]);
+                page.putDouble(envelope[1]);
+                page.putDouble(envelope[2]);
+                page.putDouble(envelope[3]);
+                page.putInt(recno);
+                page.putInt(recordOffset);
+                expand(pminx, pminy, pmaxx, pmaxy, i, envelope[0], envelope[1], envelope[2],
+                        envelope[3]);
+                if ((i + 1) % NODE_CAPACITY == 0 || i == count - 1) {
+                    writePage(channel, page, levelOffsets[leafLevel] + (long) (i / NODE_CAPACITY)
+                            * PAGE_SIZE);
+                }
+            }
+            // release the memory, we won't need the keys anymore
+            keys = null;
+
+            // the upper levels
+            double[] minx = pminx, miny = pminy, maxx = pmaxx, maxy = pmaxy;
+            for (int level = leafLevel - 1; level >= 0; level--) {
+                int size = levelEntries[level];
+                parents = nodes(size);
+                pminx = new double[parents];
+                pminy = new double[parents];
+                pmaxx = new double[parents];
+                pmaxy = new double[parents];
+                for (int i = 0; i < size; i++) {
+                    page.putDouble(minx[i]);
+                    page.putDouble(miny[i]);
+                    page.putDouble(maxx[i]);
+                    page.putDouble(maxy[i]);
+                    page.putInt(0);
+                    page.putInt(0);
+                    expand(pminx, pminy, pmaxx, pmaxy, i, minx[i], miny[i], maxx[i], maxy[i]);
+                    if ((i + 1) % NODE_CAPACITY == 0 || i == size - 1) {
+                        writePage(channel, page, levelOffsets[level] + (long) (i / NODE_CAPACITY)
+                                * PAGE_SIZE);
+                    }
+                }
+                minx = pminx;
+                miny = pminy;
+                maxx = pmaxx;
+                maxy = pmaxy;
+            }
+
+            // and finally the header
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(NODE_CAPACITY);
+            header.putInt(PAGE_SIZE);
+            header.putInt(count);
+            if (count > 0) {
+                header.putDouble(minx[0]);
+                header.putDouble(miny[0]);
+                header.putDouble(maxx[0]);
+                header.putDouble(maxy[0]);
+            } else {
+                header.putDouble(0);
+                header.putDouble(0);
+                header.putDouble(-1);
+                header.putDouble(-1);
+            }
+            header.putInt(levels);
+            for (int i = 0; i < levels; i++) {
+                header.putInt(levelEntries[i]);
+                header.putLong(levelOffsets[i]);
+            }
+            header.clear();
+            writeFully(channel, header, 0);
+        } finally {
+            raf.close();
+        }
+    }
+
+    static int nodes(int entries) {
+        return (entries + NODE_CAPACITY - 1) / NODE_CAPACITY;
+    }
+
+    static void expand(double[] minx, double[] miny, double[] maxx, double[] maxy, int entry,
+            double eminx, double eminy, double emaxx, double emaxy) {
+        int node = entry / NODE_CAPACITY;
+        if (entry % NODE_CAPACITY == 0) {
+            minx[node] = eminx;
+            miny[node] = eminy;
+            maxx[node] = emaxx;
+            maxy[node] = emaxy;
+        } else {
+            minx[node] = Math.min(minx[node], eminx);
+            miny[node] = Math.min(miny[node], eminy);
+            maxx[node] = Math.max(maxx[node], emaxx);
+            maxy[node] = Math.max(maxy[node], emaxy);
+        }
+    }
+
+    static void writePage(FileChannel channel, ByteBuffer page, long position) throws IOException {
+        // pad the node to the full page so that the next one stays aligned
+        while (page.hasRemaining()) {
+            page.put((byte) 0);
+        }
+        page.flip();
+        writeFully(channel, page, position);
+        page.clear();
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -102,6 +102,59 @@ public class DbaseFileTest extends TestCaseSupport {
         dbf2.close();
     }
 
+    public void testProjection() throws Exception {
+        checkProjection(false);
+        checkProjection(true);
+    }
+
+    void checkProjection(boolean memoryMapped) throws Exception {
+        Object[] attrs = new Object[dbf.getHeader().getNumFields()];
+        DbaseFileReader dbf2 = new DbaseFileReader(shpFiles, memoryMapped,
+                ShapefileDataStore.DEFAULT_STRING_CHARSET);
+        try {
+            dbf2.setProjection(new int[] { 4, 0, 4 });
+            assertEquals(2, dbf2.getProjection().length);
+            Object[] projected = new Object[attrs.length];
+            while (dbf2.hasNext()) {
+                dbf.readEntry(attrs);
+                dbf2.readEntry(projected);
+                assertEquals(attrs[0], projected[0]);
+                assertEquals(attrs[4], projected[4]);
+                assertNull(projected[1]);
+                assertNull(projected[attrs.length - 1]);
+            }
+            assertFalse(dbf.hasNext());
+        } finally {
+            dbf2.close();
+        }
+        dbf.close();
+        dbf = new DbaseFileReader(shpFiles, false, ShapefileDataStore.DEFAULT_STRING_CHARSET);
+    }
+
+    public void testMultiByteCharset() throws Exception {
+        DbaseFileHeader header = new DbaseFileHeader();
+        header.addColumn("name", 'C', 20, 0);
+        header.addColumn("id", 'N', 5, 0);
+        header.setNumRecords(2);
+        File f = File.createTempFile("multibyte", ".dbf");
+        f.deleteOnExit();
+        Charset utf8 = Charset.forName("UTF-8");
+        FileOutputStream fout = new FileOutputStream(f);
+        DbaseFileWriter writer = new DbaseFileWriter(header, fout.getChannel(), utf8);
+        writer.write(new Object[] { "caf\u00e9 \u20ac", 1 });
+        writer.write(new Object[] { "\u00fcber", 2 });
+        writer.close();
+
+        DbaseFileReader r = new DbaseFileReader(new ShpFiles(f), false, utf8);
+        try {
+            assertEquals("caf\u00e9 \u20ac", r.readEntry()[0]);
+            assertEquals("\u00fcber", r.readRow().read(0));
+        } finally {
+            r.close();
+            f.delete();
+        }
+    }
+
     public void testHeader() throws Exception {
         DbaseFileHeader header = new DbaseFileHeader();
 
@@ -0,0 +1,159 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+public class MemoryMapCacheTest extends TestCase {
+
+    File file1;
+
+    File file2;
+
+    RandomAccessFile raf1;
+
+    RandomAccessFile raf2;
+
+    @Override
+    protected void setUp() throws Exception {
+        file1 = createFile("mmap1", 1024);
+        file2 = createFile("mmap2", 1024);
+        raf1 = new RandomAccessFile(file1, "r");
+        raf2 = new RandomAccessFile(file2, "r");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        raf1.close();
+        raf2.close();
+    }
+
+    File createFile(String name, int size) throws Exception {
+        File file = File.createTempFile(name, ".shp");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(new byte[size]);
+        } finally {
+            fos.close();
+        }
+        return file;
+    }
+
+    List<MemoryMapCache.Mapping> leases = new ArrayList<MemoryMapCache.Mapping>();
+
+    MappedByteBuffer map(MemoryMapCache cache, RandomAccessFile raf, File file) throws Exception {
+        FileChannel channel = raf.getChannel();
+        return cache.map(channel, file.toURI().toURL(), MapMode.READ_ONLY, 0, channel.size(),
+                leases);
+    }
+
+    public void testHitsAndMisses() throws Exception {
+        MemoryMapCache cache = new MemoryMapCache();
+        MappedByteBuffer b1 = map(cache, raf1, file1);
+        MappedByteBuffer b2 = map(cache, raf1, file1);
+        assertNotSame(b1, b2);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMappingCount());
+        assertEquals(1024, cache.getMappedBytes());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    public void testEviction() throws Exception {
+        MemoryMapCache cache = new MemoryMapCache(1500);
+        MappedByteBuffer b1 = map(cache, raf1, file1);
+        MappedByteBuffer b2 = map(cache, raf2, file2);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getMappingCount());
+        assertEquals(1024, cache.getMappedBytes());
+        // the first mapping is still in use, cannot be unmapped yet
+        assertEquals(1, cache.getRetiredMappingCount());
+        assertEquals(1024, b1.capacity());
+
+        // the most recently used file is still cached
+        map(cache, raf2, file2);
+        assertEquals(1, cache.getHits());
+        assertEquals(1024, b2.capacity());
+    }
+
+    public void testRelease() throws Exception {
+        MemoryMapCache cache = new MemoryMapCache(1500);
+        map(cache, raf1, file1);
+        map(cache, raf1, file1);
+        assertEquals(2, leases.size());
+        MemoryMapCache.Mapping first = leases.get(0);
+        assertSame(first, leases.get(1));
+
+        // evicted while leased twice, unmapped only once both leases are released
+        map(cache, raf2, file2);
+        assertEquals(1, cache.getRetiredMappingCount());
+        cache.release(first);
+        assertEquals(1, cache.getRetiredMappingCount());
+        assertFalse(first.dead);
+        cache.release(first);
+        assertEquals(0, cache.getRetiredMappingCount());
+        assertTrue(first.dead);
+
+        // released before the eviction, unmapped right away
+        MemoryMapCache.Mapping second = leases.get(2);
+        cache.release(second);
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.getMappingCount());
+        assertEquals(0, cache.getRetiredMappingCount());
+        assertTrue(second.dead);
+    }
+
+    public void testCleanFileCache() throws Exception {
+        MemoryMapCache cache = new MemoryMapCache();
+        map(cache, raf1, file1);
+        map(cache, raf2, file2);
+        assertEquals(2, cache.getMappingCount());
+
+        cache.releaseFileCache(file1.toURI().toURL());
+        assertEquals(1, cache.getMappingCount());
+        assertEquals(1024, cache.getMappedBytes());
+
+        cache.clean();
+        assertEquals(0, cache.getMappingCount());
+        assertEquals(0, cache.getRetiredMappingCount());
+        assertEquals(0, cache.getMappedBytes());
+    }
+
+    public void testSharedCacheRegistered() throws Exception {
+        MemoryMapCache cache = MemoryMapCache.getSharedCache();
+        assertSame(cache, MemoryMapCache.getSharedCache());
+        ObjectName name = new ObjectName(MemoryMapCache.OBJECT_NAME);
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertNotNull(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Hits"));
+    }
+}
@@ -3,17 +3,24 @@ package org.geotools.data.shapefile;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
+import org.geotools.data.DataUtilities;
 import org.geotools.data.DefaultQuery;
+import org.geotools.data.FeatureReader;
 import org.geotools.data.Query;
+import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.indexed.IndexedShapefileDataStore;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.factory.CommonFactoryFinder;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
+import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.identity.FeatureId;
 
 public class ShapefileAttributeReaderTest extends TestCaseSupport {
@@ -65,4 +72,67 @@ public class ShapefileAttributeReaderTest extends TestCaseSupport {
 		indexedstore.dispose();
 	}
 
+	public void testSkip() throws IOException {
+	    File shpFile = copyShapefiles(STATEPOP);
+	    URL url = shpFile.toURI().toURL();
+	    ShapefileDataStore store = new ShapefileDataStore(url);
+	    IndexedShapefileDataStore indexedstore = new IndexedShapefileDataStore(url);
+	    try {
+	        String typeName = store.getSchema().getTypeName();
+	        checkSkip(store, new DefaultQuery(typeName, Filter.INCLUDE));
+	        checkSkip(indexedstore, new DefaultQuery(typeName, Filter.INCLUDE));
+
+	        // the envelope checks must still apply to the skipped records
+	        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+	        Filter bbox = ff.bbox("", -100, 30, -80, 45, null);
+	        checkSkip(store, new DefaultQuery(typeName, bbox));
+	        checkSkip(indexedstore, new DefaultQuery(typeName, bbox));
+	    } finally {
+	        store.dispose();
+	        indexedstore.dispose();
+	    }
+	}
+
+	void checkSkip(ShapefileDataStore store, Query query) throws IOException {
+	    List<String> ids = new ArrayList<String>();
+	    FeatureReader<SimpleFeatureType, SimpleFeature> reader = store.getFeatureReader(query,
+	            Transaction.AUTO_COMMIT);
+	    try {
+	        while (reader.hasNext()) {
+	            ids.add(reader.next().getID());
+	        }
+	    } finally {
+	        reader.close();
+	    }
+	    assertTrue(ids.size() > 3);
+
+	    for (int offset : new int[] { 0, 1, 3, ids.size() - 1, ids.size(), ids.size() + 5 }) {
+	        reader = store.getFeatureReader(query, Transaction.AUTO_COMMIT);
+	        try {
+	            int skipped = DataUtilities.skip(reader, offset);
+	            assertEquals(Math.min(offset, ids.size()), skipped);
+	            for (int i = skipped; i < ids.size(); i++) {
+	                assertTrue(reader.hasNext());
+	                assertEquals(ids.get(i), reader.next().getID());
+	            }
+	            assertFalse(reader.hasNext());
+	        } finally {
+	            reader.close();
+	        }
+
+	        // the store applies the query start index the same way
+	        DefaultQuery paged = new DefaultQuery(query);
+	        paged.setStartIndex(offset);
+	        reader = store.getFeatureReader(paged, Transaction.AUTO_COMMIT);
+	        try {
+	            for (int i = offset; i < ids.size(); i++) {
+	                assertEquals(ids.get(i), reader.next().getID());
+	            }
+	            assertFalse(reader.hasNext());
+	        } finally {
+	            reader.close();
+	        }
+	    }
+	}
+
 }
@@ -805,6 +805,43 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         reader.close();
         s.dispose();
     }
+
+    /**
+     * Checks that the reader returns just the listed properties when they
+     * cover the filter ones, leaving out the geometry if not listed
+     */
+    public void testGetReaderPropertySubType() throws Exception {
+        URL url = TestData.url(STATE_POP);
+        ShapefileDataStore s = new ShapefileDataStore(url);
+        String typeName = s.getSchema().getTypeName();
+        Filter cf = ff
+                .equals(ff.property("STATE_NAME"), ff.literal("Illinois"));
+
+        Query query = new DefaultQuery(typeName, cf, new String[] {
+                "STATE_NAME", "the_geom" });
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = s
+                .getFeatureReader(typeName, query);
+        assertEquals(2, reader.getFeatureType().getAttributeCount());
+        assertEquals("STATE_NAME", reader.getFeatureType().getDescriptor(0)
+                .getLocalName());
+        assertEquals("the_geom", reader.getFeatureType().getDescriptor(1)
+                .getLocalName());
+        assertTrue(reader.hasNext());
+        SimpleFeature f = reader.next();
+        assertEquals("Illinois", f.getAttribute("STATE_NAME"));
+        assertNotNull(f.getDefaultGeometry());
+        reader.close();
+
+        // the geometry is omitted when not listed
+        query = new DefaultQuery(typeName, cf, new String[] { "STATE_NAME" });
+        reader = s.getFeatureReader(typeName, query);
+        assertEquals(1, reader.getFeatureType().getAttributeCount());
+        assertNull(reader.getFeatureType().getGeometryDescriptor());
+        assertTrue(reader.hasNext());
+        assertEquals("Illinois", reader.next().getAttribute("STATE_NAME"));
+        reader.close();
+        s.dispose();
+    }
     
     public void testWrite() throws Exception {
         // create feature type
@@ -42,6 +42,7 @@ import org.geotools.data.DefaultQuery;
 import org.geotools.data.DefaultTransaction;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.FeatureWriter;
+import org.geotools.data.PartitionedFeatureSource;
 import org.geotools.data.Query;
 import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.ShapefileDataStore;
@@ -53,9 +54,17 @@ import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.simple.SimpleFeatureStore;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.FactoryRegistryException;
+import org.geotools.factory.Hints;
 import org.geotools.feature.FeatureCollections;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.feature.visitor.AverageVisitor;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
 import org.geotools.filter.IllegalFilterException;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.Feature;
@@ -332,6 +341,43 @@ public class IndexedShapefileDataStoreTest extends TestCaseSupport {
         ds2.dispose();
     }
 
+    public void testCreateAndReadPRT() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+
+        String name = shpFile.getName();
+        File file = new File(shpFile.getParent(), name.substring(0, name.lastIndexOf('.')) + ".prt");
+        if (file.exists()) {
+            file.delete();
+        }
+        file.deleteOnExit();
+
+        for (boolean memoryMapped : new boolean[] { true, false }) {
+            IndexedShapefileDataStore ds = new IndexedShapefileDataStore(url, null,
+                    memoryMapped, true, IndexType.PRT);
+            IndexedShapefileDataStore ds2 = new IndexedShapefileDataStore(url,
+                    null, false, false, IndexType.NONE);
+
+            CoordinateReferenceSystem crs = ds.getSchema().getCoordinateReferenceSystem();
+            Envelope newBounds = ds.getBounds(Query.ALL);
+            double dx = newBounds.getWidth() / 4;
+            double dy = newBounds.getHeight() / 4;
+            newBounds = new Envelope(newBounds.getMinX() + dx, newBounds.getMaxX()
+                    - dx, newBounds.getMinY() + dy, newBounds.getMaxY() - dy);
+            performQueryComparison(ds, ds2, new ReferencedEnvelope(newBounds, crs));
+
+            // small query in a corner
+            newBounds = ds.getBounds(Query.ALL);
+            newBounds = new Envelope(newBounds.getMinX(), newBounds.getMinX() + dx / 4,
+                    newBounds.getMinY(), newBounds.getMinY() + dy / 4);
+            performQueryComparison(ds, ds2, new ReferencedEnvelope(newBounds, crs));
+
+            assertTrue(file.exists());
+            ds.dispose();
+            ds2.dispose();
+        }
+    }
+
     public void testSelectionQuery() throws Exception {
         File shpFile = copyShapefiles(STATE_POP);
         URL url = shpFile.toURI().toURL();
@@ -947,6 +993,79 @@ public class IndexedShapefileDataStoreTest extends TestCaseSupport {
 		ds.dispose();
     }
     
+    public void testPartitionedVisit() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        s = new IndexedShapefileDataStore(shpFile.toURI().toURL());
+        SimpleFeatureSource fs = s.getFeatureSource();
+        SimpleFeatureType schema = fs.getSchema();
+
+        // the index search results must be split among the partitions too
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        Filter[] filters = new Filter[] { Filter.INCLUDE, ff.bbox("", -100, 30, -80, 45, null),
+                ff.greater(ff.property("PERSONS"), ff.literal(3000000)) };
+        for (Filter filter : filters) {
+            DefaultQuery query = new DefaultQuery(schema.getTypeName(), filter);
+            query.setHints(new Hints(Hints.VISITOR_PARTITIONS, 4));
+            List<Query> partitions = ((PartitionedFeatureSource) fs).getPartitions(query, 4);
+            assertEquals(4, partitions.size());
+            int total = 0;
+            for (Query partition : partitions) {
+                total += count(fs.getFeatures(partition));
+            }
+            int expected = count(fs.getFeatures(filter));
+            assertTrue(expected > 0);
+            assertEquals(expected, total);
+
+            DefaultQuery sequential = new DefaultQuery(query);
+            sequential.setHints(new Hints(Hints.VISITOR_PARTITIONS, 1));
+            final int[] created = new int[1];
+            CountVisitor count = new CountVisitor() {
+                public FeatureCalc createPartition() {
+                    created[0]++;
+                    return super.createPartition();
+                }
+            };
+            fs.getFeatures(query).accepts(count, null);
+            assertEquals(4, created[0]);
+            assertEquals(expected, count.getCount());
+
+            assertEquals(visit(fs, sequential, new BoundsVisitor()),
+                    visit(fs, query, new BoundsVisitor()));
+            assertEquals(visit(fs, sequential, new MinVisitor("PERSONS")),
+                    visit(fs, query, new MinVisitor("PERSONS")));
+            assertEquals(visit(fs, sequential, new MaxVisitor("STATE_NAME")),
+                    visit(fs, query, new MaxVisitor("STATE_NAME")));
+            double sum = ((Number) visit(fs, sequential, new SumVisitor("PERSONS", schema)))
+                    .doubleValue();
+            assertEquals(sum, ((Number) visit(fs, query, new SumVisitor("PERSONS", schema)))
+                    .doubleValue(), sum * 1e-9);
+            double average = ((Number) visit(fs, sequential,
+                    new AverageVisitor("PERSONS", schema))).doubleValue();
+            assertEquals(average, ((Number) visit(fs, query, new AverageVisitor("PERSONS",
+                    schema))).doubleValue(), average * 1e-9);
+        }
+    }
+
+    private Object visit(SimpleFeatureSource fs, Query query, FeatureCalc visitor)
+            throws IOException {
+        fs.getFeatures(query).accepts(visitor, null);
+        return visitor.getResult().getValue();
+    }
+
+    private int count(SimpleFeatureCollection features) {
+        int count = 0;
+        SimpleFeatureIterator it = features.features();
+        try {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+        } finally {
+            it.close();
+        }
+        return count;
+    }
+
     private int count(DataStore ds, String typeName, Filter filter) throws Exception {
         return count(ds, typeName, filter, Transaction.AUTO_COMMIT);
     }
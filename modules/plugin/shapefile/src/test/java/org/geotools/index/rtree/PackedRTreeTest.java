@@ -0,0 +1,202 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.index.rtree;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.geotools.index.CloseableIterator;
+import org.geotools.index.Data;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+public class PackedRTreeTest extends TestCase {
+
+    File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("packed", ".prt");
+        file.deleteOnExit();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    /**
+     * Builds a tree out of the envelopes, using the array position as the record number and
+     * ten times that as the offset
+     */
+    void build(final Envelope bounds, final Envelope[] envelopes) throws IOException {
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(bounds, envelopes.length);
+        for (int i = 0; i < envelopes.length; i++) {
+            Envelope e = envelopes[i];
+            builder.add(i, e.getMinX(), e.getMinY(), e.getMaxX(), e.getMaxY());
+        }
+        builder.write(file, new PackedRTreeBuilder.EnvelopeSource() {
+
+            public int getRecord(int recno, double[] envelope) throws IOException {
+                Envelope e = envelopes[recno];
+                envelope[0] = e.getMinX();
+                envelope[1] = e.getMinY();
+                envelope[2] = e.getMaxX();
+                envelope[3] = e.getMaxY();
+                return recno * 10;
+            }
+        });
+    }
+
+    Envelope[] clustered(int count) {
+        Random random = new Random(0);
+        Envelope[] envelopes = new Envelope[count];
+        for (int i = 0; i < count; i++) {
+            // most of the data in a dense cluster, the rest scattered around
+            double x, y;
+            if (i % 10 == 0) {
+                x = random.nextDouble() * 1000;
+                y = random.nextDouble() * 1000;
+            } else {
+                x = 500 + random.nextDouble() * 5;
+                y = 500 + random.nextDouble() * 5;
+            }
+            double size = random.nextDouble() * 0.5;
+            envelopes[i] = new Envelope(x, x + size, y, y + size);
+        }
+        return envelopes;
+    }
+
+    public void testSearchMemoryMapped() throws Exception {
+        checkSearch(true);
+    }
+
+    public void testSearchFileChannel() throws Exception {
+        checkSearch(false);
+    }
+
+    void checkSearch(boolean memoryMapped) throws Exception {
+        // enough records to get a three levels tree
+        Envelope[] envelopes = clustered(20000);
+        Envelope bounds = new Envelope();
+        for (Envelope e : envelopes) {
+            bounds.expandToInclude(e);
+        }
+        build(bounds, envelopes);
+
+        PackedRTree tree = new PackedRTree(file, memoryMapped);
+        try {
+            assertEquals(envelopes.length, tree.getCount());
+            assertEquals(bounds, tree.getBounds());
+            assertEquals(3, tree.levelEntries.length);
+
+            Envelope[] queries = new Envelope[] { new Envelope(500, 501, 500, 501),
+                    new Envelope(0, 100, 0, 100), new Envelope(499, 506, 499, 506),
+                    new Envelope(2000, 3000, 2000, 3000), new Envelope(bounds) };
+            for (Envelope query : queries) {
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int i = 0; i < envelopes.length; i++) {
+                    if (envelopes[i].intersects(query)) {
+                        expected.add(i);
+                    }
+                }
+
+                // results are sorted by offset, that is, by record number
+                List<Integer> actual = new ArrayList<Integer>();
+                CloseableIterator<Data> it = tree.search(query);
+                try {
+                    while (it.hasNext()) {
+                        Data data = it.next();
+                        int recno = (Integer) data.getValue(0);
+                        assertEquals(recno * 10, ((Long) data.getValue(1)).longValue());
+                        actual.add(recno);
+                    }
+                } finally {
+                    it.close();
+                }
+                assertEquals(query.toString(), expected, actual);
+
+                int[] records = tree.searchRecords(query);
+                assertEquals(expected.size(), records.length);
+                for (int i = 0; i < records.length; i++) {
+                    assertEquals(expected.get(i).intValue(), records[i]);
+                }
+            }
+        } finally {
+            tree.close();
+        }
+    }
+
+    public void testSmallAndEmpty() throws Exception {
+        Envelope[] envelopes = new Envelope[] { new Envelope(0, 1, 0, 1),
+                new Envelope(5, 6, 5, 6) };
+        build(new Envelope(0, 6, 0, 6), envelopes);
+        PackedRTree tree = new PackedRTree(file, true);
+        assertEquals(1, tree.levelEntries.length);
+        assertEquals(1, tree.searchRecords(new Envelope(5.5, 7, 5.5, 7)).length);
+        assertEquals(0, tree.searchRecords(new Envelope(2, 3, 2, 3)).length);
+        tree.close();
+
+        build(new Envelope(), new Envelope[0]);
+        tree = new PackedRTree(file, false);
+        assertEquals(0, tree.getCount());
+        assertFalse(tree.search(new Envelope(0, 1, 0, 1)).hasNext());
+        tree.close();
+    }
+
+    public void testCloseWhileSearching() throws Exception {
+        Envelope[] envelopes = clustered(1000);
+        Envelope bounds = new Envelope();
+        for (Envelope e : envelopes) {
+            bounds.expandToInclude(e);
+        }
+        build(bounds, envelopes);
+        PackedRTree tree = new PackedRTree(file, true);
+        int[] expected = tree.searchRecords(bounds);
+        assertEquals(envelopes.length, expected.length);
+
+        // a search in progress keeps the buffer mapped
+        assertNotNull(tree.acquireBuffer());
+        tree.close();
+        assertNotNull(tree.buffer);
+        // new searches do not use it anymore, and still work reading from disk
+        assertNull(tree.acquireBuffer());
+        assertEquals(expected.length, tree.searchRecords(bounds).length);
+        // the last search releasing it unmaps it
+        tree.releaseBuffer();
+        assertNull(tree.buffer);
+        assertEquals(expected.length, tree.searchRecords(bounds).length);
+    }
+
+    public void testNotATree() throws Exception {
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(new byte[PackedRTreeBuilder.HEADER_SIZE]);
+        fos.close();
+        try {
+            new PackedRTree(file, false);
+            fail("Should have failed, the magic is missing");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.datastore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.LockingManager;
+import org.geotools.data.Query;
+import org.geotools.data.ServiceInfo;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Wraps a data store, caching the features returned by bbox queries on a per tile basis, see
+ * {@link CachingFeatureSource} for the details of how queries are split in tiles.
+ * <p>
+ * This is meant to sit in front of slow sources, such as remote WFS servers or databases, that
+ * get asked over and over for the same areas, as happens when rendering map tiles. The cached
+ * tiles are stored in a {@link TileCache}, that can be shared among several caching stores to
+ * enforce a global memory and disk budget, and reports hit ratios.
+ * <p>
+ * The feature sources returned by this store are read only, writes go through the feature
+ * writers of the wrapped store. The tiles are invalidated when the wrapped feature sources
+ * report changes to their listeners, or when written through the auto commit feature writers
+ * of this store; changes the wrapped store cannot see, such as edits made directly on a remote
+ * server, can be notified using {@link #invalidate(String, Envelope)}.
+ */
+public class CachingDataStore implements DataStore {
+
+    /**
+     * Default number of tiles along each side of the feature type bounds
+     */
+    public static final int DEFAULT_TILES_PER_SIDE = 32;
+
+    /**
+     * Default limit to the number of tiles a query can touch before being sent straight to the
+     * wrapped store
+     */
+    public static final int DEFAULT_MAX_TILES_PER_QUERY = 64;
+
+    final DataStore delegate;
+
+    final TileCache cache;
+
+    final Map<String, CachingFeatureSource> sources = new ConcurrentHashMap<String, CachingFeatureSource>();
+
+    int tilesPerSide = DEFAULT_TILES_PER_SIDE;
+
+    int maxTilesPerQuery = DEFAULT_MAX_TILES_PER_QUERY;
+
+    /**
+     * Wraps the data store with a cache of its own, keeping the tiles in memory only
+     *
+     * @param delegate the wrapped store
+     * @param memoryLimit the amount of memory, in bytes, the cached tiles can use
+     */
+    public CachingDataStore(DataStore delegate, long memoryLimit) {
+        this(delegate, new TileCache(memoryLimit));
+    }
+
+    /**
+     * Wraps the data store, keeping the tiles in the provided cache
+     */
+    public CachingDataStore(DataStore delegate, TileCache cache) {
+        if (delegate == null || cache == null) {
+            throw new NullPointerException("The wrapped store and the cache must be provided");
+        }
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /**
+     * The wrapped data store
+     */
+    public DataStore getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * The cache holding the tiles, and the hit/miss statistics
+     */
+    public TileCache getCache() {
+        return cache;
+    }
+
+    public int getTilesPerSide() {
+        return tilesPerSide;
+    }
+
+    /**
+     * Sets the number of tiles along each side of the feature type bounds used to build the
+     * default tile grids. Only affects the grids not computed yet
+     */
+    public void setTilesPerSide(int tilesPerSide) {
+        if (tilesPerSide <= 0) {
+            throw new IllegalArgumentException("The number of tiles must be positive");
+        }
+        this.tilesPerSide = tilesPerSide;
+    }
+
+    public int getMaxTilesPerQuery() {
+        return maxTilesPerQuery;
+    }
+
+    /**
+     * Sets the maximum number of tiles a query can touch, larger queries are sent straight to
+     * the wrapped store, to avoid loading lots of tiles for a single overview request
+     */
+    public void setMaxTilesPerQuery(int maxTilesPerQuery) {
+        this.maxTilesPerQuery = maxTilesPerQuery;
+    }
+
+    /**
+     * Drops the cached tiles of the feature type intersecting the specified area
+     *
+     * @param typeName the feature type
+     * @param area the changed area, or null to drop all the tiles of the feature type
+     */
+    public void invalidate(String typeName, Envelope area) {
+        cache.invalidate(this, typeName, area);
+    }
+
+    public SimpleFeatureSource getFeatureSource(String typeName) throws IOException {
+        CachingFeatureSource source = sources.get(typeName);
+        if (source == null) {
+            synchronized (sources) {
+                source = sources.get(typeName);
+                if (source == null) {
+                    source = new CachingFeatureSource(this, delegate.getFeatureSource(typeName));
+                    sources.put(typeName, source);
+                }
+            }
+        }
+        return source;
+    }
+
+    public SimpleFeatureSource getFeatureSource(Name typeName) throws IOException {
+        return getFeatureSource(typeName.getLocalPart());
+    }
+
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getFeatureReader(Query query,
+            Transaction transaction) throws IOException {
+        return delegate.getFeatureReader(query, transaction);
+    }
+
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(String typeName,
+            Filter filter, Transaction transaction) throws IOException {
+        return wrap(delegate.getFeatureWriter(typeName, filter, transaction), typeName,
+                transaction);
+    }
+
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(String typeName,
+            Transaction transaction) throws IOException {
+        return wrap(delegate.getFeatureWriter(typeName, transaction), typeName, transaction);
+    }
+
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriterAppend(
+            String typeName, Transaction transaction) throws IOException {
+        return wrap(delegate.getFeatureWriterAppend(typeName, transaction), typeName,
+                transaction);
+    }
+
+    /**
+     * Auto commit changes are not notified to the auto commit feature sources, so the writer
+     * has to take care of the invalidation. Changes made in a transaction are notified on commit
+     */
+    FeatureWriter<SimpleFeatureType, SimpleFeature> wrap(
+            FeatureWriter<SimpleFeatureType, SimpleFeature> writer, String typeName,
+            Transaction transaction) {
+        if (transaction == Transaction.AUTO_COMMIT) {
+            return new InvalidatingFeatureWriter(writer, this, typeName);
+        }
+        return writer;
+    }
+
+    public LockingManager getLockingManager() {
+        return delegate.getLockingManager();
+    }
+
+    public SimpleFeatureType getSchema(String typeName) throws IOException {
+        return delegate.getSchema(typeName);
+    }
+
+    public SimpleFeatureType getSchema(Name name) throws IOException {
+        return delegate.getSchema(name);
+    }
+
+    public String[] getTypeNames() throws IOException {
+        return delegate.getTypeNames();
+    }
+
+    public List<Name> getNames() throws IOException {
+        return delegate.getNames();
+    }
+
+    public ServiceInfo getInfo() {
+        return delegate.getInfo();
+    }
+
+    public void createSchema(SimpleFeatureType featureType) throws IOException {
+        delegate.createSchema(featureType);
+    }
+
+    public void updateSchema(String typeName, SimpleFeatureType featureType) throws IOException {
+        delegate.updateSchema(typeName, featureType);
+        resetSource(typeName);
+    }
+
+    public void updateSchema(Name typeName, SimpleFeatureType featureType) throws IOException {
+        delegate.updateSchema(typeName, featureType);
+        resetSource(typeName.getLocalPart());
+    }
+
+    void resetSource(String typeName) {
+        CachingFeatureSource source = sources.remove(typeName);
+        if (source != null) {
+            source.dispose();
+        }
+        invalidate(typeName, null);
+    }
+
+    /**
+     * Drops the cached tiles of this store and disposes the wrapped one
+     */
+    public void dispose() {
+        for (String typeName : new ArrayList<String>(sources.keySet())) {
+            resetSource(typeName);
+        }
+        cache.invalidate(this, null, null);
+        delegate.dispose();
+    }
+}
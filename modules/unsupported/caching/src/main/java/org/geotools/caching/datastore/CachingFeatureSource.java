@@ -0,0 +1,470 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.datastore;
+
+import java.awt.RenderingHints.Key;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.data.ResourceInfo;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.compiler.FilterCompiler;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Read only feature source answering bbox queries out of the tiles held in a {@link TileCache}.
+ * <p>
+ * A query is cacheable when its filter is a BBOX, or an And containing a single BBOX, on a
+ * property name. The BBOX is turned into a range of tiles of the {@link TileGrid}, each loaded
+ * from the wrapped source with the tile bounds and the rest of the filter, keeping only the
+ * requested properties plus the ones needed to evaluate the filter. The tile features are then
+ * filtered again in memory against the full filter, de-duplicated by feature id, since features
+ * crossing tile boundaries are found in more tiles, and retyped to the requested properties.
+ * <p>
+ * Queries that cannot be split this way, or that sort, page, reproject, or touch more than
+ * {@link CachingDataStore#getMaxTilesPerQuery()} tiles, are sent as is to the wrapped source.
+ * Query hints are not used when loading tiles, so that a tile holding the full resolution
+ * geometries can serve all scales.
+ * <p>
+ * The features held in memory are shared among the callers, and must not be modified.
+ */
+public class CachingFeatureSource implements SimpleFeatureSource {
+
+    static final FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    final CachingDataStore store;
+
+    final SimpleFeatureSource delegate;
+
+    final String typeName;
+
+    final FeatureListener invalidator = new FeatureListener() {
+        public void changed(FeatureEvent event) {
+            ReferencedEnvelope bounds = event.getBounds();
+            if (bounds == null || bounds.isNull()) {
+                store.invalidate(typeName, null);
+            } else {
+                store.invalidate(typeName, bounds);
+            }
+        }
+    };
+
+    /**
+     * The tiles being loaded, so that concurrent requests for the same tile wait for a single
+     * load from the wrapped source
+     */
+    final ConcurrentHashMap<TileKey, FutureTask<Tile>> loading = new ConcurrentHashMap<TileKey, FutureTask<Tile>>();
+
+    /**
+     * The sub types returned for the requested property lists
+     */
+    final ConcurrentHashMap<List<String>, SimpleFeatureType> subTypes = new ConcurrentHashMap<List<String>, SimpleFeatureType>();
+
+    volatile TileGrid grid;
+
+    volatile boolean gridComputed;
+
+    CachingFeatureSource(CachingDataStore store, SimpleFeatureSource delegate) {
+        this.store = store;
+        this.delegate = delegate;
+        this.typeName = delegate.getSchema().getTypeName();
+        delegate.addFeatureListener(invalidator);
+    }
+
+    /**
+     * The wrapped feature source
+     */
+    public SimpleFeatureSource getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Returns the tile grid, computing it from the source bounds on first use, or null if the
+     * bounds are not available
+     */
+    public TileGrid getTileGrid() throws IOException {
+        if (!gridComputed) {
+            synchronized (this) {
+                if (!gridComputed) {
+                    grid = TileGrid.create(delegate.getBounds(), store.getTilesPerSide());
+                    gridComputed = true;
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Sets the tile grid, overriding the one computed from the source bounds. The cached tiles
+     * of this feature type are dropped
+     */
+    public void setTileGrid(TileGrid grid) {
+        synchronized (this) {
+            this.grid = grid;
+            this.gridComputed = true;
+        }
+        store.invalidate(typeName, null);
+    }
+
+    public SimpleFeatureCollection getFeatures() throws IOException {
+        return getFeatures(Query.ALL);
+    }
+
+    public SimpleFeatureCollection getFeatures(Filter filter) throws IOException {
+        return getFeatures(new Query(typeName, filter));
+    }
+
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        BBOX bbox = isCacheable(query) ? extractBBOX(query.getFilter()) : null;
+        TileGrid grid = bbox != null ? getTileGrid() : null;
+        if (grid == null) {
+            store.getCache().bypass();
+            return delegate.getFeatures(query);
+        }
+
+        Envelope area = new Envelope(bbox.getMinX(), bbox.getMaxX(), bbox.getMinY(), bbox
+                .getMaxY());
+        long minColumn = grid.column(area.getMinX());
+        long maxColumn = grid.column(area.getMaxX());
+        long minRow = grid.row(area.getMinY());
+        long maxRow = grid.row(area.getMaxY());
+        double tiles = (maxColumn - minColumn + 1.0) * (maxRow - minRow + 1.0);
+        if (area.isNull() || tiles > store.getMaxTilesPerQuery()) {
+            store.getCache().bypass();
+            return delegate.getFeatures(query);
+        }
+
+        SimpleFeatureType schema = delegate.getSchema();
+        String[] requested = query.retrieveAllProperties() ? null : query.getPropertyNames();
+        String[] loaded = loadedProperties(schema, query.getFilter(), requested,
+                ((PropertyName) bbox.getExpression1()).getPropertyName());
+        SimpleFeatureType targetType = getTargetType(schema, requested);
+
+        // load the tiles and collect the matching features
+        Filter residual = residual(query.getFilter(), bbox);
+        Filter filter = FilterCompiler.compile(query.getFilter());
+        Map<String, SimpleFeature> features = new LinkedHashMap<String, SimpleFeature>();
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long column = minColumn; column <= maxColumn; column++) {
+                TileKey key = new TileKey(store, typeName, column, row, grid.getTileBounds(
+                        column, row), ((PropertyName) bbox.getExpression1()).getPropertyName(),
+                        bbox.getSRS(), residual, loaded);
+                for (SimpleFeature feature : getTile(key).features) {
+                    String id = feature.getID();
+                    if (!features.containsKey(id) && filter.evaluate(feature)) {
+                        features.put(id, feature);
+                    }
+                }
+            }
+        }
+
+        // apply max features and the property selection
+        int max = query.getMaxFeatures();
+        List<SimpleFeature> result = new ArrayList<SimpleFeature>(Math.min(max, features.size()));
+        SimpleFeatureBuilder builder = null;
+        SimpleFeatureType lastType = null;
+        boolean retype = false;
+        for (SimpleFeature feature : features.values()) {
+            if (result.size() >= max) {
+                break;
+            }
+            if (requested != null) {
+                if (feature.getFeatureType() != lastType) {
+                    lastType = feature.getFeatureType();
+                    retype = !sameAttributes(lastType, targetType);
+                }
+                if (retype) {
+                    if (builder == null) {
+                        builder = new SimpleFeatureBuilder(targetType);
+                    }
+                    feature = SimpleFeatureBuilder.retype(feature, builder);
+                }
+            }
+            result.add(feature);
+        }
+        return new ListFeatureCollection(targetType, result);
+    }
+
+    /**
+     * Only plain queries can be answered out of the cache, sorting, paging and reprojection are
+     * left to the wrapped source
+     */
+    boolean isCacheable(Query query) {
+        return (query.getTypeName() == null || typeName.equals(query.getTypeName()))
+                && (query.getSortBy() == null || query.getSortBy().length == 0)
+                && query.getStartIndex() == null && query.getCoordinateSystem() == null
+                && query.getCoordinateSystemReproject() == null && query.getVersion() == null;
+    }
+
+    /**
+     * Returns the BBOX restricting the filter, or null if the filter cannot be split in tiles
+     */
+    static BBOX extractBBOX(Filter filter) {
+        if (filter instanceof BBOX) {
+            return isTileable((BBOX) filter) ? (BBOX) filter : null;
+        } else if (filter instanceof And) {
+            BBOX result = null;
+            for (Filter child : ((And) filter).getChildren()) {
+                if (child instanceof BBOX) {
+                    if (result != null || !isTileable((BBOX) child)) {
+                        return null;
+                    }
+                    result = (BBOX) child;
+                }
+            }
+            return result;
+        }
+        return null;
+    }
+
+    static boolean isTileable(BBOX bbox) {
+        return bbox.getExpression1() instanceof PropertyName
+                && ((PropertyName) bbox.getExpression1()).getPropertyName() != null;
+    }
+
+    /**
+     * Returns the filter without the BBOX, that is, the part that goes in the tile key
+     */
+    static Filter residual(Filter filter, BBOX bbox) {
+        if (filter == bbox) {
+            return Filter.INCLUDE;
+        }
+        List<Filter> children = new ArrayList<Filter>(((And) filter).getChildren());
+        children.remove(bbox);
+        if (children.isEmpty()) {
+            return Filter.INCLUDE;
+        } else if (children.size() == 1) {
+            return children.get(0);
+        } else {
+            return ff.and(children);
+        }
+    }
+
+    /**
+     * Returns the properties to be loaded in the tiles, in schema order, that is, the requested
+     * ones plus the ones needed to evaluate the filter, or null if all are needed
+     */
+    static String[] loadedProperties(SimpleFeatureType schema, Filter filter,
+            String[] requested, String geometryName) {
+        if (requested == null) {
+            return null;
+        }
+        Set<String> needed = new HashSet<String>(Arrays.asList(requested));
+        needed.addAll(Arrays.asList(DataUtilities.attributeNames(filter, schema)));
+        needed.add(geometryName);
+        List<String> loaded = new ArrayList<String>();
+        for (AttributeDescriptor descriptor : schema.getAttributeDescriptors()) {
+            if (needed.contains(descriptor.getLocalName())) {
+                loaded.add(descriptor.getLocalName());
+            }
+        }
+        if (loaded.size() == schema.getAttributeCount()) {
+            return null;
+        }
+        return loaded.toArray(new String[loaded.size()]);
+    }
+
+    SimpleFeatureType getTargetType(SimpleFeatureType schema, String[] requested)
+            throws IOException {
+        if (requested == null) {
+            return schema;
+        }
+        List<String> names = Arrays.asList(requested);
+        SimpleFeatureType type = subTypes.get(names);
+        if (type == null) {
+            try {
+                type = DataUtilities.createSubType(schema, requested);
+            } catch (SchemaException e) {
+                throw (IOException) new IOException("Could not select the properties " + names)
+                        .initCause(e);
+            }
+            subTypes.put(names, type);
+        }
+        return type;
+    }
+
+    static boolean sameAttributes(SimpleFeatureType type1, SimpleFeatureType type2) {
+        if (type1.getAttributeCount() != type2.getAttributeCount()) {
+            return false;
+        }
+        for (int i = 0; i < type1.getAttributeCount(); i++) {
+            if (!type1.getDescriptor(i).getLocalName().equals(
+                    type2.getDescriptor(i).getLocalName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the tile from the cache, loading it from the wrapped source if needed. Concurrent
+     * requests for a missing tile share the same load
+     */
+    Tile getTile(final TileKey key) throws IOException {
+        TileCache cache = store.getCache();
+        Tile tile = cache.get(key);
+        if (tile != null) {
+            return tile;
+        }
+
+        FutureTask<Tile> task = new FutureTask<Tile>(new Callable<Tile>() {
+            public Tile call() throws Exception {
+                return loadTile(key);
+            }
+        });
+        FutureTask<Tile> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new IOException("Interrupted while loading tile " + key)
+                    .initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (IOException) new IOException("Failed to load tile " + key).initCause(cause);
+        }
+    }
+
+    Tile loadTile(TileKey key) throws IOException {
+        TileCache cache = store.getCache();
+        long generation = cache.getGeneration(key);
+
+        Envelope bounds = key.bounds;
+        Filter filter = ff.bbox(key.geometryName, bounds.getMinX(), bounds.getMinY(), bounds
+                .getMaxX(), bounds.getMaxY(), key.srs);
+        if (key.filter != Filter.INCLUDE) {
+            filter = ff.and(filter, key.filter);
+        }
+        Query query = new Query(typeName, filter, key.propertyNames == null ? Query.ALL_NAMES
+                : key.propertyNames);
+
+        SimpleFeatureCollection collection = delegate.getFeatures(query);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        SimpleFeatureIterator it = collection.features();
+        try {
+            while (it.hasNext()) {
+                features.add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+
+        Tile tile = new Tile(collection.getSchema(), features.toArray(new SimpleFeature[features
+                .size()]));
+        cache.put(key, tile, generation);
+        return tile;
+    }
+
+    /**
+     * Stops listening to the wrapped source
+     */
+    void dispose() {
+        delegate.removeFeatureListener(invalidator);
+    }
+
+    public void addFeatureListener(FeatureListener listener) {
+        delegate.addFeatureListener(listener);
+    }
+
+    public void removeFeatureListener(FeatureListener listener) {
+        delegate.removeFeatureListener(listener);
+    }
+
+    public ReferencedEnvelope getBounds() throws IOException {
+        return delegate.getBounds();
+    }
+
+    public ReferencedEnvelope getBounds(Query query) throws IOException {
+        return delegate.getBounds(query);
+    }
+
+    public int getCount(Query query) throws IOException {
+        return delegate.getCount(query);
+    }
+
+    public DataStore getDataStore() {
+        return store;
+    }
+
+    public ResourceInfo getInfo() {
+        return delegate.getInfo();
+    }
+
+    public Name getName() {
+        return delegate.getName();
+    }
+
+    public QueryCapabilities getQueryCapabilities() {
+        return delegate.getQueryCapabilities();
+    }
+
+    public SimpleFeatureType getSchema() {
+        return delegate.getSchema();
+    }
+
+    public Set<Key> getSupportedHints() {
+        return delegate.getSupportedHints();
+    }
+}
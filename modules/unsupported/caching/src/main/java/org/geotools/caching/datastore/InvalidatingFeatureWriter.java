@@ -0,0 +1,111 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.datastore;
+
+import java.io.IOException;
+
+import org.geotools.data.DelegatingFeatureWriter;
+import org.geotools.data.FeatureWriter;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Drops the cached tiles touched by the features written or removed. Used for auto commit
+ * writers, whose changes are not notified to the other auto commit feature sources by the
+ * feature listener managers, while transaction changes get notified on commit.
+ */
+class InvalidatingFeatureWriter implements
+        DelegatingFeatureWriter<SimpleFeatureType, SimpleFeature> {
+
+    final FeatureWriter<SimpleFeatureType, SimpleFeature> delegate;
+
+    final CachingDataStore store;
+
+    final String typeName;
+
+    SimpleFeature current;
+
+    /**
+     * The bounds of the current feature before modifications
+     */
+    Envelope original;
+
+    InvalidatingFeatureWriter(FeatureWriter<SimpleFeatureType, SimpleFeature> delegate,
+            CachingDataStore store, String typeName) {
+        this.delegate = delegate;
+        this.store = store;
+        this.typeName = typeName;
+    }
+
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getDelegate() {
+        return delegate;
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return delegate.getFeatureType();
+    }
+
+    public boolean hasNext() throws IOException {
+        return delegate.hasNext();
+    }
+
+    public SimpleFeature next() throws IOException {
+        current = delegate.next();
+        original = new Envelope();
+        expand(original, current);
+        return current;
+    }
+
+    public void write() throws IOException {
+        Envelope changed = original;
+        expand(changed, current);
+        delegate.write();
+        invalidate(changed);
+    }
+
+    public void remove() throws IOException {
+        Envelope changed = original;
+        delegate.remove();
+        invalidate(changed);
+    }
+
+    public void close() throws IOException {
+        current = null;
+        original = null;
+        delegate.close();
+    }
+
+    void invalidate(Envelope changed) {
+        current = null;
+        original = null;
+        // features without a geometry never make it into a tile
+        if (changed != null && !changed.isNull()) {
+            store.invalidate(typeName, changed);
+        }
+    }
+
+    static void expand(Envelope envelope, SimpleFeature feature) {
+        BoundingBox bounds = feature == null ? null : feature.getBounds();
+        if (bounds != null && !bounds.isEmpty()) {
+            envelope.expandToInclude(new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds
+                    .getMinY(), bounds.getMaxY()));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.datastore;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * The features loaded for a {@link TileKey}, along with an estimate of the memory they use
+ */
+final class Tile {
+
+    /**
+     * Rough per object overhead, in bytes, used by the size estimates
+     */
+    static final int OBJECT_OVERHEAD = 16;
+
+    final SimpleFeatureType type;
+
+    final SimpleFeature[] features;
+
+    final long size;
+
+    Tile(SimpleFeatureType type, SimpleFeature[] features) {
+        this.type = type;
+        this.features = features;
+        long size = OBJECT_OVERHEAD * 2 + features.length * 8;
+        for (SimpleFeature feature : features) {
+            size += sizeOf(feature);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Estimates the memory used by a feature. The estimate does not need to be precise, it only
+     * has to be proportional enough to make the byte budgets meaningful
+     */
+    static long sizeOf(SimpleFeature feature) {
+        String id = feature.getID();
+        long size = OBJECT_OVERHEAD * 4 + (id == null ? 0 : sizeOf(id));
+        int count = feature.getAttributeCount();
+        size += 8 * count;
+        for (int i = 0; i < count; i++) {
+            size += sizeOf(feature.getAttribute(i));
+        }
+        return size;
+    }
+
+    static long sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Geometry) {
+            // each coordinate is an object with three doubles, plus the reference to it
+            Geometry geometry = (Geometry) value;
+            return OBJECT_OVERHEAD * 4 + geometry.getNumPoints() * (OBJECT_OVERHEAD + 32)
+                    + geometry.getNumGeometries() * OBJECT_OVERHEAD * 4;
+        } else if (value instanceof String) {
+            return sizeOf((String) value);
+        } else if (value instanceof Number || value instanceof Boolean
+                || value instanceof Character) {
+            return OBJECT_OVERHEAD + 8;
+        } else if (value instanceof Date) {
+            return OBJECT_OVERHEAD + 16;
+        } else if (value instanceof Collection) {
+            long size = OBJECT_OVERHEAD * 2;
+            for (Object item : (Collection<?>) value) {
+                size += 8 + sizeOf(item);
+            }
+            return size;
+        } else {
+            return OBJECT_OVERHEAD * 4;
+        }
+    }
+
+    static long sizeOf(String value) {
+        return OBJECT_OVERHEAD * 3 + value.length() * 2;
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.datastore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.caching.util.SimpleFeatureMarshaller;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Two tiers storage for the tiles loaded by one or more {@link CachingDataStore}.
+ * <p>
+ * Tiles are first kept in memory, up to a byte budget, computed by estimating the size of the
+ * feature attributes. When the budget is exceeded the least recently used tiles are moved to the
+ * disk tier, if a directory has been provided, where they are serialized with a
+ * {@link SimpleFeatureMarshaller} up to a second byte budget, after which they are dropped. A
+ * disk hit moves the tile back to memory.
+ * <p>
+ * The cache is thread safe: the tier indexes are guarded by the cache monitor, while the disk
+ * reads and writes happen outside of it. Invalidations bump a generation counter kept for each
+ * data store and feature type, tiles of that type loaded or written to disk while an
+ * invalidation was running are not stored, so that a concurrent load cannot resurrect stale
+ * data. Loads of the other feature types are not affected.
+ * <p>
+ * Hit, miss, eviction and invalidation counts are tracked, along with the hit ratio, to help
+ * sizing the budgets.
+ * <p>
+ * The eviction is done here rather than with the {@link org.geotools.caching.EvictionPolicy}
+ * used by {@link org.geotools.caching.grid.featurecache.GridFeatureCache}: that one evicts the
+ * nodes of a single {@link org.geotools.caching.grid.spatialindex.GridSpatialIndex}, built on
+ * fixed bounds and budgeted by feature count, while the tiles here come from several stores and
+ * types, on an unbounded grid, are budgeted in bytes and move between two tiers. The
+ * {@link LinkedHashMap} access order gives the same least recently used behaviour.
+ */
+public class TileCache {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger("org.geotools.caching");
+
+    /**
+     * A tile serialized on disk
+     */
+    static final class DiskTile {
+        final File file;
+
+        final long size;
+
+        final SimpleFeatureType type;
+
+        DiskTile(File file, long size, SimpleFeatureType type) {
+            this.file = file;
+            this.size = size;
+            this.type = type;
+        }
+    }
+
+    final long memoryLimit;
+
+    final File directory;
+
+    final long diskLimit;
+
+    /**
+     * The invalidation generations of a data store, as a whole and for each of its feature types
+     */
+    static final class Generations {
+        long store;
+
+        final Map<String, Long> types = new HashMap<String, Long>();
+
+        long get(String typeName) {
+            Long type = types.get(typeName);
+            return store + (type == null ? 0 : type.longValue());
+        }
+
+        void bump(String typeName) {
+            if (typeName == null) {
+                store++;
+            } else {
+                Long type = types.get(typeName);
+                types.put(typeName, type == null ? 1 : type.longValue() + 1);
+            }
+        }
+    }
+
+    /**
+     * Both maps are in access order, so that iteration starts from the least recently used tile
+     */
+    final LinkedHashMap<TileKey, Tile> memory = new LinkedHashMap<TileKey, Tile>(16, 0.75f, true);
+
+    final LinkedHashMap<TileKey, DiskTile> disk = new LinkedHashMap<TileKey, DiskTile>(16, 0.75f,
+            true);
+
+    long memorySize;
+
+    long diskSize;
+
+    /**
+     * Bumped by {@link #clear()}, added to the per store and type generations
+     */
+    long generation;
+
+    /**
+     * Weakly keyed, so that the generations go away along with the data stores
+     */
+    final Map<Object, Generations> generations = new WeakHashMap<Object, Generations>();
+
+    final AtomicLong hits = new AtomicLong();
+
+    final AtomicLong diskHits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+
+    final AtomicLong bypasses = new AtomicLong();
+
+    final AtomicLong evictions = new AtomicLong();
+
+    final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Creates a memory only cache
+     *
+     * @param memoryLimit the amount of memory, in bytes, the tiles can use
+     */
+    public TileCache(long memoryLimit) {
+        this(memoryLimit, null, 0);
+    }
+
+    /**
+     * Creates a cache using both memory and disk
+     *
+     * @param memoryLimit the amount of memory, in bytes, the tiles can use
+     * @param directory the directory where the tiles evicted from memory are stored, or null to
+     *        disable the disk tier
+     * @param diskLimit the amount of disk space, in bytes, the tiles can use
+     */
+    public TileCache(long memoryLimit, File directory, long diskLimit) {
+        if (memoryLimit < 0 || diskLimit < 0) {
+            throw new IllegalArgumentException("The cache limits cannot be negative");
+        }
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create the cache directory " + directory);
+        }
+        this.memoryLimit = memoryLimit;
+        this.directory = directory;
+        this.diskLimit = directory == null ? 0 : diskLimit;
+    }
+
+    /**
+     * Returns the tile associated to the key, or null if not found in either tier
+     */
+    Tile get(TileKey key) {
+        DiskTile stored;
+        long currentGeneration;
+        synchronized (this) {
+            Tile tile = memory.get(key);
+            if (tile != null) {
+                hits.incrementAndGet();
+                return tile;
+            }
+            stored = disk.get(key);
+            if (stored == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            currentGeneration = generation(key);
+        }
+
+        Tile tile;
+        try {
+            tile = read(stored);
+        } catch (Exception e) {
+            // the file might have been evicted in the meantime, or got corrupted
+            LOGGER.log(Level.FINE, "Could not read cached tile " + key + " from disk", e);
+            synchronized (this) {
+                if (disk.get(key) == stored) {
+                    disk.remove(key);
+                    diskSize -= stored.size;
+                    stored.file.delete();
+                }
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        diskHits.incrementAndGet();
+        put(key, tile, currentGeneration);
+        return tile;
+    }
+
+    /**
+     * Returns the current generation of the key feature type, to be passed back to
+     * {@link #put(TileKey, Tile, long)} once the tile has been loaded
+     */
+    synchronized long getGeneration(TileKey key) {
+        return generation(key);
+    }
+
+    /**
+     * The sum of the cache, store and feature type generations. They only grow, so the sum
+     * changes whenever one of them does. Must be called holding the cache monitor
+     */
+    long generation(TileKey key) {
+        Generations owned = generations.get(key.owner);
+        return generation + (owned == null ? 0 : owned.get(key.typeName));
+    }
+
+    /**
+     * Stores a tile in memory, moving the least recently used ones to disk if needed. The tile
+     * is discarded if its feature type has been invalidated since the specified generation was
+     * read
+     */
+    void put(TileKey key, Tile tile, long loadGeneration) {
+        List<Entry> demoted = new ArrayList<Entry>();
+        File promoted = null;
+        synchronized (this) {
+            if (loadGeneration != generation(key)) {
+                return;
+            }
+            if (tile.size > memoryLimit) {
+                if (!disk.containsKey(key)) {
+                    demoted.add(new Entry(key, tile, loadGeneration));
+                }
+            } else {
+                Tile old = memory.put(key, tile);
+                memorySize += tile.size;
+                if (old != null) {
+                    memorySize -= old.size;
+                }
+                DiskTile stored = disk.remove(key);
+                if (stored != null) {
+                    diskSize -= stored.size;
+                    promoted = stored.file;
+                }
+                for (Iterator<Map.Entry<TileKey, Tile>> it = memory.entrySet().iterator(); it
+                        .hasNext()
+                        && memorySize > memoryLimit;) {
+                    Map.Entry<TileKey, Tile> entry = it.next();
+                    it.remove();
+                    memorySize -= entry.getValue().size;
+                    demoted.add(new Entry(entry.getKey(), entry.getValue(), generation(entry
+                            .getKey())));
+                }
+            }
+        }
+        if (promoted != null) {
+            promoted.delete();
+        }
+        if (!demoted.isEmpty()) {
+            demote(demoted);
+        }
+    }
+
+    /**
+     * Moves the tiles evicted from memory to disk, or drops them if there is no disk tier. Each
+     * tile is dropped as well if its feature type got invalidated since it left the memory tier
+     */
+    void demote(List<Entry> tiles) {
+        if (directory == null) {
+            evictions.addAndGet(tiles.size());
+            return;
+        }
+
+        List<File> deleted = new ArrayList<File>();
+        for (Entry entry : tiles) {
+            TileKey key = entry.key;
+            Tile tile = entry.tile;
+            DiskTile stored;
+            try {
+                stored = write(tile);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not write cached tile " + key + " to disk", e);
+                evictions.incrementAndGet();
+                continue;
+            }
+
+            synchronized (this) {
+                if (entry.generation != generation(key) || stored.size > diskLimit
+                        || memory.containsKey(key) || disk.containsKey(key)) {
+                    // invalidated, too big, or loaded again while we were writing
+                    deleted.add(stored.file);
+                    if (stored.size > diskLimit) {
+                        evictions.incrementAndGet();
+                    }
+                    continue;
+                }
+                disk.put(key, stored);
+                diskSize += stored.size;
+                for (Iterator<DiskTile> it = disk.values().iterator(); it.hasNext()
+                        && diskSize > diskLimit;) {
+                    DiskTile evicted = it.next();
+                    it.remove();
+                    diskSize -= evicted.size;
+                    deleted.add(evicted.file);
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        for (File file : deleted) {
+            file.delete();
+        }
+    }
+
+    DiskTile write(Tile tile) throws IOException {
+        File file = File.createTempFile("tile", ".ser", directory);
+        boolean written = false;
+        try {
+            ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file)));
+            try {
+                SimpleFeatureMarshaller marshaller = new SimpleFeatureMarshaller();
+                oos.writeInt(tile.features.length);
+                for (SimpleFeature feature : tile.features) {
+                    marshaller.marshall(feature, oos);
+                }
+            } finally {
+                oos.close();
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                file.delete();
+            }
+        }
+        return new DiskTile(file, file.length(), tile.type);
+    }
+
+    Tile read(DiskTile stored) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(
+                new FileInputStream(stored.file)));
+        try {
+            SimpleFeatureMarshaller marshaller = new SimpleFeatureMarshaller();
+            marshaller.registerType(stored.type);
+            SimpleFeature[] features = new SimpleFeature[ois.readInt()];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = marshaller.unmarshall(ois);
+            }
+            return new Tile(stored.type, features);
+        } finally {
+            ois.close();
+        }
+    }
+
+    /**
+     * Removes the tiles of the specified owner and feature type intersecting the area
+     *
+     * @param owner the data store the tiles belong to
+     * @param typeName the feature type, or null to invalidate all of the owner tiles
+     * @param area the area, or null to invalidate all the tiles of the feature type
+     */
+    void invalidate(Object owner, String typeName, Envelope area) {
+        List<File> deleted = new ArrayList<File>();
+        synchronized (this) {
+            Generations owned = generations.get(owner);
+            if (owned == null) {
+                owned = new Generations();
+                generations.put(owner, owned);
+            }
+            owned.bump(typeName);
+            invalidations.incrementAndGet();
+            for (Iterator<Map.Entry<TileKey, Tile>> it = memory.entrySet().iterator(); it
+                    .hasNext();) {
+                Map.Entry<TileKey, Tile> entry = it.next();
+                if (matches(entry.getKey(), owner, typeName, area)) {
+                    it.remove();
+                    memorySize -= entry.getValue().size;
+                }
+            }
+            for (Iterator<Map.Entry<TileKey, DiskTile>> it = disk.entrySet().iterator(); it
+                    .hasNext();) {
+                Map.Entry<TileKey, DiskTile> entry = it.next();
+                if (matches(entry.getKey(), owner, typeName, area)) {
+                    it.remove();
+                    diskSize -= entry.getValue().size;
+                    deleted.add(entry.getValue().file);
+                }
+            }
+        }
+        for (File file : deleted) {
+            file.delete();
+        }
+    }
+
+    static boolean matches(TileKey key, Object owner, String typeName, Envelope area) {
+        return key.owner == owner && (typeName == null || typeName.equals(key.typeName))
+                && (area == null || area.intersects(key.bounds));
+    }
+
+    /**
+     * Records a query that could not be answered by the cache
+     */
+    void bypass() {
+        bypasses.incrementAndGet();
+    }
+
+    /**
+     * Removes all the tiles from the cache
+     */
+    public void clear() {
+        List<File> deleted = new ArrayList<File>();
+        synchronized (this) {
+            generation++;
+            memory.clear();
+            memorySize = 0;
+            for (DiskTile stored : disk.values()) {
+                deleted.add(stored.file);
+            }
+            disk.clear();
+            diskSize = 0;
+        }
+        for (File file : deleted) {
+            file.delete();
+        }
+    }
+
+    /**
+     * The number of tile lookups answered by the cache, from either tier
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of tile lookups answered by the disk tier
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * The number of tile lookups that required a load from the wrapped data store
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The ratio between hits and lookups, or 0 if no lookup has been made yet
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * The number of queries that went straight to the wrapped data store because they could not
+     * be split in tiles
+     */
+    public long getBypasses() {
+        return bypasses.get();
+    }
+
+    /**
+     * The number of tiles dropped because the budgets were exceeded
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * The number of invalidations caused by data changes
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * The estimated memory used by the tiles held in memory, in bytes
+     */
+    public synchronized long getMemorySize() {
+        return memorySize;
+    }
+
+    /**
+     * The disk space used by the tiles held on disk, in bytes
+     */
+    public synchronized long getDiskSize() {
+        return diskSize;
+    }
+
+    public synchronized int getMemoryTileCount() {
+        return memory.size();
+    }
+
+    public synchronized int getDiskTileCount() {
+        return disk.size();
+    }
+
+    /**
+     * Resets the hit, miss, bypass, eviction and invalidation counters
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        diskHits.set(0);
+        misses.set(0);
+        bypasses.set(0);
+        evictions.set(0);
+        invalidations.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "TileCache[hits=" + getHits() + ", misses=" + getMisses() + ", hitRatio="
+                + getHitRatio() + ", bypasses=" + getBypasses() + ", evictions="
+                + getEvictions() + ", invalidations=" + getInvalidations() + ", memory="
+                + getMemorySize() + "/" + memoryLimit + ", disk=" + getDiskSize() + "/"
+                + diskLimit + "]";
+    }
+
+    /**
+     * A tile leaving the memory tier, along with the generation of its feature type at the time
+     */
+    static final class Entry {
+        final TileKey key;
+
+        final Tile tile;
+
+        final long generation;
+
+        Entry(TileKey key, Tile tile, long generation) {
+            this.key = key;
+            this.tile = tile;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.datastore;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A regular grid of tiles used by {@link CachingDataStore} to split queries into cacheable
+ * units. The grid is unbounded, tiles are numbered starting from the origin, so that any
+ * envelope can be mapped to a range of tiles.
+ */
+public class TileGrid {
+
+    final double originX;
+
+    final double originY;
+
+    final double tileWidth;
+
+    final double tileHeight;
+
+    /**
+     * Creates a grid whose tile (0, 0) has its lower left corner in the specified origin
+     */
+    public TileGrid(double originX, double originY, double tileWidth, double tileHeight) {
+        if (!(tileWidth > 0) || !(tileHeight > 0) || Double.isInfinite(tileWidth)
+                || Double.isInfinite(tileHeight)) {
+            throw new IllegalArgumentException("Tile size must be positive and finite, got "
+                    + tileWidth + " x " + tileHeight);
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    /**
+     * Creates a grid splitting the specified bounds in <code>tilesPerSide</code> x
+     * <code>tilesPerSide</code> tiles, or returns null if the bounds are empty or not finite
+     */
+    public static TileGrid create(Envelope bounds, int tilesPerSide) {
+        if (bounds == null || bounds.isNull() || Double.isInfinite(bounds.getWidth())
+                || Double.isInfinite(bounds.getHeight())) {
+            return null;
+        }
+        // degenerate bounds, such as a single point, still need a non empty tile
+        double width = bounds.getWidth() > 0 ? bounds.getWidth() : 1;
+        double height = bounds.getHeight() > 0 ? bounds.getHeight() : 1;
+        return new TileGrid(bounds.getMinX(), bounds.getMinY(), width / tilesPerSide, height
+                / tilesPerSide);
+    }
+
+    long column(double x) {
+        return (long) Math.floor((x - originX) / tileWidth);
+    }
+
+    long row(double y) {
+        return (long) Math.floor((y - originY) / tileHeight);
+    }
+
+    Envelope getTileBounds(long column, long row) {
+        double minx = originX + column * tileWidth;
+        double miny = originY + row * tileHeight;
+        return new Envelope(minx, minx + tileWidth, miny, miny + tileHeight);
+    }
+
+    public double getOriginX() {
+        return originX;
+    }
+
+    public double getOriginY() {
+        return originY;
+    }
+
+    public double getTileWidth() {
+        return tileWidth;
+    }
+
+    public double getTileHeight() {
+        return tileHeight;
+    }
+
+    @Override
+    public String toString() {
+        return "TileGrid[origin=(" + originX + ", " + originY + "), tile=" + tileWidth + " x "
+                + tileHeight + "]";
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.datastore;
+
+import java.util.Arrays;
+
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Identifies a cached tile: the data store and feature type it comes from, its position in the
+ * grid, the bbox property it has been extracted with, the residual (non spatial) filter and the
+ * loaded properties.
+ */
+final class TileKey {
+
+    final Object owner;
+
+    final String typeName;
+
+    final long column;
+
+    final long row;
+
+    final String geometryName;
+
+    final String srs;
+
+    final Filter filter;
+
+    /**
+     * The loaded properties, in schema order, or null if all of them are loaded
+     */
+    final String[] propertyNames;
+
+    /**
+     * The tile bounds, not part of the identity since they derive from the grid position
+     */
+    final Envelope bounds;
+
+    final int hashCode;
+
+    TileKey(Object owner, String typeName, long column, long row, Envelope bounds,
+            String geometryName, String srs, Filter filter, String[] propertyNames) {
+        this.owner = owner;
+        this.typeName = typeName;
+        this.column = column;
+        this.row = row;
+        this.bounds = bounds;
+        this.geometryName = geometryName;
+        this.srs = srs;
+        this.filter = filter;
+        this.propertyNames = propertyNames;
+
+        int h = System.identityHashCode(owner);
+        h = 31 * h + typeName.hashCode();
+        h = 31 * h + (int) (column ^ (column >>> 32));
+        h = 31 * h + (int) (row ^ (row >>> 32));
+        h = 31 * h + (geometryName == null ? 0 : geometryName.hashCode());
+        h = 31 * h + (srs == null ? 0 : srs.hashCode());
+        h = 31 * h + filter.hashCode();
+        h = 31 * h + Arrays.hashCode(propertyNames);
+        this.hashCode = h;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TileKey)) {
+            return false;
+        }
+        TileKey other = (TileKey) obj;
+        return hashCode == other.hashCode && owner == other.owner && column == other.column
+                && row == other.row && typeName.equals(other.typeName)
+                && equal(geometryName, other.geometryName) && equal(srs, other.srs)
+                && filter.equals(other.filter)
+                && Arrays.equals(propertyNames, other.propertyNames);
+    }
+
+    static boolean equal(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    @Override
+    public String toString() {
+        return "TileKey[" + typeName + " (" + column + ", " + row + ") " + filter
+                + (propertyNames == null ? "" : " " + Arrays.toString(propertyNames)) + "]";
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.datastore;
+
+import java.io.File;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class CachingDataStoreTest extends TestCase {
+
+    static final FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    MemoryDataStore memory;
+
+    SimpleFeatureType type;
+
+    GeometryFactory gf = new GeometryFactory();
+
+    @Override
+    protected void setUp() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("points");
+        tb.add("geom", Point.class);
+        tb.add("name", String.class);
+        tb.add("value", Integer.class);
+        type = tb.buildFeatureType();
+
+        memory = new MemoryDataStore();
+        memory.createSchema(type);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        int id = 0;
+        for (int x = 0; x <= 20; x++) {
+            for (int y = 0; y <= 20; y++) {
+                fb.add(gf.createPoint(new Coordinate(x * 0.5, y * 0.5)));
+                fb.add("p" + id);
+                fb.add(id % 7);
+                memory.addFeature(fb.buildFeature("points." + id));
+                id++;
+            }
+        }
+    }
+
+    Set<String> ids(SimpleFeatureCollection fc) {
+        Set<String> ids = new TreeSet<String>();
+        SimpleFeatureIterator it = fc.features();
+        try {
+            while (it.hasNext()) {
+                ids.add(it.next().getID());
+            }
+        } finally {
+            it.close();
+        }
+        return ids;
+    }
+
+    Filter bbox(double minx, double miny, double maxx, double maxy) {
+        return ff.bbox("geom", minx, miny, maxx, maxy, null);
+    }
+
+    void assertSameResults(SimpleFeatureSource expected, SimpleFeatureSource actual, Query query)
+            throws Exception {
+        assertEquals(query.toString(), ids(expected.getFeatures(query)), ids(actual
+                .getFeatures(query)));
+    }
+
+    public void testCachedResults() throws Exception {
+        CachingDataStore store = new CachingDataStore(memory, 10 * 1024 * 1024);
+        store.setTilesPerSide(4);
+        SimpleFeatureSource cached = store.getFeatureSource("points");
+        SimpleFeatureSource original = memory.getFeatureSource("points");
+
+        Query[] queries = new Query[] {
+                new Query("points", bbox(1, 1, 3, 3)),
+                new Query("points", bbox(2.2, 0, 7.7, 4.1)),
+                new Query("points", ff.and(bbox(0, 0, 10, 10), ff.equals(ff.property("value"),
+                        ff.literal(3)))),
+                new Query("points", bbox(1, 1, 3, 3), new String[] { "name" }),
+                new Query("points", bbox(-5, -5, 0, 0)) };
+        for (int i = 0; i < 2; i++) {
+            for (Query query : queries) {
+                assertSameResults(original, cached, query);
+            }
+        }
+        TileCache cache = store.getCache();
+        assertTrue(cache.getHits() > 0);
+        long misses = cache.getMisses();
+        for (Query query : queries) {
+            assertSameResults(original, cached, query);
+        }
+        assertEquals(misses, cache.getMisses());
+        assertEquals(0, cache.getBypasses());
+        assertTrue(cache.getHitRatio() > 0.5);
+
+        // property selection is honored
+        SimpleFeatureCollection fc = cached.getFeatures(queries[3]);
+        assertEquals(1, fc.getSchema().getAttributeCount());
+        SimpleFeatureIterator it = fc.features();
+        try {
+            SimpleFeature f = it.next();
+            assertEquals(1, f.getAttributeCount());
+            assertNotNull(f.getAttribute("name"));
+        } finally {
+            it.close();
+        }
+
+        // max features
+        Query limited = new Query(queries[1]);
+        limited.setMaxFeatures(5);
+        assertEquals(5, cached.getFeatures(limited).size());
+    }
+
+    public void testBypass() throws Exception {
+        CachingDataStore store = new CachingDataStore(memory, 10 * 1024 * 1024);
+        SimpleFeatureSource cached = store.getFeatureSource("points");
+        assertEquals(441, cached.getFeatures().size());
+        assertEquals(63, cached.getFeatures(ff.equals(ff.property("value"), ff.literal(3)))
+                .size());
+
+        // too many tiles
+        store.setMaxTilesPerQuery(4);
+        assertEquals(441, cached.getFeatures(bbox(0, 0, 10, 10)).size());
+        assertEquals(3, store.getCache().getBypasses());
+        assertEquals(0, store.getCache().getMisses());
+    }
+
+    public void testInvalidation() throws Exception {
+        CachingDataStore store = new CachingDataStore(memory, 10 * 1024 * 1024);
+        store.setTilesPerSide(4);
+        SimpleFeatureSource cached = store.getFeatureSource("points");
+        Filter area = bbox(0.1, 0.1, 0.9, 0.9);
+        assertEquals(1, cached.getFeatures(area).size());
+        assertEquals(1, cached.getFeatures(area).size());
+        assertTrue(store.getCache().getMemoryTileCount() > 0);
+
+        // add a feature through the wrapped store, the listener drops the tiles
+        FeatureWriter<SimpleFeatureType, SimpleFeature> writer = store.getFeatureWriterAppend(
+                "points", Transaction.AUTO_COMMIT);
+        SimpleFeature f = writer.next();
+        f.setAttribute("geom", gf.createPoint(new Coordinate(0.7, 0.7)));
+        f.setAttribute("name", "added");
+        f.setAttribute("value", 100);
+        writer.write();
+        writer.close();
+        assertTrue(store.getCache().getInvalidations() > 0);
+        assertEquals(2, cached.getFeatures(area).size());
+
+        // changes committed by a feature store of the wrapped store reach the listener
+        DefaultTransaction transaction = new DefaultTransaction();
+        SimpleFeatureStore fs = (SimpleFeatureStore) memory.getFeatureSource("points");
+        fs.setTransaction(transaction);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        fb.add(gf.createPoint(new Coordinate(0.3, 0.3)));
+        fs.addFeatures(DataUtilities.collection(fb.buildFeature(null)));
+        transaction.commit();
+        transaction.close();
+        assertEquals(3, cached.getFeatures(area).size());
+
+        // explicit invalidation
+        store.invalidate("points", null);
+        assertEquals(0, store.getCache().getMemoryTileCount());
+    }
+
+    public void testInvalidationGenerations() throws Exception {
+        TileCache cache = new TileCache(10 * 1024 * 1024);
+        Object owner = new Object();
+        Envelope bounds = new Envelope(0, 1, 0, 1);
+        TileKey points = new TileKey(owner, "points", 0, 0, bounds, "geom", null,
+                Filter.INCLUDE, null);
+        TileKey lines = new TileKey(owner, "lines", 0, 0, bounds, "geom", null, Filter.INCLUDE,
+                null);
+        Tile tile = new Tile(type, new SimpleFeature[0]);
+
+        // a load racing with the invalidation of another type is kept
+        long generation = cache.getGeneration(points);
+        cache.invalidate(owner, "lines", null);
+        cache.put(points, tile, generation);
+        assertSame(tile, cache.get(points));
+
+        // one racing with the invalidation of its own type is dropped
+        generation = cache.getGeneration(lines);
+        cache.invalidate(owner, "lines", null);
+        cache.put(lines, tile, generation);
+        assertNull(cache.get(lines));
+
+        // as well as one racing with the invalidation of the whole store
+        generation = cache.getGeneration(lines);
+        cache.invalidate(owner, null, null);
+        cache.put(lines, tile, generation);
+        assertNull(cache.get(lines));
+
+        // other stores are not affected
+        TileKey other = new TileKey(new Object(), "lines", 0, 0, bounds, "geom", null,
+                Filter.INCLUDE, null);
+        generation = cache.getGeneration(other);
+        cache.invalidate(owner, null, null);
+        cache.put(other, tile, generation);
+        assertSame(tile, cache.get(other));
+    }
+
+    public void testMemoryBudget() throws Exception {
+        CachingDataStore store = new CachingDataStore(memory, 8 * 1024);
+        store.setTilesPerSide(10);
+        SimpleFeatureSource cached = store.getFeatureSource("points");
+        SimpleFeatureSource original = memory.getFeatureSource("points");
+        for (int i = 0; i < 10; i++) {
+            assertSameResults(original, cached, new Query("points", bbox(i, i, i + 1, i + 1)));
+        }
+        TileCache cache = store.getCache();
+        assertTrue(cache.getMemorySize() <= 8 * 1024);
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(0, cache.getDiskTileCount());
+    }
+
+    public void testDiskTier() throws Exception {
+        File directory = File.createTempFile("tiles", "");
+        directory.delete();
+        TileCache cache = new TileCache(8 * 1024, directory, 10 * 1024 * 1024);
+        try {
+            CachingDataStore store = new CachingDataStore(memory, cache);
+            store.setTilesPerSide(10);
+            SimpleFeatureSource cached = store.getFeatureSource("points");
+            SimpleFeatureSource original = memory.getFeatureSource("points");
+            for (int j = 0; j < 2; j++) {
+                for (int i = 0; i < 10; i++) {
+                    assertSameResults(original, cached, new Query("points", bbox(i, i, i + 1,
+                            i + 1)));
+                }
+            }
+            assertTrue(cache.getDiskTileCount() > 0);
+            assertTrue(cache.getDiskSize() > 0);
+            assertTrue(cache.getDiskHits() > 0);
+            assertEquals(0, cache.getEvictions());
+
+            // attribute values survive the round trip
+            SimpleFeatureCollection fc = cached.getFeatures(ff.and(bbox(0, 0, 0.1, 0.1), ff
+                    .equals(ff.property("name"), ff.literal("p0"))));
+            assertEquals(1, fc.size());
+
+            store.invalidate("points", null);
+            assertEquals(0, cache.getDiskTileCount());
+            assertEquals(0, directory.list().length);
+        } finally {
+            cache.clear();
+            directory.delete();
+        }
+    }
+}